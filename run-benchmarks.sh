@@ -0,0 +1,27 @@
+#!/bin/bash
+
+# Records a benchmark baseline from the base commit and compares the working tree with it, on the same machine, so
+# no baseline needs to be committed. Usage: ./run-benchmarks.sh [base ref, default origin/master] [maven args...]
+
+set -e
+
+cd "$(dirname "$0")"
+
+BASE_REF="${1:-origin/master}"
+shift || true
+
+BASE_COMMIT="$(git merge-base "$BASE_REF" HEAD)"
+BASELINE="$PWD/target/benchmarks/baseline.json"
+BASE_TREE="$(mktemp -d)"
+trap 'git worktree remove --force "$BASE_TREE"' EXIT
+
+mkdir -p "$(dirname "$BASELINE")"
+git worktree add --detach "$BASE_TREE" "$BASE_COMMIT"
+if [ ! -d "$BASE_TREE/src/benchmark" ]; then
+  echo "$BASE_COMMIT has no benchmarks to compare with"
+  exit 0
+fi
+(cd "$BASE_TREE" && mvn -B -DrunBenchmarks -DskipTests -Dbenchmark.recordBaseline=true \
+  -Dbenchmark.baseline="$BASELINE" "$@" verify)
+
+mvn -B -DrunBenchmarks -DskipTests -Dbenchmark.baseline="$BASELINE" "$@" verify
@@ -0,0 +1,82 @@
+package uk.gov.pay.ledger.benchmark;
+
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
+
+final class BenchmarkFixtures {
+
+    private static final List<String> PAYMENT_LIFECYCLE = List.of(
+            "PAYMENT_CREATED",
+            "PAYMENT_STARTED",
+            "PAYMENT_DETAILS_ENTERED",
+            "AUTHORISATION_SUCCEEDED",
+            "USER_EMAIL_COLLECTED",
+            "CAPTURE_SUBMITTED",
+            "CAPTURE_CONFIRMED"
+    );
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * A payment history of eventCount events, latest first, as read from the event table. The payment goes through
+     * its usual lifecycle and any further events are refund availability updates, which make up most of the events
+     * on long-lived payments.
+     */
+    static List<Event> aPaymentEventHistory(int eventCount) {
+        String resourceExternalId = "benchmarkpayment" + eventCount;
+        ZonedDateTime createdDate = ZonedDateTime.parse("2020-03-12T16:25:01.123456Z");
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            ZonedDateTime eventDate = createdDate.plusMinutes(i);
+            if (i < PAYMENT_LIFECYCLE.size()) {
+                String eventType = PAYMENT_LIFECYCLE.get(i);
+                events.add(aQueuePaymentEventFixture()
+                        .withResourceExternalId(resourceExternalId)
+                        .withGatewayAccountId("100")
+                        .withEventDate(eventDate)
+                        .withEventType(eventType)
+                        .withDefaultEventDataForEventType(eventType)
+                        .toEntity());
+            } else {
+                events.add(aQueuePaymentEventFixture()
+                        .withResourceExternalId(resourceExternalId)
+                        .withEventDate(eventDate)
+                        .withEventType("REFUND_AVAILABILITY_UPDATED")
+                        .withEventData(String.format("{\"refund_status\": \"available\", " +
+                                "\"refund_amount_available\": %d, \"refund_amount_refunded\": %d}", 1000 - i, i))
+                        .toEntity());
+            }
+        }
+        Collections.reverse(events);
+        return events;
+    }
+
+    static TransactionEntity aPaymentTransactionEntity() {
+        return aTransactionFixture()
+                .withGatewayAccountId("100")
+                .withExternalId("benchmarkpayment")
+                .withAmount(1000L)
+                .withReference("reference")
+                .withDescription("description")
+                .withCreatedDate(ZonedDateTime.parse("2020-03-12T16:25:01.123456Z"))
+                .withCardBrand("visa")
+                .withFirstDigitsCardNumber("424242")
+                .withLastDigitsCardNumber("4242")
+                .withDefaultCardDetails()
+                .withDefaultTransactionDetails()
+                .withFee(5L)
+                .withNetAmount(995L)
+                .withTotalAmount(1000L)
+                .toEntity();
+    }
+}
@@ -0,0 +1,114 @@
+package uk.gov.pay.ledger.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks and compares their scores with a recorded baseline, exiting with a non-zero status when any
+ * benchmark is slower than its baseline by more than the allowed percentage. Scores are throughput in operations per
+ * millisecond, so higher is better.
+ *
+ * Run through the benchmarks profile, which sets the system properties read here. Baselines depend on the machine,
+ * so none is committed: run-benchmarks.sh records one from the base commit and then compares the working tree with
+ * it on the same machine, which is how CI runs the benchmarks.
+ *
+ * Add -Dbenchmark.recordBaseline=true to write the scores as the new baseline instead of comparing them. Comparing
+ * without a baseline fails, so a missing baseline can't let every run pass.
+ */
+public class BenchmarkRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkRunner.class);
+    private static final ObjectMapper OBJECT_MAPPER = Jackson.newObjectMapper();
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path results = Path.of(System.getProperty("benchmark.results", "target/benchmarks/results.json"));
+        Path baseline = Path.of(System.getProperty("benchmark.baseline", "src/benchmark/baseline.json"));
+        boolean recordBaseline = Boolean.parseBoolean(System.getProperty("benchmark.recordBaseline", "false"));
+        double maxRegressionPercent = Double.parseDouble(System.getProperty("benchmark.maxRegressionPercent", "20"));
+        Files.createDirectories(results.toAbsolutePath().getParent());
+
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", BenchmarkRunner.class.getPackageName() + ".*"))
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.toString())
+                .build();
+        Map<String, Double> scores = scoresOf(new Runner(options).run());
+
+        if (recordBaseline) {
+            OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(baseline.toFile(), scores);
+            LOGGER.info("Recorded benchmark baseline [path={}] [benchmarks={}]", baseline, scores.size());
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            LOGGER.error("No benchmark baseline to compare with, run run-benchmarks.sh or record one with " +
+                    "-Dbenchmark.recordBaseline=true [path={}]", baseline);
+            System.exit(1);
+        }
+
+        Map<String, Double> baselineScores = OBJECT_MAPPER.readValue(baseline.toFile(), new TypeReference<>() {});
+        List<String> regressions = regressions(baselineScores, scores, maxRegressionPercent);
+        if (!regressions.isEmpty()) {
+            regressions.forEach(LOGGER::error);
+            System.exit(1);
+        }
+        LOGGER.info("No benchmark is more than {}% slower than the baseline", maxRegressionPercent);
+    }
+
+    static List<String> regressions(Map<String, Double> baselineScores, Map<String, Double> scores,
+                                    double maxRegressionPercent) {
+        List<String> regressions = new ArrayList<>();
+        scores.forEach((benchmark, score) -> {
+            Double baselineScore = baselineScores.get(benchmark);
+            if (baselineScore == null) {
+                LOGGER.info("No baseline for benchmark [benchmark={}] [score={}]", benchmark, score);
+                return;
+            }
+            double changePercent = (score - baselineScore) / baselineScore * 100;
+            if (changePercent < -maxRegressionPercent) {
+                regressions.add(String.format("Benchmark regressed [benchmark=%s] [baseline=%.3f] [score=%.3f] [change=%.1f%%]",
+                        benchmark, baselineScore, score, changePercent));
+            }
+        });
+        return regressions;
+    }
+
+    private static Map<String, Double> scoresOf(Collection<RunResult> runResults) {
+        Map<String, Double> scores = new TreeMap<>();
+        for (RunResult runResult : runResults) {
+            StringBuilder name = new StringBuilder(runResult.getParams().getBenchmark());
+            for (String param : runResult.getParams().getParamsKeys()) {
+                name.append(':').append(param).append('=').append(runResult.getParams().getParam(param));
+            }
+            scores.put(name.toString(), runResult.getPrimaryResult().getScore());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.pay.ledger.benchmark;
+
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.List;
+
+import static uk.gov.pay.ledger.benchmark.BenchmarkFixtures.aPaymentEventHistory;
+
+/**
+ * The projection each event goes through on ingest: merging the resource's events into a digest and building the
+ * transaction from it.
+ */
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @Param({"5", "20", "80"})
+    private int eventCount;
+
+    private List<Event> events;
+    private EventDigest eventDigest;
+    private TransactionEntityFactory transactionEntityFactory;
+
+    @Setup
+    public void setUp() {
+        events = aPaymentEventHistory(eventCount);
+        eventDigest = EventDigest.fromEventList(events);
+        transactionEntityFactory = new TransactionEntityFactory(Jackson.newObjectMapper());
+    }
+
+    @Benchmark
+    public EventDigest eventDigestFromEventList() {
+        return EventDigest.fromEventList(events);
+    }
+
+    @Benchmark
+    public TransactionEntity transactionEntityFactoryCreate() {
+        return transactionEntityFactory.create(eventDigest);
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.pay.ledger.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+import uk.gov.pay.ledger.transaction.model.CsvTransactionFactory;
+import uk.gov.pay.ledger.transaction.model.Transaction;
+import uk.gov.pay.ledger.transaction.model.TransactionFactory;
+import uk.gov.pay.ledger.transaction.search.model.TransactionView;
+import uk.gov.pay.ledger.util.JsonParser;
+
+import java.util.Map;
+
+import static uk.gov.pay.ledger.benchmark.BenchmarkFixtures.aPaymentTransactionEntity;
+
+/**
+ * The work done per row when transactions are read back out, for search results and CSV downloads.
+ */
+@State(Scope.Benchmark)
+public class TransactionViewBenchmark {
+
+    private TransactionEntity transactionEntity;
+    private Transaction transaction;
+    private TransactionFactory transactionFactory;
+    private CsvTransactionFactory csvTransactionFactory;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        transactionFactory = new TransactionFactory(objectMapper);
+        csvTransactionFactory = new CsvTransactionFactory(objectMapper);
+        transactionEntity = aPaymentTransactionEntity();
+        transaction = transactionFactory.createTransactionEntity(transactionEntity);
+    }
+
+    @Benchmark
+    public Transaction transactionFactoryCreateTransactionEntity() {
+        return transactionFactory.createTransactionEntity(transactionEntity);
+    }
+
+    @Benchmark
+    public TransactionView transactionViewFrom() {
+        return TransactionView.from(transaction, 2);
+    }
+
+    @Benchmark
+    public Map<String, Object> csvTransactionFactoryToMap() {
+        return csvTransactionFactory.toMap(transactionEntity);
+    }
+
+    @Benchmark
+    public Map<String, Object> jsonParserJsonStringToMap() {
+        return JsonParser.jsonStringToMap(transactionEntity.getTransactionDetails());
+    }
+}
@@ -0,0 +1,181 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.db.ManagedDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of connections one workload (ingestion, API reads, maintenance, CSV exports or reports) can hold
+ * from a shared pool, so a burst of one kind of work can't take every connection and starve the others.
+ *
+ * A permit is taken when a connection is handed out and given back when the connection is closed. The underlying
+ * pool is managed elsewhere, so starting and stopping this datasource does nothing. A workload that reads from more
+ * than one pool, such as API reads that go to the read replica for searches and to the primary for lookups, shares
+ * its permits between them with {@link #withDataSource(DataSource)}.
+ *
+ * Metrics (prefixed with bulkhead.<workload>):
+ * - wait: time spent waiting for a permit
+ * - rejected: requests that gave up after waiting the maximum time
+ * - in-use: connections currently held by the workload
+ * - saturation: in-use as a fraction of the workload's maximum connections
+ */
+public class BulkheadDataSource implements ManagedDataSource {
+
+    private final String workload;
+    private final DataSource dataSource;
+    private final int maxConnections;
+    private final long maxWaitInMilliseconds;
+    private final Semaphore permits;
+    private final Timer waitTimer;
+    private final Meter rejected;
+
+    public BulkheadDataSource(String workload, DataSource dataSource, int maxConnections, long maxWaitInMilliseconds,
+                              MetricRegistry metricRegistry) {
+        this.workload = workload;
+        this.dataSource = dataSource;
+        this.maxConnections = maxConnections;
+        this.maxWaitInMilliseconds = maxWaitInMilliseconds;
+        this.permits = new Semaphore(maxConnections, true);
+        this.waitTimer = metricRegistry.timer(MetricRegistry.name("bulkhead", workload, "wait"));
+        this.rejected = metricRegistry.meter(MetricRegistry.name("bulkhead", workload, "rejected"));
+        metricRegistry.gauge(MetricRegistry.name("bulkhead", workload, "in-use"),
+                () -> (Gauge<Integer>) this::getConnectionsInUse);
+        metricRegistry.gauge(MetricRegistry.name("bulkhead", workload, "saturation"),
+                () -> (Gauge<Double>) () -> (double) getConnectionsInUse() / maxConnections);
+    }
+
+    private BulkheadDataSource(BulkheadDataSource bulkhead, DataSource dataSource) {
+        this.workload = bulkhead.workload;
+        this.dataSource = dataSource;
+        this.maxConnections = bulkhead.maxConnections;
+        this.maxWaitInMilliseconds = bulkhead.maxWaitInMilliseconds;
+        this.permits = bulkhead.permits;
+        this.waitTimer = bulkhead.waitTimer;
+        this.rejected = bulkhead.rejected;
+    }
+
+    /**
+     * @return a datasource handing out connections from another pool that take their permits from this workload
+     */
+    public BulkheadDataSource withDataSource(DataSource dataSource) {
+        return new BulkheadDataSource(this, dataSource);
+    }
+
+    int getConnectionsInUse() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        try {
+            return releasingOnClose(dataSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        boolean acquired;
+        try (Timer.Context ignored = waitTimer.time()) {
+            acquired = permits.tryAcquire(maxWaitInMilliseconds, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a " + workload + " connection", e);
+        }
+
+        if (!acquired) {
+            rejected.mark();
+            throw new SQLTransientConnectionException(String.format(
+                    "All %d %s connections in use, timed out after %dms", maxConnections, workload, maxWaitInMilliseconds));
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are only available with the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
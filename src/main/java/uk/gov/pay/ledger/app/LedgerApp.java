@@ -6,13 +6,24 @@ import io.dropwizard.Application;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
 import io.dropwizard.jdbi3.JdbiFactory;
+import io.dropwizard.jdbi3.JdbiHealthCheck;
 import io.dropwizard.jdbi3.bundles.JdbiExceptionsBundle;
 import io.dropwizard.migrations.MigrationsBundle;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.config.BulkheadConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.app.config.ReadReplicaConfig;
+import uk.gov.pay.ledger.event.managed.EventArchiver;
+import uk.gov.pay.ledger.event.managed.EventPartitionMaintainer;
 import uk.gov.pay.ledger.event.resource.EventResource;
+import uk.gov.pay.ledger.event.service.EventTickerService;
 import uk.gov.pay.ledger.exception.BadRequestExceptionMapper;
 import uk.gov.pay.ledger.exception.JerseyViolationExceptionMapper;
 import uk.gov.pay.ledger.filters.LoggingMDCRequestFilter;
@@ -21,7 +32,13 @@ import uk.gov.pay.ledger.healthcheck.DependentResourceWaitCommand;
 import uk.gov.pay.ledger.healthcheck.HealthCheckResource;
 import uk.gov.pay.ledger.healthcheck.SQSHealthCheck;
 import uk.gov.pay.ledger.payout.resource.PayoutResource;
+import uk.gov.pay.ledger.queue.CoalescingProjector;
+import uk.gov.pay.ledger.queue.admin.SlowestEventsServlet;
 import uk.gov.pay.ledger.queue.managed.QueueMessageReceiver;
+import uk.gov.pay.ledger.queue.quarantine.task.ReplayQuarantinedMessagesTask;
+import uk.gov.pay.ledger.queue.resource.QuarantineResource;
+import uk.gov.pay.ledger.replay.ReplayProjectionsCommand;
+import uk.gov.pay.ledger.report.managed.TransactionHourlyRollupFolder;
 import uk.gov.pay.ledger.report.resource.PerformanceReportResource;
 import uk.gov.pay.ledger.report.resource.ReportResource;
 import uk.gov.pay.ledger.transaction.resource.TransactionResource;
@@ -29,11 +46,17 @@ import uk.gov.pay.logging.GovUkPayDropwizardRequestJsonLogLayoutFactory;
 import uk.gov.pay.logging.LoggingFilter;
 import uk.gov.pay.logging.LogstashConsoleAppenderFactory;
 
+import javax.sql.DataSource;
+
 import static java.util.EnumSet.of;
 import static javax.servlet.DispatcherType.REQUEST;
 
 public class LedgerApp extends Application<LedgerConfig> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerApp.class);
+
+    private Injector injector;
+
     public static void main(String[] args) throws Exception {
         new LedgerApp().run(args);
     }
@@ -54,6 +77,7 @@ public class LedgerApp extends Application<LedgerConfig> {
 
         bootstrap.addBundle(new JdbiExceptionsBundle());
         bootstrap.addCommand(new DependentResourceWaitCommand());
+        bootstrap.addCommand(new ReplayProjectionsCommand(this));
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(LogstashConsoleAppenderFactory.class);
         bootstrap.getObjectMapper().getSubtypeResolver().registerSubtypes(GovUkPayDropwizardRequestJsonLogLayoutFactory.class);
     }
@@ -61,15 +85,46 @@ public class LedgerApp extends Application<LedgerConfig> {
     @Override
     public void run(LedgerConfig config, Environment environment) {
         JdbiFactory jdbiFactory = new JdbiFactory();
-        final Jdbi jdbi = jdbiFactory.build(environment, config.getDataSourceFactory(), "postgresql");
+        final ManagedDataSource dataSource = config.getDataSourceFactory().build(environment.metrics(), "postgresql");
+        environment.lifecycle().manage(dataSource);
+        registerDatabaseHealthCheck(config.getDataSourceFactory(), environment, dataSource);
+        final DataSource readOnlyDataSource = buildReadOnlyDataSource(config.getReadReplicaConfig(), environment, dataSource);
+
+        BulkheadConfig bulkheadConfig = config.getBulkheadConfig();
+        final BulkheadDataSource apiReadsDataSource = buildBulkhead(config, environment, readOnlyDataSource,
+                "api-reads", bulkheadConfig.getApiReadsMaxConnections());
+        final Jdbi ingestJdbi = buildWorkloadJdbi(config, environment, jdbiFactory,
+                buildBulkhead(config, environment, dataSource, "ingest", bulkheadConfig.getIngestMaxConnections()),
+                "ingest");
+        final Jdbi primaryReadsJdbi = buildWorkloadJdbi(config, environment, jdbiFactory,
+                apiReadsDataSource.withDataSource(dataSource), "api-reads-primary");
+        final Jdbi maintenanceJdbi = buildWorkloadJdbi(config, environment, jdbiFactory,
+                buildBulkhead(config, environment, dataSource, "maintenance", bulkheadConfig.getMaintenanceMaxConnections()),
+                "maintenance");
+        final Jdbi apiReadsJdbi = buildWorkloadJdbi(config, environment, jdbiFactory, apiReadsDataSource, "api-reads");
+        final Jdbi exportsJdbi = buildWorkloadJdbi(config, environment, jdbiFactory,
+                buildBulkhead(config, environment, readOnlyDataSource, "exports", bulkheadConfig.getExportsMaxConnections()),
+                "exports");
+        final Jdbi reportsJdbi = buildWorkloadJdbi(config, environment, jdbiFactory,
+                buildBulkhead(config, environment, readOnlyDataSource, "reports", bulkheadConfig.getReportsMaxConnections()),
+                "reports");
+        warnIfBulkheadsOversubscribePrimaryPool(config);
 
-        final Injector injector = Guice.createInjector(new LedgerModule(config, environment, jdbi));
+        injector = Guice.createInjector(
+                new LedgerModule(config, environment, ingestJdbi, primaryReadsJdbi, maintenanceJdbi, apiReadsJdbi,
+                        exportsJdbi, reportsJdbi,
+                        readOnlyDataSource instanceof ReadOnlyQueryLag ?
+                                (ReadOnlyQueryLag) readOnlyDataSource : ReadOnlyQueryLag.PRIMARY_ONLY));
 
         environment.jersey().register(injector.getInstance(EventResource.class));
         environment.jersey().register(injector.getInstance(TransactionResource.class));
         environment.jersey().register(injector.getInstance(ReportResource.class));
         environment.jersey().register(injector.getInstance(PerformanceReportResource.class));
         environment.jersey().register(injector.getInstance(HealthCheckResource.class));
+        environment.jersey().register(injector.getInstance(QuarantineResource.class));
+        environment.admin().addTask(injector.getInstance(ReplayQuarantinedMessagesTask.class));
+        environment.admin().addServlet("slowest-events", injector.getInstance(SlowestEventsServlet.class))
+                .addMapping(SlowestEventsServlet.PATH);
 
         environment.servlets().addFilter("LoggingFilter", new LoggingFilter())
                 .addMappingForUrlPatterns(of(REQUEST), true, "/v1/*");
@@ -78,13 +133,97 @@ public class LedgerApp extends Application<LedgerConfig> {
 
         environment.jersey().register(new BadRequestExceptionMapper());
         environment.jersey().register(new JerseyViolationExceptionMapper());
-        environment.healthChecks().register("sqsQueue", injector.getInstance(SQSHealthCheck.class));
+        if (config.getEventQueueConfig().getType() == EventQueueConfig.Type.SQS) {
+            environment.healthChecks().register("sqsQueue", injector.getInstance(SQSHealthCheck.class));
+        }
+
+        if (config.getProjectionCoalescingConfig().isEnabled()) {
+            // managed before the receiver so it is stopped after it and projects everything still pending
+            environment.lifecycle().manage(injector.getInstance(CoalescingProjector.class));
+        }
 
         if(config.getQueueMessageReceiverConfig().isBackgroundProcessingEnabled()) {
             environment.lifecycle().manage(injector.getInstance(QueueMessageReceiver.class));
         }
 
         environment.jersey().register(injector.getInstance(PayoutResource.class));
+        environment.lifecycle().manage(injector.getInstance(EventTickerService.class));
+        environment.lifecycle().manage(injector.getInstance(EventPartitionMaintainer.class));
+        environment.lifecycle().manage(injector.getInstance(TransactionHourlyRollupFolder.class));
+
+        if (config.getEventArchiveConfig().isEnabled()) {
+            environment.lifecycle().manage(injector.getInstance(EventArchiver.class));
+        }
+    }
+
+    public Injector getInjector() {
+        return injector;
+    }
+
+    private DataSource buildReadOnlyDataSource(ReadReplicaConfig readReplicaConfig, Environment environment,
+                                               ManagedDataSource primaryDataSource) {
+        if (!readReplicaConfig.isEnabled()) {
+            return primaryDataSource;
+        }
+
+        ManagedDataSource replicaDataSource = readReplicaConfig.getDataSourceFactory()
+                .build(environment.metrics(), "postgresql-read-replica");
+        ReadReplicaRoutingDataSource routingDataSource = new ReadReplicaRoutingDataSource(
+                primaryDataSource,
+                replicaDataSource,
+                readReplicaConfig,
+                environment.lifecycle().scheduledExecutorService("read-replica-lag-check-%d").threads(1).build(),
+                environment.metrics());
+
+        environment.lifecycle().manage(routingDataSource);
+        return routingDataSource;
+    }
+
+    /**
+     * Checks the primary pool itself rather than any workload's share of it, so the check still passes while one
+     * workload has all the connections it is allowed.
+     */
+    private void registerDatabaseHealthCheck(DataSourceFactory dataSourceFactory, Environment environment,
+                                             ManagedDataSource dataSource) {
+        environment.healthChecks().register("postgresql", new JdbiHealthCheck(
+                environment.getHealthCheckExecutorService(),
+                dataSourceFactory.getValidationQueryTimeout().orElse(Duration.seconds(5)),
+                Jdbi.create(dataSource),
+                dataSourceFactory.getValidationQuery()));
+    }
+
+    private BulkheadDataSource buildBulkhead(LedgerConfig config, Environment environment, DataSource dataSource,
+                                             String workload, int maxConnections) {
+        return new BulkheadDataSource(workload, dataSource, maxConnections,
+                config.getBulkheadConfig().getMaxWaitForConnectionInMilliseconds(), environment.metrics());
+    }
+
+    private Jdbi buildWorkloadJdbi(LedgerConfig config, Environment environment, JdbiFactory jdbiFactory,
+                                   BulkheadDataSource bulkheadDataSource, String workload) {
+        String name = "postgresql-" + workload;
+        Jdbi jdbi = jdbiFactory.build(environment, config.getDataSourceFactory(), bulkheadDataSource, name);
+        // the pool is health checked as "postgresql", one busy workload shouldn't fail the health check
+        environment.healthChecks().unregister(name);
+        return jdbi;
+    }
+
+    /**
+     * Every workload only keeps a guaranteed share of the primary pool while the caps of the workloads that can use
+     * it add up to no more than the pool size. API reads always count, as their lookups go to the primary.
+     */
+    private void warnIfBulkheadsOversubscribePrimaryPool(LedgerConfig config) {
+        BulkheadConfig bulkheadConfig = config.getBulkheadConfig();
+        int primaryConnections = bulkheadConfig.getIngestMaxConnections()
+                + bulkheadConfig.getApiReadsMaxConnections()
+                + bulkheadConfig.getMaintenanceMaxConnections();
+        if (!config.getReadReplicaConfig().isEnabled()) {
+            primaryConnections += bulkheadConfig.getExportsMaxConnections() + bulkheadConfig.getReportsMaxConnections();
+        }
+        int poolSize = config.getDataSourceFactory().getMaxSize();
+        if (primaryConnections > poolSize) {
+            LOGGER.warn("Workload connection caps add up to {} but the database pool only has {} connections, " +
+                    "a busy workload can starve the others", primaryConnections, poolSize);
+        }
     }
 
 }
@@ -3,8 +3,17 @@ package uk.gov.pay.ledger.app;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import uk.gov.pay.ledger.app.config.BulkheadConfig;
+import uk.gov.pay.ledger.app.config.EventArchiveConfig;
+import uk.gov.pay.ledger.app.config.EventPartitionConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.app.config.EventTickerConfig;
+import uk.gov.pay.ledger.app.config.ProjectionCoalescingConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.app.config.ReadReplicaConfig;
+import uk.gov.pay.ledger.app.config.RefundProjectionConfig;
 import uk.gov.pay.ledger.app.config.ReportingConfig;
+import uk.gov.pay.ledger.app.config.ShadowProjectionConfig;
 import uk.gov.pay.ledger.app.config.SqsConfig;
 
 import javax.validation.Valid;
@@ -37,6 +46,51 @@ public class LedgerConfig extends Configuration {
     @JsonProperty("reportingConfig")
     private ReportingConfig reportingConfig;
 
+    @Valid
+    @NotNull
+    @JsonProperty("readReplicaConfig")
+    private ReadReplicaConfig readReplicaConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("bulkheadConfig")
+    private BulkheadConfig bulkheadConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("eventTickerConfig")
+    private EventTickerConfig eventTickerConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("eventPartitionConfig")
+    private EventPartitionConfig eventPartitionConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("eventArchiveConfig")
+    private EventArchiveConfig eventArchiveConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("shadowProjectionConfig")
+    private ShadowProjectionConfig shadowProjectionConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("eventQueueConfig")
+    private EventQueueConfig eventQueueConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("projectionCoalescingConfig")
+    private ProjectionCoalescingConfig projectionCoalescingConfig;
+
+    @Valid
+    @NotNull
+    @JsonProperty("refundProjectionConfig")
+    private RefundProjectionConfig refundProjectionConfig = new RefundProjectionConfig();
+
     public SqsConfig getSqsConfig() {
         return sqsConfig;
     }
@@ -48,4 +102,40 @@ public class LedgerConfig extends Configuration {
     public ReportingConfig getReportingConfig() {
         return reportingConfig;
     }
+
+    public ReadReplicaConfig getReadReplicaConfig() {
+        return readReplicaConfig;
+    }
+
+    public BulkheadConfig getBulkheadConfig() {
+        return bulkheadConfig;
+    }
+
+    public EventTickerConfig getEventTickerConfig() {
+        return eventTickerConfig;
+    }
+
+    public EventPartitionConfig getEventPartitionConfig() {
+        return eventPartitionConfig;
+    }
+
+    public EventArchiveConfig getEventArchiveConfig() {
+        return eventArchiveConfig;
+    }
+
+    public ShadowProjectionConfig getShadowProjectionConfig() {
+        return shadowProjectionConfig;
+    }
+
+    public EventQueueConfig getEventQueueConfig() {
+        return eventQueueConfig;
+    }
+
+    public ProjectionCoalescingConfig getProjectionCoalescingConfig() {
+        return projectionCoalescingConfig;
+    }
+
+    public RefundProjectionConfig getRefundProjectionConfig() {
+        return refundProjectionConfig;
+    }
 }
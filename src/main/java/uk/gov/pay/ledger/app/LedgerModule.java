@@ -5,40 +5,77 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import io.dropwizard.setup.Environment;
 import org.jdbi.v3.core.Jdbi;
+import uk.gov.pay.ledger.event.dao.EventArchiveDao;
 import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.dao.EventPartitionDao;
 import uk.gov.pay.ledger.event.dao.ResourceTypeDao;
 import uk.gov.pay.ledger.metadatakey.dao.MetadataKeyDao;
 import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.queue.inprocess.InProcessEventQueue;
+import uk.gov.pay.ledger.queue.quarantine.dao.QuarantinedMessageDao;
+import uk.gov.pay.ledger.queue.replay.NdjsonFileEventQueue;
+import uk.gov.pay.ledger.queue.sqs.SqsEventQueue;
+import uk.gov.pay.ledger.replay.dao.ProjectionReplayDao;
 import uk.gov.pay.ledger.report.dao.PerformanceReportDao;
 import uk.gov.pay.ledger.report.dao.ReportDao;
+import uk.gov.pay.ledger.report.dao.TransactionHourlyRollupDao;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transactionmetadata.dao.TransactionMetadataDao;
 
 public class LedgerModule extends AbstractModule {
+    // DAOs for lookups the API serves from the primary, which share the api-reads connections
+    public static final String PRIMARY_READS = "primary-reads";
+    // DAOs for projection replays and background jobs, which have their own connections so they can't hold up ingestion
+    public static final String MAINTENANCE = "maintenance";
+
     private final LedgerConfig configuration;
     private final Environment environment;
     private final Jdbi jdbi;
+    private final Jdbi primaryReadsJdbi;
+    private final Jdbi maintenanceJdbi;
+    private final Jdbi apiReadsJdbi;
+    private final Jdbi exportsJdbi;
+    private final Jdbi reportsJdbi;
+    private final ReadOnlyQueryLag readOnlyQueryLag;
 
     LedgerModule(
             LedgerConfig config,
             final Environment environment,
-            final Jdbi jdbi
+            final Jdbi jdbi,
+            final Jdbi primaryReadsJdbi,
+            final Jdbi maintenanceJdbi,
+            final Jdbi apiReadsJdbi,
+            final Jdbi exportsJdbi,
+            final Jdbi reportsJdbi,
+            final ReadOnlyQueryLag readOnlyQueryLag
     ) {
         this.configuration = config;
         this.environment = environment;
         this.jdbi = jdbi;
+        this.primaryReadsJdbi = primaryReadsJdbi;
+        this.maintenanceJdbi = maintenanceJdbi;
+        this.apiReadsJdbi = apiReadsJdbi;
+        this.exportsJdbi = exportsJdbi;
+        this.reportsJdbi = reportsJdbi;
+        this.readOnlyQueryLag = readOnlyQueryLag;
     }
 
     @Override
     protected void configure() {
         bind(LedgerConfig.class).toInstance(configuration);
         bind(Environment.class).toInstance(environment);
+        bind(MetricRegistry.class).toInstance(environment.metrics());
+        bind(ReadOnlyQueryLag.class).toInstance(readOnlyQueryLag);
     }
 
     @Provides
@@ -56,6 +93,32 @@ public class LedgerModule extends AbstractModule {
         return jdbi.onDemand(EventDao.class);
     }
 
+    @Provides
+    @Singleton
+    @Named(PRIMARY_READS)
+    public EventDao providePrimaryReadsEventDao() {
+        return primaryReadsJdbi.onDemand(EventDao.class);
+    }
+
+    @Provides
+    @Singleton
+    @Named(MAINTENANCE)
+    public EventDao provideMaintenanceEventDao() {
+        return maintenanceJdbi.onDemand(EventDao.class);
+    }
+
+    @Provides
+    @Singleton
+    public EventArchiveDao provideEventArchiveDao() {
+        return maintenanceJdbi.onDemand(EventArchiveDao.class);
+    }
+
+    @Provides
+    @Singleton
+    public EventPartitionDao provideEventPartitionDao() {
+        return maintenanceJdbi.onDemand(EventPartitionDao.class);
+    }
+
     @Provides
     @Singleton
     public ResourceTypeDao provideResourceTypeDao() {
@@ -65,25 +128,51 @@ public class LedgerModule extends AbstractModule {
     @Provides
     @Singleton
     public TransactionDao provideTransactionDao() {
-        return new TransactionDao(jdbi);
+        return new TransactionDao(jdbi, primaryReadsJdbi, apiReadsJdbi, exportsJdbi, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    @Named(MAINTENANCE)
+    public TransactionDao provideMaintenanceTransactionDao() {
+        return new TransactionDao(maintenanceJdbi, primaryReadsJdbi, apiReadsJdbi, exportsJdbi, environment.metrics());
     }
 
     @Provides
     @Singleton
     public PayoutDao providePayoutDao() {
-        return new PayoutDao(jdbi);
+        return new PayoutDao(jdbi, primaryReadsJdbi, apiReadsJdbi, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    @Named(MAINTENANCE)
+    public PayoutDao provideMaintenancePayoutDao() {
+        return new PayoutDao(maintenanceJdbi, primaryReadsJdbi, apiReadsJdbi, environment.metrics());
     }
 
     @Provides
     @Singleton
     public ReportDao provideReportDao() {
-        return new ReportDao(jdbi);
+        return new ReportDao(reportsJdbi, environment.metrics());
     }
 
     @Provides
     @Singleton
     public PerformanceReportDao providePerformanceReportDao() {
-        return new PerformanceReportDao(jdbi);
+        return new PerformanceReportDao(reportsJdbi);
+    }
+
+    @Provides
+    @Singleton
+    public ProjectionReplayDao provideProjectionReplayDao() {
+        return maintenanceJdbi.onDemand(ProjectionReplayDao.class);
+    }
+
+    @Provides
+    @Singleton
+    public QuarantinedMessageDao provideQuarantinedMessageDao() {
+        return jdbi.onDemand(QuarantinedMessageDao.class);
     }
 
     @Provides
@@ -95,7 +184,32 @@ public class LedgerModule extends AbstractModule {
     @Provides
     @Singleton
     public TransactionMetadataDao provideTransactionMetadataDao() {
-        return new TransactionMetadataDao(jdbi);
+        return new TransactionMetadataDao(jdbi, exportsJdbi);
+    }
+
+    @Provides
+    @Singleton
+    public TransactionHourlyRollupDao provideTransactionHourlyRollupDao() {
+        return maintenanceJdbi.onDemand(TransactionHourlyRollupDao.class);
+    }
+
+    @Provides
+    @Singleton
+    public UnitOfWork provideUnitOfWork() {
+        return new UnitOfWork(jdbi, environment.metrics());
+    }
+
+    @Provides
+    @Singleton
+    public EventQueue provideEventQueue(LedgerConfig ledgerConfig, Injector injector) {
+        switch (ledgerConfig.getEventQueueConfig().getType()) {
+            case IN_PROCESS:
+                return injector.getInstance(InProcessEventQueue.class);
+            case FILE_REPLAY:
+                return injector.getInstance(NdjsonFileEventQueue.class);
+            default:
+                return injector.getInstance(SqsEventQueue.class);
+        }
     }
 
     @Provides
@@ -0,0 +1,24 @@
+package uk.gov.pay.ledger.app;
+
+/**
+ * Tells whether read only queries are currently served by the read replica, and how far it was last seen lagging
+ * behind the primary.
+ */
+public interface ReadOnlyQueryLag {
+
+    ReadOnlyQueryLag PRIMARY_ONLY = new ReadOnlyQueryLag() {
+        @Override
+        public boolean isServingFromReplica() {
+            return false;
+        }
+
+        @Override
+        public double getReplicationLagInSeconds() {
+            return 0;
+        }
+    };
+
+    boolean isServingFromReplica();
+
+    double getReplicationLagInSeconds();
+}
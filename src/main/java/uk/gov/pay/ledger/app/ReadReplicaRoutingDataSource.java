@@ -0,0 +1,162 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.config.ReadReplicaConfig;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Hands out connections to the read replica for read only queries (searches, CSV exports and reports), so they don't
+ * compete with event ingestion for connections to the primary.
+ *
+ * Replication lag is checked on a schedule. Connections come from the primary instead whenever the replica can't be
+ * reached or is lagging by more than the configured threshold, until a later check finds it healthy again.
+ */
+public class ReadReplicaRoutingDataSource implements ManagedDataSource, ReadOnlyQueryLag {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    static final String REPLICATION_LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final ManagedDataSource primary;
+    private final ManagedDataSource replica;
+    private final ReadReplicaConfig config;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Counter primaryFallbacks;
+
+    private volatile boolean replicaAvailable = false;
+    private volatile double replicationLagInSeconds = -1;
+
+    public ReadReplicaRoutingDataSource(ManagedDataSource primary, ManagedDataSource replica, ReadReplicaConfig config,
+                                        ScheduledExecutorService scheduledExecutorService, MetricRegistry metricRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.config = config;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.primaryFallbacks = metricRegistry.counter("read-replica.primary-fallbacks");
+        metricRegistry.gauge("read-replica.replication-lag-seconds", () -> (Gauge<Double>) () -> replicationLagInSeconds);
+        metricRegistry.gauge("read-replica.available", () -> (Gauge<Boolean>) () -> replicaAvailable);
+    }
+
+    @Override
+    public void start() throws Exception {
+        replica.start();
+        checkReplicationLag();
+        scheduledExecutorService.scheduleWithFixedDelay(
+                this::checkReplicationLag,
+                config.getReplicationLagCheckIntervalInSeconds(),
+                config.getReplicationLagCheckIntervalInSeconds(),
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        replica.stop();
+    }
+
+    void checkReplicationLag() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+            resultSet.next();
+            replicationLagInSeconds = resultSet.getDouble(1);
+            setReplicaAvailable(replicationLagInSeconds <= config.getMaxReplicationLagInSeconds());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to check read replica replication lag", kv("error", e.getMessage()));
+            replicationLagInSeconds = -1;
+            setReplicaAvailable(false);
+        }
+    }
+
+    private void setReplicaAvailable(boolean available) {
+        if (available != replicaAvailable) {
+            LOGGER.info(available ? "Routing read only queries to read replica" : "Routing read only queries to primary",
+                    kv("replication_lag_seconds", replicationLagInSeconds));
+        }
+        replicaAvailable = available;
+    }
+
+    @Override
+    public boolean isServingFromReplica() {
+        return replicaAvailable;
+    }
+
+    @Override
+    public double getReplicationLagInSeconds() {
+        return replicationLagInSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicaAvailable) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                LOGGER.warn("Failed to get read replica connection", kv("error", e.getMessage()));
+                setReplicaAvailable(false);
+            }
+        }
+        primaryFallbacks.inc();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections are only available with the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return replica.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        replica.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        replica.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return replica.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return replica.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
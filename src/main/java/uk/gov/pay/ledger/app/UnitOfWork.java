@@ -0,0 +1,78 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a piece of ingestion work on one database handle inside one transaction.
+ *
+ * Jdbi reuses the handle it has open on the current thread, so every withHandle, useTransaction and on demand
+ * SqlObject call made through the ingest Jdbi while the work runs joins the same connection and transaction, instead
+ * of checking out a connection of its own. Nested @Transaction methods run as part of the outer transaction.
+ *
+ * The transaction is committed when the work returns and rolled back if it throws. Work that needs to roll back
+ * without throwing can call rollback on the handle it is given.
+ *
+ * Several units of work can share one connection by running them inside {@link #withHandle(HandleCallback)}. Each
+ * of them still commits on its own, but session state such as advisory locks is kept between them.
+ *
+ * Work that must only happen once the transaction is committed, such as dropping cached results, is registered with
+ * {@link #afterCommit(Runnable)}. It runs after the outermost unit of work on the thread returns and is discarded if
+ * that unit of work throws. Work rolled back with rollback on the handle still runs it, which only costs a needless
+ * invalidation.
+ *
+ * Metrics:
+ * - unit-of-work.transaction: time from the connection being checked out to the commit or rollback
+ */
+public class UnitOfWork {
+
+    private final Jdbi jdbi;
+    private final Timer transactionTimer;
+    private final ThreadLocal<List<Runnable>> afterCommitActions = new ThreadLocal<>();
+
+    public UnitOfWork(Jdbi jdbi, MetricRegistry metricRegistry) {
+        this.jdbi = jdbi;
+        this.transactionTimer = metricRegistry.timer("unit-of-work.transaction");
+    }
+
+    public <R, X extends Exception> R inTransaction(HandleCallback<R, X> work) throws X {
+        if (afterCommitActions.get() != null) {
+            return runInTransaction(work);
+        }
+
+        List<Runnable> actions = new ArrayList<>();
+        afterCommitActions.set(actions);
+        R result;
+        try {
+            result = runInTransaction(work);
+        } finally {
+            afterCommitActions.remove();
+        }
+        actions.forEach(Runnable::run);
+        return result;
+    }
+
+    public void afterCommit(Runnable action) {
+        List<Runnable> actions = afterCommitActions.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    public <R, X extends Exception> R withHandle(HandleCallback<R, X> work) throws X {
+        return jdbi.withHandle(work);
+    }
+
+    private <R, X extends Exception> R runInTransaction(HandleCallback<R, X> work) throws X {
+        try (Timer.Context ignored = transactionTimer.time()) {
+            return jdbi.inTransaction(work);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class BulkheadConfig extends Configuration {
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int ingestMaxConnections;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int apiReadsMaxConnections;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int exportsMaxConnections;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int reportsMaxConnections;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maintenanceMaxConnections;
+
+    @Valid
+    @NotNull
+    private int maxWaitForConnectionInMilliseconds;
+
+    public int getIngestMaxConnections() {
+        return ingestMaxConnections;
+    }
+
+    public int getApiReadsMaxConnections() {
+        return apiReadsMaxConnections;
+    }
+
+    public int getExportsMaxConnections() {
+        return exportsMaxConnections;
+    }
+
+    public int getReportsMaxConnections() {
+        return reportsMaxConnections;
+    }
+
+    public int getMaintenanceMaxConnections() {
+        return maintenanceMaxConnections;
+    }
+
+    public int getMaxWaitForConnectionInMilliseconds() {
+        return maxWaitForConnectionInMilliseconds;
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class EventArchiveConfig extends Configuration {
+
+    @Valid
+    private boolean enabled;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int refundWindowInDays;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int batchSize;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int intervalInMilliseconds;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRefundWindowInDays() {
+        return refundWindowInDays;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getIntervalInMilliseconds() {
+        return intervalInMilliseconds;
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class EventPartitionConfig extends Configuration {
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int monthsCreatedAhead;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maintenanceIntervalInMinutes;
+
+    public int getMonthsCreatedAhead() {
+        return monthsCreatedAhead;
+    }
+
+    public int getMaintenanceIntervalInMinutes() {
+        return maintenanceIntervalInMinutes;
+    }
+}
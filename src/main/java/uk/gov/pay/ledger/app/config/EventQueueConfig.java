@@ -0,0 +1,57 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class EventQueueConfig extends Configuration {
+
+    public enum Type {
+        SQS,
+        IN_PROCESS,
+        FILE_REPLAY
+    }
+
+    @Valid
+    @NotNull
+    private Type type;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int batchSize;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int pollTimeoutInMilliseconds;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int inProcessCapacity;
+
+    private String replayFile;
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPollTimeoutInMilliseconds() {
+        return pollTimeoutInMilliseconds;
+    }
+
+    public int getInProcessCapacity() {
+        return inProcessCapacity;
+    }
+
+    public String getReplayFile() {
+        return replayFile;
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class EventTickerConfig extends Configuration {
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int bufferSize;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int refreshIntervalInMilliseconds;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int lateCommitWindowInMilliseconds;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maxEventAgeInMinutes;
+
+    @Valid
+    private boolean streamEnabled;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getRefreshIntervalInMilliseconds() {
+        return refreshIntervalInMilliseconds;
+    }
+
+    public int getLateCommitWindowInMilliseconds() {
+        return lateCommitWindowInMilliseconds;
+    }
+
+    public int getMaxEventAgeInMinutes() {
+        return maxEventAgeInMinutes;
+    }
+
+    public boolean isStreamEnabled() {
+        return streamEnabled;
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ProjectionCoalescingConfig extends Configuration {
+
+    @Valid
+    private boolean enabled;
+
+    @Valid
+    @NotNull
+    @Min(0)
+    private int debounceWindowInMilliseconds;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maxPendingResources;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int numberOfThreads;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDebounceWindowInMilliseconds() {
+        return debounceWindowInMilliseconds;
+    }
+
+    public int getMaxPendingResources() {
+        return maxPendingResources;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.app.config;
 import io.dropwizard.Configuration;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class QueueMessageReceiverConfig extends Configuration {
@@ -18,10 +19,35 @@ public class QueueMessageReceiverConfig extends Configuration {
     @NotNull
     private int numberOfThreads;
 
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maxNumberOfThreads;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maxBackoffInMilliseconds;
+
+    @Valid
+    @NotNull
+    private int targetIngestLagInMilliseconds;
+
     @Valid
     @NotNull
     private int messageRetryDelayInSeconds;
 
+    @Valid
+    @NotNull
+    @Min(0)
+    private int quarantineAfterReceiveCount;
+
+    @Valid
+    private boolean virtualThreadsEnabled;
+
+    @Valid
+    private boolean groupCommitEnabled;
+
     public int getThreadDelayInMilliseconds() {
         return threadDelayInMilliseconds;
     }
@@ -30,9 +56,33 @@ public class QueueMessageReceiverConfig extends Configuration {
         return numberOfThreads;
     }
 
+    public int getMaxNumberOfThreads() {
+        return maxNumberOfThreads;
+    }
+
+    public int getMaxBackoffInMilliseconds() {
+        return maxBackoffInMilliseconds;
+    }
+
+    public int getTargetIngestLagInMilliseconds() {
+        return targetIngestLagInMilliseconds;
+    }
+
     public int getMessageRetryDelayInSeconds() {
         return messageRetryDelayInSeconds;
     }
 
+    public int getQuarantineAfterReceiveCount() {
+        return quarantineAfterReceiveCount;
+    }
+
     public boolean isBackgroundProcessingEnabled() { return backgroundProcessingEnabled; }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public boolean isGroupCommitEnabled() {
+        return groupCommitEnabled;
+    }
 }
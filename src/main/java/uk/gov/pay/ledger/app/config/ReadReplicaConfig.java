@@ -0,0 +1,43 @@
+package uk.gov.pay.ledger.app.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import io.dropwizard.db.DataSourceFactory;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+public class ReadReplicaConfig extends Configuration {
+
+    @Valid
+    private boolean enabled;
+
+    @Valid
+    @NotNull
+    private int maxReplicationLagInSeconds;
+
+    @Valid
+    @NotNull
+    private int replicationLagCheckIntervalInSeconds;
+
+    @Valid
+    @NotNull
+    @JsonProperty("database")
+    private DataSourceFactory dataSourceFactory = new DataSourceFactory();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxReplicationLagInSeconds() {
+        return maxReplicationLagInSeconds;
+    }
+
+    public int getReplicationLagCheckIntervalInSeconds() {
+        return replicationLagCheckIntervalInSeconds;
+    }
+
+    public DataSourceFactory getDataSourceFactory() {
+        return dataSourceFactory;
+    }
+}
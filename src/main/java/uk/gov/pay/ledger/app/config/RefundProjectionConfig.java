@@ -0,0 +1,15 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+
+public class RefundProjectionConfig extends Configuration {
+
+    @Valid
+    private boolean setBasedUpdateEnabled = true;
+
+    public boolean isSetBasedUpdateEnabled() {
+        return setBasedUpdateEnabled;
+    }
+}
@@ -9,7 +9,49 @@ public class ReportingConfig extends Configuration {
     @Valid
     private int streamingCsvPageSize;
 
+    @Valid
+    private int resultCacheExpiryInSeconds;
+
+    @Valid
+    private int resultCacheMaxEntries;
+
+    @Valid
+    private int resultCacheMaxReplicationLagInSeconds;
+
+    @Valid
+    private int rollupFoldIntervalInMilliseconds;
+
+    @Valid
+    private int rollupFoldBatchSize;
+
+    @Valid
+    private int rollupBackfillBatchSizeInHours;
+
     public int getStreamingCsvPageSize() {
         return streamingCsvPageSize;
     }
+
+    public int getResultCacheExpiryInSeconds() {
+        return resultCacheExpiryInSeconds;
+    }
+
+    public int getResultCacheMaxEntries() {
+        return resultCacheMaxEntries;
+    }
+
+    public int getResultCacheMaxReplicationLagInSeconds() {
+        return resultCacheMaxReplicationLagInSeconds;
+    }
+
+    public int getRollupFoldIntervalInMilliseconds() {
+        return rollupFoldIntervalInMilliseconds;
+    }
+
+    public int getRollupFoldBatchSize() {
+        return rollupFoldBatchSize;
+    }
+
+    public int getRollupBackfillBatchSizeInHours() {
+        return rollupBackfillBatchSizeInHours;
+    }
 }
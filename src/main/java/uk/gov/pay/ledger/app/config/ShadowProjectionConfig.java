@@ -0,0 +1,34 @@
+package uk.gov.pay.ledger.app.config;
+
+import io.dropwizard.Configuration;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class ShadowProjectionConfig extends Configuration {
+
+    @Valid
+    private boolean enabled;
+
+    @Valid
+    @NotNull
+    private String candidateProjector;
+
+    @Valid
+    @NotNull
+    @Min(1)
+    private int maxQueuedComparisons;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getCandidateProjector() {
+        return candidateProjector;
+    }
+
+    public int getMaxQueuedComparisons() {
+        return maxQueuedComparisons;
+    }
+}
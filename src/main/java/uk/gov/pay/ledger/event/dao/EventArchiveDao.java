@@ -0,0 +1,60 @@
+package uk.gov.pay.ledger.event.dao;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import uk.gov.pay.ledger.event.dao.mapper.EventArchiveBatchMapper;
+import uk.gov.pay.ledger.event.model.EventArchiveBatch;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@RegisterRowMapper(EventArchiveBatchMapper.class)
+public interface EventArchiveDao {
+
+    @SqlQuery("SELECT min(created_date) FROM transaction")
+    ZonedDateTime findEarliestTransactionCreatedDate();
+
+    /**
+     * Reads the next batch of transactions created after the cursor and before createdBefore, ordered by created date
+     * and id, and moves the events of those in finishedStates into event_archive, one row per resource. Events are
+     * added to the archive row if the resource has been archived before, so events that arrived after a resource was
+     * archived are merged into its archive row when it is walked past again.
+     */
+    @SqlQuery("WITH batch AS (" +
+            "    SELECT t.id, t.external_id, t.created_date, t.state FROM transaction t" +
+            "    WHERE (t.created_date, t.id) > (:cursorCreatedDate, :cursorId)" +
+            "    AND t.created_date < :createdBefore" +
+            "    ORDER BY t.created_date, t.id LIMIT :limit" +
+            "), moved AS (" +
+            "    DELETE FROM event e USING batch b" +
+            "    WHERE e.resource_external_id = b.external_id AND b.state IN (<finishedStates>)" +
+            "    RETURNING e.*" +
+            "), archived AS (" +
+            "    INSERT INTO event_archive AS a" +
+            "        (resource_external_id, resource_type_id, event_count, first_event_date, last_event_date, events)" +
+            "    SELECT m.resource_external_id, min(m.resource_type_id), count(*), min(m.event_date), max(m.event_date)," +
+            "        jsonb_agg(jsonb_build_object('id', m.id, 'sqs_message_id', m.sqs_message_id," +
+            "            'parent_resource_external_id', m.parent_resource_external_id, 'event_date', m.event_date," +
+            "            'event_type', m.event_type, 'event_data', m.event_data) ORDER BY m.event_date DESC)" +
+            "    FROM moved m GROUP BY m.resource_external_id" +
+            "    ON CONFLICT (resource_external_id) DO UPDATE SET" +
+            "        event_count = a.event_count + EXCLUDED.event_count," +
+            "        first_event_date = least(a.first_event_date, EXCLUDED.first_event_date)," +
+            "        last_event_date = greatest(a.last_event_date, EXCLUDED.last_event_date)," +
+            "        events = a.events || EXCLUDED.events," +
+            "        archived_date = (now() AT TIME ZONE 'utc')" +
+            "    RETURNING a.resource_external_id" +
+            ")" +
+            "SELECT (SELECT count(*) FROM batch) AS transaction_count," +
+            "    (SELECT created_date FROM batch ORDER BY created_date DESC, id DESC LIMIT 1) AS last_transaction_created_date," +
+            "    (SELECT id FROM batch ORDER BY created_date DESC, id DESC LIMIT 1) AS last_transaction_id," +
+            "    (SELECT count(*) FROM archived) AS archived_resource_count," +
+            "    (SELECT count(*) FROM moved) AS archived_event_count")
+    EventArchiveBatch archiveEventsForFinishedTransactions(@Bind("cursorCreatedDate") ZonedDateTime cursorCreatedDate,
+                                                          @Bind("cursorId") long cursorId,
+                                                          @Bind("createdBefore") ZonedDateTime createdBefore,
+                                                          @BindList("finishedStates") List<String> finishedStates,
+                                                          @Bind("limit") int limit);
+}
@@ -22,6 +22,16 @@ import java.util.Set;
 @RegisterRowMapper(EventMapper.class)
 @RegisterRowMapper(EventTickerMapper.class)
 public interface EventDao {
+
+    // events of finished transactions are moved to event_archive, so reads by resource include archived events
+    String EVENT_COLUMNS = "id, sqs_message_id, resource_type_id, resource_external_id, parent_resource_external_id, " +
+            "event_date, event_type, event_data";
+
+    String ARCHIVED_EVENTS = "SELECT ae.id, ae.sqs_message_id, a.resource_type_id, a.resource_external_id, " +
+            "ae.parent_resource_external_id, ae.event_date, ae.event_type, ae.event_data " +
+            "FROM event_archive a, jsonb_to_recordset(a.events) AS ae(id BIGINT, sqs_message_id VARCHAR, " +
+            "parent_resource_external_id VARCHAR, event_date TIMESTAMP WITH TIME ZONE, event_type VARCHAR, event_data jsonb)";
+
     @CreateSqlObject
     ResourceTypeDao getResourceTypeDao();
 
@@ -47,7 +57,14 @@ public interface EventDao {
             "    WHERE resource_type_id = :resourceTypeId AND " +
             "          resource_external_id = :resourceExternalId AND  " +
             "          event_date = :eventDate AND   " +
-            "          event_type = :eventType) ")
+            "          event_type = :eventType) " +
+            "AND NOT EXISTS ( " +
+            "    SELECT 1 " +
+            "    FROM event_archive a, jsonb_to_recordset(a.events) AS ae(event_date TIMESTAMP WITH TIME ZONE, event_type VARCHAR) " +
+            "    WHERE a.resource_type_id = :resourceTypeId AND " +
+            "          a.resource_external_id = :resourceExternalId AND " +
+            "          ae.event_date = :eventDate AND " +
+            "          ae.event_type = :eventType) ")
     @GetGeneratedKeys
     Optional<Long> insertIfDoesNotExist(@BindBean Event event, @Bind("resourceTypeId") int resourceTypeId);
 
@@ -65,22 +82,41 @@ public interface EventDao {
 
     @SqlQuery("SELECT  e.id, e.sqs_message_id, rt.name AS resource_type_name, e.resource_external_id, " +
             "e.parent_resource_external_id, e.event_date," +
-            "e.event_type, e.event_data FROM event e, resource_type rt WHERE e.resource_external_id = :resourceExternalId" +
-            " AND e.resource_type_id = rt.id ORDER BY e.event_date DESC")
+            "e.event_type, e.event_data FROM (" +
+            " SELECT " + EVENT_COLUMNS + " FROM event WHERE resource_external_id = :resourceExternalId" +
+            " UNION ALL" +
+            " " + ARCHIVED_EVENTS + " WHERE a.resource_external_id = :resourceExternalId" +
+            ") e, resource_type rt WHERE e.resource_type_id = rt.id ORDER BY e.event_date DESC")
     List<Event> getEventsByResourceExternalId(@Bind("resourceExternalId") String resourceExternalId);
 
 
     @SqlQuery("SELECT  e.id, e.sqs_message_id, rt.name AS resource_type_name, e.resource_external_id, " +
             "          e.parent_resource_external_id, e.event_date," +
-            "          e.event_type, e.event_data FROM event e, resource_type rt" +
-            " WHERE e.resource_external_id in (<externalIds>)" +
-            " AND e.resource_type_id = rt.id" +
+            "          e.event_type, e.event_data FROM (" +
+            " SELECT " + EVENT_COLUMNS + " FROM event WHERE resource_external_id in (<externalIds>)" +
+            " UNION ALL" +
+            " " + ARCHIVED_EVENTS + " WHERE a.resource_external_id in (<externalIds>)" +
+            ") e, resource_type rt" +
+            " WHERE e.resource_type_id = rt.id" +
             " ORDER BY e.event_date ASC")
     List<Event> findEventsForExternalIds(@BindList("externalIds") Set<String> externalIds);
 
     @SqlQuery("SELECT e.id, e.event_type, e.resource_external_id, e.event_date, t.card_brand, t.amount, " +
             "t.transaction_details->'payment_provider' as payment_provider, t.gateway_account_id, t.type " +
-            "FROM event e LEFT JOIN transaction t ON e.resource_external_id = t.external_id " +
-            "WHERE (e.event_date between :fromDate AND :toDate) AND t.live ORDER BY e.event_date DESC")
+            "FROM event e JOIN transaction t ON e.resource_external_id = t.external_id " +
+            "WHERE e.event_date >= :fromDate AND e.event_date <= :toDate AND t.live ORDER BY e.event_date DESC")
     List<EventTicker> findEventsTickerFromDate(@Bind("fromDate") ZonedDateTime fromDate, @Bind("toDate") ZonedDateTime toDate);
+
+    @SqlQuery("SELECT e.id, e.event_type, e.resource_external_id, e.event_date, t.card_brand, t.amount, " +
+            "t.transaction_details->'payment_provider' as payment_provider, t.gateway_account_id, t.type " +
+            "FROM event e JOIN transaction t ON e.resource_external_id = t.external_id " +
+            "WHERE e.id > :sinceId AND e.event_date >= :fromDate AND t.live ORDER BY e.id LIMIT :limit")
+    List<EventTicker> findEventsTickerSinceId(@Bind("sinceId") long sinceId, @Bind("fromDate") ZonedDateTime fromDate,
+                                              @Bind("limit") int limit);
+
+    @SqlQuery("SELECT e.id, e.event_type, e.resource_external_id, e.event_date, t.card_brand, t.amount, " +
+            "t.transaction_details->'payment_provider' as payment_provider, t.gateway_account_id, t.type " +
+            "FROM event e JOIN transaction t ON e.resource_external_id = t.external_id " +
+            "WHERE e.event_date >= :fromDate AND t.live ORDER BY e.id DESC LIMIT :limit")
+    List<EventTicker> findLatestEventsTicker(@Bind("fromDate") ZonedDateTime fromDate, @Bind("limit") int limit);
 }
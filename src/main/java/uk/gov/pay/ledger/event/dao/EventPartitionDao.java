@@ -0,0 +1,17 @@
+package uk.gov.pay.ledger.event.dao;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+import java.time.LocalDate;
+
+public interface EventPartitionDao {
+
+    /**
+     * Creates the partition for the month, moving any events for the month out of the default partition into it.
+     *
+     * @return true if the partition was created, false if a table for the month already exists
+     */
+    @SqlQuery("SELECT create_monthly_event_partition(:partitionMonth)")
+    boolean createMonthlyPartition(@Bind("partitionMonth") LocalDate partitionMonth);
+}
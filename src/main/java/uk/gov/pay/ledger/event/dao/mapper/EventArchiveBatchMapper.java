@@ -0,0 +1,25 @@
+package uk.gov.pay.ledger.event.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.event.model.EventArchiveBatch;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class EventArchiveBatchMapper implements RowMapper<EventArchiveBatch> {
+
+    @Override
+    public EventArchiveBatch map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
+        Timestamp lastTransactionCreatedDate = resultSet.getTimestamp("last_transaction_created_date");
+        return new EventArchiveBatch(resultSet.getInt("transaction_count"),
+                lastTransactionCreatedDate == null ? null :
+                        ZonedDateTime.ofInstant(lastTransactionCreatedDate.toInstant(), ZoneOffset.UTC),
+                resultSet.getObject("last_transaction_id", Long.class),
+                resultSet.getInt("archived_resource_count"),
+                resultSet.getInt("archived_event_count"));
+    }
+}
@@ -0,0 +1,112 @@
+package uk.gov.pay.ledger.event.managed;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventArchiveConfig;
+import uk.gov.pay.ledger.event.dao.EventArchiveDao;
+import uk.gov.pay.ledger.event.model.EventArchiveBatch;
+import uk.gov.pay.ledger.transaction.state.TransactionState;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the events of transactions in a finished state that were created more than refundWindowInDays ago out of the
+ * event table, into one event_archive row per resource. Archived events are still returned when events are read by
+ * resource, so digests and reprojection are unchanged.
+ *
+ * Each run archives one batch of transactions, walking transactions in created date and id order from the earliest
+ * transaction. Once the walk reaches transactions still inside the refund window it starts again from the earliest
+ * transaction, so transactions that weren't finished when they were walked past are archived on a later walk. Events
+ * ingested for a resource after it was archived are merged into its archive row on the next walk, until then reads
+ * combine them with the archive.
+ */
+public class EventArchiver implements Managed {
+
+    private static final String EVENT_ARCHIVER_THREAD_NAME = "event-archiver-%d";
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventArchiver.class);
+    private static final List<String> FINISHED_STATES = Arrays.stream(TransactionState.values())
+            .filter(TransactionState::isFinished)
+            .map(TransactionState::name)
+            .collect(Collectors.toList());
+
+    private final EventArchiveDao eventArchiveDao;
+    private final EventArchiveConfig config;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Clock clock;
+    private final Counter archivedResources;
+    private final Counter archivedEvents;
+    private ZonedDateTime cursorCreatedDate;
+    private long cursorId;
+
+    @Inject
+    public EventArchiver(EventArchiveDao eventArchiveDao, LedgerConfig configuration, Environment environment) {
+        this(eventArchiveDao, configuration.getEventArchiveConfig(), environment.lifecycle()
+                        .scheduledExecutorService(EVENT_ARCHIVER_THREAD_NAME)
+                        .threads(1)
+                        .build(),
+                Clock.systemUTC(), environment.metrics());
+    }
+
+    EventArchiver(EventArchiveDao eventArchiveDao, EventArchiveConfig config,
+                  ScheduledExecutorService scheduledExecutorService, Clock clock, MetricRegistry metricRegistry) {
+        this.eventArchiveDao = eventArchiveDao;
+        this.config = config;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.clock = clock;
+        this.archivedResources = metricRegistry.counter("event-archive.archived-resources");
+        this.archivedEvents = metricRegistry.counter("event-archive.archived-events");
+    }
+
+    @Override
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::archiveNextBatch, 0,
+                config.getIntervalInMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduledExecutorService.shutdown();
+    }
+
+    void archiveNextBatch() {
+        try {
+            if (cursorCreatedDate == null) {
+                cursorCreatedDate = eventArchiveDao.findEarliestTransactionCreatedDate();
+                cursorId = 0;
+                if (cursorCreatedDate == null) {
+                    return;
+                }
+            }
+
+            ZonedDateTime createdBefore = ZonedDateTime.now(clock).minusDays(config.getRefundWindowInDays());
+            EventArchiveBatch batch = eventArchiveDao.archiveEventsForFinishedTransactions(cursorCreatedDate, cursorId,
+                    createdBefore, FINISHED_STATES, config.getBatchSize());
+            if (batch.getTransactionCount() == 0) {
+                // the walk has caught up with the refund window, the next run starts walking again
+                cursorCreatedDate = null;
+                return;
+            }
+
+            cursorCreatedDate = batch.getLastTransactionCreatedDate();
+            cursorId = batch.getLastTransactionId();
+            archivedResources.inc(batch.getArchivedResourceCount());
+            archivedEvents.inc(batch.getArchivedEventCount());
+            LOGGER.info("Archived events [resources={}] [events={}] [cursorCreatedDate={}]",
+                    batch.getArchivedResourceCount(), batch.getArchivedEventCount(), cursorCreatedDate);
+        } catch (Exception e) {
+            LOGGER.error("Error archiving events [errorMessage={}]", e.getMessage());
+        }
+    }
+}
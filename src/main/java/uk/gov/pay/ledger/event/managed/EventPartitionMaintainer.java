@@ -0,0 +1,78 @@
+package uk.gov.pay.ledger.event.managed;
+
+import com.google.inject.Inject;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventPartitionConfig;
+import uk.gov.pay.ledger.event.dao.EventPartitionDao;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the monthly event partitions for the next monthsCreatedAhead months, so events are never written to the
+ * default partition under normal operation.
+ *
+ * Events already in the default partition for a month are moved into its partition when it is created, and the
+ * database logs a warning with how many were moved.
+ */
+public class EventPartitionMaintainer implements Managed {
+
+    private static final String EVENT_PARTITION_MAINTAINER_THREAD_NAME = "event-partition-maintainer-%d";
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventPartitionMaintainer.class);
+
+    private final EventPartitionDao eventPartitionDao;
+    private final EventPartitionConfig config;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Clock clock;
+
+    @Inject
+    public EventPartitionMaintainer(EventPartitionDao eventPartitionDao, LedgerConfig configuration,
+                                    Environment environment) {
+        this(eventPartitionDao, configuration.getEventPartitionConfig(), environment.lifecycle()
+                        .scheduledExecutorService(EVENT_PARTITION_MAINTAINER_THREAD_NAME)
+                        .threads(1)
+                        .build(),
+                Clock.systemUTC());
+    }
+
+    EventPartitionMaintainer(EventPartitionDao eventPartitionDao, EventPartitionConfig config,
+                             ScheduledExecutorService scheduledExecutorService, Clock clock) {
+        this.eventPartitionDao = eventPartitionDao;
+        this.config = config;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::createFuturePartitions, 0,
+                config.getMaintenanceIntervalInMinutes(), TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void stop() {
+        scheduledExecutorService.shutdown();
+    }
+
+    void createFuturePartitions() {
+        LocalDate currentMonth = LocalDate.now(clock.withZone(ZoneOffset.UTC)).withDayOfMonth(1);
+        for (int i = 1; i <= config.getMonthsCreatedAhead(); i++) {
+            LocalDate partitionMonth = currentMonth.plusMonths(i);
+            try {
+                if (eventPartitionDao.createMonthlyPartition(partitionMonth)) {
+                    LOGGER.info("Created event partition [partitionMonth={}]", partitionMonth);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error creating event partition [partitionMonth={}] [errorMessage={}]",
+                        partitionMonth, e.getMessage());
+            }
+        }
+    }
+}
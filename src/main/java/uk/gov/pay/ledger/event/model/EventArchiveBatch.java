@@ -0,0 +1,41 @@
+package uk.gov.pay.ledger.event.model;
+
+import java.time.ZonedDateTime;
+
+public class EventArchiveBatch {
+
+    private final int transactionCount;
+    private final ZonedDateTime lastTransactionCreatedDate;
+    private final Long lastTransactionId;
+    private final int archivedResourceCount;
+    private final int archivedEventCount;
+
+    public EventArchiveBatch(int transactionCount, ZonedDateTime lastTransactionCreatedDate, Long lastTransactionId,
+                             int archivedResourceCount, int archivedEventCount) {
+        this.transactionCount = transactionCount;
+        this.lastTransactionCreatedDate = lastTransactionCreatedDate;
+        this.lastTransactionId = lastTransactionId;
+        this.archivedResourceCount = archivedResourceCount;
+        this.archivedEventCount = archivedEventCount;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public ZonedDateTime getLastTransactionCreatedDate() {
+        return lastTransactionCreatedDate;
+    }
+
+    public Long getLastTransactionId() {
+        return lastTransactionId;
+    }
+
+    public int getArchivedResourceCount() {
+        return archivedResourceCount;
+    }
+
+    public int getArchivedEventCount() {
+        return archivedEventCount;
+    }
+}
@@ -0,0 +1,28 @@
+package uk.gov.pay.ledger.event.model.response;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import uk.gov.pay.ledger.event.model.EventTicker;
+
+import java.util.List;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class EventTickerTailResponse {
+
+    private final List<EventTicker> results;
+    // passed back as since_id to receive only newer rows
+    private final Long lastEventId;
+
+    public EventTickerTailResponse(List<EventTicker> results, Long sinceId) {
+        this.results = results;
+        this.lastEventId = results.isEmpty() ? sinceId : results.get(results.size() - 1).getId();
+    }
+
+    public List<EventTicker> getResults() {
+        return results;
+    }
+
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+}
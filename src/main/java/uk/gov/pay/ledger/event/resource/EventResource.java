@@ -2,27 +2,41 @@ package uk.gov.pay.ledger.event.resource;
 
 import com.codahale.metrics.annotation.Timed;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerModule;
 import uk.gov.pay.ledger.event.dao.EventDao;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventTicker;
+import uk.gov.pay.ledger.event.model.response.EventTickerTailResponse;
+import uk.gov.pay.ledger.event.service.EventTickerService;
 import uk.gov.pay.ledger.exception.ValidationException;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 import javax.validation.constraints.NotEmpty;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
 
 import java.time.ZonedDateTime;
 import java.util.List;
 
+import static java.lang.String.format;
+import static javax.ws.rs.core.HttpHeaders.LAST_EVENT_ID_HEADER;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static javax.ws.rs.core.MediaType.SERVER_SENT_EVENTS;
 
 
 @Path("/v1/event")
@@ -30,11 +44,17 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class EventResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventResource.class);
+    private static final int DEFAULT_TICKER_TAIL_LIMIT = 500;
+    private static final int MAX_TICKER_TAIL_LIMIT = 5000;
+
     private final EventDao eventDao;
+    private final EventTickerService eventTickerService;
+    private SseBroadcaster tickerBroadcaster;
 
     @Inject
-    public EventResource(EventDao eventDao) {
+    public EventResource(@Named(LedgerModule.PRIMARY_READS) EventDao eventDao, EventTickerService eventTickerService) {
         this.eventDao = eventDao;
+        this.eventTickerService = eventTickerService;
     }
 
     @Path("/{eventId}")
@@ -52,4 +72,51 @@ public class EventResource {
     public List<EventTicker> eventTickerList(@NotEmpty @QueryParam("from_date") String fromDate, @NotEmpty @QueryParam("to_date") String toDate) {
         return eventDao.findEventsTickerFromDate(ZonedDateTime.parse(fromDate), ZonedDateTime.parse(toDate));
     }
+
+    @Path("/ticker/tail")
+    @GET
+    @Timed
+    public EventTickerTailResponse eventTickerTail(@QueryParam("since_id") Long sinceId,
+                                                   @QueryParam("limit") Integer limit) {
+        int tailLimit = limit == null ? DEFAULT_TICKER_TAIL_LIMIT : limit;
+        if (tailLimit < 1 || tailLimit > MAX_TICKER_TAIL_LIMIT) {
+            throw new ValidationException(format("Field [limit] must be between 1 and %d", MAX_TICKER_TAIL_LIMIT));
+        }
+        return new EventTickerTailResponse(eventTickerService.getEventsTickerSince(sinceId, tailLimit), sinceId);
+    }
+
+    @Path("/ticker/stream")
+    @GET
+    @Produces(SERVER_SENT_EVENTS)
+    public void eventTickerStream(@HeaderParam(LAST_EVENT_ID_HEADER) Long lastEventId,
+                                  @Context SseEventSink eventSink,
+                                  @Context Sse sse) {
+        if (!eventTickerService.isStreamEnabled()) {
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+        }
+
+        // registered before sending the backlog so no rows are missed, clients drop any they receive twice by id
+        getTickerBroadcaster(sse).register(eventSink);
+        if (lastEventId != null) {
+            eventTickerService.getEventsTickerSince(lastEventId, MAX_TICKER_TAIL_LIMIT)
+                    .forEach(row -> eventSink.send(toSseEvent(sse, row)));
+        }
+    }
+
+    private synchronized SseBroadcaster getTickerBroadcaster(Sse sse) {
+        if (tickerBroadcaster == null) {
+            tickerBroadcaster = sse.newBroadcaster();
+            eventTickerService.addListener(row -> tickerBroadcaster.broadcast(toSseEvent(sse, row)));
+        }
+        return tickerBroadcaster;
+    }
+
+    private OutboundSseEvent toSseEvent(Sse sse, EventTicker row) {
+        return sse.newEventBuilder()
+                .id(String.valueOf(row.getId()))
+                .name("ticker")
+                .mediaType(APPLICATION_JSON_TYPE)
+                .data(EventTicker.class, row)
+                .build();
+    }
 }
@@ -22,6 +22,9 @@ public class EventService {
         return EventDigest.fromEventList(events);
     }
 
+    /**
+     * @return the resource's events, latest first, including events moved to the event archive
+     */
     public List<Event> getEventsForResource(String resourceExternalId) {
         return eventDao.getEventsByResourceExternalId(resourceExternalId);
     }
@@ -0,0 +1,240 @@
+package uk.gov.pay.ledger.event.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.LedgerModule;
+import uk.gov.pay.ledger.app.config.EventTickerConfig;
+import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.EventTicker;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most recent event ticker rows in a bounded in-memory buffer, ordered by event id, so clients tailing the
+ * ticker are served without querying the database.
+ *
+ * Refreshes run on a schedule, which picks up events ingested by other instances, and as soon as possible after this
+ * instance ingests an event. Requests the buffer can't answer (until the first late commit window after startup has
+ * passed, or for ids older than the buffer holds) fall back to the database.
+ *
+ * Event ids are assigned when events are inserted, so an event can commit after events with higher ids have been read.
+ * Ingest transactions commit within lateCommitWindowInMilliseconds, so every id up to the highest one the buffer held
+ * a late commit window ago is final. Clients and listeners are only given rows up to that committed id, in id order,
+ * so a client that has seen an id never misses a lower one. Each refresh re-reads the rows after it, which adds
+ * events that committed late to the buffer before they are given out.
+ *
+ * Only events dated within the max event age are read, so ticker queries only touch recent partitions. The max event
+ * age is maxEventAgeInMinutes, or longer if a message can be retried for longer before it is quarantined, so retried
+ * events still reach the ticker. Events ingested later than that, such as quarantined messages replayed by hand or a
+ * backlog older than the max event age, don't appear on the ticker.
+ */
+@Singleton
+public class EventTickerService implements Managed {
+
+    private static final String EVENT_TICKER_THREAD_NAME = "event-ticker-%d";
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventTickerService.class);
+
+    private final EventDao eventDao;
+    private final EventTickerConfig config;
+    private final Duration maxEventAge;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Clock clock;
+    private final ConcurrentSkipListMap<Long, EventTicker> rows = new ConcurrentSkipListMap<>();
+    private final List<Consumer<EventTicker>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    // the highest id held after each refresh, by when the refresh read it, only used by the refresh thread
+    private final TreeMap<Instant, Long> highestIdsByReadTime = new TreeMap<>();
+    private final Counter bufferReads;
+    private final Counter databaseReads;
+    // the buffer holds every ticker row with an id after this, it is null until the buffer is first loaded
+    private volatile Long lowestCoveredId;
+    // rows up to this id are final and are given out, it is null until a late commit window has passed since loading
+    private volatile Long committedId;
+    private long notifiedUpToId;
+
+    @Inject
+    public EventTickerService(@Named(LedgerModule.PRIMARY_READS) EventDao eventDao, LedgerConfig configuration,
+                              Environment environment) {
+        this(eventDao, configuration.getEventTickerConfig(),
+                maxEventAge(configuration.getEventTickerConfig(), configuration.getQueueMessageReceiverConfig()),
+                environment.lifecycle()
+                        .scheduledExecutorService(EVENT_TICKER_THREAD_NAME)
+                        .threads(1)
+                        .build(),
+                Clock.systemUTC(), environment.metrics());
+    }
+
+    EventTickerService(EventDao eventDao, EventTickerConfig config, Duration maxEventAge,
+                       ScheduledExecutorService scheduledExecutorService, Clock clock, MetricRegistry metricRegistry) {
+        this.eventDao = eventDao;
+        this.config = config;
+        this.maxEventAge = maxEventAge;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.clock = clock;
+        this.bufferReads = metricRegistry.counter("event-ticker.buffer-reads");
+        this.databaseReads = metricRegistry.counter("event-ticker.database-reads");
+        metricRegistry.gauge("event-ticker.buffer-size", () -> (Gauge<Integer>) rows::size);
+    }
+
+    static Duration maxEventAge(EventTickerConfig eventTickerConfig, QueueMessageReceiverConfig receiverConfig) {
+        Duration configuredMaxEventAge = Duration.ofMinutes(eventTickerConfig.getMaxEventAgeInMinutes());
+        Duration retryWindow = Duration.ofSeconds((long) receiverConfig.getMessageRetryDelayInSeconds()
+                * receiverConfig.getQuarantineAfterReceiveCount());
+        return configuredMaxEventAge.compareTo(retryWindow) >= 0 ? configuredMaxEventAge : retryWindow;
+    }
+
+    @Override
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::refresh, 0,
+                config.getRefreshIntervalInMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is managed by the Dropwizard lifecycle, which shuts it down
+    }
+
+    /**
+     * Called by the ingest path once an event has been projected, refreshes are coalesced so a burst of events only
+     * reads the database once.
+     */
+    public void onEventIngested() {
+        if (refreshPending.compareAndSet(false, true)) {
+            scheduledExecutorService.execute(this::refresh);
+        }
+    }
+
+    public boolean isStreamEnabled() {
+        return config.isStreamEnabled();
+    }
+
+    public void addListener(Consumer<EventTicker> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param sinceId the id of the last row the client has seen, or null for the most recent rows
+     * @return up to limit rows after sinceId, oldest first
+     */
+    public List<EventTicker> getEventsTickerSince(Long sinceId, int limit) {
+        Long coveredId = lowestCoveredId;
+        Long servedUpToId = committedId;
+        if (servedUpToId == null || (sinceId != null && sinceId < coveredId)) {
+            databaseReads.inc();
+            List<EventTicker> fromDatabase = sinceId == null ?
+                    reverse(eventDao.findLatestEventsTicker(oldestEventDate(clock.instant()), limit)) :
+                    eventDao.findEventsTickerSinceId(sinceId, oldestEventDate(clock.instant()), limit);
+            if (servedUpToId == null) {
+                return fromDatabase;
+            }
+            return fromDatabase.stream()
+                    .filter(row -> row.getId() <= servedUpToId)
+                    .collect(Collectors.toList());
+        }
+
+        bufferReads.inc();
+        NavigableMap<Long, EventTicker> committedRows = rows.headMap(servedUpToId, true);
+        if (sinceId == null) {
+            return reverse(committedRows.descendingMap().values().stream()
+                    .limit(limit)
+                    .collect(Collectors.toList()));
+        }
+        return committedRows.tailMap(sinceId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    void refresh() {
+        refreshPending.set(false);
+        try {
+            Instant now = clock.instant();
+            if (lowestCoveredId == null) {
+                load(now);
+            } else {
+                Duration lateCommitWindow = Duration.ofMillis(config.getLateCommitWindowInMilliseconds());
+                Map.Entry<Instant, Long> committedRead = highestIdsByReadTime.floorEntry(now.minus(lateCommitWindow));
+                long sinceId = committedRead == null ? lowestCoveredId : Math.max(committedRead.getValue(), lowestCoveredId);
+                readSince(sinceId, now);
+                if (committedRead != null) {
+                    highestIdsByReadTime.headMap(committedRead.getKey(), false).clear();
+                    commitUpTo(committedRead.getValue());
+                }
+            }
+            highestIdsByReadTime.put(now, rows.isEmpty() ? lowestCoveredId : rows.lastKey());
+        } catch (Exception e) {
+            LOGGER.warn("Error refreshing event ticker buffer [errorMessage={}]", e.getMessage());
+        }
+    }
+
+    private void load(Instant now) {
+        List<EventTicker> latest = reverse(eventDao.findLatestEventsTicker(oldestEventDate(now), config.getBufferSize()));
+        latest.forEach(row -> rows.put(row.getId(), row));
+        lowestCoveredId = latest.size() < config.getBufferSize() ? 0L : latest.get(0).getId() - 1;
+        // rows already committed when the buffer is loaded aren't new to listeners
+        notifiedUpToId = rows.isEmpty() ? lowestCoveredId : rows.lastKey();
+    }
+
+    private void readSince(long sinceId, Instant now) {
+        List<EventTicker> page;
+        do {
+            page = eventDao.findEventsTickerSinceId(sinceId, oldestEventDate(now), config.getBufferSize());
+            for (EventTicker row : page) {
+                if (row.getId() > lowestCoveredId) {
+                    rows.putIfAbsent(row.getId(), row);
+                }
+            }
+            while (rows.size() > config.getBufferSize()) {
+                lowestCoveredId = rows.pollFirstEntry().getKey();
+            }
+            if (!page.isEmpty()) {
+                sinceId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == config.getBufferSize());
+    }
+
+    private void commitUpTo(long id) {
+        if (id > notifiedUpToId) {
+            rows.subMap(notifiedUpToId, false, id, true).values()
+                    .forEach(row -> listeners.forEach(listener -> listener.accept(row)));
+            notifiedUpToId = id;
+        }
+        committedId = notifiedUpToId;
+    }
+
+    private ZonedDateTime oldestEventDate(Instant now) {
+        return ZonedDateTime.ofInstant(now.minus(maxEventAge), ZoneOffset.UTC);
+    }
+
+    private static List<EventTicker> reverse(List<EventTicker> rows) {
+        List<EventTicker> reversed = new ArrayList<>(rows);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+}
@@ -1,12 +1,15 @@
 package uk.gov.pay.ledger.payout.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import uk.gov.pay.ledger.payout.dao.mapper.PayoutMapper;
 import uk.gov.pay.ledger.payout.entity.PayoutEntity;
 import uk.gov.pay.ledger.payout.search.PayoutSearchParams;
+import uk.gov.pay.ledger.util.SearchTemplateCache;
 
 import java.util.List;
 import java.util.Optional;
@@ -58,14 +61,22 @@ public class PayoutDao {
             "WHERE EXCLUDED.event_count >= payout.event_count";
 
     private Jdbi jdbi;
+    // used for lookups, which must see the latest projection so go to the primary
+    private final Jdbi primaryReadJdbi;
+    // used for searches, which can be served by the read replica
+    private final Jdbi readOnlyJdbi;
+    private final SearchTemplateCache searchTemplateCache;
 
     @Inject
-    public PayoutDao(Jdbi jdbi) {
+    public PayoutDao(Jdbi jdbi, Jdbi primaryReadJdbi, Jdbi readOnlyJdbi, MetricRegistry metricRegistry) {
         this.jdbi = jdbi;
+        this.primaryReadJdbi = primaryReadJdbi;
+        this.readOnlyJdbi = readOnlyJdbi;
+        this.searchTemplateCache = new SearchTemplateCache("payout-search", metricRegistry);
     }
 
     public Optional<PayoutEntity> findByGatewayPayoutId(String gatewayPayoutId) {
-        return jdbi.withHandle(handle -> handle.createQuery(SELECT_PAYOUT_BY_GATEWAY_PAYOUT_ID)
+        return primaryReadJdbi.withHandle(handle -> handle.createQuery(SELECT_PAYOUT_BY_GATEWAY_PAYOUT_ID)
                 .bind("gatewayPayoutId", gatewayPayoutId)
                 .map(new PayoutMapper())
                 .findFirst());
@@ -78,8 +89,16 @@ public class PayoutDao {
                         .execute());
     }
 
+    public void upsertBatch(List<PayoutEntity> payouts) {
+        jdbi.useTransaction(handle -> {
+            PreparedBatch batch = handle.prepareBatch(UPSERT_PAYOUT);
+            payouts.forEach(payout -> batch.bindBean(payout).add());
+            batch.execute();
+        });
+    }
+
     public List<PayoutEntity> searchPayouts(PayoutSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
+        return readOnlyJdbi.withHandle(handle -> {
             Query query = handle.createQuery(createSearchTemplate(searchParams.getFilterTemplates(), SEARCH_PAYOUTS));
             searchParams.getQueryMap().forEach(bindSearchParameter(query));
             query.bind("offset", searchParams.getOffset());
@@ -91,7 +110,7 @@ public class PayoutDao {
     }
 
     public Long getTotalForSearch(PayoutSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
+        return readOnlyJdbi.withHandle(handle -> {
             Query query = handle.createQuery(createSearchTemplate(searchParams.getFilterTemplates(), COUNT_PAYOUTS));
             searchParams.getQueryMap().forEach(bindSearchParameter(query));
             return query
@@ -101,20 +120,22 @@ public class PayoutDao {
     }
 
     private String createSearchTemplate(List<String> filterTemplates, String baseQueryString) {
-        String searchClauseTemplate = String.join(" AND ", filterTemplates);
-        searchClauseTemplate = StringUtils.isNotBlank(searchClauseTemplate) ?
-                "WHERE " + searchClauseTemplate :
-                "";
-
-        return baseQueryString.replace(
-                ":searchExtraFields",
-                searchClauseTemplate);
+        return searchTemplateCache.get(List.of(baseQueryString, filterTemplates), () -> {
+            String searchClauseTemplate = String.join(" AND ", filterTemplates);
+            searchClauseTemplate = StringUtils.isNotBlank(searchClauseTemplate) ?
+                    "WHERE " + searchClauseTemplate :
+                    "";
+
+            return baseQueryString.replace(
+                    ":searchExtraFields",
+                    searchClauseTemplate);
+        });
     }
 
     private BiConsumer<String, Object> bindSearchParameter(Query query) {
         return (searchKey, searchValue) -> {
             if (searchValue instanceof List<?>) {
-                query.bindList(searchKey, ((List<?>) searchValue));
+                query.bindArray(searchKey, String.class, (List<?>) searchValue);
             } else {
                 query.bind(searchKey, searchValue);
             }
@@ -57,7 +57,7 @@ public class PayoutSearchParams extends SearchParams {
         List<String> filters = new ArrayList<>();
 
         if (gatewayAccountIds != null && !gatewayAccountIds.isEmpty()) {
-            filters.add(" p.gateway_account_id IN (<" + GATEWAY_ACCOUNT_ID_FIELD + ">)");
+            filters.add(" p.gateway_account_id = ANY(:" + GATEWAY_ACCOUNT_ID_FIELD + ")");
         }
 
         if (isNotBlank(state)) {
@@ -0,0 +1,204 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.UnitOfWork;
+import uk.gov.pay.ledger.app.config.ProjectionCoalescingConfig;
+import uk.gov.pay.ledger.event.model.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Projects a resource once for a burst of its events instead of once per event.
+ *
+ * The first event stored for a resource marks it dirty and schedules its projection after the debounce window. More
+ * events for the resource arriving within the window join that projection, so no event waits longer than the window
+ * before it is projected. Once maxPendingResources resources are waiting, newly dirty resources are projected
+ * straight away.
+ *
+ * Each event gets a future that completes when its projection has been committed, so the message can be acknowledged
+ * then and is redelivered by the queue if the app stops first. Projections read the resource's whole event history
+ * and the transaction upsert only replaces a row with one built from at least as many events, so projections of the
+ * same resource overlapping on different threads can't leave an older projection in place.
+ *
+ * Metrics (prefixed with coalescing-projector):
+ * - events: events marked dirty
+ * - projections: time taken by each projection
+ * - events-per-projection: how many events each projection covered
+ * - pending-resources: resources waiting to be projected
+ */
+@Singleton
+public class CoalescingProjector implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingProjector.class);
+    private static final String COALESCING_PROJECTOR_THREAD_NAME = "coalescing-projector-%d";
+
+    private final boolean enabled;
+    private final long debounceWindowInMilliseconds;
+    private final int maxPendingResources;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final EventDigestHandler eventDigestHandler;
+    private final UnitOfWork unitOfWork;
+    private final Map<String, PendingProjection> pendingProjections = new HashMap<>();
+    private final Meter events;
+    private final Timer projections;
+    private final Histogram eventsPerProjection;
+
+    @Inject
+    public CoalescingProjector(LedgerConfig configuration,
+                               Environment environment,
+                               EventDigestHandler eventDigestHandler,
+                               UnitOfWork unitOfWork) {
+        this(configuration.getProjectionCoalescingConfig(),
+                buildExecutor(configuration.getProjectionCoalescingConfig(), environment),
+                eventDigestHandler,
+                unitOfWork,
+                environment.metrics());
+    }
+
+    CoalescingProjector(ProjectionCoalescingConfig config,
+                        ScheduledExecutorService scheduledExecutorService,
+                        EventDigestHandler eventDigestHandler,
+                        UnitOfWork unitOfWork,
+                        MetricRegistry metricRegistry) {
+        this.enabled = config.isEnabled();
+        this.debounceWindowInMilliseconds = config.getDebounceWindowInMilliseconds();
+        this.maxPendingResources = config.getMaxPendingResources();
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.eventDigestHandler = eventDigestHandler;
+        this.unitOfWork = unitOfWork;
+        this.events = metricRegistry.meter("coalescing-projector.events");
+        this.projections = metricRegistry.timer("coalescing-projector.projections");
+        this.eventsPerProjection = metricRegistry.histogram("coalescing-projector.events-per-projection");
+        metricRegistry.gauge("coalescing-projector.pending-resources",
+                () -> (Gauge<Integer>) this::getPendingResources);
+    }
+
+    /**
+     * The executor is only built when coalescing is enabled, so no threads are started for a disabled projector.
+     */
+    private static ScheduledExecutorService buildExecutor(ProjectionCoalescingConfig config, Environment environment) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        return environment.lifecycle()
+                .scheduledExecutorService(COALESCING_PROJECTOR_THREAD_NAME)
+                .threads(config.getNumberOfThreads())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param event an event that has been stored
+     * @return a future completed when a projection including the event has been committed, or completed exceptionally
+     * if the projection failed
+     */
+    public CompletableFuture<Void> markDirty(Event event) {
+        events.mark();
+        String resourceExternalId = event.getResourceExternalId();
+        CompletableFuture<Void> projected = new CompletableFuture<>();
+        boolean newlyDirty;
+        long delay;
+        synchronized (pendingProjections) {
+            PendingProjection pendingProjection = pendingProjections.get(resourceExternalId);
+            newlyDirty = pendingProjection == null;
+            if (newlyDirty) {
+                pendingProjection = new PendingProjection();
+                pendingProjections.put(resourceExternalId, pendingProjection);
+            }
+            pendingProjection.add(event, projected);
+            delay = pendingProjections.size() > maxPendingResources ? 0 : debounceWindowInMilliseconds;
+        }
+
+        if (newlyDirty) {
+            try {
+                scheduledExecutorService.schedule(() -> project(resourceExternalId), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                project(resourceExternalId);
+            }
+        }
+        return projected;
+    }
+
+    int getPendingResources() {
+        synchronized (pendingProjections) {
+            return pendingProjections.size();
+        }
+    }
+
+    void project(String resourceExternalId) {
+        PendingProjection pendingProjection;
+        synchronized (pendingProjections) {
+            pendingProjection = pendingProjections.remove(resourceExternalId);
+        }
+        if (pendingProjection == null) {
+            return;
+        }
+
+        try (Timer.Context ignored = projections.time()) {
+            unitOfWork.inTransaction(handle -> {
+                eventDigestHandler.processEventsByResource(pendingProjection.events);
+                return null;
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Coalesced projection failed. [errorMessage={}]", e.getMessage(),
+                    kv("resource_external_id", resourceExternalId),
+                    kv("events", pendingProjection.events.size()));
+            pendingProjection.futures.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        eventsPerProjection.update(pendingProjection.events.size());
+        pendingProjection.futures.forEach(future -> future.complete(null));
+    }
+
+    @Override
+    public void start() {
+    }
+
+    /**
+     * Projects everything still pending, so messages that are waiting can be acknowledged before the app stops.
+     */
+    @Override
+    public void stop() {
+        List<String> resourceExternalIds;
+        synchronized (pendingProjections) {
+            resourceExternalIds = new ArrayList<>(pendingProjections.keySet());
+        }
+        resourceExternalIds.forEach(this::project);
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdown();
+        }
+    }
+
+    private static class PendingProjection {
+        private final List<Event> events = new ArrayList<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        void add(Event event, CompletableFuture<Void> future) {
+            events.add(event);
+            futures.add(future);
+        }
+    }
+}
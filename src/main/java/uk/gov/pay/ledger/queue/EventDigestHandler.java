@@ -3,6 +3,7 @@ package uk.gov.pay.ledger.queue;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
@@ -11,9 +12,17 @@ import uk.gov.pay.ledger.queue.eventprocessor.EventProcessor;
 import uk.gov.pay.ledger.queue.eventprocessor.PaymentEventProcessor;
 import uk.gov.pay.ledger.queue.eventprocessor.PayoutEventProcessor;
 import uk.gov.pay.ledger.queue.eventprocessor.RefundEventProcessor;
+import uk.gov.pay.ledger.queue.shadow.ShadowProjectionService;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
 public class EventDigestHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventDigestHandler.class);
@@ -27,10 +36,16 @@ public class EventDigestHandler {
                               TransactionService transactionService,
                               TransactionMetadataService transactionMetadataService,
                               PayoutService payoutService,
-                              TransactionEntityFactory transactionEntityFactory) {
-        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory);
-        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor);
-        payoutEventProcessor = new PayoutEventProcessor(eventService, payoutService);
+                              TransactionEntityFactory transactionEntityFactory,
+                              ShadowProjectionService shadowProjectionService,
+                              IngestionProfiler ingestionProfiler,
+                              LedgerConfig configuration) {
+        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory,
+                ingestionProfiler);
+        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor,
+                shadowProjectionService, ingestionProfiler,
+                configuration.getRefundProjectionConfig().isSetBasedUpdateEnabled());
+        payoutEventProcessor = new PayoutEventProcessor(eventService, payoutService, ingestionProfiler);
     }
 
     public EventProcessor processorFor(Event event) {
@@ -54,4 +69,14 @@ public class EventDigestHandler {
     public void processEvent(Event event) {
         processorFor(event).process(event);
     }
+
+    /**
+     * Projects each resource with events in the list once, in the order each resource first appears.
+     */
+    public void processEventsByResource(List<Event> events) {
+        Map<String, List<Event>> eventsByResource = events.stream()
+                .collect(groupingBy(Event::getResourceExternalId, LinkedHashMap::new, toList()));
+        eventsByResource.values().forEach(eventsForResource ->
+                processorFor(eventsForResource.get(0)).processAll(eventsForResource));
+    }
 }
@@ -0,0 +1,98 @@
+package uk.gov.pay.ledger.queue;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import uk.gov.pay.commons.api.json.MicrosecondPrecisionDateTimeSerializer;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.ResourceType;
+
+import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How long ingesting one event took, with the time spent in each stage.
+ */
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class EventIngestionProfile {
+
+    private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+
+    private final String queueMessageId;
+    private final String resourceExternalId;
+    private final ResourceType resourceType;
+    private final String eventType;
+    @JsonSerialize(using = MicrosecondPrecisionDateTimeSerializer.class)
+    private final ZonedDateTime eventDate;
+    private final long startNanos;
+    private final Map<IngestionProfiler.Stage, Long> stageNanos = new EnumMap<>(IngestionProfiler.Stage.class);
+    private long totalNanos;
+    private Integer eventsForResource;
+    private Integer digestSize;
+
+    EventIngestionProfile(Event event, long startNanos) {
+        this.queueMessageId = event.getSqsMessageId();
+        this.resourceExternalId = event.getResourceExternalId();
+        this.resourceType = event.getResourceType();
+        this.eventType = event.getEventType();
+        this.eventDate = event.getEventDate();
+        this.startNanos = startNanos;
+    }
+
+    void add(IngestionProfiler.Stage stage, long nanos) {
+        stageNanos.merge(stage, nanos, Long::sum);
+    }
+
+    void setDigest(int eventsForResource, int digestSize) {
+        this.eventsForResource = eventsForResource;
+        this.digestSize = digestSize;
+    }
+
+    /**
+     * The total covers receiving the batch and handling the message from when profiling began, so it includes time
+     * between stages that isn't in any of them.
+     */
+    void finish(long endNanos) {
+        totalNanos = stageNanos.getOrDefault(IngestionProfiler.Stage.RECEIVE, 0L) + endNanos - startNanos;
+    }
+
+    public String getQueueMessageId() {
+        return queueMessageId;
+    }
+
+    public String getResourceExternalId() {
+        return resourceExternalId;
+    }
+
+    public ResourceType getResourceType() {
+        return resourceType;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public ZonedDateTime getEventDate() {
+        return eventDate;
+    }
+
+    public double getTotalMilliseconds() {
+        return totalNanos / NANOS_PER_MILLISECOND;
+    }
+
+    public Map<String, Double> getStageMilliseconds() {
+        Map<String, Double> stageMilliseconds = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> stageMilliseconds.put(stage.getName(), nanos / NANOS_PER_MILLISECOND));
+        return stageMilliseconds;
+    }
+
+    public Integer getEventsForResource() {
+        return eventsForResource;
+    }
+
+    public Integer getDigestSize() {
+        return digestSize;
+    }
+}
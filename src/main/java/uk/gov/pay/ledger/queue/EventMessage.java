@@ -5,10 +5,16 @@ import uk.gov.pay.ledger.event.model.Event;
 public class EventMessage {
     private EventMessageDto eventDto;
     private QueueMessage queueMessage;
+    private long deserialisationNanos;
 
     public EventMessage(EventMessageDto eventDto, QueueMessage queueMessage) {
+        this(eventDto, queueMessage, 0);
+    }
+
+    public EventMessage(EventMessageDto eventDto, QueueMessage queueMessage, long deserialisationNanos) {
         this.eventDto = eventDto;
         this.queueMessage = queueMessage;
+        this.deserialisationNanos = deserialisationNanos;
     }
 
     public static EventMessage of(EventMessageDto eventDto, QueueMessage queueMessage) {
@@ -35,6 +41,14 @@ public class EventMessage {
         );
     }
 
+    public QueueMessage getQueueMessage() {
+        return queueMessage;
+    }
+
+    public long getDeserialisationNanos() {
+        return deserialisationNanos;
+    }
+
     public String getQueueMessageReceiptHandle() {
         return queueMessage.getReceiptHandle();
     }
@@ -1,19 +1,30 @@
 package uk.gov.pay.ledger.queue;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.inject.Inject;
 import io.sentry.Sentry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.UnitOfWork;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.event.service.EventTickerService;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.service.MessageQuarantine;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.ACKNOWLEDGE;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.INSERT;
 
 public class EventMessageHandler {
 
@@ -22,23 +33,79 @@ public class EventMessageHandler {
     private final EventQueue eventQueue;
     private final EventService eventService;
     private final EventDigestHandler eventDigestHandler;
+    private final EventTickerService eventTickerService;
+    private final UnitOfWork unitOfWork;
+    private final CoalescingProjector coalescingProjector;
+    private final IngestionProfiler ingestionProfiler;
+    private final MessageQuarantine messageQuarantine;
     private final MetricRegistry metricRegistry;
+    private final Timer receiveTimer;
+    private final Timer storeEventTimer;
+    private final Timer projectTimer;
+    private final Timer acknowledgeTimer;
+    private final Timer groupCommitTimer;
+    private final Meter groupCommitFallbacks;
+    private final boolean groupCommitEnabled;
 
     @Inject
     public EventMessageHandler(EventQueue eventQueue,
                                EventService eventService,
                                EventDigestHandler eventDigestHandler,
+                               EventTickerService eventTickerService,
+                               UnitOfWork unitOfWork,
+                               CoalescingProjector coalescingProjector,
+                               IngestionProfiler ingestionProfiler,
+                               MessageQuarantine messageQuarantine,
+                               LedgerConfig configuration,
                                MetricRegistry metricRegistry) {
         this.eventQueue = eventQueue;
         this.eventService = eventService;
         this.eventDigestHandler = eventDigestHandler;
+        this.eventTickerService = eventTickerService;
+        this.unitOfWork = unitOfWork;
+        this.coalescingProjector = coalescingProjector;
+        this.ingestionProfiler = ingestionProfiler;
+        this.messageQuarantine = messageQuarantine;
         this.metricRegistry = metricRegistry;
+        this.receiveTimer = metricRegistry.timer("event-message-handler.receive");
+        this.storeEventTimer = metricRegistry.timer("event-message-handler.store-event");
+        this.projectTimer = metricRegistry.timer("event-message-handler.project");
+        this.acknowledgeTimer = metricRegistry.timer("event-message-handler.acknowledge");
+        this.groupCommitTimer = metricRegistry.timer("event-message-handler.group-commit");
+        this.groupCommitFallbacks = metricRegistry.meter("event-message-handler.group-commit-fallbacks");
+        this.groupCommitEnabled = configuration.getQueueMessageReceiverConfig().isGroupCommitEnabled();
     }
 
-    public void handle() throws QueueException {
-        List<EventMessage> eventMessages = eventQueue.retrieveEvents();
+    /**
+     * Receives a batch of messages from the queue and processes each of them.
+     *
+     * With group commit enabled the whole batch is stored and projected in one transaction and acknowledged together.
+     * If any message in the batch fails, the batch is rolled back and its messages are processed one at a time so the
+     * failing message doesn't hold up the rest.
+     *
+     * With projection coalescing enabled, messages processed one at a time are only stored here. Their resources are
+     * projected by the {@link CoalescingProjector} and the messages are acknowledged once that projection commits.
+     *
+     * Messages processed one at a time are profiled by the {@link IngestionProfiler}. A message that fails after it
+     * has been received quarantineAfterReceiveCount times is quarantined by {@link MessageQuarantine} and deleted from
+     * the queue instead of being retried again.
+     *
+     * @return the messages received, whether or not they were processed successfully
+     */
+    public List<EventMessage> handle() throws QueueException {
+        List<EventMessage> eventMessages;
+        long receiveStartNanos = System.nanoTime();
+        try (Timer.Context ignored = receiveTimer.time()) {
+            eventMessages = eventQueue.retrieveEvents();
+        }
+        long receiveNanos = System.nanoTime() - receiveStartNanos;
+
+        if (groupCommitEnabled && eventMessages.size() > 1 && processBatch(eventMessages)) {
+            return eventMessages;
+        }
 
         for (EventMessage message : eventMessages) {
+            ingestionProfiler.begin(message, receiveNanos);
             try {
                 processSingleMessage(message);
             } catch (Exception e) {
@@ -48,26 +115,99 @@ public class EventMessageHandler {
                         message.getQueueMessageId(),
                         e.getMessage()
                 );
+            } finally {
+                ingestionProfiler.end();
             }
         }
+        return eventMessages;
+    }
+
+    /**
+     * @return false if the batch was rolled back and its messages still need processing
+     */
+    private boolean processBatch(List<EventMessage> eventMessages) {
+        List<Event> events = eventMessages.stream().map(EventMessage::getEvent).collect(Collectors.toList());
+        List<CreateEventResponse> responses;
+        try (Timer.Context ignored = groupCommitTimer.time()) {
+            responses = unitOfWork.inTransaction(handle -> {
+                List<CreateEventResponse> createEventResponses = new ArrayList<>(events.size());
+                for (Event event : events) {
+                    CreateEventResponse createEventResponse;
+                    try (Timer.Context ignoredStore = storeEventTimer.time();
+                         IngestionProfiler.StageTimer ignoredInsert = ingestionProfiler.time(INSERT, event)) {
+                        createEventResponse = eventService.createIfDoesNotExist(event);
+                    }
+                    if (!createEventResponse.isSuccessful()) {
+                        handle.rollback();
+                        return null;
+                    }
+                    createEventResponses.add(createEventResponse);
+                }
+                eventDigestHandler.processEventsByResource(events);
+                return createEventResponses;
+            });
+        } catch (Exception e) {
+            responses = null;
+            LOGGER.warn("Error during group commit of event message batch. [errorMessage={}]", e.getMessage());
+        }
+
+        if (responses == null) {
+            groupCommitFallbacks.mark();
+            LOGGER.warn("Group commit of event message batch rolled back, processing messages one at a time.",
+                    kv("batch_size", eventMessages.size()));
+            return false;
+        }
+
+        if (responses.stream().anyMatch(response -> response.getState() == CreateEventResponse.CreateEventState.INSERTED)) {
+            eventTickerService.onEventIngested();
+        }
+        try (Timer.Context ignored = acknowledgeTimer.time()) {
+            eventQueue.markMessagesAsProcessed(eventMessages);
+        } catch (QueueException e) {
+            // the events are committed, messages that weren't deleted are redelivered and ignored as duplicates
+            Sentry.capture(e);
+            LOGGER.warn("Error acknowledging event message batch. [errorMessage={}]", e.getMessage());
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        events.forEach(event -> metricRegistry.histogram("event-message-handler.ingest-lag-microseconds")
+                .update(event.getEventDate().until(now, ChronoUnit.MICROS)));
+        LOGGER.info("The event message batch has been processed.",
+                kv("batch_size", eventMessages.size()),
+                kv("resources", events.stream().map(Event::getResourceExternalId).distinct().count()));
+        return true;
     }
 
     private void processSingleMessage(EventMessage message) throws QueueException {
         Event event = message.getEvent();
-        CreateEventResponse response = eventService.createIfDoesNotExist(event);
-
-        final long ingestLag = event.getEventDate().until(ZonedDateTime.now(), ChronoUnit.MICROS);
+        boolean coalescing = coalescingProjector.isEnabled();
+        CreateEventResponse response;
+        try {
+            response = storeAndProject(event, !coalescing);
+        } catch (RuntimeException e) {
+            if (quarantineIfRepeatedlyFailing(message, QuarantineStage.PROJECTION, e.getMessage())) {
+                Sentry.capture(e);
+                return;
+            }
+            throw e;
+        }
 
         if(response.isSuccessful()) {
-            eventDigestHandler.processEvent(event);
-            eventQueue.markMessageAsProcessed(message);
-            metricRegistry.histogram("event-message-handler.ingest-lag-microseconds").update(ingestLag);
-            LOGGER.info("The event message has been processed.",
-                    kv("id", message.getId()),
-                    kv("resource_external_id", message.getEvent().getResourceExternalId()),
-                    kv("state", response.getState()),
-                    kv("ingest_lag_micro_seconds", ingestLag));
-        } else {
+            if (response.getState() == CreateEventResponse.CreateEventState.INSERTED) {
+                eventTickerService.onEventIngested();
+            }
+            if (coalescing) {
+                coalescingProjector.markDirty(event).whenComplete((projected, error) -> {
+                    if (error == null) {
+                        acknowledgeCoalescedMessage(message, response);
+                    } else {
+                        retryCoalescedMessage(message, error);
+                    }
+                });
+            } else {
+                acknowledge(message, response);
+            }
+        } else if (!quarantineIfRepeatedlyFailing(message, QuarantineStage.INSERT, response.getErrorMessage())) {
             eventQueue.scheduleMessageForRetry(message);
             LOGGER.warn("The event message has been scheduled for retry.",
                     kv("id", message.getId()),
@@ -76,4 +216,97 @@ public class EventMessageHandler {
                     kv("error", response.getErrorMessage()));
         }
     }
+
+    /**
+     * Stores and projects the event of a message that is no longer on the queue, such as a quarantined message being
+     * replayed.
+     */
+    public CreateEventResponse processReplayedMessage(EventMessage message) {
+        CreateEventResponse response = storeAndProject(message.getEvent(), true);
+        if (response.getState() == CreateEventResponse.CreateEventState.INSERTED) {
+            eventTickerService.onEventIngested();
+        }
+        return response;
+    }
+
+    private CreateEventResponse storeAndProject(Event event, boolean project) {
+        return unitOfWork.inTransaction(handle -> {
+            CreateEventResponse createEventResponse;
+            try (Timer.Context ignored = storeEventTimer.time();
+                 IngestionProfiler.StageTimer ignoredInsert = ingestionProfiler.time(INSERT, event)) {
+                createEventResponse = eventService.createIfDoesNotExist(event);
+            }
+            if (!createEventResponse.isSuccessful()) {
+                handle.rollback();
+            } else if (project) {
+                try (Timer.Context ignored = projectTimer.time()) {
+                    eventDigestHandler.processEvent(event);
+                }
+            }
+            return createEventResponse;
+        });
+    }
+
+    /**
+     * @return true if the message was quarantined and deleted from the queue, false if it should be retried
+     */
+    private boolean quarantineIfRepeatedlyFailing(EventMessage message, QuarantineStage stage, String errorMessage)
+            throws QueueException {
+        if (!messageQuarantine.shouldQuarantine(message)) {
+            return false;
+        }
+        messageQuarantine.quarantine(message, stage, errorMessage);
+        eventQueue.markMessageAsProcessed(message);
+        return true;
+    }
+
+    private void acknowledge(EventMessage message, CreateEventResponse response) throws QueueException {
+        try (Timer.Context ignored = acknowledgeTimer.time();
+             IngestionProfiler.StageTimer ignoredAcknowledge = ingestionProfiler.time(ACKNOWLEDGE, message.getEvent())) {
+            eventQueue.markMessageAsProcessed(message);
+        }
+        final long ingestLag = message.getEvent().getEventDate().until(ZonedDateTime.now(), ChronoUnit.MICROS);
+        metricRegistry.histogram("event-message-handler.ingest-lag-microseconds").update(ingestLag);
+        LOGGER.info("The event message has been processed.",
+                kv("id", message.getId()),
+                kv("resource_external_id", message.getEvent().getResourceExternalId()),
+                kv("state", response.getState()),
+                kv("ingest_lag_micro_seconds", ingestLag));
+    }
+
+    private void acknowledgeCoalescedMessage(EventMessage message, CreateEventResponse response) {
+        try {
+            acknowledge(message, response);
+        } catch (QueueException e) {
+            // the event is stored and projected, if the message is redelivered it is ignored as a duplicate
+            Sentry.capture(e);
+            LOGGER.warn("Error acknowledging event message. [id={}] [queueMessageId={}] [errorMessage={}]",
+                    message.getId(),
+                    message.getQueueMessageId(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * The event is already stored, so the retried message is ignored as a duplicate and only serves to get the
+     * resource projected again.
+     */
+    private void retryCoalescedMessage(EventMessage message, Throwable error) {
+        try {
+            if (quarantineIfRepeatedlyFailing(message, QuarantineStage.PROJECTION, error.getMessage())) {
+                return;
+            }
+            eventQueue.scheduleMessageForRetry(message);
+            LOGGER.warn("The coalesced projection failed, the event message has been scheduled for retry.",
+                    kv("id", message.getId()),
+                    kv("resource_external_id", message.getEvent().getResourceExternalId()),
+                    kv("error", error.getMessage()));
+        } catch (QueueException | RuntimeException e) {
+            Sentry.capture(e);
+            LOGGER.warn("Error scheduling event message for retry or quarantining it. [id={}] [queueMessageId={}] [errorMessage={}]",
+                    message.getId(),
+                    message.getQueueMessageId(),
+                    e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package uk.gov.pay.ledger.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public class EventMessageParser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventMessageParser.class);
+
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public EventMessageParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return an event message for each queue message that could be parsed, messages that can't be parsed are logged
+     * and left out
+     */
+    public List<EventMessage> parse(List<QueueMessage> queueMessages) {
+        return queueMessages
+                .stream()
+                .map(this::getMessage)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private EventMessage getMessage(QueueMessage queueMessage) {
+        try {
+            long startNanos = System.nanoTime();
+            EventMessageDto eventDto = objectMapper.readValue(queueMessage.getMessageBody(), EventMessageDto.class);
+
+            return new EventMessage(eventDto, queueMessage, System.nanoTime() - startNanos);
+        } catch (IOException e) {
+            LOGGER.warn(
+                    "There was an exception parsing message [messageId={}] into an [{}]",
+                    queueMessage.getMessageId(),
+                    EventMessage.class);
+
+            return null;
+        }
+    }
+}
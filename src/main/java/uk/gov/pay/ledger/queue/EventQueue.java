@@ -1,66 +1,31 @@
 package uk.gov.pay.ledger.queue;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.inject.Inject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import uk.gov.pay.ledger.app.LedgerConfig;
-import uk.gov.pay.ledger.queue.sqs.SqsQueueService;
-
-import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
-public class EventQueue {
-
-    private static final String EVENT_MESSAGE_ATTRIBUTE_NAME = "All";
-    private static final Logger LOGGER = LoggerFactory.getLogger(EventQueue.class);
-
-    private SqsQueueService sqsQueueService;
-    private final String eventQueueUrl;
-    private ObjectMapper objectMapper;
-    private int retryDelayInSeconds;
-
-    @Inject
-    public EventQueue(SqsQueueService sqsQueueService, LedgerConfig configuration, ObjectMapper objectMapper) {
-        this.sqsQueueService = sqsQueueService;
-        this.eventQueueUrl = configuration.getSqsConfig().getEventQueueUrl();
-        this.objectMapper = objectMapper;
-        this.retryDelayInSeconds = configuration.getQueueMessageReceiverConfig().getMessageRetryDelayInSeconds();
-    }
 
-    public List<EventMessage> retrieveEvents() throws QueueException {
-        List<QueueMessage> queueMessages = sqsQueueService
-                .receiveMessages(this.eventQueueUrl, EVENT_MESSAGE_ATTRIBUTE_NAME);
+/**
+ * A source of event messages for {@link EventMessageHandler}. The implementation is chosen with
+ * eventQueueConfig.type: SQS in production, or an in-process queue or a file replay to ingest events without an SQS
+ * endpoint.
+ */
+public interface EventQueue {
 
-        return queueMessages
-                .stream()
-                .map(this::getMessage)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
+    List<EventMessage> retrieveEvents() throws QueueException;
 
-    public void markMessageAsProcessed(EventMessage message) throws QueueException {
-        sqsQueueService.deleteMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle());
-    }
+    void markMessageAsProcessed(EventMessage message) throws QueueException;
 
-    public void scheduleMessageForRetry(EventMessage message) throws QueueException {
-        sqsQueueService.deferMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle(), retryDelayInSeconds);
+    /**
+     * Acknowledges a batch of messages processed together, by default one at a time.
+     */
+    default void markMessagesAsProcessed(List<EventMessage> messages) throws QueueException {
+        for (EventMessage message : messages) {
+            markMessageAsProcessed(message);
+        }
     }
 
-    private EventMessage getMessage(QueueMessage queueMessage) {
-        try {
-            EventMessageDto eventDto = objectMapper.readValue(queueMessage.getMessageBody(), EventMessageDto.class);
+    void scheduleMessageForRetry(EventMessage message) throws QueueException;
 
-            return EventMessage.of(eventDto, queueMessage);
-        } catch (IOException e) {
-            LOGGER.warn(
-                    "There was an exception parsing message [messageId={}] into an [{}]",
-                    queueMessage.getMessageId(),
-                    EventMessage.class);
-
-            return null;
-        }
-    }
+    /**
+     * @return the most messages a single call to retrieveEvents can return, a batch this size means more are waiting
+     */
+    int getMaximumBatchSize();
 }
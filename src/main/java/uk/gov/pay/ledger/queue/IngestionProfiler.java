@@ -0,0 +1,199 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.event.model.SalientEventType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Times each stage of ingesting an event and keeps a breakdown of the most recent events, so slow ingestion can be
+ * traced to the stage it spends its time in.
+ *
+ * Each stage is recorded in a timer named ingestion.stage.[stage].[resource_type].[event_type]. Event types come from
+ * the queue, so only salient event types get timers of their own and the rest are recorded as other, which keeps the
+ * number of timers bounded. Timers are looked up once and reused. Stages run on the
+ * thread handling the message, so while a message is handled on its own the stages are also added to a profile of
+ * its event. The last {@value #RECENT_EVENTS} profiles are kept for {@link #getSlowestRecentEvents(int)}. Events
+ * stored with group commit or projected by the {@link CoalescingProjector} are timed but not profiled.
+ *
+ * Metrics:
+ * - ingestion.stage.*: time taken by each stage, by resource and event type
+ * - ingestion.events-per-resource.[resource_type]: number of events a projection was built from
+ * - ingestion.digest-size.[resource_type]: number of fields in the digest a projection was built from
+ */
+@Singleton
+public class IngestionProfiler {
+
+    static final int RECENT_EVENTS = 1000;
+
+    public enum Stage {
+        RECEIVE,
+        DESERIALISE,
+        INSERT,
+        DIGEST,
+        UPSERT,
+        METADATA,
+        REFUND_REPROJECTION,
+        ACKNOWLEDGE;
+
+        public String getName() {
+            return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+        }
+    }
+
+    private static final String OTHER_EVENT_TYPE = "other";
+
+    private final MetricRegistry metricRegistry;
+    private final Map<TimerKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final ThreadLocal<EventIngestionProfile> currentProfile = new ThreadLocal<>();
+    private final Deque<EventIngestionProfile> recentProfiles = new ArrayDeque<>(RECENT_EVENTS);
+
+    @Inject
+    public IngestionProfiler(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Starts profiling the event of a message on the current thread.
+     *
+     * @param batchReceiveNanos time taken to receive the batch the message came in, which is shared by every message
+     *                          in the batch so isn't added to the receive timer again
+     */
+    public void begin(EventMessage message, long batchReceiveNanos) {
+        Event event = message.getEvent();
+        EventIngestionProfile profile = new EventIngestionProfile(event, System.nanoTime());
+        profile.add(Stage.RECEIVE, batchReceiveNanos);
+        currentProfile.set(profile);
+        record(Stage.DESERIALISE, event, message.getDeserialisationNanos());
+    }
+
+    /**
+     * Finishes the profile started on the current thread and keeps it as one of the recent events.
+     */
+    public void end() {
+        EventIngestionProfile profile = currentProfile.get();
+        if (profile == null) {
+            return;
+        }
+        currentProfile.remove();
+        profile.finish(System.nanoTime());
+        synchronized (recentProfiles) {
+            if (recentProfiles.size() == RECENT_EVENTS) {
+                recentProfiles.removeFirst();
+            }
+            recentProfiles.addLast(profile);
+        }
+    }
+
+    public StageTimer time(Stage stage, Event event) {
+        return new StageTimer(stage, event);
+    }
+
+    public void record(Stage stage, Event event, long nanos) {
+        TimerKey timerKey = new TimerKey(stage, event.getResourceType(),
+                SalientEventType.from(event.getEventType()).orElse(null));
+        stageTimers.computeIfAbsent(timerKey, this::registerTimer).update(nanos, NANOSECONDS);
+        EventIngestionProfile profile = currentProfile.get();
+        if (profile != null) {
+            profile.add(stage, nanos);
+        }
+    }
+
+    public void recordDigest(EventDigest eventDigest) {
+        String resourceType = tag(eventDigest.getResourceType());
+        int digestSize = eventDigest.getEventPayload() == null ? 0 : eventDigest.getEventPayload().size();
+        metricRegistry.histogram(name("ingestion.events-per-resource", resourceType)).update(eventDigest.getEventCount());
+        metricRegistry.histogram(name("ingestion.digest-size", resourceType)).update(digestSize);
+        EventIngestionProfile profile = currentProfile.get();
+        if (profile != null) {
+            profile.setDigest(eventDigest.getEventCount(), digestSize);
+        }
+    }
+
+    /**
+     * @return the slowest of the most recently profiled events, slowest first
+     */
+    public List<EventIngestionProfile> getSlowestRecentEvents(int limit) {
+        List<EventIngestionProfile> profiles;
+        synchronized (recentProfiles) {
+            profiles = new ArrayList<>(recentProfiles);
+        }
+        return profiles.stream()
+                .sorted(Comparator.comparingDouble(EventIngestionProfile::getTotalMilliseconds).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private Timer registerTimer(TimerKey timerKey) {
+        String eventType = timerKey.eventType == null ? OTHER_EVENT_TYPE : tag(timerKey.eventType);
+        return metricRegistry.timer(name("ingestion.stage", timerKey.stage.getName(), tag(timerKey.resourceType), eventType));
+    }
+
+    private static String tag(Object value) {
+        return value == null ? "unknown" : value.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static class TimerKey {
+        private final Stage stage;
+        private final ResourceType resourceType;
+        private final SalientEventType eventType;
+
+        private TimerKey(Stage stage, ResourceType resourceType, SalientEventType eventType) {
+            this.stage = stage;
+            this.resourceType = resourceType;
+            this.eventType = eventType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TimerKey timerKey = (TimerKey) o;
+            return stage == timerKey.stage && resourceType == timerKey.resourceType && eventType == timerKey.eventType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stage, resourceType, eventType);
+        }
+    }
+
+    public class StageTimer implements AutoCloseable {
+        private final Stage stage;
+        private final Event event;
+        private final long startNanos;
+
+        private StageTimer(Stage stage, Event event) {
+            this.stage = stage;
+            this.event = event;
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            record(stage, event, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -6,6 +6,10 @@ public class QueueException extends Exception {
 
     }
 
+    public QueueException(String message) {
+        super(message);
+    }
+
     public QueueException(String message, Exception e) {
         super(message, e);
     }
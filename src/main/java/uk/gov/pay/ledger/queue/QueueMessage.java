@@ -1,5 +1,7 @@
 package uk.gov.pay.ledger.queue;
 
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageSystemAttributeName;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.SendMessageResult;
 
@@ -11,11 +13,17 @@ public class QueueMessage {
     private String messageId;
     private String receiptHandle;
     private String messageBody;
+    private int receiveCount;
 
-    private QueueMessage(String messageId, String receiptHandle, String messageBody) {
+    private QueueMessage(String messageId, String receiptHandle, String messageBody, int receiveCount) {
         this.messageId = messageId;
         this.receiptHandle = receiptHandle;
         this.messageBody = messageBody;
+        this.receiveCount = receiveCount;
+    }
+
+    private QueueMessage(String messageId, String receiptHandle, String messageBody) {
+        this(messageId, receiptHandle, messageBody, 1);
     }
 
     private QueueMessage(String messageId, String messageBody) {
@@ -26,10 +34,19 @@ public class QueueMessage {
 
         return receiveMessageResult.getMessages()
                 .stream()
-                .map(c -> new QueueMessage(c.getMessageId(), c.getReceiptHandle(), c.getBody()))
+                .map(c -> new QueueMessage(c.getMessageId(), c.getReceiptHandle(), c.getBody(), receiveCountOf(c)))
                 .collect(Collectors.toList());
     }
 
+    private static int receiveCountOf(Message message) {
+        String receiveCount = message.getAttributes().get(MessageSystemAttributeName.ApproximateReceiveCount.toString());
+        return receiveCount == null ? 1 : Integer.parseInt(receiveCount);
+    }
+
+    public static QueueMessage of(String messageId, String receiptHandle, String messageBody) {
+        return new QueueMessage(messageId, receiptHandle, messageBody);
+    }
+
     public static QueueMessage of(SendMessageResult messageResult, String validJsonMessage) {
         return new QueueMessage(messageResult.getMessageId(), validJsonMessage);
     }
@@ -45,4 +62,18 @@ public class QueueMessage {
     public String getMessageBody() {
         return messageBody;
     }
+
+    /**
+     * @return how many times the message has been received, including this time
+     */
+    public int getReceiveCount() {
+        return receiveCount;
+    }
+
+    /**
+     * @return this message as it will be received the next time it is delivered
+     */
+    public QueueMessage receivedAgain() {
+        return new QueueMessage(messageId, receiptHandle, messageBody, receiveCount + 1);
+    }
 }
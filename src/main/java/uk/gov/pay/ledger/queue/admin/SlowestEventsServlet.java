@@ -0,0 +1,53 @@
+package uk.gov.pay.ledger.queue.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * The slowest of the events most recently ingested by this instance, with the time spent in each stage. Served on the
+ * admin connector at GET /ingestion/slowest-events?limit=20.
+ */
+public class SlowestEventsServlet extends HttpServlet {
+
+    public static final String PATH = "/ingestion/slowest-events";
+
+    private static final int DEFAULT_SLOWEST_EVENTS_LIMIT = 20;
+    private static final int MAX_SLOWEST_EVENTS_LIMIT = 1000;
+
+    private final IngestionProfiler ingestionProfiler;
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public SlowestEventsServlet(IngestionProfiler ingestionProfiler, ObjectMapper objectMapper) {
+        this.ingestionProfiler = ingestionProfiler;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int slowestEventsLimit;
+        try {
+            String limit = request.getParameter("limit");
+            slowestEventsLimit = limit == null ? DEFAULT_SLOWEST_EVENTS_LIMIT : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            slowestEventsLimit = -1;
+        }
+        if (slowestEventsLimit < 1 || slowestEventsLimit > MAX_SLOWEST_EVENTS_LIMIT) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    format("Parameter [limit] must be between 1 and %d", MAX_SLOWEST_EVENTS_LIMIT));
+            return;
+        }
+
+        response.setContentType(APPLICATION_JSON);
+        objectMapper.writeValue(response.getOutputStream(), ingestionProfiler.getSlowestRecentEvents(slowestEventsLimit));
+    }
+}
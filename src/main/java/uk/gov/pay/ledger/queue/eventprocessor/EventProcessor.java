@@ -2,6 +2,18 @@ package uk.gov.pay.ledger.queue.eventprocessor;
 
 import uk.gov.pay.ledger.event.model.Event;
 
+import java.util.List;
+
 public abstract class EventProcessor {
     public abstract void process(Event event);
+
+    /**
+     * Projects a resource once for several of its events that arrived together. Projections are built from the
+     * resource's whole event history, so by default projecting for the latest of them covers the others.
+     *
+     * @param eventsForResource events for one resource, in the order they were received
+     */
+    public void processAll(List<Event> eventsForResource) {
+        process(eventsForResource.get(eventsForResource.size() - 1));
+    }
 }
@@ -4,6 +4,8 @@ import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.SalientEventType;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+import uk.gov.pay.ledger.queue.shadow.ShadowProjectionService;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
@@ -13,50 +15,97 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.DIGEST;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.METADATA;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.REFUND_REPROJECTION;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.UPSERT;
+
 public class PaymentEventProcessor extends EventProcessor {
 
     private EventService eventService;
     private TransactionService transactionService;
     private TransactionMetadataService transactionMetadataService;
     private RefundEventProcessor refundEventProcessor;
+    private ShadowProjectionService shadowProjectionService;
+    private IngestionProfiler ingestionProfiler;
+    private boolean setBasedRefundUpdateEnabled;
 
     public PaymentEventProcessor(EventService eventService,
                                  TransactionService transactionService,
                                  TransactionMetadataService transactionMetadataService,
-                                 RefundEventProcessor refundEventProcessor) {
+                                 RefundEventProcessor refundEventProcessor,
+                                 ShadowProjectionService shadowProjectionService,
+                                 IngestionProfiler ingestionProfiler,
+                                 boolean setBasedRefundUpdateEnabled) {
 
         this.eventService = eventService;
         this.transactionService = transactionService;
         this.transactionMetadataService = transactionMetadataService;
         this.refundEventProcessor = refundEventProcessor;
+        this.shadowProjectionService = shadowProjectionService;
+        this.ingestionProfiler = ingestionProfiler;
+        this.setBasedRefundUpdateEnabled = setBasedRefundUpdateEnabled;
     }
 
     @Override
     public void process(Event event) {
-        List<Event> events = eventService.getEventsForResource(event.getResourceExternalId());
-        EventDigest paymentEventDigest = EventDigest.fromEventList(events);
+        processAll(List.of(event));
+    }
 
-        transactionService.upsertTransactionFor(paymentEventDigest);
-        transactionMetadataService.upsertMetadataFor(event);
+    /**
+     * The payment is projected once, but metadata is taken from each of the events and refunds are updated if any of
+     * them needs it.
+     */
+    @Override
+    public void processAll(List<Event> eventsForResource) {
+        Event latestEvent = eventsForResource.get(eventsForResource.size() - 1);
+        String resourceExternalId = latestEvent.getResourceExternalId();
+        List<Event> events;
+        EventDigest paymentEventDigest;
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(DIGEST, latestEvent)) {
+            events = eventService.getEventsForResource(resourceExternalId);
+            paymentEventDigest = EventDigest.fromEventList(events);
+        }
+        ingestionProfiler.recordDigest(paymentEventDigest);
 
-        /**
-         * If the payment has associated refunds, we want to update the payment details that we also store on refunds to
-         * keep these in sync with the payment.
-         * We avoid a database query to get refunds when the payment has not been in a success state, as it is not
-         * possible for refunds to exist in this case. We also avoid this query when the current event contains no data
-         * that needs to be updated on the refund.
-         */
-        Map<String, Object> eventDataMap = JsonParser.jsonStringToMap(event.getEventData());
-        boolean shouldCheckForRefundsToUpdate = !event.getEventType().equals("REFUND_AVAILABILITY_UPDATED") &&
-                !(eventDataMap == null || eventDataMap.isEmpty()) &&
-                hasSuccessEvent(events);
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(UPSERT, latestEvent)) {
+            transactionService.upsertTransactionFor(paymentEventDigest);
+        }
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(METADATA, latestEvent)) {
+            eventsForResource.forEach(transactionMetadataService::upsertMetadataFor);
+        }
+        shadowProjectionService.compare(events);
+
+        boolean shouldCheckForRefundsToUpdate = eventsForResource.stream()
+                .anyMatch(event -> shouldCheckForRefundsToUpdate(event, events));
 
         if (shouldCheckForRefundsToUpdate) {
-            transactionService.getChildTransactions(event.getResourceExternalId())
-                    .forEach(refundTransactionEntity -> refundEventProcessor.reprojectRefundTransaction(refundTransactionEntity.getExternalId(), paymentEventDigest));
+            try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(REFUND_REPROJECTION, latestEvent)) {
+                if (setBasedRefundUpdateEnabled) {
+                    refundEventProcessor.updateRefundsWithPaymentDetails(paymentEventDigest);
+                } else {
+                    transactionService.getChildTransactions(resourceExternalId)
+                            .forEach(refundTransactionEntity -> refundEventProcessor.reprojectRefundTransaction(refundTransactionEntity.getExternalId(), paymentEventDigest));
+                }
+            }
         }
     }
 
+    /**
+     * If the payment has associated refunds, we want to update the payment details that we also store on refunds to
+     * keep these in sync with the payment. The details are copied on to all the refunds with one update, unless the
+     * set-based update is disabled and each refund is reprojected from its own events instead.
+     * We avoid a database query to get refunds when the payment has not been in a success state, as it is not
+     * possible for refunds to exist in this case. We also avoid this query when the current event contains no data
+     * that needs to be updated on the refund.
+     */
+    private boolean shouldCheckForRefundsToUpdate(Event event, List<Event> events) {
+        Map<String, Object> eventDataMap = JsonParser.jsonStringToMap(event.getEventData());
+        return !event.getEventType().equals("REFUND_AVAILABILITY_UPDATED") &&
+                !(eventDataMap == null || eventDataMap.isEmpty()) &&
+                hasSuccessEvent(events);
+    }
+
     private boolean hasSuccessEvent(List<Event> events) {
         return events.stream().map(event -> SalientEventType.from(event.getEventType()))
                 .flatMap(Optional::stream)
@@ -1,20 +1,36 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
 import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.service.EventService;
 import uk.gov.pay.ledger.payout.service.PayoutService;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.DIGEST;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.UPSERT;
 
 public class PayoutEventProcessor extends EventProcessor {
     private EventService eventService;
     private PayoutService payoutService;
+    private IngestionProfiler ingestionProfiler;
 
-    public PayoutEventProcessor(EventService eventService, PayoutService payoutService) {
+    public PayoutEventProcessor(EventService eventService, PayoutService payoutService,
+                                IngestionProfiler ingestionProfiler) {
         this.eventService = eventService;
         this.payoutService = payoutService;
+        this.ingestionProfiler = ingestionProfiler;
     }
 
     @Override
     public void process(Event event) {
-        payoutService.upsertPayoutFor(eventService.getEventDigestForResource(event));
+        EventDigest payoutEventDigest;
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(DIGEST, event)) {
+            payoutEventDigest = eventService.getEventDigestForResource(event);
+        }
+        ingestionProfiler.recordDigest(payoutEventDigest);
+
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(UPSERT, event)) {
+            payoutService.upsertPayoutFor(payoutEventDigest);
+        }
     }
 }
@@ -1,10 +1,12 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
+import com.google.inject.Inject;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
 import uk.gov.pay.ledger.exception.EmptyEventsException;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
@@ -14,32 +16,44 @@ import java.util.Optional;
 
 import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.DIGEST;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.UPSERT;
 
 public class RefundEventProcessor extends EventProcessor {
     private final EventService eventService;
     private final TransactionService transactionService;
     private final TransactionEntityFactory transactionEntityFactory;
+    private final IngestionProfiler ingestionProfiler;
 
+    @Inject
     public RefundEventProcessor(EventService eventService, TransactionService transactionService,
-                                TransactionEntityFactory transactionEntityFactory) {
+                                TransactionEntityFactory transactionEntityFactory,
+                                IngestionProfiler ingestionProfiler) {
 
         this.eventService = eventService;
         this.transactionService = transactionService;
         this.transactionEntityFactory = transactionEntityFactory;
+        this.ingestionProfiler = ingestionProfiler;
     }
 
     @Override
     public void process(Event event) {
-        EventDigest refundEventDigest = eventService.getEventDigestForResource(event);
+        EventDigest refundEventDigest;
         Optional<EventDigest> mayBePaymentEventDigest = Optional.empty();
 
-        if (isNotBlank(refundEventDigest.getParentResourceExternalId())) {
-            mayBePaymentEventDigest = getPaymentEventDigest(refundEventDigest.getParentResourceExternalId());
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(DIGEST, event)) {
+            refundEventDigest = eventService.getEventDigestForResource(event);
+            if (isNotBlank(refundEventDigest.getParentResourceExternalId())) {
+                mayBePaymentEventDigest = getPaymentEventDigest(refundEventDigest.getParentResourceExternalId());
+            }
         }
+        ingestionProfiler.recordDigest(refundEventDigest);
 
-        mayBePaymentEventDigest.ifPresentOrElse(
-                paymentEventDigest -> projectRefundTransactionWithPaymentDetails(refundEventDigest, paymentEventDigest),
-                () -> transactionService.upsertTransactionFor(refundEventDigest));
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(UPSERT, event)) {
+            mayBePaymentEventDigest.ifPresentOrElse(
+                    paymentEventDigest -> projectRefundTransactionWithPaymentDetails(refundEventDigest, paymentEventDigest),
+                    () -> transactionService.upsertTransactionFor(refundEventDigest));
+        }
     }
 
     public void reprojectRefundTransaction(String refundExternalId, EventDigest paymentEventDigest) {
@@ -47,7 +61,21 @@ public class RefundEventProcessor extends EventProcessor {
         projectRefundTransactionWithPaymentDetails(refundEventDigest, paymentEventDigest);
     }
 
+    /**
+     * Copies the payment details on to all the payment's refunds with one update, instead of reprojecting each refund
+     * from its own events.
+     */
+    public void updateRefundsWithPaymentDetails(EventDigest paymentEventDigest) {
+        TransactionEntity paymentTransactionEntity = transactionEntityFactory.create(paymentEventDigest);
+        transactionService.updateRefundsWithPaymentDetails(paymentTransactionEntity,
+                getPaymentFieldsToProjectOnToRefund(paymentEventDigest));
+    }
+
     private void projectRefundTransactionWithPaymentDetails(EventDigest refundEventDigest, EventDigest paymentEventDigest) {
+        transactionService.upsertTransaction(createRefundTransactionEntity(refundEventDigest, paymentEventDigest));
+    }
+
+    public TransactionEntity createRefundTransactionEntity(EventDigest refundEventDigest, EventDigest paymentEventDigest) {
         /**
          * Apply shared refund payment attributes to the refund digest
          *
@@ -64,8 +92,7 @@ public class RefundEventProcessor extends EventProcessor {
         TransactionEntity refundTransactionEntity = transactionEntityFactory.create(refundEventDigest);
         TransactionEntity paymentTransactionEntity = transactionEntityFactory.create(paymentEventDigest);
         refundTransactionEntity.setEntityFieldsFromOriginalPayment(paymentTransactionEntity);
-
-        transactionService.upsertTransaction(refundTransactionEntity);
+        return refundTransactionEntity;
     }
 
     private Optional<EventDigest> getPaymentEventDigest(String paymentExternalId) {
@@ -0,0 +1,100 @@
+package uk.gov.pay.ledger.queue.inprocess;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.queue.QueueException;
+import uk.gov.pay.ledger.queue.QueueMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue held in memory, for benchmarks and for embedding ledger without SQS. Producers publish the same
+ * message bodies that are sent to SQS and block while the queue is full, so they can't outrun ingestion.
+ *
+ * Messages are removed when they are received. A message scheduled for retry is added back to the end of the queue
+ * straight away, there is no retry delay.
+ */
+@Singleton
+public class InProcessEventQueue implements EventQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InProcessEventQueue.class);
+
+    private final BlockingQueue<QueueMessage> queue;
+    private final EventMessageParser eventMessageParser;
+    private final int batchSize;
+    private final long pollTimeoutInMilliseconds;
+    private final AtomicLong nextMessageId = new AtomicLong();
+
+    @Inject
+    public InProcessEventQueue(LedgerConfig configuration, EventMessageParser eventMessageParser) {
+        this(configuration.getEventQueueConfig(), eventMessageParser);
+    }
+
+    InProcessEventQueue(EventQueueConfig config, EventMessageParser eventMessageParser) {
+        this.queue = new ArrayBlockingQueue<>(config.getInProcessCapacity());
+        this.eventMessageParser = eventMessageParser;
+        this.batchSize = config.getBatchSize();
+        this.pollTimeoutInMilliseconds = config.getPollTimeoutInMilliseconds();
+    }
+
+    /**
+     * Adds a message to the queue, waiting for space if the queue is full.
+     *
+     * @param messageBody an event message as it would be sent to SQS
+     */
+    public void publish(String messageBody) throws InterruptedException {
+        String messageId = "in-process-" + nextMessageId.incrementAndGet();
+        queue.put(QueueMessage.of(messageId, messageId, messageBody));
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public List<EventMessage> retrieveEvents() throws QueueException {
+        List<QueueMessage> queueMessages = new ArrayList<>(batchSize);
+        try {
+            QueueMessage first = queue.poll(pollTimeoutInMilliseconds, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return List.of();
+            }
+            queueMessages.add(first);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueueException("Interrupted while receiving messages from in-process queue", e);
+        }
+        queue.drainTo(queueMessages, batchSize - 1);
+        return eventMessageParser.parse(queueMessages);
+    }
+
+    @Override
+    public void markMessageAsProcessed(EventMessage message) {
+    }
+
+    @Override
+    public void scheduleMessageForRetry(EventMessage message) throws QueueException {
+        if (!queue.offer(message.getQueueMessage().receivedAgain())) {
+            LOGGER.warn("In-process queue is full, dropping message scheduled for retry [queueMessageId={}]",
+                    message.getQueueMessageId());
+            throw new QueueException("In-process queue is full");
+        }
+    }
+
+    @Override
+    public int getMaximumBatchSize() {
+        return batchSize;
+    }
+}
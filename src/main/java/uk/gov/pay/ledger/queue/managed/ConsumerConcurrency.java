@@ -0,0 +1,56 @@
+package uk.gov.pay.ledger.queue.managed;
+
+/**
+ * Decides how many queue consumers should be active, between a minimum and a maximum.
+ *
+ * A full batch means more messages are waiting and an ingest lag above the target means ingestion is falling behind,
+ * so either adds a consumer. Consumers are removed one at a time after consecutive receives come back empty.
+ */
+class ConsumerConcurrency {
+
+    static final int EMPTY_RECEIVES_BEFORE_SCALING_DOWN = 3;
+
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final int fullBatchSize;
+    private final long targetIngestLagInMilliseconds;
+    private volatile int activeConsumers;
+    private int consecutiveEmptyReceives;
+
+    ConsumerConcurrency(int minConsumers, int maxConsumers, int fullBatchSize, long targetIngestLagInMilliseconds) {
+        this.minConsumers = minConsumers;
+        this.maxConsumers = Math.max(minConsumers, maxConsumers);
+        this.fullBatchSize = fullBatchSize;
+        this.targetIngestLagInMilliseconds = targetIngestLagInMilliseconds;
+        this.activeConsumers = minConsumers;
+    }
+
+    int getActiveConsumers() {
+        return activeConsumers;
+    }
+
+    int getMaxConsumers() {
+        return maxConsumers;
+    }
+
+    /**
+     * @param messagesReceived          the number of messages a consumer received
+     * @param ingestLagInMilliseconds   the age of the oldest event received
+     */
+    synchronized void onReceive(int messagesReceived, long ingestLagInMilliseconds) {
+        if (messagesReceived == 0) {
+            consecutiveEmptyReceives++;
+            if (consecutiveEmptyReceives >= EMPTY_RECEIVES_BEFORE_SCALING_DOWN && activeConsumers > minConsumers) {
+                activeConsumers--;
+                consecutiveEmptyReceives = 0;
+            }
+            return;
+        }
+
+        consecutiveEmptyReceives = 0;
+        boolean behind = messagesReceived >= fullBatchSize || ingestLagInMilliseconds > targetIngestLagInMilliseconds;
+        if (behind && activeConsumers < maxConsumers) {
+            activeConsumers++;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package uk.gov.pay.ledger.queue.managed;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
@@ -7,64 +11,168 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.gov.pay.ledger.app.LedgerConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
 import uk.gov.pay.ledger.queue.EventMessageHandler;
+import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.util.VirtualThreads;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs up to maxNumberOfThreads consumers that receive and handle batches of messages from the event queue. Only
+ * the first numberOfThreads consumers are active to begin with, {@link ConsumerConcurrency} activates more while
+ * batches come back full or ingest lag is above target and deactivates them again when the queue is empty.
+ *
+ * A consumer whose receive comes back empty backs off, doubling its delay up to maxBackoffInMilliseconds, so idle
+ * consumers don't poll the queue continuously.
+ *
+ * With virtualThreadsEnabled, on a JDK with virtual threads, consumers run on virtual threads instead of a pool of
+ * platform threads, so maxNumberOfThreads can be raised without sizing a thread pool.
+ */
 public class QueueMessageReceiver implements Managed {
 
     private static final String QUEUE_MESSAGE_RECEIVER_THREAD_NAME = "queue-message-receiver-%d";
+    private static final String QUEUE_MESSAGE_RECEIVER_VIRTUAL_THREAD_NAME_PREFIX = "queue-message-receiver-virtual-";
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueMessageReceiver.class);
-    private final QueueMessageReceiverConfig config;
+    private static final long INACTIVE_CONSUMER_CHECK_INTERVAL_IN_MILLISECONDS = 1000;
 
-    private final int queueReadScheduleNumberOfThreads;
-
-    private ScheduledExecutorService scheduledExecutorService;
-    private EventMessageHandler eventMessageHandler;
+    private final EventMessageHandler eventMessageHandler;
+    private final ExecutorService executorService;
+    private final ConsumerConcurrency concurrency;
+    private final long delayInMilliseconds;
+    private final long maxBackoffInMilliseconds;
+    private final Meter polls;
+    private final Meter emptyReceives;
+    private final Histogram batchSizes;
+    private volatile boolean running;
 
     @Inject
     public QueueMessageReceiver(
             Environment environment,
             LedgerConfig configuration,
-            EventMessageHandler eventMessageHandler) {
-        this.eventMessageHandler = eventMessageHandler;
-        this.config = configuration.getQueueMessageReceiverConfig();
-        this.queueReadScheduleNumberOfThreads = config.getNumberOfThreads();
+            EventMessageHandler eventMessageHandler,
+            EventQueue eventQueue) {
+        this(configuration.getQueueMessageReceiverConfig(),
+                eventQueue.getMaximumBatchSize(),
+                eventMessageHandler,
+                executorService(environment, configuration.getQueueMessageReceiverConfig()),
+                environment.metrics());
+    }
 
-        scheduledExecutorService = environment
-                .lifecycle()
-                .scheduledExecutorService(QUEUE_MESSAGE_RECEIVER_THREAD_NAME)
-                .threads(queueReadScheduleNumberOfThreads)
-                .build();
+    QueueMessageReceiver(QueueMessageReceiverConfig config,
+                         int fullBatchSize,
+                         EventMessageHandler eventMessageHandler,
+                         ExecutorService executorService,
+                         MetricRegistry metricRegistry) {
+        this.eventMessageHandler = eventMessageHandler;
+        this.executorService = executorService;
+        this.concurrency = new ConsumerConcurrency(config.getNumberOfThreads(), config.getMaxNumberOfThreads(),
+                fullBatchSize, config.getTargetIngestLagInMilliseconds());
+        this.delayInMilliseconds = config.getThreadDelayInMilliseconds();
+        this.maxBackoffInMilliseconds = config.getMaxBackoffInMilliseconds();
+        this.polls = metricRegistry.meter("queue-message-receiver.polls");
+        this.emptyReceives = metricRegistry.meter("queue-message-receiver.empty-receives");
+        this.batchSizes = metricRegistry.histogram("queue-message-receiver.batch-size");
+        metricRegistry.gauge("queue-message-receiver.concurrency",
+                () -> (Gauge<Integer>) concurrency::getActiveConsumers);
     }
 
     @Override
     public void start() {
-        long initialDelay = config.getThreadDelayInMilliseconds();
-        long delay = config.getThreadDelayInMilliseconds();
-
-        for(int i = 0; i < queueReadScheduleNumberOfThreads; i++) {
-            scheduledExecutorService.scheduleWithFixedDelay(
-                    this::receive,
-                    initialDelay,
-                    delay,
-                    TimeUnit.MILLISECONDS
-            );
+        running = true;
+        for (int consumer = 0; consumer < concurrency.getMaxConsumers(); consumer++) {
+            int consumerIndex = consumer;
+            executorService.execute(() -> consume(consumerIndex));
+        }
+    }
+
+    private void consume(int consumerIndex) {
+        long delay = delayInMilliseconds;
+        try {
+            while (running) {
+                if (consumerIndex >= concurrency.getActiveConsumers()) {
+                    delay = delayInMilliseconds;
+                    TimeUnit.MILLISECONDS.sleep(INACTIVE_CONSUMER_CHECK_INTERVAL_IN_MILLISECONDS);
+                    continue;
+                }
+                TimeUnit.MILLISECONDS.sleep(delay);
+                int received = receive();
+                delay = received == 0 ? backoff(delay) : delayInMilliseconds;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void receive() {
-        LOGGER.info("Queue message receiver thread polling queue");
+    int receive() {
+        polls.mark();
+        List<EventMessage> eventMessages;
         try {
-            eventMessageHandler.handle();
+            eventMessages = eventMessageHandler.handle();
         } catch (Exception e) {
             LOGGER.error("Queue message receiver thread exception", e);
+            eventMessages = List.of();
         }
+
+        batchSizes.update(eventMessages.size());
+        if (eventMessages.isEmpty()) {
+            emptyReceives.mark();
+        }
+        concurrency.onReceive(eventMessages.size(), oldestIngestLagInMilliseconds(eventMessages));
+        return eventMessages.size();
+    }
+
+    int getConcurrency() {
+        return concurrency.getActiveConsumers();
+    }
+
+    private long backoff(long delay) {
+        return Math.min(maxBackoffInMilliseconds, Math.max(1, delay * 2));
+    }
+
+    private static long oldestIngestLagInMilliseconds(List<EventMessage> eventMessages) {
+        ZonedDateTime now = ZonedDateTime.now();
+        return eventMessages.stream()
+                .mapToLong(message -> message.getEvent().getEventDate().until(now, ChronoUnit.MILLIS))
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Consumers spend most of their time blocked on SQS long polls and JDBC round trips, so when virtual threads are
+     * enabled and the JDK has them each consumer runs on its own virtual thread. The ingest bulkhead still limits how
+     * many of them can hold a database connection at once.
+     */
+    private static ExecutorService executorService(Environment environment, QueueMessageReceiverConfig config) {
+        if (config.isVirtualThreadsEnabled()) {
+            Optional<ExecutorService> virtualThreadExecutor =
+                    VirtualThreads.newThreadPerTaskExecutor(QUEUE_MESSAGE_RECEIVER_VIRTUAL_THREAD_NAME_PREFIX);
+            if (virtualThreadExecutor.isPresent()) {
+                LOGGER.info("Queue message receiver consumers will run on virtual threads");
+                return virtualThreadExecutor.get();
+            }
+            LOGGER.warn("Virtual threads are enabled but not available on Java {}, using platform threads",
+                    Runtime.version().feature());
+        }
+        return environment.lifecycle()
+                .executorService(QUEUE_MESSAGE_RECEIVER_THREAD_NAME)
+                .minThreads(maxConsumers(config))
+                .maxThreads(maxConsumers(config))
+                .build();
+    }
+
+    private static int maxConsumers(QueueMessageReceiverConfig config) {
+        return Math.max(config.getNumberOfThreads(), config.getMaxNumberOfThreads());
     }
 
     @Override
     public void stop() {
-        scheduledExecutorService.shutdown();
+        running = false;
+        executorService.shutdown();
     }
 }
@@ -0,0 +1,59 @@
+package uk.gov.pay.ledger.queue.quarantine.dao;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import uk.gov.pay.ledger.queue.quarantine.dao.mapper.QuarantinedMessageMapper;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+
+import java.util.List;
+
+@RegisterRowMapper(QuarantinedMessageMapper.class)
+public interface QuarantinedMessageDao {
+
+    /**
+     * A message that is redelivered after it was quarantined, because it couldn't be deleted from the queue, keeps
+     * its first quarantine record.
+     */
+    @SqlUpdate("INSERT INTO quarantined_message(queue_message_id, resource_external_id, event_type, message_body, " +
+            "receive_count, stage, error_message) " +
+            "VALUES (:queueMessageId, :resourceExternalId, :eventType, :messageBody, :receiveCount, :stage, " +
+            ":errorMessage) " +
+            "ON CONFLICT (queue_message_id) DO NOTHING")
+    void insert(@Bind("queueMessageId") String queueMessageId,
+                @Bind("resourceExternalId") String resourceExternalId,
+                @Bind("eventType") String eventType,
+                @Bind("messageBody") String messageBody,
+                @Bind("receiveCount") int receiveCount,
+                @Bind("stage") QuarantineStage stage,
+                @Bind("errorMessage") String errorMessage);
+
+    /**
+     * Messages that have been replayed the fewest times come first, so messages that keep failing don't hold up the
+     * rest.
+     */
+    @SqlQuery("SELECT * FROM quarantined_message ORDER BY replay_attempts, id LIMIT :limit")
+    List<QuarantinedMessage> findLeastReplayed(@Bind("limit") int limit);
+
+    /**
+     * Only one replay runs at a time across all instances, so the same message isn't replayed twice at once. The lock
+     * belongs to the connection, so the replay must run on a single handle and unlock when it finishes.
+     */
+    @SqlQuery("SELECT pg_try_advisory_lock(hashtext('quarantined_message_replay'))")
+    boolean tryLockReplay();
+
+    @SqlQuery("SELECT pg_advisory_unlock(hashtext('quarantined_message_replay'))")
+    boolean unlockReplay();
+
+    @SqlQuery("SELECT count(*) FROM quarantined_message")
+    long count();
+
+    @SqlUpdate("DELETE FROM quarantined_message WHERE id = :id")
+    void delete(@Bind("id") long id);
+
+    @SqlUpdate("UPDATE quarantined_message SET replay_attempts = replay_attempts + 1, error_message = :errorMessage " +
+            "WHERE id = :id")
+    void recordFailedReplay(@Bind("id") long id, @Bind("errorMessage") String errorMessage);
+}
@@ -0,0 +1,28 @@
+package uk.gov.pay.ledger.queue.quarantine.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class QuarantinedMessageMapper implements RowMapper<QuarantinedMessage> {
+
+    @Override
+    public QuarantinedMessage map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
+        return new QuarantinedMessage(resultSet.getLong("id"),
+                resultSet.getString("queue_message_id"),
+                resultSet.getString("resource_external_id"),
+                resultSet.getString("event_type"),
+                resultSet.getString("message_body"),
+                resultSet.getInt("receive_count"),
+                QuarantineStage.valueOf(resultSet.getString("stage")),
+                resultSet.getString("error_message"),
+                resultSet.getInt("replay_attempts"),
+                ZonedDateTime.ofInstant(resultSet.getTimestamp("quarantined_date").toInstant(), ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,31 @@
+package uk.gov.pay.ledger.queue.quarantine.model;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class QuarantineReplayResult {
+
+    private final int replayed;
+    private final int failed;
+    // messages still quarantined after the replay, including those that failed
+    private final long remaining;
+
+    public QuarantineReplayResult(int replayed, int failed, long remaining) {
+        this.replayed = replayed;
+        this.failed = failed;
+        this.remaining = remaining;
+    }
+
+    public int getReplayed() {
+        return replayed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+}
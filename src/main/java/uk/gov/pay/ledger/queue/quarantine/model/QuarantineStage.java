@@ -0,0 +1,9 @@
+package uk.gov.pay.ledger.queue.quarantine.model;
+
+/**
+ * The stage of handling a message that failed when it was quarantined.
+ */
+public enum QuarantineStage {
+    INSERT,
+    PROJECTION
+}
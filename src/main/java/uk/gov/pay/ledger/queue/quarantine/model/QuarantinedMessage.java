@@ -0,0 +1,83 @@
+package uk.gov.pay.ledger.queue.quarantine.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import uk.gov.pay.commons.api.json.MicrosecondPrecisionDateTimeSerializer;
+
+import java.time.ZonedDateTime;
+
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class QuarantinedMessage {
+
+    private final Long id;
+    private final String queueMessageId;
+    private final String resourceExternalId;
+    private final String eventType;
+    // event data can hold personal details, so the body is only read to replay the message
+    @JsonIgnore
+    private final String messageBody;
+    private final int receiveCount;
+    private final QuarantineStage stage;
+    private final String errorMessage;
+    private final int replayAttempts;
+    @JsonSerialize(using = MicrosecondPrecisionDateTimeSerializer.class)
+    private final ZonedDateTime quarantinedDate;
+
+    public QuarantinedMessage(Long id, String queueMessageId, String resourceExternalId, String eventType,
+                              String messageBody, int receiveCount, QuarantineStage stage, String errorMessage,
+                              int replayAttempts, ZonedDateTime quarantinedDate) {
+        this.id = id;
+        this.queueMessageId = queueMessageId;
+        this.resourceExternalId = resourceExternalId;
+        this.eventType = eventType;
+        this.messageBody = messageBody;
+        this.receiveCount = receiveCount;
+        this.stage = stage;
+        this.errorMessage = errorMessage;
+        this.replayAttempts = replayAttempts;
+        this.quarantinedDate = quarantinedDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getQueueMessageId() {
+        return queueMessageId;
+    }
+
+    public String getResourceExternalId() {
+        return resourceExternalId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    @JsonIgnore
+    public String getMessageBody() {
+        return messageBody;
+    }
+
+    public int getReceiveCount() {
+        return receiveCount;
+    }
+
+    public QuarantineStage getStage() {
+        return stage;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getReplayAttempts() {
+        return replayAttempts;
+    }
+
+    public ZonedDateTime getQuarantinedDate() {
+        return quarantinedDate;
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.pay.ledger.queue.quarantine.service;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.quarantine.dao.QuarantinedMessageDao;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Takes messages that keep failing out of circulation. Once a message has been received quarantineAfterReceiveCount
+ * times and fails again it is saved in the quarantined_message table with the stage that failed and the error, so the
+ * caller can delete it from the queue instead of deferring it again. Quarantined messages can be replayed with
+ * {@link QuarantineReplayer}.
+ *
+ * Metrics:
+ * - message-quarantine.quarantined: messages quarantined
+ */
+public class MessageQuarantine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageQuarantine.class);
+
+    private final QuarantinedMessageDao quarantinedMessageDao;
+    private final int quarantineAfterReceiveCount;
+    private final Meter quarantined;
+
+    @Inject
+    public MessageQuarantine(QuarantinedMessageDao quarantinedMessageDao,
+                             LedgerConfig configuration,
+                             MetricRegistry metricRegistry) {
+        this.quarantinedMessageDao = quarantinedMessageDao;
+        this.quarantineAfterReceiveCount = configuration.getQueueMessageReceiverConfig().getQuarantineAfterReceiveCount();
+        this.quarantined = metricRegistry.meter("message-quarantine.quarantined");
+    }
+
+    /**
+     * @return true if the message has failed too many times and should be quarantined rather than retried, always
+     * false when quarantineAfterReceiveCount is 0
+     */
+    public boolean shouldQuarantine(EventMessage message) {
+        return quarantineAfterReceiveCount > 0 &&
+                message.getQueueMessage().getReceiveCount() >= quarantineAfterReceiveCount;
+    }
+
+    public void quarantine(EventMessage message, QuarantineStage stage, String errorMessage) {
+        Event event = message.getEvent();
+        quarantinedMessageDao.insert(message.getQueueMessageId(),
+                event.getResourceExternalId(),
+                event.getEventType(),
+                message.getQueueMessage().getMessageBody(),
+                message.getQueueMessage().getReceiveCount(),
+                stage,
+                errorMessage);
+        quarantined.mark();
+        LOGGER.error("The event message has been quarantined.",
+                kv("id", message.getId()),
+                kv("queue_message_id", message.getQueueMessageId()),
+                kv("resource_external_id", event.getResourceExternalId()),
+                kv("receive_count", message.getQueueMessage().getReceiveCount()),
+                kv("stage", stage),
+                kv("error", errorMessage));
+    }
+}
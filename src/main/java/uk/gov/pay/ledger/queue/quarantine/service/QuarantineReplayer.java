@@ -0,0 +1,117 @@
+package uk.gov.pay.ledger.queue.quarantine.service;
+
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.UnitOfWork;
+import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageHandler;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.QueueMessage;
+import uk.gov.pay.ledger.queue.quarantine.dao.QuarantinedMessageDao;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineReplayResult;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Replays quarantined messages through the same store and project path as messages received from the queue, once
+ * whatever made them fail has been fixed. A message that replays successfully is removed from quarantine, one that
+ * fails again stays there with the new error.
+ *
+ * Replays hold an advisory lock on the connection they run on, so a replay started while another one is running, on
+ * this or any other instance, does nothing.
+ */
+public class QuarantineReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuarantineReplayer.class);
+
+    private final QuarantinedMessageDao quarantinedMessageDao;
+    private final EventMessageParser eventMessageParser;
+    private final EventMessageHandler eventMessageHandler;
+    private final UnitOfWork unitOfWork;
+
+    @Inject
+    public QuarantineReplayer(QuarantinedMessageDao quarantinedMessageDao,
+                              EventMessageParser eventMessageParser,
+                              EventMessageHandler eventMessageHandler,
+                              UnitOfWork unitOfWork) {
+        this.quarantinedMessageDao = quarantinedMessageDao;
+        this.eventMessageParser = eventMessageParser;
+        this.eventMessageHandler = eventMessageHandler;
+        this.unitOfWork = unitOfWork;
+    }
+
+    public List<QuarantinedMessage> findQuarantinedMessages(int limit) {
+        return quarantinedMessageDao.findLeastReplayed(limit);
+    }
+
+    /**
+     * Replays up to limit quarantined messages, those replayed the fewest times first.
+     *
+     * @return the outcome, or empty if another replay is already running
+     */
+    public Optional<QuarantineReplayResult> replay(int limit) {
+        return unitOfWork.withHandle(handle -> {
+            if (!quarantinedMessageDao.tryLockReplay()) {
+                LOGGER.info("Not replaying quarantined event messages as another replay is running.");
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(replayLeastReplayed(limit));
+            } finally {
+                quarantinedMessageDao.unlockReplay();
+            }
+        });
+    }
+
+    private QuarantineReplayResult replayLeastReplayed(int limit) {
+        int replayed = 0;
+        int failed = 0;
+        for (QuarantinedMessage quarantinedMessage : quarantinedMessageDao.findLeastReplayed(limit)) {
+            Optional<String> failure = replay(quarantinedMessage);
+            if (failure.isEmpty()) {
+                quarantinedMessageDao.delete(quarantinedMessage.getId());
+                replayed++;
+            } else {
+                quarantinedMessageDao.recordFailedReplay(quarantinedMessage.getId(), failure.get());
+                failed++;
+                LOGGER.warn("Replaying quarantined event message failed.",
+                        kv("queue_message_id", quarantinedMessage.getQueueMessageId()),
+                        kv("resource_external_id", quarantinedMessage.getResourceExternalId()),
+                        kv("error", failure.get()));
+            }
+        }
+        long remaining = quarantinedMessageDao.count();
+        LOGGER.info("Replayed quarantined event messages.",
+                kv("replayed", replayed),
+                kv("failed", failed),
+                kv("remaining", remaining));
+        return new QuarantineReplayResult(replayed, failed, remaining);
+    }
+
+    /**
+     * @return why the message failed, or empty if it was stored and projected
+     */
+    private Optional<String> replay(QuarantinedMessage quarantinedMessage) {
+        QueueMessage queueMessage = QueueMessage.of(quarantinedMessage.getQueueMessageId(), null,
+                quarantinedMessage.getMessageBody());
+        List<EventMessage> eventMessages = eventMessageParser.parse(List.of(queueMessage));
+        if (eventMessages.isEmpty()) {
+            return Optional.of("The message could not be parsed");
+        }
+        try {
+            CreateEventResponse response = eventMessageHandler.processReplayedMessage(eventMessages.get(0));
+            return response.isSuccessful()
+                    ? Optional.empty()
+                    : Optional.of(Objects.toString(response.getErrorMessage(), "The event could not be stored"));
+        } catch (Exception e) {
+            return Optional.of(Objects.toString(e.getMessage(), e.getClass().getName()));
+        }
+    }
+}
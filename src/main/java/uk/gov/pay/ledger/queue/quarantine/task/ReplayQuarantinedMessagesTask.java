@@ -0,0 +1,58 @@
+package uk.gov.pay.ledger.queue.quarantine.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import io.dropwizard.servlets.tasks.Task;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineReplayResult;
+import uk.gov.pay.ledger.queue.quarantine.service.QuarantineReplayer;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * Replays quarantined messages, those replayed the fewest times first. Runs on the admin connector with
+ * POST /tasks/replay-quarantined-messages?limit=100 and prints the outcome as JSON.
+ */
+public class ReplayQuarantinedMessagesTask extends Task {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final QuarantineReplayer quarantineReplayer;
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public ReplayQuarantinedMessagesTask(QuarantineReplayer quarantineReplayer, ObjectMapper objectMapper) {
+        super("replay-quarantined-messages");
+        this.quarantineReplayer = quarantineReplayer;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) throws Exception {
+        Optional<QuarantineReplayResult> result = quarantineReplayer.replay(validLimit(parameters.get("limit")));
+        if (result.isEmpty()) {
+            output.println("Not replaying quarantined messages as another replay is running");
+            return;
+        }
+        output.println(objectMapper.writeValueAsString(result.get()));
+    }
+
+    private static int validLimit(List<String> limitParameter) {
+        int limit;
+        try {
+            limit = limitParameter == null || limitParameter.isEmpty() ?
+                    DEFAULT_LIMIT : Integer.parseInt(limitParameter.get(0));
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException(format("Parameter [limit] must be between 1 and %d", MAX_LIMIT));
+        }
+        return limit;
+    }
+}
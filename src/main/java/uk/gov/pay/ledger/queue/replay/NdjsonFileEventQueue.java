@@ -0,0 +1,187 @@
+package uk.gov.pay.ledger.queue.replay;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.queue.QueueException;
+import uk.gov.pay.ledger.queue.QueueMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Replays a file of event messages, one message body as sent to SQS per line, so a captured day of events can be run
+ * through ingestion at full speed without an SQS endpoint.
+ *
+ * The file is memory-mapped and read a window at a time, so files larger than memory can be replayed. Each message is
+ * identified by the file name and its line number. A message scheduled for retry is replayed again once the rest of
+ * the file has been read, up to MAX_ATTEMPTS times, so events that arrive before the events they depend on are
+ * ingested as they would be from SQS.
+ */
+@Singleton
+public class NdjsonFileEventQueue implements EventQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NdjsonFileEventQueue.class);
+    private static final long MAPPING_SIZE = 1L << 30;
+    static final int MAX_ATTEMPTS = 3;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long mappingSize;
+    private final EventMessageParser eventMessageParser;
+    private final int batchSize;
+    private final long pollTimeoutInMilliseconds;
+    private final Deque<QueueMessage> retries = new ArrayDeque<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long position;
+    private long lineNumber;
+    private boolean finished;
+
+    @Inject
+    public NdjsonFileEventQueue(LedgerConfig configuration, EventMessageParser eventMessageParser) {
+        this(configuration.getEventQueueConfig(), eventMessageParser, MAPPING_SIZE);
+    }
+
+    NdjsonFileEventQueue(EventQueueConfig config, EventMessageParser eventMessageParser, long mappingSize) {
+        if (config.getReplayFile() == null || config.getReplayFile().isBlank()) {
+            throw new IllegalArgumentException("eventQueueConfig.replayFile must be set to replay events from a file");
+        }
+        this.file = Path.of(config.getReplayFile());
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not open replay file [%s]", file), e);
+        }
+        this.mappingSize = mappingSize;
+        this.eventMessageParser = eventMessageParser;
+        this.batchSize = config.getBatchSize();
+        this.pollTimeoutInMilliseconds = config.getPollTimeoutInMilliseconds();
+    }
+
+    @Override
+    public List<EventMessage> retrieveEvents() throws QueueException {
+        List<QueueMessage> queueMessages = nextBatch();
+        if (queueMessages.isEmpty()) {
+            try {
+                Thread.sleep(pollTimeoutInMilliseconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }
+        return eventMessageParser.parse(queueMessages);
+    }
+
+    @Override
+    public synchronized void markMessageAsProcessed(EventMessage message) {
+        attempts.remove(message.getQueueMessageId());
+    }
+
+    @Override
+    public synchronized void scheduleMessageForRetry(EventMessage message) {
+        int attempt = attempts.merge(message.getQueueMessageId(), 1, Integer::sum);
+        if (attempt < MAX_ATTEMPTS) {
+            retries.add(message.getQueueMessage());
+        } else {
+            attempts.remove(message.getQueueMessageId());
+            LOGGER.warn("Giving up on replayed message after {} attempts [queueMessageId={}]", attempt,
+                    message.getQueueMessageId());
+        }
+    }
+
+    @Override
+    public int getMaximumBatchSize() {
+        return batchSize;
+    }
+
+    private synchronized List<QueueMessage> nextBatch() throws QueueException {
+        List<QueueMessage> queueMessages = new ArrayList<>(batchSize);
+        try {
+            String line;
+            while (queueMessages.size() < batchSize && (line = nextLine()) != null) {
+                String messageId = file.getFileName() + ":" + lineNumber;
+                queueMessages.add(QueueMessage.of(messageId, messageId, line));
+            }
+        } catch (IOException e) {
+            throw new QueueException(String.format("Failed to read replay file [%s]", file), e);
+        }
+        while (queueMessages.size() < batchSize && !retries.isEmpty()) {
+            queueMessages.add(retries.poll());
+        }
+        if (queueMessages.isEmpty() && attempts.isEmpty() && !finished) {
+            finished = true;
+            LOGGER.info("Finished replaying events from file [file={}] [lines={}]", file, lineNumber);
+        }
+        return queueMessages;
+    }
+
+    private String nextLine() throws IOException {
+        while (position < fileSize) {
+            if (buffer == null || position >= bufferStart + buffer.limit()) {
+                map(position);
+            }
+            int start = (int) (position - bufferStart);
+            int end = indexOfNewline(start);
+            if (end < 0) {
+                if (bufferStart + buffer.limit() < fileSize) {
+                    if (start == 0) {
+                        throw new IOException(String.format("Line %d is longer than %d bytes", lineNumber + 1, mappingSize));
+                    }
+                    map(position);
+                    continue;
+                }
+                end = buffer.limit();
+            }
+
+            byte[] bytes = new byte[end - start];
+            ByteBuffer line = buffer.duplicate();
+            line.position(start);
+            line.get(bytes);
+            position = bufferStart + end + 1;
+            lineNumber++;
+
+            String message = new String(bytes, UTF_8).trim();
+            if (!message.isEmpty()) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    private int indexOfNewline(int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void map(long from) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(mappingSize, fileSize - from));
+        bufferStart = from;
+    }
+}
@@ -0,0 +1,50 @@
+package uk.gov.pay.ledger.queue.resource;
+
+import com.codahale.metrics.annotation.Timed;
+import com.google.inject.Inject;
+import uk.gov.pay.ledger.exception.ValidationException;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+import uk.gov.pay.ledger.queue.quarantine.service.QuarantineReplayer;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import java.util.List;
+
+import static java.lang.String.format;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * Lists quarantined messages. Replaying them changes projections, so it is the replay-quarantined-messages admin task
+ * rather than an API endpoint.
+ */
+@Path("/v1/quarantine")
+@Produces(APPLICATION_JSON)
+public class QuarantineResource {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final QuarantineReplayer quarantineReplayer;
+
+    @Inject
+    public QuarantineResource(QuarantineReplayer quarantineReplayer) {
+        this.quarantineReplayer = quarantineReplayer;
+    }
+
+    @Path("/messages")
+    @GET
+    @Timed
+    public List<QuarantinedMessage> quarantinedMessages(@QueryParam("limit") Integer limit) {
+        return quarantineReplayer.findQuarantinedMessages(validLimit(limit));
+    }
+
+    private static int validLimit(Integer limit) {
+        int validLimit = limit == null ? DEFAULT_LIMIT : limit;
+        if (validLimit < 1 || validLimit > MAX_LIMIT) {
+            throw new ValidationException(format("Field [limit] must be between 1 and %d", MAX_LIMIT));
+        }
+        return validLimit;
+    }
+}
@@ -0,0 +1,24 @@
+package uk.gov.pay.ledger.queue.shadow;
+
+import com.google.inject.Inject;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.List;
+
+public class CurrentTransactionProjector implements TransactionProjector {
+
+    private final TransactionEntityFactory transactionEntityFactory;
+
+    @Inject
+    public CurrentTransactionProjector(TransactionEntityFactory transactionEntityFactory) {
+        this.transactionEntityFactory = transactionEntityFactory;
+    }
+
+    @Override
+    public TransactionEntity project(List<Event> events) {
+        return transactionEntityFactory.create(EventDigest.fromEventList(events));
+    }
+}
@@ -0,0 +1,217 @@
+package uk.gov.pay.ledger.queue.shadow;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.ShadowProjectionConfig;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Runs a candidate {@link TransactionProjector} alongside the current projection on live ingest and compares the
+ * results in memory. Nothing the candidate projects is written, so a change to the projection can be measured against
+ * real traffic before it replaces the current one.
+ *
+ * Comparisons run on a single background thread with a bounded queue. When the queue is full the comparison is dropped
+ * and counted, so shadowing never holds up ingestion. Metrics are published for the projection time of both versions,
+ * the number of comparisons and mismatches, the mismatch rate and the fields that differ.
+ */
+@Singleton
+public class ShadowProjectionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShadowProjectionService.class);
+    private static final String SHADOW_PROJECTION_THREAD_NAME = "shadow-projection-%d";
+
+    private final boolean enabled;
+    private final TransactionProjector currentProjector;
+    private final TransactionProjector candidateProjector;
+    private final ExecutorService executorService;
+    private final ObjectMapper objectMapper;
+    private final MetricRegistry metricRegistry;
+    private final Timer currentProjectionTime;
+    private final Timer candidateProjectionTime;
+    private final Counter compared;
+    private final Counter mismatches;
+    private final Counter candidateErrors;
+    private final Counter dropped;
+
+    @Inject
+    public ShadowProjectionService(LedgerConfig configuration, Environment environment, Injector injector,
+                                   CurrentTransactionProjector currentProjector, ObjectMapper objectMapper) {
+        this(configuration.getShadowProjectionConfig().isEnabled(),
+                currentProjector,
+                configuration.getShadowProjectionConfig().isEnabled() ?
+                        candidateProjector(configuration.getShadowProjectionConfig(), injector) : currentProjector,
+                environment.lifecycle()
+                        .executorService(SHADOW_PROJECTION_THREAD_NAME)
+                        .minThreads(1)
+                        .maxThreads(1)
+                        .workQueue(new ArrayBlockingQueue<>(
+                                configuration.getShadowProjectionConfig().getMaxQueuedComparisons()))
+                        .build(),
+                objectMapper,
+                environment.metrics());
+    }
+
+    ShadowProjectionService(boolean enabled, TransactionProjector currentProjector,
+                            TransactionProjector candidateProjector, ExecutorService executorService,
+                            ObjectMapper objectMapper, MetricRegistry metricRegistry) {
+        this.enabled = enabled;
+        this.currentProjector = currentProjector;
+        this.candidateProjector = candidateProjector;
+        this.executorService = executorService;
+        this.objectMapper = objectMapper;
+        this.metricRegistry = metricRegistry;
+        this.currentProjectionTime = metricRegistry.timer("shadow-projection.current.projection-time");
+        this.candidateProjectionTime = metricRegistry.timer("shadow-projection.candidate.projection-time");
+        this.compared = metricRegistry.counter("shadow-projection.compared");
+        this.mismatches = metricRegistry.counter("shadow-projection.mismatches");
+        this.candidateErrors = metricRegistry.counter("shadow-projection.candidate-errors");
+        this.dropped = metricRegistry.counter("shadow-projection.dropped");
+        metricRegistry.gauge("shadow-projection.mismatch-rate", () -> new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(mismatches.getCount(), compared.getCount());
+            }
+        });
+    }
+
+    /**
+     * Queues a comparison of both projections of a resource, if shadow projection is enabled.
+     *
+     * @param events all events for the resource, latest first
+     */
+    public void compare(List<Event> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        try {
+            executorService.execute(() -> compareNow(events));
+        } catch (RejectedExecutionException e) {
+            dropped.inc();
+        }
+    }
+
+    void compareNow(List<Event> events) {
+        String resourceExternalId = events.get(0).getResourceExternalId();
+        try {
+            TransactionEntity current = time(currentProjectionTime, () -> currentProjector.project(events));
+            TransactionEntity candidate;
+            try {
+                candidate = time(candidateProjectionTime, () -> candidateProjector.project(events));
+            } catch (Exception e) {
+                compared.inc();
+                mismatches.inc();
+                candidateErrors.inc();
+                LOGGER.warn("Candidate projection failed [errorMessage={}]", e.getMessage(),
+                        kv("resource_external_id", resourceExternalId));
+                return;
+            }
+
+            compared.inc();
+            List<String> mismatchedFields = mismatchedFields(current, candidate);
+            if (!mismatchedFields.isEmpty()) {
+                mismatches.inc();
+                mismatchedFields.forEach(field ->
+                        metricRegistry.counter("shadow-projection.mismatched-fields." + field).inc());
+                LOGGER.info("Candidate projection differs from current projection [fields={}]", mismatchedFields,
+                        kv("resource_external_id", resourceExternalId));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error comparing projections [errorMessage={}]", e.getMessage(),
+                    kv("resource_external_id", resourceExternalId));
+        }
+    }
+
+    private List<String> mismatchedFields(TransactionEntity current, TransactionEntity candidate) {
+        Map<String, Object> currentFields = fieldsOf(current);
+        Map<String, Object> candidateFields = fieldsOf(candidate);
+        return currentFields.keySet().stream()
+                .filter(field -> !Objects.equals(currentFields.get(field), candidateFields.get(field)))
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Object> fieldsOf(TransactionEntity entity) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("external_id", entity.getExternalId());
+        fields.put("parent_external_id", entity.getParentExternalId());
+        fields.put("gateway_account_id", entity.getGatewayAccountId());
+        fields.put("transaction_type", entity.getTransactionType());
+        fields.put("state", entity.getState());
+        fields.put("amount", entity.getAmount());
+        fields.put("net_amount", entity.getNetAmount());
+        fields.put("total_amount", entity.getTotalAmount());
+        fields.put("fee", entity.getFee());
+        fields.put("reference", entity.getReference());
+        fields.put("description", entity.getDescription());
+        fields.put("email", entity.getEmail());
+        fields.put("cardholder_name", entity.getCardholderName());
+        fields.put("card_brand", entity.getCardBrand());
+        fields.put("first_digits_card_number", entity.getFirstDigitsCardNumber());
+        fields.put("last_digits_card_number", entity.getLastDigitsCardNumber());
+        fields.put("refund_status", entity.getRefundStatus());
+        fields.put("refund_amount_refunded", entity.getRefundAmountRefunded());
+        fields.put("refund_amount_available", entity.getRefundAmountAvailable());
+        fields.put("gateway_transaction_id", entity.getGatewayTransactionId());
+        fields.put("gateway_payout_id", entity.getGatewayPayoutId());
+        fields.put("source", entity.getSource());
+        fields.put("created_date", entity.getCreatedDate() == null ? null : entity.getCreatedDate().toInstant());
+        fields.put("event_count", entity.getEventCount());
+        fields.put("transaction_details", transactionDetailsOf(entity));
+        return fields;
+    }
+
+    private JsonNode transactionDetailsOf(TransactionEntity entity) {
+        if (entity.getTransactionDetails() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(entity.getTransactionDetails());
+        } catch (IOException e) {
+            return objectMapper.getNodeFactory().textNode(entity.getTransactionDetails());
+        }
+    }
+
+    private static TransactionEntity time(Timer timer, Supplier<TransactionEntity> projection) {
+        try (Timer.Context ignored = timer.time()) {
+            return projection.get();
+        }
+    }
+
+    private static TransactionProjector candidateProjector(ShadowProjectionConfig config, Injector injector) {
+        try {
+            Class<?> projectorClass = Class.forName(config.getCandidateProjector());
+            if (!TransactionProjector.class.isAssignableFrom(projectorClass)) {
+                throw new IllegalArgumentException(String.format("Candidate projector [%s] is not a %s",
+                        config.getCandidateProjector(), TransactionProjector.class.getSimpleName()));
+            }
+            return (TransactionProjector) injector.getInstance(projectorClass);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(String.format("Candidate projector [%s] not found",
+                    config.getCandidateProjector()), e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package uk.gov.pay.ledger.queue.shadow;
+
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.List;
+
+/**
+ * Projects a transaction from all of its events, latest first. A changed projection can implement this to be run in
+ * shadow mode against {@link CurrentTransactionProjector}, see {@link ShadowProjectionService}.
+ */
+public interface TransactionProjector {
+    TransactionEntity project(List<Event> events);
+}
@@ -0,0 +1,63 @@
+package uk.gov.pay.ledger.queue.sqs;
+
+import com.google.inject.Inject;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.EventQueue;
+import uk.gov.pay.ledger.queue.QueueException;
+import uk.gov.pay.ledger.queue.QueueMessage;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SqsEventQueue implements EventQueue {
+
+    private static final String EVENT_MESSAGE_ATTRIBUTE_NAME = "All";
+
+    private SqsQueueService sqsQueueService;
+    private final String eventQueueUrl;
+    private EventMessageParser eventMessageParser;
+    private int retryDelayInSeconds;
+    private final int maximumBatchSize;
+
+    @Inject
+    public SqsEventQueue(SqsQueueService sqsQueueService, LedgerConfig configuration, EventMessageParser eventMessageParser) {
+        this.sqsQueueService = sqsQueueService;
+        this.eventQueueUrl = configuration.getSqsConfig().getEventQueueUrl();
+        this.eventMessageParser = eventMessageParser;
+        this.retryDelayInSeconds = configuration.getQueueMessageReceiverConfig().getMessageRetryDelayInSeconds();
+        this.maximumBatchSize = configuration.getSqsConfig().getMessageMaximumBatchSize();
+    }
+
+    @Override
+    public List<EventMessage> retrieveEvents() throws QueueException {
+        List<QueueMessage> queueMessages = sqsQueueService
+                .receiveMessages(this.eventQueueUrl, EVENT_MESSAGE_ATTRIBUTE_NAME);
+
+        return eventMessageParser.parse(queueMessages);
+    }
+
+    @Override
+    public void markMessageAsProcessed(EventMessage message) throws QueueException {
+        sqsQueueService.deleteMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle());
+    }
+
+    @Override
+    public void markMessagesAsProcessed(List<EventMessage> messages) throws QueueException {
+        List<String> receiptHandles = messages.stream()
+                .map(EventMessage::getQueueMessageReceiptHandle)
+                .collect(Collectors.toList());
+        sqsQueueService.deleteMessages(this.eventQueueUrl, receiptHandles);
+    }
+
+    @Override
+    public void scheduleMessageForRetry(EventMessage message) throws QueueException {
+        sqsQueueService.deferMessage(this.eventQueueUrl, message.getQueueMessageReceiptHandle(), retryDelayInSeconds);
+    }
+
+    @Override
+    public int getMaximumBatchSize() {
+        return maximumBatchSize;
+    }
+}
@@ -4,7 +4,11 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.AmazonSQSException;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.MessageSystemAttributeName;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.slf4j.Logger;
@@ -14,9 +18,13 @@ import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SqsQueueService {
+    // SQS accepts at most 10 entries in a batch request
+    private static final int MAXIMUM_DELETE_BATCH_SIZE = 10;
+
     private final Logger logger = LoggerFactory.getLogger(SqsQueueService.class);
 
     private AmazonSQS sqsClient;
@@ -36,6 +44,7 @@ public class SqsQueueService {
             ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(queueUrl);
             receiveMessageRequest
                     .withMessageAttributeNames(messageAttributeName)
+                    .withAttributeNames(MessageSystemAttributeName.ApproximateReceiveCount.toString())
                     .withWaitTimeSeconds(messageMaximumWaitTimeInSeconds)
                     .withMaxNumberOfMessages(messageMaximumBatchSize);
 
@@ -60,6 +69,34 @@ public class SqsQueueService {
         }
     }
 
+    /**
+     * Deletes messages with as few requests as possible. Messages SQS failed to delete are redelivered once their
+     * visibility timeout expires.
+     */
+    public void deleteMessages(String queueUrl, List<String> messageReceiptHandles) throws QueueException {
+        int failed = 0;
+        for (int start = 0; start < messageReceiptHandles.size(); start += MAXIMUM_DELETE_BATCH_SIZE) {
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+            for (int i = start; i < Math.min(start + MAXIMUM_DELETE_BATCH_SIZE, messageReceiptHandles.size()); i++) {
+                entries.add(new DeleteMessageBatchRequestEntry(String.valueOf(i), messageReceiptHandles.get(i)));
+            }
+            try {
+                DeleteMessageBatchResult result = sqsClient.deleteMessageBatch(new DeleteMessageBatchRequest(queueUrl, entries));
+                failed += result.getFailed().size();
+            } catch (AmazonSQSException | UnsupportedOperationException e) {
+                logger.error("Failed to delete message batch from SQS queue - {}", e.getMessage());
+                throw new QueueException("Failed to delete message batch from SQS queue", e);
+            } catch (AmazonServiceException e) {
+                logger.error("Failed to delete message batch from SQS queue - [errorMessage={}] [awsErrorCode={}]", e.getMessage(), e.getErrorCode());
+                throw new QueueException("Failed to delete message batch from SQS queue", e);
+            }
+        }
+        if (failed > 0) {
+            logger.error("Failed to delete {} of {} messages in batch from SQS queue", failed, messageReceiptHandles.size());
+            throw new QueueException(String.format("Failed to delete %d messages in batch from SQS queue", failed));
+        }
+    }
+
     public void deferMessage(String queueUrl, String messageReceiptHandle, int retryDelayInSeconds) throws QueueException {
         try {
             ChangeMessageVisibilityRequest changeMessageVisibilityRequest = new ChangeMessageVisibilityRequest(
@@ -0,0 +1,65 @@
+package uk.gov.pay.ledger.replay;
+
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.setup.Environment;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import uk.gov.pay.ledger.app.LedgerApp;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.replay.service.ProjectionReplayer;
+
+public class ReplayProjectionsCommand extends EnvironmentCommand<LedgerConfig> {
+
+    private final LedgerApp ledgerApp;
+
+    public ReplayProjectionsCommand(LedgerApp ledgerApp) {
+        super(ledgerApp, "replayProjections", "Rebuilds transaction and payout projections from events");
+        this.ledgerApp = ledgerApp;
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--name")
+                .dest("name")
+                .setDefault("default")
+                .help("Name the replay's checkpoints are saved under, run again with the same name to resume");
+        subparser.addArgument("--workers")
+                .dest("workers")
+                .type(Integer.class)
+                .setDefault(1)
+                .help("Number of workers, each replays one hash partition of resources on its own maintenance " +
+                        "connection, so it can't be more than bulkheadConfig.maintenanceMaxConnections");
+        subparser.addArgument("--batch-size")
+                .dest("batchSize")
+                .type(Integer.class)
+                .setDefault(100)
+                .help("Number of resources each worker replays per batch");
+        subparser.addArgument("--max-events-per-second")
+                .dest("maxEventsPerSecond")
+                .type(Integer.class)
+                .setDefault(1000)
+                .help("Maximum number of events read per second across all workers");
+        subparser.addArgument("--restart")
+                .dest("restart")
+                .action(Arguments.storeTrue())
+                .help("Discard saved checkpoints and replay from the start");
+    }
+
+    @Override
+    protected void run(Environment environment, Namespace namespace, LedgerConfig configuration) throws Exception {
+        int maintenanceMaxConnections = configuration.getBulkheadConfig().getMaintenanceMaxConnections();
+        if (namespace.getInt("workers") > maintenanceMaxConnections) {
+            throw new IllegalArgumentException(String.format(
+                    "Can't run more workers than the %d maintenance connections, raise DB_MAINTENANCE_MAX_CONNECTIONS",
+                    maintenanceMaxConnections));
+        }
+        ledgerApp.getInjector().getInstance(ProjectionReplayer.class).replay(
+                namespace.getString("name"),
+                namespace.getInt("workers"),
+                namespace.getInt("batchSize"),
+                namespace.getInt("maxEventsPerSecond"),
+                namespace.getBoolean("restart"));
+    }
+}
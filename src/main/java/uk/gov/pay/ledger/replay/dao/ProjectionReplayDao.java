@@ -0,0 +1,53 @@
+package uk.gov.pay.ledger.replay.dao;
+
+import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import uk.gov.pay.ledger.replay.dao.mapper.ProjectionReplayCheckpointMapper;
+import uk.gov.pay.ledger.replay.model.ProjectionReplayCheckpoint;
+
+import java.util.List;
+
+@RegisterRowMapper(ProjectionReplayCheckpointMapper.class)
+public interface ProjectionReplayDao {
+
+    String IN_PARTITION = "(hashtext(resource_external_id) & 2147483647) % :partitionCount = :partition";
+
+    /**
+     * Resources are split into partitionCount partitions by a hash of their external id, this returns the next
+     * resources in the partition after afterResourceExternalId (or from the start if it is null), including resources
+     * whose events have been archived.
+     */
+    @SqlQuery("SELECT resource_external_id FROM (" +
+            " (SELECT DISTINCT resource_external_id FROM event" +
+            "  WHERE resource_external_id > COALESCE(:afterResourceExternalId, '') AND " + IN_PARTITION +
+            "  ORDER BY resource_external_id LIMIT :limit)" +
+            " UNION" +
+            " (SELECT resource_external_id FROM event_archive" +
+            "  WHERE resource_external_id > COALESCE(:afterResourceExternalId, '') AND " + IN_PARTITION +
+            "  ORDER BY resource_external_id LIMIT :limit)" +
+            ") r ORDER BY resource_external_id LIMIT :limit")
+    List<String> findResourceExternalIdsInPartition(@Bind("afterResourceExternalId") String afterResourceExternalId,
+                                                    @Bind("partition") int partition,
+                                                    @Bind("partitionCount") int partitionCount,
+                                                    @Bind("limit") int limit);
+
+    @SqlQuery("SELECT * FROM projection_replay_checkpoint WHERE replay_name = :replayName ORDER BY partition")
+    List<ProjectionReplayCheckpoint> findCheckpoints(@Bind("replayName") String replayName);
+
+    @SqlUpdate("INSERT INTO projection_replay_checkpoint(replay_name, partition, partition_count, " +
+            "last_resource_external_id, resources_replayed, completed) " +
+            "VALUES (:replayName, :partition, :partitionCount, :lastResourceExternalId, :resourcesReplayed, :completed) " +
+            "ON CONFLICT (replay_name, partition) DO UPDATE SET " +
+            "partition_count = EXCLUDED.partition_count, " +
+            "last_resource_external_id = EXCLUDED.last_resource_external_id, " +
+            "resources_replayed = EXCLUDED.resources_replayed, " +
+            "completed = EXCLUDED.completed, " +
+            "updated_date = (now() AT TIME ZONE 'utc')")
+    void saveCheckpoint(@BindBean ProjectionReplayCheckpoint checkpoint);
+
+    @SqlUpdate("DELETE FROM projection_replay_checkpoint WHERE replay_name = :replayName")
+    void deleteCheckpoints(@Bind("replayName") String replayName);
+}
@@ -0,0 +1,21 @@
+package uk.gov.pay.ledger.replay.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.replay.model.ProjectionReplayCheckpoint;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ProjectionReplayCheckpointMapper implements RowMapper<ProjectionReplayCheckpoint> {
+
+    @Override
+    public ProjectionReplayCheckpoint map(ResultSet resultSet, StatementContext statementContext) throws SQLException {
+        return new ProjectionReplayCheckpoint(resultSet.getString("replay_name"),
+                resultSet.getInt("partition"),
+                resultSet.getInt("partition_count"),
+                resultSet.getString("last_resource_external_id"),
+                resultSet.getLong("resources_replayed"),
+                resultSet.getBoolean("completed"));
+    }
+}
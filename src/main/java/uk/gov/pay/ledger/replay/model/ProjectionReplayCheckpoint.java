@@ -0,0 +1,59 @@
+package uk.gov.pay.ledger.replay.model;
+
+public class ProjectionReplayCheckpoint {
+
+    private final String replayName;
+    private final int partition;
+    private final int partitionCount;
+    private final String lastResourceExternalId;
+    private final long resourcesReplayed;
+    private final boolean completed;
+
+    public ProjectionReplayCheckpoint(String replayName, int partition, int partitionCount,
+                                      String lastResourceExternalId, long resourcesReplayed, boolean completed) {
+        this.replayName = replayName;
+        this.partition = partition;
+        this.partitionCount = partitionCount;
+        this.lastResourceExternalId = lastResourceExternalId;
+        this.resourcesReplayed = resourcesReplayed;
+        this.completed = completed;
+    }
+
+    public static ProjectionReplayCheckpoint start(String replayName, int partition, int partitionCount) {
+        return new ProjectionReplayCheckpoint(replayName, partition, partitionCount, null, 0, false);
+    }
+
+    public ProjectionReplayCheckpoint advanceTo(String lastResourceExternalId, int resourceCount) {
+        return new ProjectionReplayCheckpoint(replayName, partition, partitionCount, lastResourceExternalId,
+                resourcesReplayed + resourceCount, false);
+    }
+
+    public ProjectionReplayCheckpoint complete() {
+        return new ProjectionReplayCheckpoint(replayName, partition, partitionCount, lastResourceExternalId,
+                resourcesReplayed, true);
+    }
+
+    public String getReplayName() {
+        return replayName;
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    public String getLastResourceExternalId() {
+        return lastResourceExternalId;
+    }
+
+    public long getResourcesReplayed() {
+        return resourcesReplayed;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -0,0 +1,247 @@
+package uk.gov.pay.ledger.replay.service;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerModule;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.payout.entity.PayoutEntity;
+import uk.gov.pay.ledger.payout.model.PayoutEntityFactory;
+import uk.gov.pay.ledger.queue.eventprocessor.RefundEventProcessor;
+import uk.gov.pay.ledger.replay.dao.ProjectionReplayDao;
+import uk.gov.pay.ledger.replay.model.ProjectionReplayCheckpoint;
+import uk.gov.pay.ledger.report.service.ReportResultCache;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Rebuilds the transaction and payout projections from events, including archived events.
+ *
+ * Resources are split into one hash partition per worker. Each worker reads its partition in batches of resources,
+ * builds the projections the same way the event processors do and upserts them in one batch per table. The upserts
+ * don't overwrite a projection built from more events, so a replay can run alongside live ingestion. Workers read and
+ * write on the maintenance connections, so a replay can't take the connections ingestion needs.
+ *
+ * After each batch a worker saves its position as a checkpoint under the replay name, so a replay that stops can be
+ * resumed by running it again with the same name and number of workers. Workers share a limit on events read per
+ * second, and progress with the rate in resources and events per second is logged while the replay runs.
+ *
+ * Cached report results covering the rewritten transactions are invalidated after each batch. The cache belongs to
+ * the process, so when the replay runs as a command, other instances' cached results expire on their own.
+ */
+public class ProjectionReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProjectionReplayer.class);
+    private static final int PROGRESS_REPORT_INTERVAL_IN_SECONDS = 10;
+
+    private final EventDao eventDao;
+    private final ProjectionReplayDao projectionReplayDao;
+    private final TransactionDao transactionDao;
+    private final PayoutDao payoutDao;
+    private final TransactionEntityFactory transactionEntityFactory;
+    private final PayoutEntityFactory payoutEntityFactory;
+    private final RefundEventProcessor refundEventProcessor;
+    private final ReportResultCache reportResultCache;
+    private final AtomicLong resourcesReplayed = new AtomicLong();
+    private final AtomicLong eventsReplayed = new AtomicLong();
+    private final AtomicLong resourcesFailed = new AtomicLong();
+
+    @Inject
+    public ProjectionReplayer(@Named(LedgerModule.MAINTENANCE) EventDao eventDao,
+                              ProjectionReplayDao projectionReplayDao,
+                              @Named(LedgerModule.MAINTENANCE) TransactionDao transactionDao,
+                              @Named(LedgerModule.MAINTENANCE) PayoutDao payoutDao,
+                              TransactionEntityFactory transactionEntityFactory,
+                              PayoutEntityFactory payoutEntityFactory,
+                              RefundEventProcessor refundEventProcessor,
+                              ReportResultCache reportResultCache) {
+        this.eventDao = eventDao;
+        this.projectionReplayDao = projectionReplayDao;
+        this.transactionDao = transactionDao;
+        this.payoutDao = payoutDao;
+        this.transactionEntityFactory = transactionEntityFactory;
+        this.payoutEntityFactory = payoutEntityFactory;
+        this.refundEventProcessor = refundEventProcessor;
+        this.reportResultCache = reportResultCache;
+    }
+
+    public void replay(String replayName, int workers, int batchSize, int maxEventsPerSecond, boolean restart)
+            throws InterruptedException, ExecutionException {
+        if (restart) {
+            projectionReplayDao.deleteCheckpoints(replayName);
+        }
+        List<ProjectionReplayCheckpoint> checkpoints = checkpointsFor(replayName, workers);
+        RateLimiter rateLimiter = RateLimiter.create(maxEventsPerSecond);
+
+        long startNanos = System.nanoTime();
+        ScheduledExecutorService progressReporter = Executors.newSingleThreadScheduledExecutor();
+        progressReporter.scheduleAtFixedRate(() -> reportProgress(replayName, startNanos),
+                PROGRESS_REPORT_INTERVAL_IN_SECONDS, PROGRESS_REPORT_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (ProjectionReplayCheckpoint checkpoint : checkpoints) {
+                results.add(workerPool.submit(() -> replayPartition(checkpoint, batchSize, rateLimiter)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            workerPool.shutdownNow();
+            progressReporter.shutdownNow();
+            reportProgress(replayName, startNanos);
+        }
+    }
+
+    long getResourcesReplayed() {
+        return resourcesReplayed.get();
+    }
+
+    long getResourcesFailed() {
+        return resourcesFailed.get();
+    }
+
+    private List<ProjectionReplayCheckpoint> checkpointsFor(String replayName, int workers) {
+        Map<Integer, ProjectionReplayCheckpoint> saved = projectionReplayDao.findCheckpoints(replayName).stream()
+                .collect(Collectors.toMap(ProjectionReplayCheckpoint::getPartition, checkpoint -> checkpoint));
+        saved.values().stream()
+                .filter(checkpoint -> checkpoint.getPartitionCount() != workers)
+                .findAny()
+                .ifPresent(checkpoint -> {
+                    throw new IllegalArgumentException(String.format(
+                            "Replay [%s] was started with %d workers, resume it with the same number of workers or restart it",
+                            replayName, checkpoint.getPartitionCount()));
+                });
+
+        List<ProjectionReplayCheckpoint> checkpoints = new ArrayList<>();
+        for (int partition = 0; partition < workers; partition++) {
+            checkpoints.add(saved.getOrDefault(partition, ProjectionReplayCheckpoint.start(replayName, partition, workers)));
+        }
+        return checkpoints;
+    }
+
+    private void replayPartition(ProjectionReplayCheckpoint startingCheckpoint, int batchSize, RateLimiter rateLimiter) {
+        ProjectionReplayCheckpoint checkpoint = startingCheckpoint;
+        while (!checkpoint.isCompleted() && !Thread.currentThread().isInterrupted()) {
+            List<String> resourceExternalIds = projectionReplayDao.findResourceExternalIdsInPartition(
+                    checkpoint.getLastResourceExternalId(), checkpoint.getPartition(), checkpoint.getPartitionCount(),
+                    batchSize);
+            if (resourceExternalIds.isEmpty()) {
+                checkpoint = checkpoint.complete();
+            } else {
+                List<Event> events = eventDao.findEventsForExternalIds(Set.copyOf(resourceExternalIds));
+                rateLimiter.acquire(Math.max(events.size(), 1));
+                replayBatch(events);
+                resourcesReplayed.addAndGet(resourceExternalIds.size());
+                eventsReplayed.addAndGet(events.size());
+                checkpoint = checkpoint.advanceTo(resourceExternalIds.get(resourceExternalIds.size() - 1),
+                        resourceExternalIds.size());
+            }
+            projectionReplayDao.saveCheckpoint(checkpoint);
+        }
+    }
+
+    void replayBatch(List<Event> events) {
+        Map<String, EventDigest> digests = digestsByResource(events);
+        Map<String, EventDigest> parentDigests = parentDigestsFor(digests);
+
+        List<TransactionEntity> transactions = new ArrayList<>();
+        List<PayoutEntity> payouts = new ArrayList<>();
+        digests.forEach((resourceExternalId, digest) -> {
+            try {
+                switch (digest.getResourceType()) {
+                    case PAYMENT:
+                        transactions.add(transactionEntityFactory.create(digest));
+                        break;
+                    case REFUND:
+                        EventDigest paymentDigest = parentDigests.get(digest.getParentResourceExternalId());
+                        transactions.add(paymentDigest == null ?
+                                transactionEntityFactory.create(digest) :
+                                refundEventProcessor.createRefundTransactionEntity(digest, paymentDigest));
+                        break;
+                    case PAYOUT:
+                        payouts.add(payoutEntityFactory.create(digest));
+                        break;
+                    default:
+                        LOGGER.warn("Replay for resource type [{}] is not supported [resourceExternalId={}]",
+                                digest.getResourceType(), resourceExternalId);
+                }
+            } catch (Exception e) {
+                resourcesFailed.incrementAndGet();
+                LOGGER.error("Error replaying resource [resourceExternalId={}] [errorMessage={}]",
+                        resourceExternalId, e.getMessage());
+            }
+        });
+
+        if (!transactions.isEmpty()) {
+            transactionDao.upsertBatch(transactions);
+            transactions.forEach(transaction ->
+                    reportResultCache.invalidate(transaction.getGatewayAccountId(), transaction.getCreatedDate()));
+        }
+        if (!payouts.isEmpty()) {
+            payoutDao.upsertBatch(payouts);
+        }
+    }
+
+    private Map<String, EventDigest> parentDigestsFor(Map<String, EventDigest> digests) {
+        Set<String> parentExternalIds = digests.values().stream()
+                .map(EventDigest::getParentResourceExternalId)
+                .filter(parentExternalId -> isNotBlank(parentExternalId))
+                .collect(Collectors.toSet());
+        Set<String> parentExternalIdsToRead = parentExternalIds.stream()
+                .filter(parentExternalId -> !digests.containsKey(parentExternalId))
+                .collect(Collectors.toSet());
+
+        Map<String, EventDigest> parentDigests = parentExternalIdsToRead.isEmpty() ?
+                new LinkedHashMap<>() : digestsByResource(eventDao.findEventsForExternalIds(parentExternalIdsToRead));
+        parentExternalIds.stream()
+                .filter(digests::containsKey)
+                .forEach(parentExternalId -> parentDigests.put(parentExternalId, digests.get(parentExternalId)));
+        return parentDigests;
+    }
+
+    private static Map<String, EventDigest> digestsByResource(List<Event> eventsInDateOrder) {
+        Map<String, List<Event>> eventsByResource = eventsInDateOrder.stream()
+                .collect(Collectors.groupingBy(Event::getResourceExternalId, LinkedHashMap::new, Collectors.toList()));
+        Map<String, EventDigest> digests = new LinkedHashMap<>();
+        eventsByResource.forEach((resourceExternalId, resourceEvents) -> {
+            // digests are built from the latest event first
+            List<Event> latestFirst = new ArrayList<>(resourceEvents);
+            Collections.reverse(latestFirst);
+            digests.put(resourceExternalId, EventDigest.fromEventList(latestFirst));
+        });
+        return digests;
+    }
+
+    private void reportProgress(String replayName, long startNanos) {
+        double elapsedSeconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-3);
+        LOGGER.info("Replay progress [replayName={}] [resources={}] [events={}] [failedResources={}] " +
+                        "[resourcesPerSecond={}] [eventsPerSecond={}]",
+                replayName, resourcesReplayed.get(), eventsReplayed.get(), resourcesFailed.get(),
+                String.format("%.1f", resourcesReplayed.get() / elapsedSeconds),
+                String.format("%.1f", eventsReplayed.get() / elapsedSeconds));
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.pay.ledger.report.dao;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+
+/**
+ * Splits a report's date range into the whole hours that can be read from current_transaction_hourly_rollup and the
+ * partial hours at either end, which are read from the transaction table.
+ *
+ * current_transaction_hourly_rollup adds the deltas that {@link TransactionHourlyRollupDao#foldDeltas(int)} hasn't
+ * folded into transaction_hourly_rollup yet, so counts and sums read from it are up to date.
+ *
+ * Rollups cover [rollupFromDate, rollupToDate). Transactions in the report range outside of that window are read from
+ * the transaction table, so reports give the same results as aggregating the transaction table for any range. When
+ * the range doesn't contain a whole hour, rollupFromDate is after rollupToDate and everything is read from the
+ * transaction table.
+ *
+ * Until {@link TransactionHourlyRollupDao#backfillNextBatch(int)} has backfilled every hour, rollups only hold hours
+ * from {@link TransactionHourlyRollupDao#findCoveredFrom()}, so windows are narrowed to start there.
+ */
+public class HourlyRollupWindow {
+
+    private final ZonedDateTime rollupFromDate;
+    private final ZonedDateTime rollupToDate;
+
+    private HourlyRollupWindow(ZonedDateTime rollupFromDate, ZonedDateTime rollupToDate) {
+        this.rollupFromDate = rollupFromDate;
+        this.rollupToDate = rollupToDate;
+    }
+
+    public static HourlyRollupWindow of(ZonedDateTime fromDate, ZonedDateTime toDate) {
+        ZonedDateTime utcFromDate = fromDate.withZoneSameInstant(ZoneOffset.UTC);
+        ZonedDateTime rollupFromDate = utcFromDate.truncatedTo(HOURS);
+        if (rollupFromDate.isBefore(utcFromDate)) {
+            rollupFromDate = rollupFromDate.plusHours(1);
+        }
+        ZonedDateTime rollupToDate = toDate.withZoneSameInstant(ZoneOffset.UTC).truncatedTo(HOURS);
+
+        return new HourlyRollupWindow(rollupFromDate, rollupToDate);
+    }
+
+    /**
+     * For ranges that exclude fromDate, so a transaction created exactly at fromDate isn't counted when fromDate falls
+     * on the hour.
+     */
+    public static HourlyRollupWindow ofExclusiveRange(ZonedDateTime fromDate, ZonedDateTime toDate) {
+        ZonedDateTime rollupFromDate = fromDate.withZoneSameInstant(ZoneOffset.UTC).truncatedTo(HOURS).plusHours(1);
+        ZonedDateTime rollupToDate = toDate.withZoneSameInstant(ZoneOffset.UTC).truncatedTo(HOURS);
+
+        return new HourlyRollupWindow(rollupFromDate, rollupToDate);
+    }
+
+    /**
+     * For queries that can't be answered from rollups, everything is read from the transaction table.
+     */
+    public static HourlyRollupWindow none() {
+        ZonedDateTime epoch = Instant.EPOCH.atZone(ZoneOffset.UTC);
+        return new HourlyRollupWindow(epoch, epoch);
+    }
+
+    /**
+     * @param coveredFrom the first hour rollups hold every transaction for, or null when they hold every hour
+     */
+    public HourlyRollupWindow coveredFrom(ZonedDateTime coveredFrom) {
+        if (coveredFrom == null || !coveredFrom.isAfter(rollupFromDate)) {
+            return this;
+        }
+        return new HourlyRollupWindow(coveredFrom.withZoneSameInstant(ZoneOffset.UTC), rollupToDate);
+    }
+
+    public ZonedDateTime getRollupFromDate() {
+        return rollupFromDate;
+    }
+
+    public ZonedDateTime getRollupToDate() {
+        return rollupToDate;
+    }
+}
@@ -9,36 +9,64 @@ import uk.gov.pay.ledger.report.mapper.PerformanceReportEntityMapper;
 import uk.gov.pay.ledger.report.params.PerformanceReportParams;
 
 import javax.inject.Inject;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 
 public class PerformanceReportDao {
 
+    // volume and average only count transactions with an amount
     private static final String PERFORMANCE_REPORT =
-            "select coalesce(count(amount),0) as volume, coalesce(sum(amount),0) total_amount, " +
-                    "coalesce(avg(amount),0) avg_amount from transaction " +
-            "where type='PAYMENT' and live=true";
+            "select coalesce(sum(volume),0) as volume, coalesce(sum(total_amount),0) total_amount, " +
+                    "coalesce(sum(total_amount) / nullif(sum(volume),0),0) avg_amount from (" +
+                    "select sum(amount_count) as volume, sum(amount)::numeric as total_amount from current_transaction_hourly_rollup " +
+                    "where type='PAYMENT' and live=true" +
+                    " and hour >= :rollupFromDate and hour < :rollupToDate" +
+                    ":extraFields" +
+                    " union all " +
+                    "select count(amount) as volume, sum(amount)::numeric as total_amount from transaction " +
+                    "where type='PAYMENT' and live=true" +
+                    ":extraFields" +
+                    ":transactionDateRange" +
+                    " and (created_date < :rollupFromDate or created_date >= :rollupToDate)" +
+            ") volumes";
 
     private static final String WITH_STATE = " and state=:state";
 
     private static final String WITH_DATE_RANGE = " and created_date between :startDate and :toDate";
 
     private static final String MONTHLY_GATEWAY_ACCOUNT_PERFORMANCE_STATISTICS = "SELECT " +
-            "t.gateway_account_id, " +
-            "COALESCE(COUNT(t.amount), 0) AS volume, " +
-            "COALESCE(SUM(t.amount), 0) AS total_amount, " +
-            "COALESCE(AVG(t.amount), 0) AS avg_amount, " +
-            "COALESCE(MIN(t.amount), 0) AS min_amount, " +
-            "COALESCE(MAX(t.amount), 0) AS max_amount, " +
-            "EXTRACT(YEAR from created_date) AS year, " +
-            "EXTRACT(MONTH from created_date) AS month " +
+            "s.gateway_account_id, " +
+            "COALESCE(SUM(s.volume), 0) AS volume, " +
+            "COALESCE(SUM(s.total_amount), 0) AS total_amount, " +
+            "COALESCE(SUM(s.total_amount) / NULLIF(SUM(s.volume), 0), 0) AS avg_amount, " +
+            "COALESCE(MIN(s.min_amount), 0) AS min_amount, " +
+            "COALESCE(MAX(s.max_amount), 0) AS max_amount, " +
+            "s.year, " +
+            "s.month " +
+            "FROM (" +
+            "SELECT r.gateway_account_id, r.amount_count AS volume, r.amount::numeric AS total_amount, " +
+            "r.min_amount, r.max_amount, " +
+            "EXTRACT(YEAR from r.hour) AS year, EXTRACT(MONTH from r.hour) AS month " +
+            "FROM current_transaction_hourly_rollup r " +
+            "WHERE r.state = 'SUCCESS' " +
+            "AND r.type = 'PAYMENT' " +
+            "AND r.live = TRUE " +
+            "AND r.hour >= :rollupFromDate AND r.hour < :rollupToDate " +
+            "UNION ALL " +
+            "SELECT t.gateway_account_id, (t.amount IS NOT NULL)::int AS volume, t.amount::numeric AS total_amount, " +
+            "t.amount AS min_amount, t.amount AS max_amount, " +
+            "EXTRACT(YEAR from t.created_date) AS year, EXTRACT(MONTH from t.created_date) AS month " +
             "FROM transaction t " +
             "WHERE t.state = 'SUCCESS' " +
             "AND t.type = 'PAYMENT' " +
             "AND t.live = TRUE " +
-            "AND created_date BETWEEN :startDate AND :endDate " +
-            "GROUP BY t.gateway_account_id, year, month " +
-            "ORDER BY t.gateway_account_id, year, month";
+            "AND t.created_date BETWEEN :startDate AND :endDate " +
+            "AND (t.created_date < :rollupFromDate OR t.created_date >= :rollupToDate)" +
+            ") s " +
+            "GROUP BY s.gateway_account_id, s.year, s.month " +
+            "ORDER BY s.gateway_account_id, s.year, s.month";
 
     private final Jdbi jdbi;
 
@@ -48,27 +76,39 @@ public class PerformanceReportDao {
     }
 
     public PerformanceReportEntity performanceReportForPaymentTransactions(PerformanceReportParams params) {
-        StringBuilder queryString = new StringBuilder(PERFORMANCE_REPORT);
-        params.getState().ifPresent(state -> queryString.append(WITH_STATE));
-        params.getDateRange().ifPresent(dateRange -> queryString.append(WITH_DATE_RANGE));
+        String queryString = PERFORMANCE_REPORT
+                .replace(":extraFields", params.getState().map(state -> WITH_STATE).orElse(""))
+                .replace(":transactionDateRange", params.getDateRange().map(dateRange -> WITH_DATE_RANGE).orElse(""));
 
         return jdbi.withHandle(handle -> {
-            Query query = handle.createQuery(queryString.toString());
+            Query query = handle.createQuery(queryString);
             params.getState().ifPresent(state -> query.bind("state", state.name()));
-            params.getDateRange().ifPresent(dateRange -> {
-                query.bind("startDate", dateRange.getFromDate());
-                query.bind("toDate", dateRange.getToDate());
-            });
+            // without a date range only the current hour is read from the transaction table
+            HourlyRollupWindow rollupWindow = params.getDateRange()
+                    .map(dateRange -> {
+                        query.bind("startDate", dateRange.getFromDate());
+                        query.bind("toDate", dateRange.getToDate());
+                        return HourlyRollupWindow.of(dateRange.getFromDate(), dateRange.getToDate());
+                    })
+                    .orElseGet(() -> HourlyRollupWindow.of(Instant.EPOCH.atZone(ZoneOffset.UTC), ZonedDateTime.now(ZoneOffset.UTC)))
+                    .coveredFrom(handle.attach(TransactionHourlyRollupDao.class).findCoveredFrom());
+            query.bind("rollupFromDate", rollupWindow.getRollupFromDate());
+            query.bind("rollupToDate", rollupWindow.getRollupToDate());
             return query.map(new PerformanceReportEntityMapper()).one();
         });
     }
 
     public List<GatewayAccountMonthlyPerformanceReportEntity> monthlyPerformanceReportForGatewayAccounts(ZonedDateTime startDate, ZonedDateTime endDate) {
-        return jdbi.withHandle(handle ->
-                handle
-                        .createQuery(MONTHLY_GATEWAY_ACCOUNT_PERFORMANCE_STATISTICS)
-                        .bind("startDate", startDate)
-                        .bind("endDate", endDate)
-                        .map(new GatewayAccountMonthlyPerformanceReportEntityMapper()).list());
+        return jdbi.withHandle(handle -> {
+            HourlyRollupWindow rollupWindow = HourlyRollupWindow.of(startDate, endDate)
+                    .coveredFrom(handle.attach(TransactionHourlyRollupDao.class).findCoveredFrom());
+            return handle
+                    .createQuery(MONTHLY_GATEWAY_ACCOUNT_PERFORMANCE_STATISTICS)
+                    .bind("startDate", startDate)
+                    .bind("endDate", endDate)
+                    .bind("rollupFromDate", rollupWindow.getRollupFromDate())
+                    .bind("rollupToDate", rollupWindow.getRollupToDate())
+                    .map(new GatewayAccountMonthlyPerformanceReportEntityMapper()).list();
+        });
     }
 }
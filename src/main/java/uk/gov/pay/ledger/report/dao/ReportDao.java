@@ -1,49 +1,102 @@
 package uk.gov.pay.ledger.report.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang3.StringUtils;
+import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.Query;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
 import uk.gov.pay.ledger.report.entity.PaymentCountByStateResult;
 import uk.gov.pay.ledger.report.entity.TimeseriesReportSlice;
+import uk.gov.pay.ledger.report.entity.TransactionSummaryResult;
 import uk.gov.pay.ledger.report.entity.TransactionsStatisticsResult;
 import uk.gov.pay.ledger.report.mapper.ReportMapper;
 import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
+import uk.gov.pay.ledger.util.SearchTemplateCache;
 
 import javax.inject.Inject;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.List;
 
 @RegisterRowMapper(ReportMapper.class)
 public class ReportDao {
-    private static final String COUNT_TRANSACTIONS_BY_STATE = "SELECT state, count(1) AS count FROM transaction t " +
+    // whole hours are read from the rollups and the partial hours at the edges from transaction
+    private static final String COUNT_TRANSACTIONS_BY_STATE = "SELECT state, SUM(count) AS count FROM (" +
+            "SELECT r.state, r.count FROM current_transaction_hourly_rollup r " +
+            "WHERE r.type = :transactionType " +
+            "AND r.hour >= :rollupFromDate AND r.hour < :rollupToDate " +
+            ":rollupExtraFields " +
+            "UNION ALL " +
+            "SELECT t.state, 1 FROM transaction t " +
             "WHERE type = :transactionType::transaction_type " +
+            "AND (t.created_date < :rollupFromDate OR t.created_date >= :rollupToDate) " +
             ":searchExtraFields " +
+            ") s " +
             "GROUP BY state";
 
-    private static final String TRANSACTION_SUMMARY_STATISTICS = "SELECT count(1) AS count, " +
-            "SUM(CASE WHEN total_amount IS NULL THEN amount ELSE total_amount END) AS grossAmount " +
-            "FROM transaction t " +
-            "WHERE type = :transactionType::transaction_type " +
+    private static final String TRANSACTION_SUMMARY_STATISTICS = "SELECT " +
+            "SUM(count) FILTER (WHERE type = 'PAYMENT') AS payments_count, " +
+            "SUM(gross_amount) FILTER (WHERE type = 'PAYMENT') AS payments_gross_amount, " +
+            "SUM(count) FILTER (WHERE type = 'PAYMENT' AND moto) AS moto_payments_count, " +
+            "SUM(gross_amount) FILTER (WHERE type = 'PAYMENT' AND moto) AS moto_payments_gross_amount, " +
+            "SUM(count) FILTER (WHERE type = 'REFUND') AS refunds_count, " +
+            "SUM(gross_amount) FILTER (WHERE type = 'REFUND') AS refunds_gross_amount " +
+            "FROM (" +
+            "SELECT r.type, r.moto, r.count, r.gross_amount FROM current_transaction_hourly_rollup r " +
+            "WHERE r.type IN ('PAYMENT', 'REFUND') " +
+            "AND r.state = :state " +
+            "AND r.hour >= :rollupFromDate AND r.hour < :rollupToDate " +
+            ":rollupExtraFields " +
+            "UNION ALL " +
+            "SELECT t.type::text, t.moto, 1, COALESCE(t.total_amount, t.amount) FROM transaction t " +
+            "WHERE type IN ('PAYMENT', 'REFUND') " +
             "AND state = :state " +
-            ":searchExtraFields ";
+            "AND (t.created_date < :rollupFromDate OR t.created_date >= :rollupToDate) " +
+            ":searchExtraFields " +
+            ") s";
+
+    private static final String TRANSACTIONS_VOLUME_BY_HOUR = "SELECT " +
+            "r.hour AS timestamp, " +
+            "SUM(r.count) AS all_payments, " +
+            "COALESCE(SUM(r.count) FILTER (WHERE r.state IN ('ERROR', 'ERROR_GATEWAY')), 0) AS errored_payments, " +
+            "COALESCE(SUM(r.count) FILTER (WHERE r.state IN ('SUCCESS')), 0) AS completed_payments, " +
+            "SUM(r.amount) AS amount, SUM(r.net_amount) AS net_amount, SUM(r.total_amount) AS total_amount, SUM(r.fee) AS fee " +
+            "FROM current_transaction_hourly_rollup r " +
+            "WHERE r.live AND r.hour >= :rollupFromDate AND r.hour < :rollupToDate " +
+            "GROUP BY r.hour " +
+            "UNION ALL " +
+            "SELECT " +
+            "date_trunc('hour', t.created_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS timestamp, " +
+            "COUNT(*) AS all_payments, " +
+            "COUNT(*) FILTER (WHERE t.state IN ('ERROR', 'ERROR_GATEWAY')) AS errored_payments, " +
+            "COUNT(*) FILTER (WHERE t.state IN ('SUCCESS')) AS completed_payments, " +
+            "SUM(t.amount) AS amount, SUM(t.net_amount) AS net_amount, SUM(t.total_amount) AS total_amount, SUM(t.fee) AS fee " +
+            "FROM transaction t " +
+            "WHERE t.live AND (t.created_date BETWEEN :fromDate AND :toDate) " +
+            "AND (t.created_date < :rollupFromDate OR t.created_date >= :rollupToDate) " +
+            "GROUP BY 1 " +
+            "ORDER BY timestamp";
 
     private final Jdbi jdbi;
+    private final SearchTemplateCache searchTemplateCache;
 
     @Inject
-    public ReportDao(Jdbi jdbi) {
+    public ReportDao(Jdbi jdbi, MetricRegistry metricRegistry) {
         this.jdbi = jdbi;
+        this.searchTemplateCache = new SearchTemplateCache("report", metricRegistry);
     }
 
     public List<PaymentCountByStateResult> getPaymentCountsByState(TransactionStatisticQuery transactionStatisticQuery) {
         return jdbi.withHandle(handle -> {
-            String template = createSearchTemplate(transactionStatisticQuery.getFilterTemplates(),
-                    COUNT_TRANSACTIONS_BY_STATE);
+            String template = createSearchTemplate(transactionStatisticQuery, COUNT_TRANSACTIONS_BY_STATE);
 
             Query query = handle.createQuery(template)
                     .bind("transactionType", TransactionType.PAYMENT);
+            bindRollupWindow(handle, query, transactionStatisticQuery);
             transactionStatisticQuery.getQueryMap().forEach(query::bind);
 
             return query.map((rs, rowNum) -> {
@@ -54,52 +107,65 @@ public class ReportDao {
         });
     }
 
-    public TransactionsStatisticsResult getTransactionSummaryStatistics(TransactionStatisticQuery transactionStatisticQuery, TransactionType transactionType) {
+    public TransactionSummaryResult getTransactionSummaryStatistics(TransactionStatisticQuery transactionStatisticQuery) {
         return jdbi.withHandle(handle -> {
-            String template = createSearchTemplate(transactionStatisticQuery.getFilterTemplates(), TRANSACTION_SUMMARY_STATISTICS);
+            String template = createSearchTemplate(transactionStatisticQuery, TRANSACTION_SUMMARY_STATISTICS);
 
             Query query = handle.createQuery(template)
-                    .bind("transactionType", transactionType)
                     .bind("state", TransactionState.SUCCESS);
+            bindRollupWindow(handle, query, transactionStatisticQuery);
             transactionStatisticQuery.getQueryMap().forEach(query::bind);
 
             return query.map((rs, rowNum) -> {
-                long count = rs.getLong("count");
-                long grossAmount = rs.getLong("grossAmount");
-                return new TransactionsStatisticsResult(count, grossAmount);
+                TransactionsStatisticsResult payments = new TransactionsStatisticsResult(rs.getLong("payments_count"), rs.getLong("payments_gross_amount"));
+                TransactionsStatisticsResult motoPayments = new TransactionsStatisticsResult(rs.getLong("moto_payments_count"), rs.getLong("moto_payments_gross_amount"));
+                TransactionsStatisticsResult refunds = new TransactionsStatisticsResult(rs.getLong("refunds_count"), rs.getLong("refunds_gross_amount"));
+                return new TransactionSummaryResult(payments, motoPayments, refunds, payments.getGrossAmount() - refunds.getGrossAmount());
             }).one();
         });
     }
 
     public List<TimeseriesReportSlice> getTransactionsVolumeByTimeseries(ZonedDateTime fromDate, ZonedDateTime toDate) {
-        return jdbi.withHandle(handle -> handle.createQuery("SELECT " +
-                    "date_trunc('hour', t.created_date) as timestamp, " +
-                    "COUNT(*) as all_payments, " +
-                    "COUNT(*) filter (WHERE t.state IN ('ERROR', 'ERROR_GATEWAY')) as errored_payments, " +
-                    "COUNT(*) filter (WHERE t.state IN ('SUCCESS')) as completed_payments, " +
-                    "SUM(t.amount) as amount, SUM(t.net_amount) as net_amount, SUM(t.total_amount) as total_amount, SUM(t.fee) as fee " +
-                    "FROM transaction t " +
-                    "WHERE t.live AND (t.created_date BETWEEN :fromDate AND :toDate) " +
-                    "GROUP BY date_trunc('hour', t.created_date) " +
-                    "ORDER BY date_trunc('hour', t.created_date)")
+        return jdbi.withHandle(handle -> {
+            HourlyRollupWindow rollupWindow = HourlyRollupWindow.of(fromDate, toDate)
+                    .coveredFrom(handle.attach(TransactionHourlyRollupDao.class).findCoveredFrom());
+            return handle.createQuery(TRANSACTIONS_VOLUME_BY_HOUR)
                     .bind("fromDate", fromDate)
                     .bind("toDate", toDate)
+                    .bind("rollupFromDate", rollupWindow.getRollupFromDate())
+                    .bind("rollupToDate", rollupWindow.getRollupToDate())
                     .map(new ReportMapper())
-                    .list()
-        );
+                    .list();
+        });
     }
 
-    private String createSearchTemplate(
-            List<String> filterTemplates,
-            String baseQueryString) {
+    private void bindRollupWindow(Handle handle, Query query, TransactionStatisticQuery transactionStatisticQuery) {
+        HourlyRollupWindow rollupWindow = HourlyRollupWindow.none();
+        if (transactionStatisticQuery.isServedByRollups()) {
+            // without a to date only the current hour is read from the transaction table
+            rollupWindow = HourlyRollupWindow.ofExclusiveRange(
+                    transactionStatisticQuery.getFromDate().orElse(Instant.EPOCH.atZone(ZoneOffset.UTC)),
+                    transactionStatisticQuery.getToDate().orElseGet(() -> ZonedDateTime.now(ZoneOffset.UTC)))
+                    .coveredFrom(handle.attach(TransactionHourlyRollupDao.class).findCoveredFrom());
+        }
+        query.bind("rollupFromDate", rollupWindow.getRollupFromDate())
+                .bind("rollupToDate", rollupWindow.getRollupToDate());
+    }
+
+    private String createSearchTemplate(TransactionStatisticQuery transactionStatisticQuery, String baseQueryString) {
+        List<String> filterTemplates = transactionStatisticQuery.getFilterTemplates();
+        List<String> rollupFilterTemplates = transactionStatisticQuery.getRollupFilterTemplates();
 
+        return searchTemplateCache.get(List.of(baseQueryString, List.copyOf(filterTemplates), rollupFilterTemplates), () ->
+                baseQueryString
+                        .replace(":searchExtraFields", toSearchClause(filterTemplates))
+                        .replace(":rollupExtraFields", toSearchClause(rollupFilterTemplates)));
+    }
+
+    private static String toSearchClause(List<String> filterTemplates) {
         String searchClauseTemplate = String.join(" AND ", filterTemplates);
-        searchClauseTemplate = StringUtils.isNotBlank(searchClauseTemplate) ?
+        return StringUtils.isNotBlank(searchClauseTemplate) ?
                 "AND " + searchClauseTemplate :
                 "";
-
-        return baseQueryString.replace(
-                ":searchExtraFields",
-                searchClauseTemplate);
     }
 }
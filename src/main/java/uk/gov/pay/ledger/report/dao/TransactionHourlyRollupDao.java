@@ -0,0 +1,31 @@
+package uk.gov.pay.ledger.report.dao;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+
+import java.time.ZonedDateTime;
+
+public interface TransactionHourlyRollupDao {
+
+    /**
+     * Folds the oldest deltas appended by the transaction_hourly_rollup_trigger into transaction_hourly_rollup.
+     *
+     * @return the number of deltas folded, 0 when there are none or another instance is folding
+     */
+    @SqlQuery("SELECT fold_transaction_hourly_rollup_deltas(:batchSize)")
+    int foldDeltas(@Bind("batchSize") int batchSize);
+
+    /**
+     * Recounts the batchHours hours before the first hour rollups cover from the transaction table.
+     *
+     * @return true while there are earlier hours left to backfill
+     */
+    @SqlQuery("SELECT backfill_transaction_hourly_rollup(:batchHours)")
+    boolean backfillNextBatch(@Bind("batchHours") int batchHours);
+
+    /**
+     * @return the first hour rollups hold every transaction for, or null once every hour has been backfilled
+     */
+    @SqlQuery("SELECT covered_from FROM transaction_hourly_rollup_coverage")
+    ZonedDateTime findCoveredFrom();
+}
@@ -2,10 +2,12 @@ package uk.gov.pay.ledger.report.dao.builder;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 public class TransactionStatisticQuery {
 
@@ -49,6 +51,52 @@ public class TransactionStatisticQuery {
         return queryMap;
     }
 
+    /**
+     * Filters for current_transaction_hourly_rollup, the date range is applied using the rollup window instead
+     */
+    public List<String> getRollupFilterTemplates() {
+        List<String> rollupFilters = new ArrayList<>();
+        if (queryMap.containsKey(GATEWAY_ACCOUNT_ID)) {
+            rollupFilters.add(" r.gateway_account_id = :" + GATEWAY_ACCOUNT_ID);
+        }
+        if (queryMap.containsKey(MOTO)) {
+            rollupFilters.add(" r.moto = :" + MOTO);
+        }
+        return rollupFilters;
+    }
+
+    /**
+     * Rollups count transactions without a moto flag as not moto, so t.moto = false can only be answered from the
+     * transaction table
+     */
+    public boolean isServedByRollups() {
+        return !Boolean.FALSE.equals(queryMap.get(MOTO));
+    }
+
+    public Optional<String> getAccountId() {
+        return Optional.ofNullable((String) queryMap.get(GATEWAY_ACCOUNT_ID));
+    }
+
+    public Optional<ZonedDateTime> getFromDate() {
+        return Optional.ofNullable((ZonedDateTime) queryMap.get(FROM_DATE));
+    }
+
+    public Optional<ZonedDateTime> getToDate() {
+        return Optional.ofNullable((ZonedDateTime) queryMap.get(TO_DATE));
+    }
+
+    /**
+     * Identifies the transactions the query covers regardless of the order filters were added in or the time zone of
+     * the dates, so equivalent queries share a cached result
+     */
+    public List<Object> getNormalizedKey() {
+        return Arrays.asList(
+                queryMap.get(GATEWAY_ACCOUNT_ID),
+                getFromDate().map(ZonedDateTime::toInstant).orElse(null),
+                getToDate().map(ZonedDateTime::toInstant).orElse(null),
+                queryMap.get(MOTO));
+    }
+
     @Override
     public String toString() {
         return "TransactionStatisticQuery{" +
@@ -0,0 +1,105 @@
+package uk.gov.pay.ledger.report.managed;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.config.ReportingConfig;
+import uk.gov.pay.ledger.report.dao.TransactionHourlyRollupDao;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds the deltas appended to transaction_hourly_rollup_delta by writes to transaction into transaction_hourly_rollup,
+ * off the ingestion path. Reports read current_transaction_hourly_rollup, which includes deltas not folded yet, so
+ * folding only keeps the delta table small and brings min and max amounts up to date.
+ *
+ * Each run folds batches until fewer than rollupFoldBatchSize deltas are left. Only one instance folds at a time.
+ *
+ * Transactions written before the rollup trigger was created are backfilled here too, rather than in the migration
+ * that created it. Each run recounts the rollupBackfillBatchSizeInHours hours before the earliest hour already covered,
+ * until every hour is covered. Reports read hours that aren't covered yet from the transaction table.
+ *
+ * Metrics:
+ * - transaction-hourly-rollup.folded-deltas: number of deltas folded into rollups
+ * - transaction-hourly-rollup.backfilled-batches: number of batches of hours backfilled
+ */
+public class TransactionHourlyRollupFolder implements Managed {
+
+    private static final String TRANSACTION_HOURLY_ROLLUP_FOLDER_THREAD_NAME = "transaction-hourly-rollup-folder-%d";
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionHourlyRollupFolder.class);
+
+    private final TransactionHourlyRollupDao transactionHourlyRollupDao;
+    private final ReportingConfig config;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Counter foldedDeltas;
+    private final Counter backfilledBatches;
+    private volatile boolean backfillComplete;
+
+    @Inject
+    public TransactionHourlyRollupFolder(TransactionHourlyRollupDao transactionHourlyRollupDao,
+                                         LedgerConfig configuration, Environment environment) {
+        this(transactionHourlyRollupDao, configuration.getReportingConfig(), environment.lifecycle()
+                        .scheduledExecutorService(TRANSACTION_HOURLY_ROLLUP_FOLDER_THREAD_NAME)
+                        .threads(1)
+                        .build(),
+                environment.metrics());
+    }
+
+    TransactionHourlyRollupFolder(TransactionHourlyRollupDao transactionHourlyRollupDao, ReportingConfig config,
+                                  ScheduledExecutorService scheduledExecutorService, MetricRegistry metricRegistry) {
+        this.transactionHourlyRollupDao = transactionHourlyRollupDao;
+        this.config = config;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.foldedDeltas = metricRegistry.counter("transaction-hourly-rollup.folded-deltas");
+        this.backfilledBatches = metricRegistry.counter("transaction-hourly-rollup.backfilled-batches");
+    }
+
+    @Override
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::maintainRollups, 0,
+                config.getRollupFoldIntervalInMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor is managed by the Dropwizard lifecycle, which shuts it down
+    }
+
+    void maintainRollups() {
+        foldDeltas();
+        if (!backfillComplete) {
+            backfillNextBatch();
+        }
+    }
+
+    private void foldDeltas() {
+        try {
+            int folded;
+            do {
+                folded = transactionHourlyRollupDao.foldDeltas(config.getRollupFoldBatchSize());
+                foldedDeltas.inc(folded);
+            } while (folded >= config.getRollupFoldBatchSize());
+        } catch (Exception e) {
+            LOGGER.error("Error folding transaction hourly rollup deltas [errorMessage={}]", e.getMessage());
+        }
+    }
+
+    private void backfillNextBatch() {
+        try {
+            boolean hoursLeft = transactionHourlyRollupDao.backfillNextBatch(config.getRollupBackfillBatchSizeInHours());
+            backfilledBatches.inc();
+            if (!hoursLeft) {
+                backfillComplete = true;
+                LOGGER.info("Transaction hourly rollups cover every hour");
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error backfilling transaction hourly rollups [errorMessage={}]", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package uk.gov.pay.ledger.report.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.dropwizard.setup.Environment;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.ReadOnlyQueryLag;
+import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches report results, keyed by the report name and the normalized {@link TransactionStatisticQuery}.
+ *
+ * Entries are removed when a transaction for the entry's gateway account, created inside the entry's date range, is
+ * projected by this instance. Other instances can't see those invalidations, so entries also expire after the
+ * configured time, which bounds how stale a result can be. An expiry of 0 disables the cache.
+ *
+ * Invalidations happen when the primary commits, but a report served by the read replica can still read the old rows
+ * until the replica catches up. Results read from the replica are only cached while its replication lag is below the
+ * configured maximum, and only if their gateway account hasn't been invalidated within that maximum before the report
+ * started.
+ *
+ * Entries are indexed by gateway account and by each day their date range covers, so an invalidation only looks at
+ * the entries for the changed transaction's account and day. Entries with an open ended range, or one longer than
+ * {@value #MAX_INDEXED_DAYS} days, are looked at on every invalidation for their account. What is kept for an account
+ * (its entries, reports running for it and when it was last invalidated) is dropped once it has no entries, no
+ * running reports and wasn't invalidated within the maximum replication lag, so it doesn't grow with every account
+ * that has ever been invalidated.
+ *
+ * Metrics:
+ * - report-result-cache.hits / report-result-cache.misses: lookups served from the cache or that ran the report
+ * - report-result-cache.invalidations: entries removed because a transaction inside their range changed
+ * - report-result-cache.replica-lag-skips: results not cached because the replica may not have had the latest changes
+ * - report-result-cache.size: number of cached results
+ * - report-result-cache.accounts: number of accounts anything is kept for
+ */
+@Singleton
+public class ReportResultCache {
+
+    private static final String ALL_ACCOUNTS = "";
+    static final int MAX_INDEXED_DAYS = 92;
+
+    private final ConcurrentMap<List<Object>, CachedResult> results = new ConcurrentHashMap<>();
+    // only changed inside compute for the account, so each account's entries are updated atomically
+    private final ConcurrentMap<String, AccountEntries> accounts = new ConcurrentHashMap<>();
+    // invalidations within the maximum replication lag, oldest first, so accounts only kept for them can be dropped
+    private final ConcurrentLinkedQueue<RecentInvalidation> recentInvalidations = new ConcurrentLinkedQueue<>();
+    private final long expiryInNanos;
+    private final int maxEntries;
+    private final ReadOnlyQueryLag readOnlyQueryLag;
+    private final long maxReplicationLagInNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Counter replicaLagSkips;
+
+    @Inject
+    public ReportResultCache(LedgerConfig configuration, Environment environment, ReadOnlyQueryLag readOnlyQueryLag) {
+        this(Duration.ofSeconds(configuration.getReportingConfig().getResultCacheExpiryInSeconds()),
+                configuration.getReportingConfig().getResultCacheMaxEntries(),
+                readOnlyQueryLag,
+                Duration.ofSeconds(configuration.getReportingConfig().getResultCacheMaxReplicationLagInSeconds()),
+                environment.metrics());
+    }
+
+    public ReportResultCache(Duration expiry, int maxEntries, MetricRegistry metricRegistry) {
+        this(expiry, maxEntries, ReadOnlyQueryLag.PRIMARY_ONLY, Duration.ZERO, metricRegistry);
+    }
+
+    public ReportResultCache(Duration expiry, int maxEntries, ReadOnlyQueryLag readOnlyQueryLag,
+                             Duration maxReplicationLag, MetricRegistry metricRegistry) {
+        this.expiryInNanos = expiry.toNanos();
+        this.maxEntries = maxEntries;
+        this.readOnlyQueryLag = readOnlyQueryLag;
+        this.maxReplicationLagInNanos = maxReplicationLag.toNanos();
+        this.hits = metricRegistry.counter("report-result-cache.hits");
+        this.misses = metricRegistry.counter("report-result-cache.misses");
+        this.invalidations = metricRegistry.counter("report-result-cache.invalidations");
+        this.replicaLagSkips = metricRegistry.counter("report-result-cache.replica-lag-skips");
+        metricRegistry.gauge("report-result-cache.size", () -> (Gauge<Integer>) results::size);
+        metricRegistry.gauge("report-result-cache.accounts", () -> (Gauge<Integer>) accounts::size);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String reportName, TransactionStatisticQuery query, Supplier<T> reportSupplier) {
+        if (expiryInNanos <= 0) {
+            return reportSupplier.get();
+        }
+
+        List<Object> key = List.of(reportName, query.getNormalizedKey());
+        CachedResult cachedResult = results.get(key);
+        if (cachedResult != null && !cachedResult.hasExpired()) {
+            hits.inc();
+            return (T) cachedResult.result;
+        }
+
+        misses.inc();
+        String accountKey = query.getAccountId().orElse(ALL_ACCOUNTS);
+        long generation = startReport(accountKey);
+        long startedAtNanos = System.nanoTime();
+        T result;
+        try {
+            result = reportSupplier.get();
+        } catch (RuntimeException | Error e) {
+            finishReport(accountKey, null, generation, startedAtNanos);
+            throw e;
+        }
+        finishReport(accountKey, new CachedResult(key, result, query, System.nanoTime() + expiryInNanos),
+                generation, startedAtNanos);
+        return result;
+    }
+
+    public void invalidate(String gatewayAccountId, ZonedDateTime transactionCreatedDate) {
+        if (expiryInNanos <= 0 || gatewayAccountId == null) {
+            return;
+        }
+
+        Instant createdDate = transactionCreatedDate == null ? null : transactionCreatedDate.toInstant();
+        long nowNanos = System.nanoTime();
+        for (String accountKey : List.of(gatewayAccountId, ALL_ACCOUNTS)) {
+            accounts.compute(accountKey, (k, account) -> {
+                if (account == null) {
+                    if (maxReplicationLagInNanos <= 0) {
+                        // nothing is cached or running for the account, and there is no replica lag to wait out
+                        return null;
+                    }
+                    account = new AccountEntries();
+                }
+                account.generation++;
+                account.lastInvalidatedAtNanos = nowNanos;
+                for (CachedResult covered : account.removeCovering(createdDate, results)) {
+                    results.remove(covered.key);
+                    invalidations.inc();
+                }
+                return account.isUnused(nowNanos) ? null : account;
+            });
+            if (maxReplicationLagInNanos > 0) {
+                recentInvalidations.add(new RecentInvalidation(accountKey, nowNanos));
+            }
+        }
+        dropAccountsOnlyKeptForInvalidationsBefore(nowNanos - maxReplicationLagInNanos);
+    }
+
+    // bumps the account's generation when it is invalidated, so results read while a transaction was being projected
+    // aren't cached
+    private long startReport(String accountKey) {
+        return accounts.compute(accountKey, (k, account) -> {
+            AccountEntries started = account == null ? new AccountEntries() : account;
+            started.reportsRunning++;
+            return started;
+        }).generation;
+    }
+
+    private void finishReport(String accountKey, CachedResult finished, long generation, long startedAtNanos) {
+        if (finished != null && results.size() >= maxEntries) {
+            removeExpired();
+        }
+        accounts.compute(accountKey, (k, account) -> {
+            account.reportsRunning--;
+            if (finished != null) {
+                if (mayHaveReadStaleReplica(account, startedAtNanos)) {
+                    replicaLagSkips.inc();
+                } else if (account.generation == generation && results.size() < maxEntries) {
+                    // otherwise a transaction changed while the report was running, the result may not include it
+                    results.put(finished.key, finished);
+                    account.add(finished);
+                }
+            }
+            return account.isUnused(System.nanoTime()) ? null : account;
+        });
+    }
+
+    private boolean mayHaveReadStaleReplica(AccountEntries account, long startedAtNanos) {
+        if (!readOnlyQueryLag.isServingFromReplica()) {
+            return false;
+        }
+        if (readOnlyQueryLag.getReplicationLagInSeconds() * 1_000_000_000 >= maxReplicationLagInNanos) {
+            return true;
+        }
+        return account.lastInvalidatedAtNanos != null
+                && startedAtNanos - account.lastInvalidatedAtNanos < maxReplicationLagInNanos;
+    }
+
+    private void dropAccountsOnlyKeptForInvalidationsBefore(long nanos) {
+        RecentInvalidation oldest;
+        while ((oldest = recentInvalidations.peek()) != null && oldest.atNanos - nanos <= 0) {
+            if (recentInvalidations.remove(oldest)) {
+                accounts.computeIfPresent(oldest.accountKey,
+                        (k, account) -> account.isUnused(System.nanoTime()) ? null : account);
+            }
+        }
+    }
+
+    private void removeExpired() {
+        for (String accountKey : new ArrayList<>(accounts.keySet())) {
+            accounts.computeIfPresent(accountKey, (k, account) -> {
+                for (CachedResult expired : account.removeExpired(results)) {
+                    results.remove(expired.key);
+                }
+                return account.isUnused(System.nanoTime()) ? null : account;
+            });
+        }
+    }
+
+    private class AccountEntries {
+        private final Set<List<Object>> keys = new HashSet<>();
+        private final Map<Long, Set<List<Object>>> keysByDay = new HashMap<>();
+        private final Set<List<Object>> wideRangeKeys = new HashSet<>();
+        private long generation;
+        private int reportsRunning;
+        private Long lastInvalidatedAtNanos;
+
+        private void add(CachedResult cachedResult) {
+            keys.add(cachedResult.key);
+            if (cachedResult.isWideRange()) {
+                wideRangeKeys.add(cachedResult.key);
+            } else {
+                for (long day = cachedResult.fromDay(); day <= cachedResult.toDay(); day++) {
+                    keysByDay.computeIfAbsent(day, d -> new HashSet<>()).add(cachedResult.key);
+                }
+            }
+        }
+
+        private List<CachedResult> removeCovering(Instant createdDate, Map<List<Object>, CachedResult> results) {
+            List<List<Object>> candidates = new ArrayList<>(createdDate == null ? keys : wideRangeKeys);
+            if (createdDate != null) {
+                candidates.addAll(keysByDay.getOrDefault(epochDay(createdDate), Set.of()));
+            }
+            List<CachedResult> covering = new ArrayList<>();
+            for (List<Object> key : candidates) {
+                CachedResult cachedResult = results.get(key);
+                if (cachedResult == null) {
+                    keys.remove(key);
+                    wideRangeKeys.remove(key);
+                } else if (cachedResult.covers(createdDate)) {
+                    remove(cachedResult);
+                    covering.add(cachedResult);
+                }
+            }
+            return covering;
+        }
+
+        private List<CachedResult> removeExpired(Map<List<Object>, CachedResult> results) {
+            List<CachedResult> expired = new ArrayList<>();
+            for (List<Object> key : new ArrayList<>(keys)) {
+                CachedResult cachedResult = results.get(key);
+                if (cachedResult == null) {
+                    keys.remove(key);
+                    wideRangeKeys.remove(key);
+                } else if (cachedResult.hasExpired()) {
+                    remove(cachedResult);
+                    expired.add(cachedResult);
+                }
+            }
+            return expired;
+        }
+
+        private void remove(CachedResult cachedResult) {
+            keys.remove(cachedResult.key);
+            if (cachedResult.isWideRange()) {
+                wideRangeKeys.remove(cachedResult.key);
+                return;
+            }
+            for (long day = cachedResult.fromDay(); day <= cachedResult.toDay(); day++) {
+                Set<List<Object>> dayKeys = keysByDay.get(day);
+                if (dayKeys != null && dayKeys.remove(cachedResult.key) && dayKeys.isEmpty()) {
+                    keysByDay.remove(day);
+                }
+            }
+        }
+
+        private boolean isUnused(long nowNanos) {
+            return keys.isEmpty() && reportsRunning == 0 &&
+                    (lastInvalidatedAtNanos == null || nowNanos - lastInvalidatedAtNanos >= maxReplicationLagInNanos);
+        }
+    }
+
+    private static long epochDay(Instant instant) {
+        return instant.atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+    }
+
+    private static class RecentInvalidation {
+        private final String accountKey;
+        private final long atNanos;
+
+        private RecentInvalidation(String accountKey, long atNanos) {
+            this.accountKey = accountKey;
+            this.atNanos = atNanos;
+        }
+    }
+
+    private static class CachedResult {
+        private final List<Object> key;
+        private final Object result;
+        private final Instant fromDate;
+        private final Instant toDate;
+        private final long expiresAtNanos;
+
+        private CachedResult(List<Object> key, Object result, TransactionStatisticQuery query, long expiresAtNanos) {
+            this.key = key;
+            this.result = result;
+            this.fromDate = query.getFromDate().map(ZonedDateTime::toInstant).orElse(null);
+            this.toDate = query.getToDate().map(ZonedDateTime::toInstant).orElse(null);
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean hasExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+
+        private boolean isWideRange() {
+            return fromDate == null || toDate == null || toDay() - fromDay() >= MAX_INDEXED_DAYS;
+        }
+
+        private long fromDay() {
+            return epochDay(fromDate);
+        }
+
+        private long toDay() {
+            return epochDay(toDate);
+        }
+
+        private boolean covers(Instant createdDate) {
+            return createdDate == null ||
+                    (fromDate == null || createdDate.isAfter(fromDate)) &&
+                            (toDate == null || createdDate.isBefore(toDate));
+        }
+    }
+}
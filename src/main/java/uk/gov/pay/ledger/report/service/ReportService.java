@@ -4,11 +4,11 @@ import com.google.inject.Inject;
 import uk.gov.pay.ledger.report.dao.ReportDao;
 
 import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
+import uk.gov.pay.ledger.report.entity.PaymentCountByStateResult;
 import uk.gov.pay.ledger.report.entity.TimeseriesReportSlice;
 import uk.gov.pay.ledger.report.entity.TransactionsStatisticsResult;
 import uk.gov.pay.ledger.report.entity.TransactionSummaryResult;
 import uk.gov.pay.ledger.report.params.TransactionSummaryParams;
-import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 
 import java.time.ZonedDateTime;
@@ -21,11 +21,16 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class ReportService {
 
+    private static final String PAYMENT_COUNTS_BY_STATE = "payment-counts-by-state";
+    private static final String TRANSACTIONS_SUMMARY = "transactions-summary";
+
     private final ReportDao reportDao;
+    private final ReportResultCache reportResultCache;
 
     @Inject
-    public ReportService(ReportDao reportDao) {
+    public ReportService(ReportDao reportDao, ReportResultCache reportResultCache) {
         this.reportDao = reportDao;
+        this.reportResultCache = reportResultCache;
     }
 
     public Map<String, Long> getPaymentCountsByState(TransactionSummaryParams params) {
@@ -35,7 +40,10 @@ public class ReportService {
 
         TransactionStatisticQuery transactionStatisticQuery = buildBaseTransactionStatisticQuery(params);
 
-        reportDao.getPaymentCountsByState(transactionStatisticQuery).forEach(result ->
+        List<PaymentCountByStateResult> paymentCountsByState = reportResultCache.get(PAYMENT_COUNTS_BY_STATE,
+                transactionStatisticQuery, () -> List.copyOf(reportDao.getPaymentCountsByState(transactionStatisticQuery)));
+
+        paymentCountsByState.forEach(result ->
                 responseMap.put(TransactionState.from(result.getState()).getStatus(), result.getCount()));
 
         return responseMap;
@@ -44,16 +52,15 @@ public class ReportService {
     public TransactionSummaryResult getTransactionsSummary(TransactionSummaryParams params) {
         TransactionStatisticQuery transactionStatisticQuery = buildBaseTransactionStatisticQuery(params);
 
-        TransactionsStatisticsResult payments = reportDao.getTransactionSummaryStatistics(transactionStatisticQuery, TransactionType.PAYMENT);
-        TransactionsStatisticsResult refunds = reportDao.getTransactionSummaryStatistics(transactionStatisticQuery, TransactionType.REFUND);
-        TransactionsStatisticsResult motoPayments = new TransactionsStatisticsResult(0L, 0L);
+        TransactionSummaryResult summary = reportResultCache.get(TRANSACTIONS_SUMMARY,
+                transactionStatisticQuery, () -> reportDao.getTransactionSummaryStatistics(transactionStatisticQuery));
 
         if (params.isIncludeMotoStatistics()) {
-            TransactionStatisticQuery motoQuery = transactionStatisticQuery.withMoto(true);
-            motoPayments = reportDao.getTransactionSummaryStatistics(motoQuery, TransactionType.PAYMENT);
+            return summary;
         }
 
-        return new TransactionSummaryResult(payments, motoPayments, refunds, payments.getGrossAmount() - refunds.getGrossAmount());
+        return new TransactionSummaryResult(summary.getPayments(), new TransactionsStatisticsResult(0L, 0L),
+                summary.getRefunds(), summary.getNetIncome());
     }
 
     public List<TimeseriesReportSlice> getTransactionsByHour(ZonedDateTime fromDate, ZonedDateTime toDate) {
@@ -1,16 +1,23 @@
 package uk.gov.pay.ledger.transaction.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.transaction.dao.mapper.TransactionEventMapper;
 import uk.gov.pay.ledger.transaction.dao.mapper.TransactionMapper;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+import uk.gov.pay.ledger.transaction.model.TransactionEvent;
 import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.search.common.TransactionSearchParams;
+import uk.gov.pay.ledger.util.SearchTemplateCache;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -19,7 +26,7 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class TransactionDao {
     private static final String SEARCH_CLAUSE_TRANSACTION_WITH_PAYOUT = "AND po.gateway_account_id = :gatewayAccountId ";
-    private static final String SEARCH_CLAUSE_TRANSACTIONS_WITH_PAYOUT = "AND po.gateway_account_id IN (<account_id>) ";
+    private static final String SEARCH_CLAUSE_TRANSACTIONS_WITH_PAYOUT = "AND po.gateway_account_id = ANY(:account_id) ";
 
     private static final String FIND_TRANSACTION_BY_EXTERNAL_ID =
             "SELECT t.*, po.paid_out_date AS paid_out_date FROM transaction t " +
@@ -47,6 +54,19 @@ public class TransactionDao {
             "WHERE (t.external_id = :externalId or t.parent_external_id = :externalId) " +
             "AND t.gateway_account_id = :gatewayAccountId";
 
+    private static final String FIND_TRANSACTION_EVENTS_BY_EXTERNAL_OR_PARENT_ID_AND_GATEWAY_ACCOUNT_ID =
+            "SELECT t.external_id, t.amount, rt.name AS resource_type_name, e.event_type, e.event_date, e.event_data " +
+            "FROM transaction t " +
+            "LEFT OUTER JOIN LATERAL (" +
+            "SELECT " + EventDao.EVENT_COLUMNS + " FROM event WHERE resource_external_id = t.external_id " +
+            "UNION ALL " +
+            EventDao.ARCHIVED_EVENTS + " WHERE a.resource_external_id = t.external_id" +
+            ") e ON true " +
+            "LEFT OUTER JOIN resource_type rt ON rt.id = e.resource_type_id " +
+            "WHERE (t.external_id = :externalId or t.parent_external_id = :externalId) " +
+            "AND t.gateway_account_id = :gatewayAccountId " +
+            "ORDER BY e.event_date ASC";
+
     private static final String FIND_TRANSACTIONS_BY_PARENT_EXT_ID_AND_GATEWAY_ACCOUNT_ID =
             "SELECT t.*, po.paid_out_date AS paid_out_date FROM transaction t " +
             "LEFT OUTER JOIN payout po on " +
@@ -78,6 +98,28 @@ public class TransactionDao {
             ":cursorFields " +
             "ORDER BY t.created_date DESC, t.id DESC LIMIT :limit";
 
+    /**
+     * Multi-account searches scan each account's slice of the (gateway_account_id, created_date DESC, id DESC) index
+     * separately, taking at most :accountLimit rows from each, and merge the results. This avoids the planner walking
+     * the whole created_date index and filtering by account when a large IN list of accounts is given.
+     */
+    private static final String SEARCH_TRANSACTIONS_BY_ACCOUNT =
+            "SELECT t.*, po.paid_out_date AS paid_out_date " +
+            "FROM unnest(:account_id) AS account(gateway_account_id) " +
+            "CROSS JOIN LATERAL (" +
+                "SELECT t.* FROM transaction t " +
+                "WHERE t.gateway_account_id = account.gateway_account_id " +
+                ":searchExtraFields " +
+                ":cursorFields " +
+                "ORDER BY t.created_date DESC, t.id DESC LIMIT :accountLimit" +
+            ") t " +
+            "LEFT OUTER JOIN payout po on " +
+            "t.gateway_payout_id = po.gateway_payout_id " +
+            ":payoutJoinOnGatewayIdField " +
+            "ORDER BY t.created_date DESC, t.id DESC OFFSET :offset LIMIT :limit";
+
+    private static final String CURSOR_CLAUSE = "t.created_date <= :startingAfterCreatedDate AND NOT (t.created_date = :startingAfterCreatedDate AND t.id >= :startingAfterId) ";
+
     private static final String COUNT_TRANSACTIONS = "SELECT count(*) " +
             "FROM transaction t " +
             ":searchExtraFields ";
@@ -192,6 +234,24 @@ public class TransactionDao {
                     "gateway_payout_id = EXCLUDED.gateway_payout_id " +
                     "WHERE EXCLUDED.event_count >= transaction.event_count;";
 
+    /**
+     * Copies the fields refunds share with their payment on to every refund of the payment. The refunds' event_count
+     * is left alone, as none of their own events are projected.
+     */
+    private static final String UPDATE_REFUNDS_WITH_PAYMENT_DETAILS =
+            "UPDATE transaction SET " +
+                    "transaction_details = jsonb_set(COALESCE(transaction_details, '{}'::jsonb), '{payment_details}', " +
+                    "CAST(:paymentDetails as jsonb)), " +
+                    "reference = :reference, " +
+                    "description = :description, " +
+                    "email = :email, " +
+                    "cardholder_name = :cardholderName, " +
+                    "card_brand = :cardBrand, " +
+                    "first_digits_card_number = :firstDigitsCardNumber, " +
+                    "last_digits_card_number = :lastDigitsCardNumber " +
+                    "WHERE parent_external_id = :externalId " +
+                    "AND type = 'REFUND'::transaction_type";
+
     private static final String GET_SOURCE_TYPE_ENUM_VALUES =
             "SELECT " +
                     "pg_enum.enumlabel " +
@@ -202,15 +262,28 @@ public class TransactionDao {
                     "WHERE pg_type.typname = 'source';";
 
 
+    // used for writes and the lookups made while projecting events
     private final Jdbi jdbi;
+    // used for the lookups the API serves, which must see the latest projection so go to the primary
+    private final Jdbi primaryReadJdbi;
+    // used for searches, which can be served by the read replica
+    private final Jdbi readOnlyJdbi;
+    // used for the cursor searches that stream CSV exports
+    private final Jdbi exportJdbi;
+    private final SearchTemplateCache searchTemplateCache;
 
     @Inject
-    public TransactionDao(Jdbi jdbi) {
+    public TransactionDao(Jdbi jdbi, Jdbi primaryReadJdbi, Jdbi readOnlyJdbi, Jdbi exportJdbi,
+                          MetricRegistry metricRegistry) {
         this.jdbi = jdbi;
+        this.primaryReadJdbi = primaryReadJdbi;
+        this.readOnlyJdbi = readOnlyJdbi;
+        this.exportJdbi = exportJdbi;
+        this.searchTemplateCache = new SearchTemplateCache("transaction-search", metricRegistry);
     }
 
     public Optional<TransactionEntity> findTransaction(String externalId, String gatewayAccountId, TransactionType transactionType, String parentTransactionExternalId) {
-        return jdbi.withHandle(handle ->
+        return primaryReadJdbi.withHandle(handle ->
                 handle.createQuery(FIND_TRANSACTION_BY_EXTERNAL_ID_AND_GATEWAY_ACCOUNT_ID)
                         .bind("externalId", externalId)
                         .bind("gatewayAccountId", gatewayAccountId)
@@ -221,10 +294,15 @@ public class TransactionDao {
     }
 
     public Optional<TransactionEntity> findTransactionByExternalId(String externalId) {
-        return findTransactionByExternalIdAndGatewayAccountId(externalId, null);
+        return findTransactionByExternalIdAndGatewayAccountId(jdbi, externalId, null);
     }
 
     public Optional<TransactionEntity> findTransactionByExternalIdAndGatewayAccountId(String externalId, String gatewayAccountId) {
+        return findTransactionByExternalIdAndGatewayAccountId(primaryReadJdbi, externalId, gatewayAccountId);
+    }
+
+    private Optional<TransactionEntity> findTransactionByExternalIdAndGatewayAccountId(Jdbi jdbi, String externalId,
+                                                                                      String gatewayAccountId) {
         String query = FIND_TRANSACTION_BY_EXTERNAL_ID
                 .replace(":payoutJoinOnGatewayIdField",
                         isNotBlank(gatewayAccountId)
@@ -238,7 +316,7 @@ public class TransactionDao {
     }
 
     public List<TransactionEntity> findTransactionByExternalOrParentIdAndGatewayAccountId(String externalId, String gatewayAccountId) {
-        return jdbi.withHandle(handle ->
+        return primaryReadJdbi.withHandle(handle ->
                 handle.createQuery(FIND_TRANSACTIONS_BY_EXTERNAL_OR_PARENT_ID_AND_GATEWAY_ACCOUNT_ID)
                         .bind("externalId", externalId)
                         .bind("gatewayAccountId", gatewayAccountId)
@@ -247,12 +325,35 @@ public class TransactionDao {
         );
     }
 
+    /**
+     * Returns the events for a transaction and its child transactions ordered by event date, or an empty Optional if
+     * no transaction matches. Served by a single query joining transactions to their events.
+     */
+    public Optional<List<TransactionEvent>> findTransactionEventsByExternalOrParentIdAndGatewayAccountId(
+            String externalId, String gatewayAccountId, int statusVersion) {
+        List<TransactionEvent> rows = primaryReadJdbi.withHandle(handle ->
+                handle.createQuery(FIND_TRANSACTION_EVENTS_BY_EXTERNAL_OR_PARENT_ID_AND_GATEWAY_ACCOUNT_ID)
+                        .bind("externalId", externalId)
+                        .bind("gatewayAccountId", gatewayAccountId)
+                        .map(new TransactionEventMapper(statusVersion))
+                        .list()
+        );
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(rows.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
     public List<TransactionEntity> findTransactionByParentIdAndGatewayAccountId(String parentExternalId, String gatewayAccountId) {
         String query = FIND_TRANSACTIONS_BY_PARENT_EXT_ID_AND_GATEWAY_ACCOUNT_ID
                 .replace(":payoutJoinOnGatewayIdField",
                         isNotBlank(gatewayAccountId)
                                 ? SEARCH_CLAUSE_TRANSACTION_WITH_PAYOUT : "");
-        return jdbi.withHandle(handle ->
+        return primaryReadJdbi.withHandle(handle ->
                 handle.createQuery(query)
                         .bind("parentExternalId", parentExternalId)
                         .bind("gatewayAccountId", gatewayAccountId)
@@ -271,11 +372,19 @@ public class TransactionDao {
     }
 
     public List<TransactionEntity> searchTransactions(TransactionSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
-            Query query = handle.createQuery(createSearchTemplate(searchParams, SEARCH_TRANSACTIONS));
+        boolean searchByAccount = isMultiAccountSearch(searchParams);
+        String searchTemplate = searchByAccount
+                ? createSearchByAccountTemplate(searchParams, "")
+                : createSearchTemplate(searchParams, SEARCH_TRANSACTIONS);
+
+        return readOnlyJdbi.withHandle(handle -> {
+            Query query = handle.createQuery(searchTemplate);
             searchParams.getQueryMap().forEach(bindSearchParameter(query));
             query.bind("offset", searchParams.getOffset());
             query.bind("limit", searchParams.getDisplaySize());
+            if (searchByAccount) {
+                query.bind("accountLimit", searchParams.getOffset() + searchParams.getDisplaySize());
+            }
             return query
                     .map(new TransactionMapper())
                     .list();
@@ -283,7 +392,7 @@ public class TransactionDao {
     }
 
     public Long getTotalForSearch(TransactionSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
+        return readOnlyJdbi.withHandle(handle -> {
             Query query = handle.createQuery(createSearchTemplate(searchParams,
                     (isNotBlank(searchParams.getFromSettledDate()) || isNotBlank(searchParams.getToSettledDate())) ?
                             COUNT_TRANSACTIONS_WITH_PAIDOUT_DATE : COUNT_TRANSACTIONS));
@@ -295,7 +404,7 @@ public class TransactionDao {
     }
 
     public Long getTotalWithLimitForSearch(TransactionSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
+        return readOnlyJdbi.withHandle(handle -> {
             Query query = handle.createQuery(createSearchTemplate(searchParams,
                     (isNotBlank(searchParams.getFromSettledDate()) || isNotBlank(searchParams.getToSettledDate())) ?
                             COUNT_TRANSACTIONS_WITH_LIMIT_AND_PAIDOUT_DATE : COUNT_TRANSACTIONS_WITH_LIMIT));
@@ -310,47 +419,84 @@ public class TransactionDao {
 
     public List<TransactionEntity> cursorTransactionSearch(TransactionSearchParams searchParams, ZonedDateTime startingAfterCreatedDate, Long startingAfterId) {
         Long cursorPageSize = searchParams.getDisplaySize();
-        String cursorTemplate = "";
-        String searchTemplate = createSearchTemplate(searchParams, SEARCH_TRANSACTIONS_CURSOR);
-
-        if (startingAfterCreatedDate != null && startingAfterId != null) {
-            cursorTemplate = searchParams.getQueryMap().isEmpty() ? "WHERE " : "AND ";
-            cursorTemplate += "t.created_date <= :startingAfterCreatedDate AND NOT (t.created_date = :startingAfterCreatedDate AND t.id >= :startingAfterId) ";
+        boolean hasCursor = startingAfterCreatedDate != null && startingAfterId != null;
+        boolean searchByAccount = isMultiAccountSearch(searchParams);
+        String searchTemplate;
+
+        if (searchByAccount) {
+            searchTemplate = createSearchByAccountTemplate(searchParams, hasCursor ? "AND " + CURSOR_CLAUSE : "");
+        } else {
+            String cursorTemplate = "";
+            if (hasCursor) {
+                cursorTemplate = searchParams.getQueryMap().isEmpty() ? "WHERE " : "AND ";
+                cursorTemplate += CURSOR_CLAUSE;
+            }
+            searchTemplate = createSearchTemplate(searchParams, SEARCH_TRANSACTIONS_CURSOR, cursorTemplate);
         }
 
-        searchTemplate = searchTemplate.replace(":cursorFields", cursorTemplate);
-
-        String finalSearchTemplate = searchTemplate;
-        return jdbi.withHandle(handle -> {
-            Query query = handle.createQuery(finalSearchTemplate);
+        return exportJdbi.withHandle(handle -> {
+            Query query = handle.createQuery(searchTemplate);
             searchParams.getQueryMap().forEach(bindSearchParameter(query));
             query.bind("startingAfterCreatedDate", startingAfterCreatedDate);
             query.bind("startingAfterId", startingAfterId);
             query.bind("limit", cursorPageSize);
+            if (searchByAccount) {
+                query.bind("offset", 0);
+                query.bind("accountLimit", cursorPageSize);
+            }
 
             return query.map(new TransactionMapper()).list();
         });
     }
 
+    private boolean isMultiAccountSearch(TransactionSearchParams searchParams) {
+        // settled date filters reference the payout join, so can't be applied inside the per account scans
+        return searchParams.getAccountIds() != null
+                && searchParams.getAccountIds().size() > 1
+                && !searchParams.hasSettledDateFilter();
+    }
+
+    private String createSearchByAccountTemplate(TransactionSearchParams searchParams, String cursorTemplate) {
+        List<String> filterTemplates = searchParams.getFilterTemplatesExcludingAccountIds();
+
+        return searchTemplateCache.get(List.of(SEARCH_TRANSACTIONS_BY_ACCOUNT, filterTemplates, cursorTemplate), () -> {
+            String searchClauseTemplate = filterTemplates
+                    .stream()
+                    .map(filter -> "AND " + filter)
+                    .collect(Collectors.joining(" "));
+
+            return SEARCH_TRANSACTIONS_BY_ACCOUNT
+                    .replace(":payoutJoinOnGatewayIdField", SEARCH_CLAUSE_TRANSACTIONS_WITH_PAYOUT)
+                    .replace(":searchExtraFields", searchClauseTemplate)
+                    .replace(":cursorFields", cursorTemplate);
+        });
+    }
+
     private String createSearchTemplate(TransactionSearchParams searchParams, String baseQueryString) {
-        String searchClauseTemplate = String.join(" AND ", searchParams.getFilterTemplates());
-        searchClauseTemplate = StringUtils.isNotBlank(searchClauseTemplate) ?
-                "WHERE " + searchClauseTemplate :
-                "";
-        baseQueryString = baseQueryString
-                .replace(":payoutJoinOnGatewayIdField",
-                        (searchParams.getAccountIds() != null && !searchParams.getAccountIds().isEmpty())
-                        ? SEARCH_CLAUSE_TRANSACTIONS_WITH_PAYOUT : "");
+        return createSearchTemplate(searchParams, baseQueryString, "");
+    }
+
+    private String createSearchTemplate(TransactionSearchParams searchParams, String baseQueryString, String cursorTemplate) {
+        List<String> filterTemplates = searchParams.getFilterTemplates();
+        boolean hasAccountIds = searchParams.getAccountIds() != null && !searchParams.getAccountIds().isEmpty();
 
-        return baseQueryString.replace(
-                ":searchExtraFields",
-                searchClauseTemplate);
+        return searchTemplateCache.get(List.of(baseQueryString, filterTemplates, hasAccountIds, cursorTemplate), () -> {
+            String searchClauseTemplate = String.join(" AND ", filterTemplates);
+            searchClauseTemplate = StringUtils.isNotBlank(searchClauseTemplate) ?
+                    "WHERE " + searchClauseTemplate :
+                    "";
+
+            return baseQueryString
+                    .replace(":payoutJoinOnGatewayIdField", hasAccountIds ? SEARCH_CLAUSE_TRANSACTIONS_WITH_PAYOUT : "")
+                    .replace(":searchExtraFields", searchClauseTemplate)
+                    .replace(":cursorFields", cursorTemplate);
+        });
     }
 
     private BiConsumer<String, Object> bindSearchParameter(Query query) {
         return (searchKey, searchValue) -> {
             if (searchValue instanceof List<?>) {
-                query.bindList(searchKey, ((List<?>) searchValue));
+                query.bindArray(searchKey, String.class, (List<?>) searchValue);
             } else {
                 query.bind(searchKey, searchValue);
             }
@@ -364,6 +510,25 @@ public class TransactionDao {
                         .execute());
     }
 
+    public void upsertBatch(List<TransactionEntity> transactions) {
+        jdbi.useTransaction(handle -> {
+            PreparedBatch batch = handle.prepareBatch(UPSERT_STRING);
+            transactions.forEach(transaction -> batch.bindBean(transaction).add());
+            batch.execute();
+        });
+    }
+
+    /**
+     * @return the number of refunds updated
+     */
+    public int updateRefundsWithPaymentDetails(TransactionEntity payment, String paymentDetails) {
+        return jdbi.withHandle(handle ->
+                handle.createUpdate(UPDATE_REFUNDS_WITH_PAYMENT_DETAILS)
+                        .bindBean(payment)
+                        .bind("paymentDetails", paymentDetails)
+                        .execute());
+    }
+
     public List<String> getSourceTypeValues() {
         return jdbi.withHandle(handle -> handle.createQuery(GET_SOURCE_TYPE_ENUM_VALUES)
                 .mapTo(String.class)
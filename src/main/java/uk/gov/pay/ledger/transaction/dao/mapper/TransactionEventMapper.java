@@ -0,0 +1,43 @@
+package uk.gov.pay.ledger.transaction.dao.mapper;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.transaction.model.TransactionEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public class TransactionEventMapper implements RowMapper<TransactionEvent> {
+
+    private final int statusVersion;
+
+    public TransactionEventMapper(int statusVersion) {
+        this.statusVersion = statusVersion;
+    }
+
+    /**
+     * Rows for a matching transaction that has no events (event columns are null as a result of the outer join) map
+     * to null so that callers can still tell a transaction without events apart from no transaction at all.
+     */
+    @Override
+    public TransactionEvent map(ResultSet rs, StatementContext ctx) throws SQLException {
+        if (rs.getString("event_type") == null) {
+            return null;
+        }
+
+        long amount = rs.getLong("amount");
+        Long nullableAmount = rs.wasNull() ? null : amount;
+
+        return TransactionEvent.from(
+                rs.getString("external_id"),
+                nullableAmount,
+                ResourceType.valueOf(rs.getString("resource_type_name").toUpperCase()),
+                rs.getString("event_type"),
+                ZonedDateTime.ofInstant(rs.getTimestamp("event_date").toInstant(), ZoneOffset.UTC),
+                rs.getString("event_data"),
+                statusVersion);
+    }
+}
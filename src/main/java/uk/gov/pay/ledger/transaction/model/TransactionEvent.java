@@ -1,30 +1,21 @@
 package uk.gov.pay.ledger.transaction.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import uk.gov.pay.commons.api.json.ApiResponseDateTimeSerializer;
-import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.ResourceType;
 import uk.gov.pay.ledger.event.model.SalientEventType;
-import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.state.ExternalTransactionState;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 
-import java.io.IOException;
 import java.time.ZonedDateTime;
-import java.util.Map;
 
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class TransactionEvent {
 
-    private static Logger logger = LoggerFactory.getLogger(TransactionFactory.class);
-
     @JsonIgnore
     private final String externalId;
     private final Long amount;
@@ -33,7 +24,8 @@ public class TransactionEvent {
     private final String eventType;
     @JsonSerialize(using = ApiResponseDateTimeSerializer.class)
     private final ZonedDateTime timestamp;
-    private final Map<String, Object> data;
+    @JsonRawValue
+    private final String data;
 
     private TransactionEvent(TransactionEventBuilder builder) {
         this.externalId = builder.externalId;
@@ -45,28 +37,26 @@ public class TransactionEvent {
         this.data = builder.data;
     }
 
-    public static TransactionEvent from(TransactionEntity transactionEntity, Event event, ObjectMapper objectMapper, int statusVersion) {
-        try {
-            ExternalTransactionState state = SalientEventType.from(event.getEventType())
-                    .map(TransactionState::fromEventType)
-                    .map(s -> ExternalTransactionState.from(s, statusVersion))
-                    .orElse(null);
-
-            return TransactionEventBuilder.aTransactionEvent()
-                    .withExternalId(transactionEntity.getExternalId())
-                    .withAmount(transactionEntity.getAmount())
-                    .withState(state)
-                    .withResourceType(event.getResourceType())
-                    .withEventType(event.getEventType())
-                    .withTimestamp(event.getEventDate())
-                    .withData(objectMapper.readValue(event.getEventData(), new TypeReference<>() {
-                    })).build();
-        } catch (IOException e) {
-            logger.error("Error parsing transaction event data [Transaction external ID - {}] [errorMessage={}]",
-                    transactionEntity.getExternalId(),
-                    e.getMessage());
-        }
-        return null;
+    /**
+     * Event data is taken as the raw JSON string stored against the event and written straight back out on
+     * serialisation, avoiding decoding it into a map only to encode it again for the response.
+     */
+    public static TransactionEvent from(String externalId, Long amount, ResourceType resourceType, String eventType,
+                                        ZonedDateTime timestamp, String eventData, int statusVersion) {
+        ExternalTransactionState state = SalientEventType.from(eventType)
+                .map(TransactionState::fromEventType)
+                .map(s -> ExternalTransactionState.from(s, statusVersion))
+                .orElse(null);
+
+        return TransactionEventBuilder.aTransactionEvent()
+                .withExternalId(externalId)
+                .withAmount(amount)
+                .withState(state)
+                .withResourceType(resourceType)
+                .withEventType(eventType)
+                .withTimestamp(timestamp)
+                .withData(eventData)
+                .build();
     }
 
     public String getExternalId() {
@@ -93,7 +83,7 @@ public class TransactionEvent {
         return timestamp;
     }
 
-    public Map<String, Object> getData() {
+    public String getData() {
         return data;
     }
 
@@ -104,7 +94,7 @@ public class TransactionEvent {
         private ResourceType resourceType;
         private String eventType;
         private ZonedDateTime timestamp;
-        private Map<String, Object> data;
+        private String data;
 
         private TransactionEventBuilder() {
         }
@@ -143,7 +133,7 @@ public class TransactionEvent {
             return this;
         }
 
-        TransactionEventBuilder withData(Map<String, Object> data) {
+        TransactionEventBuilder withData(String data) {
             this.data = data;
             return this;
         }
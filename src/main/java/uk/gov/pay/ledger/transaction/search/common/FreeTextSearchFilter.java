@@ -0,0 +1,88 @@
+package uk.gov.pay.ledger.transaction.search.common;
+
+/**
+ * Builds the filter for a free text search field (email, reference, cardholder name) so that it can always be served
+ * by the lower(column) GIN trigram index on that field.
+ *
+ * pg_trgm can only use the index for a LIKE pattern if it can extract trigrams from it, so the match type is picked
+ * from the length of the search term:
+ * - three or more characters use a substring match ('%term%')
+ * - two characters use a prefix match ('term%'), which is padded into usable trigrams at the start of the string
+ * - a single character is matched exactly
+ *
+ * Wildcards typed by the user are escaped so they are matched literally rather than widening the pattern.
+ */
+public class FreeTextSearchFilter {
+
+    static final int MIN_SUBSTRING_MATCH_LENGTH = 3;
+    static final int MIN_PREFIX_MATCH_LENGTH = 2;
+
+    public enum MatchType {
+        EXACT,
+        PREFIX,
+        SUBSTRING
+    }
+
+    private final String column;
+    private final String field;
+    private final String searchTerm;
+    private final MatchType matchType;
+
+    private FreeTextSearchFilter(String column, String field, String searchTerm, MatchType matchType) {
+        this.column = column;
+        this.field = field;
+        this.searchTerm = searchTerm;
+        this.matchType = matchType;
+    }
+
+    public static FreeTextSearchFilter of(String column, String field, String searchTerm) {
+        return of(column, field, searchTerm, false);
+    }
+
+    public static FreeTextSearchFilter of(String column, String field, String searchTerm, boolean exactMatch) {
+        return new FreeTextSearchFilter(column, field, searchTerm, matchTypeFor(searchTerm, exactMatch));
+    }
+
+    private static MatchType matchTypeFor(String searchTerm, boolean exactMatch) {
+        if (exactMatch || searchTerm.length() < MIN_PREFIX_MATCH_LENGTH) {
+            return MatchType.EXACT;
+        }
+        if (searchTerm.length() < MIN_SUBSTRING_MATCH_LENGTH) {
+            return MatchType.PREFIX;
+        }
+        return MatchType.SUBSTRING;
+    }
+
+    public static boolean containsOnlyWildcards(String searchTerm) {
+        return !searchTerm.isBlank() && searchTerm.chars().allMatch(c -> c == '%' || c == '_' || c == '*');
+    }
+
+    public MatchType getMatchType() {
+        return matchType;
+    }
+
+    public String getFilterTemplate() {
+        if (matchType == MatchType.EXACT) {
+            return " lower(" + column + ") = lower(:" + field + ")";
+        }
+        return " lower(" + column + ") LIKE lower(:" + field + ")";
+    }
+
+    public String getBindValue() {
+        switch (matchType) {
+            case PREFIX:
+                return escapeLikeWildcards(searchTerm) + "%";
+            case SUBSTRING:
+                return "%" + escapeLikeWildcards(searchTerm) + "%";
+            default:
+                return searchTerm;
+        }
+    }
+
+    private static String escapeLikeWildcards(String searchTerm) {
+        return searchTerm
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
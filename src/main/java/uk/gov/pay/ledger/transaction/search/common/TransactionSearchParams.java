@@ -195,23 +195,33 @@ public class TransactionSearchParams extends SearchParams {
     public List<String> getFilterTemplates() {
         List<String> filters = new ArrayList<>();
 
+        if (accountIds != null && !accountIds.isEmpty()) {
+            filters.add(" t.gateway_account_id = ANY(:" + GATEWAY_ACCOUNT_EXTERNAL_FIELD + ")");
+        }
+        filters.addAll(getFilterTemplatesExcludingAccountIds());
+
+        return List.copyOf(filters);
+    }
+
+    /**
+     * Filters other than the gateway account ids, for queries that scope each account separately
+     */
+    public List<String> getFilterTemplatesExcludingAccountIds() {
+        List<String> filters = new ArrayList<>();
+
         addCommonFilterTemplates(filters);
 
         if (isNotBlank(email)) {
-            filters.add(" lower(t.email) LIKE lower(:" + EMAIL_FIELD + ")");
+            filters.add(emailFilter().getFilterTemplate());
         }
         if (isNotBlank(reference)) {
-            if (exactReferenceMatch) {
-                filters.add(" lower(t.reference) = lower(:" + REFERENCE_FIELD + ")");
-            } else {
-                filters.add(" lower(t.reference) LIKE lower(:" + REFERENCE_FIELD + ")");
-            }
+            filters.add(referenceFilter().getFilterTemplate());
         }
         if (isNotBlank(cardHolderName)) {
-            filters.add(" lower(t.cardholder_name) LIKE lower(:" + CARDHOLDER_NAME_FIELD + ")");
+            filters.add(cardHolderNameFilter().getFilterTemplate());
         }
         if (cardBrands != null && cardBrands.isNotEmpty()) {
-            filters.add(" t.card_brand IN (<" + CARD_BRAND_FIELD + ">)");
+            filters.add(" t.card_brand = ANY(:" + CARD_BRAND_FIELD + ")");
         }
         if (isNotBlank(lastDigitsCardNumber)) {
             filters.add(" t.last_digits_card_number = :" + LAST_DIGITS_CARD_NUMBER_FIELD);
@@ -231,9 +241,6 @@ public class TransactionSearchParams extends SearchParams {
 
     private void addCommonFilterTemplates(List<String> filters) {
 
-        if (accountIds != null && !accountIds.isEmpty()) {
-            filters.add(" t.gateway_account_id IN (<" + GATEWAY_ACCOUNT_EXTERNAL_FIELD + ">)");
-        }
         if (transactionType != null) {
             filters.add(" t.type = :" + TRANSACTION_TYPE_FIELD + "::transaction_type");
         }
@@ -247,7 +254,7 @@ public class TransactionSearchParams extends SearchParams {
             filters.add(createStateFilter());
         }
         if (isNotBlank(state)) {
-            filters.add(" t.state IN (<" + STATE_FIELD + ">)");
+            filters.add(" t.state = ANY(:" + STATE_FIELD + ")");
         }
         if (isNotBlank(firstDigitsCardNumber)) {
             filters.add(" t.first_digits_card_number = :" + FIRST_DIGITS_CARD_NUMBER_FIELD);
@@ -266,17 +273,13 @@ public class TransactionSearchParams extends SearchParams {
             }
 
             if (isNotBlank(email)) {
-                queryMap.put(EMAIL_FIELD, likeClause(email));
+                queryMap.put(EMAIL_FIELD, emailFilter().getBindValue());
             }
             if (isNotBlank(reference)) {
-                if (exactReferenceMatch) {
-                    queryMap.put(REFERENCE_FIELD, reference);
-                } else {
-                    queryMap.put(REFERENCE_FIELD, likeClause(reference));
-                }
+                queryMap.put(REFERENCE_FIELD, referenceFilter().getBindValue());
             }
             if (isNotBlank(cardHolderName)) {
-                queryMap.put(CARDHOLDER_NAME_FIELD, likeClause(cardHolderName));
+                queryMap.put(CARDHOLDER_NAME_FIELD, cardHolderNameFilter().getBindValue());
             }
             if (isNotBlank(fromDate)) {
                 queryMap.put(FROM_DATE_FIELD, ZonedDateTime.parse(fromDate));
@@ -360,6 +363,18 @@ public class TransactionSearchParams extends SearchParams {
         return this.limitTotalSize;
     }
 
+    public String getEmail() {
+        return email;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    public String getCardHolderName() {
+        return cardHolderName;
+    }
+
     public String getFromDate() {
         return fromDate;
     }
@@ -384,6 +399,10 @@ public class TransactionSearchParams extends SearchParams {
         return toSettledDate;
     }
 
+    public boolean hasSettledDateFilter() {
+        return isNotBlank(fromSettledDate) || isNotBlank(toSettledDate);
+    }
+
     @Override
     public String buildQueryParamString(Long forPage) {
         List<String> queries = new ArrayList<>();
@@ -467,11 +486,11 @@ public class TransactionSearchParams extends SearchParams {
         String refundStateFilter = null;
         if (isSet(paymentStates)) {
             paymentStateFilter =
-                    " (t.state IN (<" + PAYMENT_STATES_FIELD + ">) AND t.type =  'PAYMENT'::transaction_type)";
+                    " (t.state = ANY(:" + PAYMENT_STATES_FIELD + ") AND t.type =  'PAYMENT'::transaction_type)";
         }
         if (isSet(refundStates)) {
             refundStateFilter =
-                    " (t.state IN (<" + REFUND_STATES_FIELD + ">) AND t.type =  'REFUND'::transaction_type)";
+                    " (t.state = ANY(:" + REFUND_STATES_FIELD + ") AND t.type =  'REFUND'::transaction_type)";
         }
 
         return "(" + List.of(
@@ -481,8 +500,16 @@ public class TransactionSearchParams extends SearchParams {
                 .collect(Collectors.joining(" OR ")) + ")";
     }
 
-    private String likeClause(String rawUserInputText) {
-        return "%" + rawUserInputText + "%";
+    private FreeTextSearchFilter emailFilter() {
+        return FreeTextSearchFilter.of("t.email", EMAIL_FIELD, email);
+    }
+
+    private FreeTextSearchFilter referenceFilter() {
+        return FreeTextSearchFilter.of("t.reference", REFERENCE_FIELD, reference, exactReferenceMatch);
+    }
+
+    private FreeTextSearchFilter cardHolderNameFilter() {
+        return FreeTextSearchFilter.of("t.cardholder_name", CARDHOLDER_NAME_FIELD, cardHolderName);
     }
 
     public void setExactReferenceMatch(boolean exactReferenceMatch) {
@@ -15,13 +15,18 @@ public class TransactionSearchParamsValidator {
     private static final String TO_DATE_FIELD = "to_date";
     private static final String FROM_SETTLED_DATE_FIELD = "from_settled_date";
     private static final String TO_SETTLED_DATE_FIELD = "to_settled_date";
+    private static final String EMAIL_FIELD = "email";
+    private static final String REFERENCE_FIELD = "reference";
+    private static final String CARDHOLDER_NAME_FIELD = "cardholder_name";
 
     public static void validateSearchParams(TransactionSearchParams searchParams, CommaDelimitedSetParameter gatewayAccountIds) {
         validateDates(searchParams);
+        validateFreeTextSearchTerms(searchParams);
     }
 
     public static void validateSearchParamsForCsv(TransactionSearchParams searchParams, CommaDelimitedSetParameter gatewayAccountIds) {
         validateDates(searchParams);
+        validateFreeTextSearchTerms(searchParams);
 
         if (isEmpty(gatewayAccountIds)) {
             throw new ValidationException("gateway_account_id is mandatory to search transactions for CSV");
@@ -47,6 +52,18 @@ public class TransactionSearchParamsValidator {
         }
     }
 
+    private static void validateFreeTextSearchTerms(TransactionSearchParams searchParams) {
+        validateFreeTextSearchTerm(EMAIL_FIELD, searchParams.getEmail());
+        validateFreeTextSearchTerm(REFERENCE_FIELD, searchParams.getReference());
+        validateFreeTextSearchTerm(CARDHOLDER_NAME_FIELD, searchParams.getCardHolderName());
+    }
+
+    private static void validateFreeTextSearchTerm(String fieldName, String searchTerm) {
+        if (isNotBlank(searchTerm) && FreeTextSearchFilter.containsOnlyWildcards(searchTerm)) {
+            throw new ValidationException(String.format("Search term for [%s] must contain at least one character that is not a wildcard", fieldName));
+        }
+    }
+
     private static void validateDate(String fieldName, String dateToParse) {
         try {
             ZonedDateTime.parse(dateToParse);
@@ -1,13 +1,12 @@
 package uk.gov.pay.ledger.transaction.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import uk.gov.pay.ledger.event.dao.EventDao;
-import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.app.UnitOfWork;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.report.service.ReportResultCache;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.model.CsvTransactionFactory;
@@ -20,21 +19,22 @@ import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.model.TransactionsForTransactionResponse;
 import uk.gov.pay.ledger.transaction.search.common.TransactionSearchParams;
 import uk.gov.pay.ledger.transaction.search.model.TransactionView;
+import uk.gov.pay.ledger.util.JsonParser;
 import uk.gov.pay.ledger.util.pagination.PaginationBuilder;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.time.ZonedDateTime;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
-import static java.util.stream.Collectors.groupingBy;
 import static uk.gov.pay.ledger.transaction.model.TransactionType.PAYMENT;
 
 public class TransactionService {
@@ -42,22 +42,22 @@ public class TransactionService {
     public static final int DEFAULT_STATUS_VERSION = 2;
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionService.class);
     private final TransactionDao transactionDao;
-    private final EventDao eventDao;
     private TransactionEntityFactory transactionEntityFactory;
     private TransactionFactory transactionFactory;
     private CsvTransactionFactory csvTransactionFactory;
-    private ObjectMapper objectMapper;
+    private ReportResultCache reportResultCache;
+    private UnitOfWork unitOfWork;
 
     @Inject
-    public TransactionService(TransactionDao transactionDao, EventDao eventDao, TransactionEntityFactory transactionEntityFactory,
+    public TransactionService(TransactionDao transactionDao, TransactionEntityFactory transactionEntityFactory,
                               TransactionFactory transactionFactory, CsvTransactionFactory csvTransactionFactory,
-                              ObjectMapper objectMapper) {
+                              ReportResultCache reportResultCache, UnitOfWork unitOfWork) {
         this.transactionDao = transactionDao;
-        this.eventDao = eventDao;
         this.transactionEntityFactory = transactionEntityFactory;
         this.transactionFactory = transactionFactory;
         this.csvTransactionFactory = csvTransactionFactory;
-        this.objectMapper = objectMapper;
+        this.reportResultCache = reportResultCache;
+        this.unitOfWork = unitOfWork;
     }
 
     public Optional<TransactionView> getTransactionForGatewayAccount(String gatewayAccountId, String transactionExternalId,
@@ -68,7 +68,7 @@ public class TransactionService {
     }
 
     public Optional<TransactionView> getTransaction(String transactionExternalId, int statusVersion) {
-        return transactionDao.findTransactionByExternalId(transactionExternalId)
+        return transactionDao.findTransactionByExternalIdAndGatewayAccountId(transactionExternalId, null)
                 .map(entity -> TransactionView.from(transactionFactory.createTransactionEntity(entity), statusVersion));
     }
 
@@ -149,22 +149,26 @@ public class TransactionService {
 
     public void upsertTransactionFor(EventDigest eventDigest) {
         TransactionEntity transaction = transactionEntityFactory.create(eventDigest);
-        transactionDao.upsert(transaction);
+        upsertTransaction(transaction);
     }
 
     public void upsertTransaction(TransactionEntity transaction) {
         transactionDao.upsert(transaction);
+        // a report run before the commit would still see the old row and could be cached again
+        unitOfWork.afterCommit(() ->
+                reportResultCache.invalidate(transaction.getGatewayAccountId(), transaction.getCreatedDate()));
+    }
+
+    public int updateRefundsWithPaymentDetails(TransactionEntity payment, Map<String, Object> paymentDetails) {
+        return transactionDao.updateRefundsWithPaymentDetails(payment, JsonParser.mapToJsonString(paymentDetails));
     }
 
     public TransactionEventResponse findTransactionEvents(String externalId, String gatewayAccountId,
                                                           boolean includeAllEvents, int statusVersion) {
-        Map<String, TransactionEntity> transactionEntityMap = getTransactionsAsMap(externalId, gatewayAccountId);
-
-        if (transactionEntityMap.isEmpty()) {
-            throw new WebApplicationException(format("Transaction with id [%s] not found", externalId), Response.Status.NOT_FOUND);
-        }
-
-        List<TransactionEvent> transactionEvents = getTransactionEventsFor(transactionEntityMap, statusVersion);
+        List<TransactionEvent> transactionEvents = transactionDao
+                .findTransactionEventsByExternalOrParentIdAndGatewayAccountId(externalId, gatewayAccountId, statusVersion)
+                .orElseThrow(() -> new WebApplicationException(format("Transaction with id [%s] not found", externalId),
+                        Response.Status.NOT_FOUND));
 
         if (includeAllEvents) {
             return TransactionEventResponse.of(externalId, transactionEvents);
@@ -190,38 +194,19 @@ public class TransactionService {
         return transactionDao.findTransactionByParentId(parentExternalId);
     }
 
-    private Map<String, TransactionEntity> getTransactionsAsMap(String externalId, String gatewayAccountId) {
-        return transactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(
-                externalId, gatewayAccountId)
-                .stream()
-                .collect(Collectors.toMap(TransactionEntity::getExternalId,
-                        transactionEntity -> transactionEntity));
-    }
-
-    private List<TransactionEvent> getTransactionEventsFor(Map<String, TransactionEntity> transactionEntityMap, int statusVersion) {
-        List<Event> events = eventDao.findEventsForExternalIds(transactionEntityMap.keySet());
-        return mapToTransactionEvent(transactionEntityMap, events, statusVersion);
-    }
-
-    private List<TransactionEvent> mapToTransactionEvent(Map<String, TransactionEntity> transactionEntityMap, List<Event> eventList, int statusVersion) {
-        return eventList.stream()
-                .map(event -> TransactionEvent.from(transactionEntityMap.get(event.getResourceExternalId()), event, objectMapper, statusVersion))
-                .collect(Collectors.toList());
-    }
-
     private List<TransactionEvent> removeDuplicates(List<TransactionEvent> transactionEvents) {
         // removes 1. events without mapping to transaction state
         // 2. duplicate events based on external_id,resource_type & state (gets the first created event based on event date)
-        Collection<Optional<TransactionEvent>> values = transactionEvents.stream()
-                .filter(transactionEvent -> transactionEvent.getState() != null)
-                .collect(groupingBy(transactionEvent -> transactionEvent.getExternalId() + transactionEvent.getResourceType() + transactionEvent.getState(),
-                        Collectors.minBy(Comparator.comparing(TransactionEvent::getTimestamp))))
-                .values();
-
-        return values.stream().filter(Optional::isPresent)
-                .map(Optional::get)
-                .sorted(Comparator.comparing(TransactionEvent::getTimestamp))
-                .collect(Collectors.toList());
+        // events are ordered by event date, so the first event seen for a key is the earliest one
+        Map<List<String>, TransactionEvent> firstEventsByKey = new LinkedHashMap<>();
+        for (TransactionEvent transactionEvent : transactionEvents) {
+            if (transactionEvent.getState() != null) {
+                List<String> key = List.of(transactionEvent.getExternalId(), transactionEvent.getResourceType(),
+                        transactionEvent.getState().name());
+                firstEventsByKey.putIfAbsent(key, transactionEvent);
+            }
+        }
+        return new ArrayList<>(firstEventsByKey.values());
     }
 
     private TransactionsForTransactionResponse findTransactionsForParentExternalId(String parentTransactionExternalId, String gatewayAccountId) {
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
+import java.util.Objects;
+
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ExternalTransactionState {
@@ -42,6 +44,22 @@ public class ExternalTransactionState {
         return message;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExternalTransactionState that = (ExternalTransactionState) o;
+        return finished == that.finished &&
+                Objects.equals(value, that.value) &&
+                Objects.equals(code, that.code) &&
+                Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, finished, code, message);
+    }
+
     @Override
     public String toString() {
         return "ExternalTransactionState{" +
@@ -26,10 +26,17 @@ public class TransactionMetadataDao {
             "      and transaction_id = :transactionId)";
 
     private final Jdbi jdbi;
+    // used for looking up the metadata columns of CSV exports, which can be served by the read replica
+    private final Jdbi readOnlyJdbi;
 
-    @Inject
     public TransactionMetadataDao(Jdbi jdbi) {
+        this(jdbi, jdbi);
+    }
+
+    @Inject
+    public TransactionMetadataDao(Jdbi jdbi, Jdbi readOnlyJdbi) {
         this.jdbi = jdbi;
+        this.readOnlyJdbi = readOnlyJdbi;
     }
 
     public void insertIfNotExist(Long transactionId,
@@ -43,7 +50,7 @@ public class TransactionMetadataDao {
     }
 
     public List<String> findMetadataKeysForTransactions(TransactionSearchParams searchParams) {
-        return jdbi.withHandle(handle -> {
+        return readOnlyJdbi.withHandle(handle -> {
 
             String searchClauseTemplate = String.join(" AND ", searchParams.getFilterTemplates());
 
@@ -64,7 +71,7 @@ public class TransactionMetadataDao {
     private BiConsumer<String, Object> bindSearchParameter(Query query) {
         return (searchKey, searchValue) -> {
             if (searchValue instanceof List<?>) {
-                query.bindList(searchKey, ((List<?>) searchValue));
+                query.bindArray(searchKey, String.class, (List<?>) searchValue);
             } else {
                 query.bind(searchKey, searchValue);
             }
@@ -53,4 +53,12 @@ public class JsonParser {
             throw new RuntimeException("Error converting event Json to Map");
         }
     }
+
+    public static String mapToJsonString(Map<String, Object> map) {
+        try {
+            return objectMapper.writeValueAsString(map);
+        } catch (IOException e) {
+            throw new RuntimeException("Error converting Map to Json");
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package uk.gov.pay.ledger.util;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the SQL built for dynamic search queries, keyed by the query and the filter templates that are active.
+ *
+ * Filter templates only depend on which filters are set (list filters bind as a single array parameter), so each
+ * combination of filters always produces the same SQL string. Reusing that string lets JDBI reuse its parsed
+ * statement and lets the Postgres driver reuse a server side prepared statement, and its plan, for every search
+ * with the same filters.
+ *
+ * Metrics (prefixed with the cache name):
+ * - template-cache.hits / template-cache.misses: lookups served from the cache or that built a new template
+ * - template-cache.size: number of distinct statement shapes issued
+ */
+public class SearchTemplateCache {
+
+    static final int MAX_TEMPLATES = 1000;
+
+    private final ConcurrentMap<List<Object>, String> templates = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SearchTemplateCache(String name, MetricRegistry metricRegistry) {
+        this.hits = metricRegistry.counter(MetricRegistry.name(name, "template-cache", "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(name, "template-cache", "misses"));
+        metricRegistry.gauge(MetricRegistry.name(name, "template-cache", "size"), () -> (Gauge<Integer>) templates::size);
+    }
+
+    /**
+     * @param key identifies the base query and every input the template is built from, e.g. its filter templates
+     */
+    public String get(List<Object> key, Supplier<String> templateBuilder) {
+        String template = templates.get(key);
+        if (template != null) {
+            hits.inc();
+            return template;
+        }
+
+        misses.inc();
+        template = templateBuilder.get();
+        // the number of filter combinations is bounded, this only guards against an unexpected source of keys
+        if (templates.size() < MAX_TEMPLATES) {
+            templates.putIfAbsent(key, template);
+        }
+        return template;
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.pay.ledger.util;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run each task on a new virtual thread, on a JDK that has them (21 and later).
+ *
+ * The app is built for Java 11, so the virtual thread API is looked up reflectively and callers fall back to
+ * platform threads when it isn't there. Virtual threads make blocking cheap, not the database, so work that uses a
+ * connection is still limited by the bulkhead for its workload.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return threadFactory("probe-").isPresent();
+    }
+
+    /**
+     * @param namePrefix threads are named with this prefix followed by a counter
+     * @return an executor starting a new virtual thread for each task, or empty if the JDK has no virtual threads
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+        return threadFactory(namePrefix).map(VirtualThreads::newThreadPerTaskExecutor);
+    }
+
+    private static Optional<ThreadFactory> threadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are available without a thread per task executor", e);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:compound_index_transaction_gateway_account_id_created_date_id runInTransaction:false
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS transaction_gateway_account_id_created_date_id_idx ON transaction USING btree(gateway_account_id, created_date DESC, id DESC);
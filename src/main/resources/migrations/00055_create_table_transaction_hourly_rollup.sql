@@ -0,0 +1,287 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_transaction_hourly_rollup
+CREATE TABLE transaction_hourly_rollup (
+    hour TIMESTAMP WITH TIME ZONE NOT NULL,
+    gateway_account_id VARCHAR(255) NOT NULL,
+    type VARCHAR(26) NOT NULL,
+    state TEXT NOT NULL,
+    live BOOLEAN NOT NULL,
+    moto BOOLEAN NOT NULL,
+    count BIGINT NOT NULL,
+    amount BIGINT NOT NULL,
+    net_amount BIGINT NOT NULL,
+    total_amount BIGINT NOT NULL,
+    fee BIGINT NOT NULL,
+    gross_amount BIGINT NOT NULL,
+    amount_count BIGINT NOT NULL,
+    min_amount BIGINT,
+    max_amount BIGINT,
+    PRIMARY KEY (hour, gateway_account_id, type, state, live, moto)
+);
+--rollback drop table transaction_hourly_rollup;
+
+--changeset uk.gov.pay:create_table_transaction_hourly_rollup_delta
+-- changes to transactions are appended here and folded into transaction_hourly_rollup in the background, so writes to
+-- transaction never wait on each other to update the same rollup row
+CREATE TABLE transaction_hourly_rollup_delta (
+    id BIGSERIAL PRIMARY KEY,
+    hour TIMESTAMP WITH TIME ZONE NOT NULL,
+    gateway_account_id VARCHAR(255) NOT NULL,
+    type VARCHAR(26) NOT NULL,
+    state TEXT NOT NULL,
+    live BOOLEAN NOT NULL,
+    moto BOOLEAN NOT NULL,
+    count BIGINT NOT NULL,
+    amount BIGINT NOT NULL,
+    net_amount BIGINT NOT NULL,
+    total_amount BIGINT NOT NULL,
+    fee BIGINT NOT NULL,
+    gross_amount BIGINT NOT NULL,
+    amount_count BIGINT NOT NULL,
+    min_amount BIGINT,
+    max_amount BIGINT
+);
+--rollback drop table transaction_hourly_rollup_delta;
+
+--changeset uk.gov.pay:create_view_current_transaction_hourly_rollup
+-- rollups including the deltas not folded yet, sums and counts are exact but min and max amounts only account for
+-- removed transactions once their deltas are folded
+CREATE VIEW current_transaction_hourly_rollup AS
+SELECT hour, gateway_account_id, type, state, live, moto,
+       SUM(count)::BIGINT AS count, SUM(amount)::BIGINT AS amount, SUM(net_amount)::BIGINT AS net_amount,
+       SUM(total_amount)::BIGINT AS total_amount, SUM(fee)::BIGINT AS fee, SUM(gross_amount)::BIGINT AS gross_amount,
+       SUM(amount_count)::BIGINT AS amount_count, MIN(min_amount) AS min_amount, MAX(max_amount) AS max_amount
+FROM (
+    SELECT hour, gateway_account_id, type, state, live, moto, count, amount, net_amount, total_amount, fee,
+           gross_amount, amount_count, min_amount, max_amount
+    FROM transaction_hourly_rollup
+    UNION ALL
+    SELECT hour, gateway_account_id, type, state, live, moto, count, amount, net_amount, total_amount, fee,
+           gross_amount, amount_count, min_amount, max_amount
+    FROM transaction_hourly_rollup_delta
+) r
+GROUP BY hour, gateway_account_id, type, state, live, moto
+HAVING SUM(count) > 0;
+--rollback drop view current_transaction_hourly_rollup;
+
+--changeset uk.gov.pay:create_function_transaction_hourly_rollup_append_delta splitStatements:false
+CREATE OR REPLACE FUNCTION transaction_hourly_rollup_append_delta(t transaction, sign INTEGER) RETURNS VOID AS $$
+BEGIN
+    -- a transaction is counted once it has a gateway account, a missing amount counts as 0 and amount_count only
+    -- counts transactions with an amount
+    IF t.gateway_account_id IS NULL THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO transaction_hourly_rollup_delta
+        (hour, gateway_account_id, type, state, live, moto, count, amount, net_amount, total_amount, fee, gross_amount,
+         amount_count, min_amount, max_amount)
+    VALUES (
+        date_trunc('hour', t.created_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+        t.gateway_account_id, COALESCE(t.type::text, ''), t.state, COALESCE(t.live, false), COALESCE(t.moto, false),
+        sign, sign * COALESCE(t.amount, 0), sign * COALESCE(t.net_amount, 0), sign * COALESCE(t.total_amount, 0),
+        sign * COALESCE(t.fee, 0), sign * COALESCE(t.total_amount, t.amount, 0), sign * (t.amount IS NOT NULL)::INTEGER,
+        CASE WHEN sign > 0 THEN t.amount END, CASE WHEN sign > 0 THEN t.amount END);
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function transaction_hourly_rollup_append_delta(transaction, integer);
+
+--changeset uk.gov.pay:create_function_transaction_hourly_rollup_trigger splitStatements:false
+CREATE OR REPLACE FUNCTION transaction_hourly_rollup_trigger() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND
+       (OLD.created_date, OLD.gateway_account_id, OLD.type, OLD.state, OLD.live, OLD.moto,
+        OLD.amount, OLD.net_amount, OLD.total_amount, OLD.fee) IS NOT DISTINCT FROM
+       (NEW.created_date, NEW.gateway_account_id, NEW.type, NEW.state, NEW.live, NEW.moto,
+        NEW.amount, NEW.net_amount, NEW.total_amount, NEW.fee) THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM transaction_hourly_rollup_append_delta(OLD, -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM transaction_hourly_rollup_append_delta(NEW, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function transaction_hourly_rollup_trigger();
+
+--changeset uk.gov.pay:create_function_fold_transaction_hourly_rollup_deltas splitStatements:false
+CREATE OR REPLACE FUNCTION fold_transaction_hourly_rollup_deltas(batch_size INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    deltas transaction_hourly_rollup_delta[];
+BEGIN
+    -- only one fold or recount writes rollups at a time, so they can't deadlock on rollup rows
+    IF NOT pg_try_advisory_xact_lock(hashtext('transaction_hourly_rollup')) THEN
+        RETURN 0;
+    END IF;
+
+    WITH folded AS (
+        DELETE FROM transaction_hourly_rollup_delta
+        WHERE id IN (SELECT id FROM transaction_hourly_rollup_delta ORDER BY id LIMIT batch_size)
+        RETURNING *
+    )
+    SELECT array_agg(ROW(folded.*)::transaction_hourly_rollup_delta) INTO deltas FROM folded;
+
+    IF deltas IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    INSERT INTO transaction_hourly_rollup AS r
+        (hour, gateway_account_id, type, state, live, moto, count, amount, net_amount, total_amount, fee, gross_amount,
+         amount_count, min_amount, max_amount)
+    SELECT hour, gateway_account_id, type, state, live, moto,
+           SUM(count), SUM(amount), SUM(net_amount), SUM(total_amount), SUM(fee), SUM(gross_amount),
+           SUM(amount_count), MIN(min_amount), MAX(max_amount)
+    FROM unnest(deltas)
+    GROUP BY hour, gateway_account_id, type, state, live, moto
+    ON CONFLICT (hour, gateway_account_id, type, state, live, moto) DO UPDATE SET
+        count = r.count + EXCLUDED.count,
+        amount = r.amount + EXCLUDED.amount,
+        net_amount = r.net_amount + EXCLUDED.net_amount,
+        total_amount = r.total_amount + EXCLUDED.total_amount,
+        fee = r.fee + EXCLUDED.fee,
+        gross_amount = r.gross_amount + EXCLUDED.gross_amount,
+        amount_count = r.amount_count + EXCLUDED.amount_count,
+        min_amount = LEAST(r.min_amount, EXCLUDED.min_amount),
+        max_amount = GREATEST(r.max_amount, EXCLUDED.max_amount);
+
+    -- min and max can't be reversed incrementally, so they are recounted for rollups that lost a transaction
+    UPDATE transaction_hourly_rollup r SET
+        min_amount = s.min_amount,
+        max_amount = s.max_amount
+    FROM (
+        SELECT DISTINCT hour, gateway_account_id, type, state, live, moto FROM unnest(deltas) WHERE count < 0
+    ) b
+    CROSS JOIN LATERAL (
+        SELECT MIN(tx.amount) AS min_amount, MAX(tx.amount) AS max_amount
+        FROM transaction tx
+        WHERE tx.gateway_account_id = b.gateway_account_id
+          AND tx.created_date >= b.hour
+          AND tx.created_date < b.hour + INTERVAL '1 hour'
+          AND COALESCE(tx.type::text, '') = b.type
+          AND tx.state = b.state
+          AND COALESCE(tx.live, false) = b.live
+          AND COALESCE(tx.moto, false) = b.moto
+    ) s
+    WHERE r.hour = b.hour AND r.gateway_account_id = b.gateway_account_id AND r.type = b.type
+      AND r.state = b.state AND r.live = b.live AND r.moto = b.moto;
+
+    DELETE FROM transaction_hourly_rollup r
+    WHERE r.count <= 0
+      AND (r.hour, r.gateway_account_id, r.type, r.state, r.live, r.moto) IN (
+          SELECT hour, gateway_account_id, type, state, live, moto FROM unnest(deltas));
+
+    RETURN cardinality(deltas);
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function fold_transaction_hourly_rollup_deltas(integer);
+
+--changeset uk.gov.pay:create_function_recount_transaction_hourly_rollup splitStatements:false
+CREATE OR REPLACE FUNCTION recount_transaction_hourly_rollup(from_hour TIMESTAMP WITH TIME ZONE,
+                                                             to_hour TIMESTAMP WITH TIME ZONE) RETURNS VOID AS $$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('transaction_hourly_rollup'));
+
+    -- a single statement reads transaction and deletes the deltas from the same snapshot, so the deltas removed are
+    -- exactly the ones the recount already includes and later ones are still folded afterwards
+    WITH recounted_deltas AS (
+        DELETE FROM transaction_hourly_rollup_delta d
+        WHERE d.hour >= from_hour AND d.hour < to_hour
+    )
+    INSERT INTO transaction_hourly_rollup AS r
+        (hour, gateway_account_id, type, state, live, moto, count, amount, net_amount, total_amount, fee, gross_amount,
+         amount_count, min_amount, max_amount)
+    SELECT hour, gateway_account_id, type, state, live, moto,
+           SUM(count), SUM(amount), SUM(net_amount), SUM(total_amount), SUM(fee), SUM(gross_amount),
+           SUM(amount_count), MIN(min_amount), MAX(max_amount)
+    FROM (
+        SELECT date_trunc('hour', tx.created_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS hour,
+               tx.gateway_account_id, COALESCE(tx.type::text, '') AS type, tx.state,
+               COALESCE(tx.live, false) AS live, COALESCE(tx.moto, false) AS moto,
+               1 AS count, COALESCE(tx.amount, 0) AS amount, COALESCE(tx.net_amount, 0) AS net_amount,
+               COALESCE(tx.total_amount, 0) AS total_amount, COALESCE(tx.fee, 0) AS fee,
+               COALESCE(tx.total_amount, tx.amount, 0) AS gross_amount, (tx.amount IS NOT NULL)::INTEGER AS amount_count,
+               tx.amount AS min_amount, tx.amount AS max_amount
+        FROM transaction tx
+        WHERE tx.gateway_account_id IS NOT NULL
+          AND tx.created_date >= from_hour
+          AND tx.created_date < to_hour
+        UNION ALL
+        -- rollups with no transactions left are zeroed here and removed below
+        SELECT hour, gateway_account_id, type, state, live, moto, 0, 0, 0, 0, 0, 0, 0, NULL, NULL
+        FROM transaction_hourly_rollup
+        WHERE hour >= from_hour AND hour < to_hour
+    ) s
+    GROUP BY hour, gateway_account_id, type, state, live, moto
+    ON CONFLICT (hour, gateway_account_id, type, state, live, moto) DO UPDATE SET
+        count = EXCLUDED.count,
+        amount = EXCLUDED.amount,
+        net_amount = EXCLUDED.net_amount,
+        total_amount = EXCLUDED.total_amount,
+        fee = EXCLUDED.fee,
+        gross_amount = EXCLUDED.gross_amount,
+        amount_count = EXCLUDED.amount_count,
+        min_amount = EXCLUDED.min_amount,
+        max_amount = EXCLUDED.max_amount;
+
+    DELETE FROM transaction_hourly_rollup WHERE hour >= from_hour AND hour < to_hour AND count <= 0;
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function recount_transaction_hourly_rollup(timestamp with time zone, timestamp with time zone);
+
+--changeset uk.gov.pay:create_trigger_transaction_hourly_rollup
+CREATE TRIGGER transaction_hourly_rollup_trigger
+    AFTER INSERT OR UPDATE OR DELETE ON transaction
+    FOR EACH ROW EXECUTE PROCEDURE transaction_hourly_rollup_trigger();
+--rollback drop trigger transaction_hourly_rollup_trigger on transaction;
+
+--changeset uk.gov.pay:create_table_transaction_hourly_rollup_coverage
+-- rollups hold every hour from covered_from, earlier hours are read from the transaction table until
+-- TransactionHourlyRollupFolder has backfilled them, covered_from is NULL once every hour is in the rollups
+CREATE TABLE transaction_hourly_rollup_coverage (
+    id BOOLEAN PRIMARY KEY DEFAULT true CHECK (id),
+    covered_from TIMESTAMP WITH TIME ZONE
+);
+-- the trigger counts every transaction written from the next hour on, transactions already in an empty table don't
+-- need backfilling
+INSERT INTO transaction_hourly_rollup_coverage (covered_from)
+SELECT CASE WHEN EXISTS (SELECT 1 FROM transaction)
+            THEN (date_trunc('hour', now() AT TIME ZONE 'UTC') + INTERVAL '1 hour') AT TIME ZONE 'UTC' END;
+--rollback drop table transaction_hourly_rollup_coverage;
+
+--changeset uk.gov.pay:create_function_backfill_transaction_hourly_rollup splitStatements:false
+-- Recounts the batch_hours hours before covered_from and moves covered_from back to the start of them, returns false
+-- once every hour is covered.
+CREATE OR REPLACE FUNCTION backfill_transaction_hourly_rollup(batch_hours INTEGER) RETURNS BOOLEAN AS $$
+DECLARE
+    backfill_to TIMESTAMP WITH TIME ZONE;
+    backfill_from TIMESTAMP WITH TIME ZONE;
+    first_hour TIMESTAMP WITH TIME ZONE;
+BEGIN
+    SELECT covered_from INTO backfill_to FROM transaction_hourly_rollup_coverage FOR UPDATE;
+    IF backfill_to IS NULL THEN
+        RETURN false;
+    END IF;
+
+    SELECT date_trunc('hour', MIN(created_date) AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' INTO first_hour FROM transaction;
+    IF first_hour IS NULL OR first_hour >= backfill_to THEN
+        UPDATE transaction_hourly_rollup_coverage SET covered_from = NULL;
+        RETURN false;
+    END IF;
+
+    backfill_from := GREATEST(backfill_to - batch_hours * INTERVAL '1 hour', first_hour);
+    PERFORM recount_transaction_hourly_rollup(backfill_from, backfill_to);
+
+    IF backfill_from = first_hour THEN
+        UPDATE transaction_hourly_rollup_coverage SET covered_from = NULL;
+        RETURN false;
+    END IF;
+    UPDATE transaction_hourly_rollup_coverage SET covered_from = backfill_from;
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+--rollback drop function backfill_transaction_hourly_rollup(integer);
@@ -0,0 +1,124 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:index_event_id_event_date runInTransaction:false
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS event_id_event_date_idx ON event USING btree(id, event_date);
+
+--changeset uk.gov.pay:create_function_create_monthly_event_partition splitStatements:false
+-- Events already in the default partition for the month are moved into the new partition, so it can always be created.
+CREATE OR REPLACE FUNCTION create_monthly_event_partition(partition_month DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_start TIMESTAMP WITH TIME ZONE := date_trunc('month', partition_month::timestamp) AT TIME ZONE 'UTC';
+    partition_end TIMESTAMP WITH TIME ZONE := (date_trunc('month', partition_month::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'event_' || to_char(partition_month, 'YYYY_MM');
+    moved_event_count BIGINT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(partition_name));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+
+    IF to_regclass('event_default') IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF event FOR VALUES FROM (%L) TO (%L)',
+            partition_name, partition_start, partition_end);
+        RETURN true;
+    END IF;
+
+    -- blocks writes to the default partition until the new partition is attached, so no events for the month land
+    -- in it after they have been moved
+    LOCK TABLE event_default IN EXCLUSIVE MODE;
+    EXECUTE format('CREATE TABLE %I (LIKE event INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM event_default WHERE event_date >= %L AND event_date < %L RETURNING *) '
+        'INSERT INTO %I SELECT * FROM moved', partition_start, partition_end, partition_name);
+    GET DIAGNOSTICS moved_event_count = ROW_COUNT;
+    EXECUTE format('ALTER TABLE event ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        partition_name, partition_start, partition_end);
+
+    IF moved_event_count > 0 THEN
+        RAISE WARNING 'Moved % events from event_default to %', moved_event_count, partition_name;
+    END IF;
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset uk.gov.pay:create_function_move_event_partition_to_tablespace splitStatements:false
+-- Moves a monthly partition and its indexes to another tablespace, for example cheaper storage for old months. The
+-- partition stays attached, so its events are still read by resource and digested with the rest of their history.
+-- Each move rewrites the partition and blocks reads of the event table until it finishes, so it is meant for months
+-- whose events have mostly been moved to event_archive.
+CREATE OR REPLACE FUNCTION move_event_partition_to_tablespace(partition_month DATE, target_tablespace TEXT) RETURNS VOID AS $$
+DECLARE
+    partition_name TEXT := 'event_' || to_char(partition_month, 'YYYY_MM');
+    index_name TEXT;
+BEGIN
+    EXECUTE format('ALTER TABLE %I SET TABLESPACE %I', partition_name, target_tablespace);
+    FOR index_name IN SELECT indexname FROM pg_indexes WHERE tablename = partition_name LOOP
+        EXECUTE format('ALTER INDEX %I SET TABLESPACE %I', index_name, target_tablespace);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+--changeset uk.gov.pay:add_constraint_event_date_before_partitioning splitStatements:false
+-- The existing table is attached as a partition below. Validating that its events fall inside the partition bound here,
+-- without blocking writes, lets ATTACH PARTITION skip scanning the whole table while it holds an exclusive lock.
+DO $$
+BEGIN
+    EXECUTE format('ALTER TABLE event ADD CONSTRAINT event_date_before_partitioning_check CHECK (event_date < %L) NOT VALID',
+        (date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '1 month') AT TIME ZONE 'UTC');
+END;
+$$;
+--rollback alter table event drop constraint event_date_before_partitioning_check;
+
+--changeset uk.gov.pay:validate_constraint_event_date_before_partitioning
+ALTER TABLE event VALIDATE CONSTRAINT event_date_before_partitioning_check;
+
+--changeset uk.gov.pay:partition_event_table_by_month splitStatements:false
+-- The existing table becomes the partition for every event before the start of next month, so no events are copied.
+-- Events from next month onwards go to monthly partitions, which are created ahead of time by EventPartitionMaintainer.
+DO $$
+DECLARE
+    legacy_partition_end TIMESTAMP WITH TIME ZONE :=
+        (date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '1 month') AT TIME ZONE 'UTC';
+BEGIN
+    LOCK TABLE event IN ACCESS EXCLUSIVE MODE;
+
+    ALTER TABLE event RENAME TO event_legacy;
+    ALTER TABLE event_legacy DROP CONSTRAINT event_pkey;
+    ALTER TABLE event_legacy ADD CONSTRAINT event_legacy_pkey PRIMARY KEY USING INDEX event_id_event_date_idx;
+    ALTER TABLE event_legacy RENAME CONSTRAINT event_resource_type_id_fk TO event_legacy_resource_type_id_fk;
+    ALTER INDEX index_resource_external_idx RENAME TO event_legacy_resource_external_id_idx;
+    ALTER INDEX parent_resource_external_id_idx RENAME TO event_legacy_parent_resource_external_id_idx;
+    ALTER INDEX event_date_idx RENAME TO event_legacy_event_date_idx;
+
+    CREATE TABLE event
+    (
+        id BIGINT DEFAULT nextval('event_id_seq') NOT NULL,
+        sqs_message_id VARCHAR(255) NOT NULL,
+        resource_type_id INT NOT NULL,
+        resource_external_id VARCHAR(255),
+        event_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+        event_type VARCHAR (255),
+        event_data jsonb NOT NULL,
+        parent_resource_external_id VARCHAR(255),
+        CONSTRAINT event_pkey PRIMARY KEY (id, event_date),
+        CONSTRAINT event_resource_type_id_fk FOREIGN KEY (resource_type_id) REFERENCES resource_type (id)
+    ) PARTITION BY RANGE (event_date);
+    ALTER SEQUENCE event_id_seq OWNED BY event.id;
+
+    CREATE INDEX index_resource_external_idx ON event(resource_external_id);
+    CREATE INDEX parent_resource_external_id_idx ON event(parent_resource_external_id);
+    CREATE INDEX event_date_idx ON event USING btree(event_date);
+
+    -- the constraint validated above implies the partition bound, unless the month has changed since it was added, in
+    -- which case the bound is later and is still implied
+    EXECUTE format('ALTER TABLE event ATTACH PARTITION event_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+        legacy_partition_end);
+    ALTER TABLE event_legacy DROP CONSTRAINT event_date_before_partitioning_check;
+
+    FOR month_offset IN 0..2 LOOP
+        PERFORM create_monthly_event_partition(((legacy_partition_end AT TIME ZONE 'UTC') + month_offset * INTERVAL '1 month')::date);
+    END LOOP;
+
+    -- catches events dated after the last monthly partition, so they are never rejected
+    CREATE TABLE event_default PARTITION OF event DEFAULT;
+END;
+$$;
@@ -0,0 +1,18 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_event_archive
+CREATE TABLE event_archive
+(
+    resource_external_id VARCHAR(255) PRIMARY KEY,
+    resource_type_id INT NOT NULL,
+    event_count INT NOT NULL,
+    first_event_date TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_event_date TIMESTAMP WITH TIME ZONE NOT NULL,
+    events jsonb NOT NULL,
+    archived_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL
+);
+--rollback drop table event_archive;
+
+--changeset uk.gov.pay:add_event_archive_resource_type_id_fk
+ALTER TABLE event_archive ADD CONSTRAINT event_archive_resource_type_id_fk FOREIGN KEY (resource_type_id) REFERENCES resource_type (id);
+--rollback drop constraint event_archive_resource_type_id_fk;
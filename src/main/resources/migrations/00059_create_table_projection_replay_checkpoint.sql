@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_projection_replay_checkpoint
+CREATE TABLE projection_replay_checkpoint
+(
+    replay_name VARCHAR(255) NOT NULL,
+    partition INT NOT NULL,
+    partition_count INT NOT NULL,
+    last_resource_external_id VARCHAR(255),
+    resources_replayed BIGINT NOT NULL,
+    completed BOOLEAN NOT NULL,
+    updated_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    PRIMARY KEY (replay_name, partition)
+);
+--rollback drop table projection_replay_checkpoint;
@@ -0,0 +1,18 @@
+--liquibase formatted sql
+
+--changeset uk.gov.pay:create_table_quarantined_message
+CREATE TABLE quarantined_message
+(
+    id BIGSERIAL PRIMARY KEY,
+    queue_message_id VARCHAR(255) NOT NULL,
+    resource_external_id VARCHAR(255),
+    event_type VARCHAR(255),
+    message_body TEXT NOT NULL,
+    receive_count INT NOT NULL,
+    stage VARCHAR(50) NOT NULL,
+    error_message TEXT,
+    replay_attempts INT DEFAULT 0 NOT NULL,
+    quarantined_date TIMESTAMP WITH TIME ZONE DEFAULT (now() AT TIME ZONE 'utc') NOT NULL,
+    CONSTRAINT quarantined_message_queue_message_id_key UNIQUE (queue_message_id)
+);
+--rollback drop table quarantined_message;
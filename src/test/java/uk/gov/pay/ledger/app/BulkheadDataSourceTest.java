@@ -0,0 +1,88 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkheadDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    private MetricRegistry metricRegistry;
+    private BulkheadDataSource bulkheadDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        bulkheadDataSource = new BulkheadDataSource("exports", dataSource, 2, 10, metricRegistry);
+    }
+
+    @Test
+    public void shouldReleasePermitWhenConnectionIsClosed() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        Connection bulkheadConnection = bulkheadDataSource.getConnection();
+        assertThat(bulkheadDataSource.getConnectionsInUse(), is(1));
+        assertThat(metricRegistry.getGauges().get("bulkhead.exports.saturation").getValue(), is(0.5));
+
+        bulkheadConnection.close();
+        bulkheadConnection.close();
+
+        assertThat(bulkheadDataSource.getConnectionsInUse(), is(0));
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    public void shouldRejectWhenAllConnectionsForWorkloadAreInUse() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+
+        bulkheadDataSource.getConnection();
+        bulkheadDataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> bulkheadDataSource.getConnection());
+        assertThat(metricRegistry.meter("bulkhead.exports.rejected").getCount(), is(1L));
+        assertThat(metricRegistry.getGauges().get("bulkhead.exports.in-use").getValue(), is(2));
+    }
+
+    @Test
+    public void shouldReleasePermitWhenUnderlyingPoolFails() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, () -> bulkheadDataSource.getConnection());
+
+        assertThat(bulkheadDataSource.getConnectionsInUse(), is(0));
+    }
+
+    @Test
+    public void shouldShareWorkloadPermitsWithConnectionsFromAnotherPool() throws SQLException {
+        DataSource otherDataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(mock(Connection.class));
+        when(otherDataSource.getConnection()).thenReturn(mock(Connection.class));
+        BulkheadDataSource otherBulkheadDataSource = bulkheadDataSource.withDataSource(otherDataSource);
+
+        bulkheadDataSource.getConnection();
+        otherBulkheadDataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> otherBulkheadDataSource.getConnection());
+        assertThat(metricRegistry.getGauges().get("bulkhead.exports.in-use").getValue(), is(2));
+    }
+}
@@ -0,0 +1,144 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import uk.gov.pay.ledger.app.config.ReadReplicaConfig;
+import uk.gov.pay.ledger.rule.PostgresTestDocker;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadReplicaRoutingDataSourceIT {
+
+    private GenericContainer replicaContainer;
+    private ManagedDataSource primary;
+    private ManagedDataSource replica;
+    private ScheduledExecutorService scheduledExecutorService;
+    private MetricRegistry metricRegistry;
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        PostgresTestDocker.getOrCreate();
+        replicaContainer = PostgresTestDocker.createStandaloneContainer();
+        primary = buildDataSource(PostgresTestDocker.getConnectionUrl() + "postgres");
+        primary.start();
+        // marks the replica so tests can tell which server a connection came from
+        executeOnReplica("CREATE TABLE read_replica_marker ()");
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+        metricRegistry = new MetricRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (routingDataSource != null) {
+            routingDataSource.stop();
+        }
+        scheduledExecutorService.shutdownNow();
+        primary.stop();
+        if (replicaContainer.isRunning()) {
+            replicaContainer.stop();
+        }
+    }
+
+    @Test
+    public void shouldRouteReadsToReplica() throws Exception {
+        startRoutingDataSource(replicaUrl());
+
+        assertThat(routingDataSource.isServingFromReplica(), is(true));
+        assertThat(isFromReplica(routingDataSource), is(true));
+        assertThat(metricRegistry.counter("read-replica.primary-fallbacks").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldFallBackToPrimaryOnceReplicaIsStopped() throws Exception {
+        startRoutingDataSource(replicaUrl());
+        assertThat(isFromReplica(routingDataSource), is(true));
+
+        replicaContainer.stop();
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.isServingFromReplica(), is(false));
+        assertThat(isFromReplica(routingDataSource), is(false));
+        assertThat(metricRegistry.counter("read-replica.primary-fallbacks").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldFallBackToPrimaryWhenReplicationLagExceedsThreshold() throws Exception {
+        // the replica isn't really replicating, so the functions the lag query calls are replaced by ones reporting
+        // it as 45 seconds behind, which are found first on the replica connections' search path
+        executeOnReplica(
+                "CREATE SCHEMA lag_stub",
+                "CREATE FUNCTION lag_stub.pg_is_in_recovery() RETURNS BOOLEAN AS $$ SELECT true $$ LANGUAGE SQL",
+                "CREATE FUNCTION lag_stub.pg_last_wal_receive_lsn() RETURNS PG_LSN " +
+                        "AS $$ SELECT '0/2'::PG_LSN $$ LANGUAGE SQL",
+                "CREATE FUNCTION lag_stub.pg_last_wal_replay_lsn() RETURNS PG_LSN " +
+                        "AS $$ SELECT '0/1'::PG_LSN $$ LANGUAGE SQL",
+                "CREATE FUNCTION lag_stub.pg_last_xact_replay_timestamp() RETURNS TIMESTAMPTZ " +
+                        "AS $$ SELECT now() - INTERVAL '45 seconds' $$ LANGUAGE SQL");
+
+        startRoutingDataSource(replicaUrl() + "?currentSchema=lag_stub,public,pg_catalog");
+
+        assertThat(routingDataSource.isServingFromReplica(), is(false));
+        assertThat(routingDataSource.getReplicationLagInSeconds(), is(45.0));
+        assertThat(isFromReplica(routingDataSource), is(false));
+    }
+
+    private void startRoutingDataSource(String replicaUrl) throws Exception {
+        ReadReplicaConfig config = mock(ReadReplicaConfig.class);
+        when(config.getMaxReplicationLagInSeconds()).thenReturn(30);
+        when(config.getReplicationLagCheckIntervalInSeconds()).thenReturn(3600);
+        replica = buildDataSource(replicaUrl);
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replica, config, scheduledExecutorService,
+                metricRegistry);
+        routingDataSource.start();
+    }
+
+    private void executeOnReplica(String... statements) throws Exception {
+        ManagedDataSource dataSource = buildDataSource(replicaUrl());
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        } finally {
+            dataSource.stop();
+        }
+    }
+
+    private String replicaUrl() {
+        return PostgresTestDocker.getConnectionUrl(replicaContainer) + "postgres";
+    }
+
+    private static ManagedDataSource buildDataSource(String url) {
+        DataSourceFactory dataSourceFactory = new DataSourceFactory();
+        dataSourceFactory.setDriverClass("org.postgresql.Driver");
+        dataSourceFactory.setUrl(url);
+        dataSourceFactory.setUser(PostgresTestDocker.getDbUsername());
+        dataSourceFactory.setPassword(PostgresTestDocker.getDbPassword());
+        return dataSourceFactory.build(new MetricRegistry(), "read-replica-routing-test");
+    }
+
+    private static boolean isFromReplica(ReadReplicaRoutingDataSource routingDataSource) throws SQLException {
+        try (Connection connection = routingDataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT to_regclass('public.read_replica_marker') IS NOT NULL")) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.db.ManagedDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.ReadReplicaConfig;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.app.ReadReplicaRoutingDataSource.REPLICATION_LAG_QUERY;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadReplicaRoutingDataSourceTest {
+
+    @Mock
+    private ManagedDataSource primary;
+    @Mock
+    private ManagedDataSource replica;
+    @Mock
+    private ReadReplicaConfig config;
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private MetricRegistry metricRegistry;
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replica, config, scheduledExecutorService, metricRegistry);
+    }
+
+    @Test
+    public void shouldUsePrimaryUntilReplicationLagHasBeenChecked() throws Exception {
+        Connection primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(routingDataSource.getConnection(), is(primaryConnection));
+        assertThat(metricRegistry.counter("read-replica.primary-fallbacks").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldUseReplicaWhenReplicationLagIsWithinThreshold() throws Exception {
+        when(config.getMaxReplicationLagInSeconds()).thenReturn(30);
+        Connection lagCheckConnection = replicaConnectionReportingLag(5.0);
+        Connection replicaConnection = mock(Connection.class);
+        when(replica.getConnection()).thenReturn(lagCheckConnection, replicaConnection);
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.isServingFromReplica(), is(true));
+        assertThat(routingDataSource.getReplicationLagInSeconds(), is(5.0));
+        assertThat(routingDataSource.getConnection(), is(replicaConnection));
+    }
+
+    @Test
+    public void shouldFallBackToPrimaryWhenReplicationLagExceedsThreshold() throws Exception {
+        when(config.getMaxReplicationLagInSeconds()).thenReturn(30);
+        Connection lagCheckConnection = replicaConnectionReportingLag(45.0);
+        when(replica.getConnection()).thenReturn(lagCheckConnection);
+        Connection primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.isServingFromReplica(), is(false));
+        assertThat(routingDataSource.getConnection(), is(primaryConnection));
+    }
+
+    @Test
+    public void shouldFallBackToPrimaryWhenReplicaIsUnavailable() throws Exception {
+        when(config.getMaxReplicationLagInSeconds()).thenReturn(30);
+        Connection lagCheckConnection = replicaConnectionReportingLag(0.0);
+        when(replica.getConnection())
+                .thenReturn(lagCheckConnection)
+                .thenThrow(new SQLException("connection refused"));
+        Connection primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.getConnection(), is(primaryConnection));
+        assertThat(routingDataSource.isServingFromReplica(), is(false));
+    }
+
+    private Connection replicaConnectionReportingLag(double lagInSeconds) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(REPLICATION_LAG_QUERY)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagInSeconds);
+        return connection;
+    }
+}
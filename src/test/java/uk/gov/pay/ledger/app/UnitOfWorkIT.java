@@ -0,0 +1,128 @@
+package uk.gov.pay.ledger.app;
+
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+
+public class UnitOfWorkIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private UnitOfWork unitOfWork;
+    private EventDao eventDao;
+    private DatabaseTestHelper dbHelper;
+
+    @BeforeEach
+    public void setUp() {
+        unitOfWork = new UnitOfWork(rule.getJdbi(), new MetricRegistry());
+        eventDao = rule.getJdbi().onDemand(EventDao.class);
+        dbHelper = aDatabaseTestHelper(rule.getJdbi());
+        dbHelper.truncateAllData();
+    }
+
+    @Test
+    public void shouldRunDaoCallsOnTheUnitOfWorkHandle() {
+        Handle nestedHandle = unitOfWork.inTransaction(handle -> {
+            Handle handleUsedByDao = rule.getJdbi().withHandle(h -> h);
+            assertThat(handleUsedByDao, is(sameInstance(handle)));
+            return handleUsedByDao;
+        });
+
+        assertThat(nestedHandle.isClosed(), is(true));
+    }
+
+    @Test
+    public void shouldCommitAllWorkTogether() {
+        Event event = anEventFixture().toEntity();
+
+        unitOfWork.inTransaction(handle -> {
+            eventDao.insertEventIfDoesNotExistWithResourceTypeId(event);
+            assertThat(eventDao.getEventsByResourceExternalId(event.getResourceExternalId()).size(), is(1));
+            return null;
+        });
+
+        assertThat(dbHelper.getEventsCountByExternalId(event.getResourceExternalId()), is(1));
+    }
+
+    @Test
+    public void shouldRollBackAllWork_WhenWorkThrows() {
+        Event event = anEventFixture().toEntity();
+
+        assertThrows(IllegalStateException.class, () -> unitOfWork.inTransaction(handle -> {
+            eventDao.insertEventIfDoesNotExistWithResourceTypeId(event);
+            throw new IllegalStateException("projection failed");
+        }));
+
+        assertThat(dbHelper.getEventsCountByExternalId(event.getResourceExternalId()), is(0));
+    }
+
+    @Test
+    public void shouldRollBackAllWork_WhenWorkRollsBackHandle() {
+        Event event = anEventFixture().toEntity();
+
+        unitOfWork.inTransaction(handle -> {
+            eventDao.insertEventIfDoesNotExistWithResourceTypeId(event);
+            handle.rollback();
+            return null;
+        });
+
+        assertThat(dbHelper.getEventsCountByExternalId(event.getResourceExternalId()), is(0));
+    }
+
+    @Test
+    public void shouldRunAfterCommitActions_OnceTheOutermostWorkIsCommitted() {
+        Event event = anEventFixture().toEntity();
+        List<Integer> eventCountsSeenAfterCommit = new ArrayList<>();
+
+        unitOfWork.inTransaction(handle -> unitOfWork.inTransaction(nestedHandle -> {
+            eventDao.insertEventIfDoesNotExistWithResourceTypeId(event);
+            unitOfWork.afterCommit(() -> eventCountsSeenAfterCommit.add(
+                    dbHelper.getEventsCountByExternalId(event.getResourceExternalId())));
+            assertThat(eventCountsSeenAfterCommit, is(empty()));
+            return null;
+        }));
+
+        assertThat(eventCountsSeenAfterCommit, contains(1));
+    }
+
+    @Test
+    public void shouldDiscardAfterCommitActions_WhenWorkThrows() {
+        List<String> actionsRun = new ArrayList<>();
+
+        assertThrows(IllegalStateException.class, () -> unitOfWork.inTransaction(handle -> {
+            unitOfWork.afterCommit(() -> actionsRun.add("invalidate"));
+            throw new IllegalStateException("projection failed");
+        }));
+        unitOfWork.inTransaction(handle -> null);
+
+        assertThat(actionsRun, is(empty()));
+    }
+
+    @Test
+    public void shouldRunAfterCommitActionsStraightAway_OutsideAUnitOfWork() {
+        List<String> actionsRun = new ArrayList<>();
+
+        unitOfWork.afterCommit(() -> actionsRun.add("invalidate"));
+
+        assertThat(actionsRun, contains("invalidate"));
+    }
+}
@@ -0,0 +1,134 @@
+package uk.gov.pay.ledger.event.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventArchiveBatch;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.transaction.state.TransactionState;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+import uk.gov.pay.ledger.util.fixture.TransactionFixture;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
+
+public class EventArchiveDaoIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private static final List<String> FINISHED_STATES = List.of("SUCCESS", "FAILED_REJECTED");
+    private static final ZonedDateTime CREATED_BEFORE = ZonedDateTime.parse("2019-12-01T00:00:00.000Z");
+
+    private EventDao eventDao;
+    private EventArchiveDao eventArchiveDao;
+    private DatabaseTestHelper dbHelper;
+
+    @BeforeEach
+    public void setUp() {
+        eventDao = rule.getJdbi().onDemand(EventDao.class);
+        eventArchiveDao = rule.getJdbi().onDemand(EventArchiveDao.class);
+        dbHelper = aDatabaseTestHelper(rule.getJdbi());
+        dbHelper.truncateAllData();
+    }
+
+    @Test
+    public void shouldArchiveEventsOfFinishedTransactionsAndStillReadThemByResource() {
+        TransactionFixture finished = aTransaction("2019-10-01T10:00:00.000Z", TransactionState.SUCCESS);
+        TransactionFixture notFinished = aTransaction("2019-10-01T11:00:00.000Z", TransactionState.SUBMITTED);
+        TransactionFixture finishedRecently = aTransaction("2019-12-01T10:00:00.000Z", TransactionState.SUCCESS);
+        anEvent(finished, "2019-10-01T10:00:00.000Z", "PAYMENT_CREATED", "{\"amount\": 1000}");
+        anEvent(finished, "2019-10-01T10:05:00.000Z", "CAPTURE_CONFIRMED", "{\"fee\": 5}");
+        anEvent(notFinished, "2019-10-01T11:00:00.000Z", "PAYMENT_CREATED", "{}");
+        anEvent(finishedRecently, "2019-12-01T10:00:00.000Z", "PAYMENT_CREATED", "{}");
+        List<Event> eventsBeforeArchiving = eventDao.getEventsByResourceExternalId(finished.getExternalId());
+
+        EventArchiveBatch batch = eventArchiveDao.archiveEventsForFinishedTransactions(
+                eventArchiveDao.findEarliestTransactionCreatedDate(), 0L, CREATED_BEFORE, FINISHED_STATES, 10);
+
+        assertThat(batch.getTransactionCount(), is(2));
+        assertThat(batch.getLastTransactionId(), is(notFinished.getId()));
+        assertThat(batch.getArchivedResourceCount(), is(1));
+        assertThat(batch.getArchivedEventCount(), is(2));
+        assertThat(dbHelper.getEventsCountByExternalId(finished.getExternalId()), is(0));
+        assertThat(dbHelper.getEventsCountByExternalId(notFinished.getExternalId()), is(1));
+        assertThat(dbHelper.getEventsCountByExternalId(finishedRecently.getExternalId()), is(1));
+
+        List<Event> eventsAfterArchiving = eventDao.getEventsByResourceExternalId(finished.getExternalId());
+        assertThat(eventsAfterArchiving.size(), is(2));
+        for (int i = 0; i < eventsAfterArchiving.size(); i++) {
+            Event before = eventsBeforeArchiving.get(i);
+            Event after = eventsAfterArchiving.get(i);
+            assertThat(after.getId(), is(before.getId()));
+            assertThat(after.getSqsMessageId(), is(before.getSqsMessageId()));
+            assertThat(after.getResourceType(), is(before.getResourceType()));
+            assertThat(after.getEventDate(), is(before.getEventDate()));
+            assertThat(after.getEventType(), is(before.getEventType()));
+            assertThat(after.getEventData(), is(before.getEventData()));
+        }
+    }
+
+    @Test
+    public void shouldAddEventsToExistingArchiveForResource() {
+        TransactionFixture finished = aTransaction("2019-10-01T10:00:00.000Z", TransactionState.SUCCESS);
+        anEvent(finished, "2019-10-01T10:00:00.000Z", "PAYMENT_CREATED", "{}");
+        eventArchiveDao.archiveEventsForFinishedTransactions(
+                eventArchiveDao.findEarliestTransactionCreatedDate(), 0L, CREATED_BEFORE, FINISHED_STATES, 10);
+        anEvent(finished, "2019-10-01T10:05:00.000Z", "CAPTURE_CONFIRMED", "{}");
+
+        EventArchiveBatch batch = eventArchiveDao.archiveEventsForFinishedTransactions(
+                finished.getCreatedDate().minusSeconds(1), 0L, CREATED_BEFORE, FINISHED_STATES, 10);
+
+        assertThat(batch.getArchivedEventCount(), is(1));
+        List<String> eventTypes = eventDao.getEventsByResourceExternalId(finished.getExternalId()).stream()
+                .map(Event::getEventType)
+                .collect(Collectors.toList());
+        assertThat(eventTypes, contains("CAPTURE_CONFIRMED", "PAYMENT_CREATED"));
+    }
+
+    @Test
+    public void shouldNotInsertRedeliveredEventThatHasBeenArchived() {
+        TransactionFixture finished = aTransaction("2019-10-01T10:00:00.000Z", TransactionState.SUCCESS);
+        anEvent(finished, "2019-10-01T10:00:00.000Z", "PAYMENT_CREATED", "{}");
+        eventArchiveDao.archiveEventsForFinishedTransactions(
+                eventArchiveDao.findEarliestTransactionCreatedDate(), 0L, CREATED_BEFORE, FINISHED_STATES, 10);
+        Event redeliveredEvent = anEventFixture()
+                .withResourceExternalId(finished.getExternalId())
+                .withEventDate(ZonedDateTime.parse("2019-10-01T10:00:00.000Z"))
+                .withEventType("PAYMENT_CREATED")
+                .withEventData("{}")
+                .toEntity();
+
+        Optional<Long> status = eventDao.insertEventIfDoesNotExistWithResourceTypeId(redeliveredEvent);
+
+        assertThat(status.isPresent(), is(false));
+        assertThat(dbHelper.getEventsCountByExternalId(finished.getExternalId()), is(0));
+        assertThat(eventDao.getEventsByResourceExternalId(finished.getExternalId()).size(), is(1));
+    }
+
+    private TransactionFixture aTransaction(String createdDate, TransactionState state) {
+        return aTransactionFixture()
+                .withCreatedDate(ZonedDateTime.parse(createdDate))
+                .withState(state)
+                .insert(rule.getJdbi());
+    }
+
+    private void anEvent(TransactionFixture transaction, String eventDate, String eventType, String eventData) {
+        anEventFixture()
+                .withResourceExternalId(transaction.getExternalId())
+                .withEventDate(ZonedDateTime.parse(eventDate))
+                .withEventType(eventType)
+                .withEventData(eventData)
+                .insert(rule.getJdbi());
+    }
+}
@@ -257,4 +257,39 @@ public class EventDaoIT {
         assertThat(eventTickers.get(0).getAmount(), is(200L));
     }
 
+
+    @Test
+    public void findEventsTickerSinceId_ShouldGetLiveEventsAfterIdInIdOrder() {
+        aTransactionFixture()
+                .withExternalId("external-id-1")
+                .withGatewayAccountId("100")
+                .withLive(true)
+                .insert(rule.getJdbi());
+        aTransactionFixture()
+                .withExternalId("external-id-2")
+                .withGatewayAccountId("100")
+                .withLive(false)
+                .insert(rule.getJdbi());
+
+        anEventFixture().withId(1L).withResourceExternalId("external-id-1").insert(rule.getJdbi());
+        anEventFixture().withId(2L).withResourceExternalId("external-id-1").insert(rule.getJdbi());
+        anEventFixture().withId(3L).withResourceExternalId("external-id-2").insert(rule.getJdbi());
+        anEventFixture().withId(4L).withResourceExternalId("external-id-1").insert(rule.getJdbi());
+        anEventFixture().withId(5L).withResourceExternalId("external-id-1").insert(rule.getJdbi());
+        anEventFixture().withId(6L).withResourceExternalId("external-id-1")
+                .withEventDate(ZonedDateTime.now().minusDays(2)).insert(rule.getJdbi());
+        ZonedDateTime fromDate = ZonedDateTime.now().minusDays(1);
+
+        List<EventTicker> eventTickers = eventDao.findEventsTickerSinceId(1L, fromDate, 2);
+
+        assertThat(eventTickers.size(), is(2));
+        assertThat(eventTickers.get(0).getId(), is(2L));
+        assertThat(eventTickers.get(1).getId(), is(4L));
+        assertThat(eventDao.findEventsTickerSinceId(4L, fromDate, 2).size(), is(1));
+
+        List<EventTicker> latestEventTickers = eventDao.findLatestEventsTicker(fromDate, 1);
+
+        assertThat(latestEventTickers.size(), is(1));
+        assertThat(latestEventTickers.get(0).getId(), is(5L));
+    }
 }
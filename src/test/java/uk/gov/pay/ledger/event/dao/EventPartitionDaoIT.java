@@ -0,0 +1,77 @@
+package uk.gov.pay.ledger.event.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+
+public class EventPartitionDaoIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private EventDao eventDao;
+    private EventPartitionDao eventPartitionDao;
+
+    @BeforeEach
+    public void setUp() {
+        eventDao = rule.getJdbi().onDemand(EventDao.class);
+        eventPartitionDao = rule.getJdbi().onDemand(EventPartitionDao.class);
+        DatabaseTestHelper dbHelper = aDatabaseTestHelper(rule.getJdbi());
+        dbHelper.truncateAllData();
+    }
+
+    @Test
+    public void shouldCreateMonthlyPartitionOnceAndStoreEventsForTheMonthInIt() {
+        assertThat(eventPartitionDao.createMonthlyPartition(LocalDate.parse("2040-01-01")), is(true));
+        assertThat(eventPartitionDao.createMonthlyPartition(LocalDate.parse("2040-01-01")), is(false));
+
+        Event event = anEventFixture()
+                .withEventDate(ZonedDateTime.parse("2040-01-31T23:59:59.999999Z"))
+                .toEntity();
+        eventDao.insertEventWithResourceTypeId(event);
+        Event eventInFollowingMonth = anEventFixture()
+                .withEventDate(ZonedDateTime.parse("2040-02-01T00:00:00.000000Z"))
+                .toEntity();
+        eventDao.insertEventWithResourceTypeId(eventInFollowingMonth);
+
+        assertThat(getPartitionName(event.getResourceExternalId()), is("event_2040_01"));
+        assertThat(getPartitionName(eventInFollowingMonth.getResourceExternalId()), is("event_default"));
+    }
+
+    @Test
+    public void shouldMoveEventsForTheMonthOutOfTheDefaultPartitionWhenCreatingPartition() {
+        Event event = anEventFixture()
+                .withEventDate(ZonedDateTime.parse("2041-03-15T10:00:00.000000Z"))
+                .toEntity();
+        eventDao.insertEventWithResourceTypeId(event);
+        Event eventInFollowingMonth = anEventFixture()
+                .withEventDate(ZonedDateTime.parse("2041-04-01T00:00:00.000000Z"))
+                .toEntity();
+        eventDao.insertEventWithResourceTypeId(eventInFollowingMonth);
+        assertThat(getPartitionName(event.getResourceExternalId()), is("event_default"));
+
+        assertThat(eventPartitionDao.createMonthlyPartition(LocalDate.parse("2041-03-01")), is(true));
+
+        assertThat(getPartitionName(event.getResourceExternalId()), is("event_2041_03"));
+        assertThat(getPartitionName(eventInFollowingMonth.getResourceExternalId()), is("event_default"));
+    }
+
+    private String getPartitionName(String resourceExternalId) {
+        return rule.getJdbi().withHandle(handle -> handle
+                .createQuery("SELECT tableoid::regclass::text FROM event WHERE resource_external_id = :resourceExternalId")
+                .bind("resourceExternalId", resourceExternalId)
+                .mapTo(String.class)
+                .one());
+    }
+}
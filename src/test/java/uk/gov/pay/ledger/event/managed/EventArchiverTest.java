@@ -0,0 +1,118 @@
+package uk.gov.pay.ledger.event.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.EventArchiveConfig;
+import uk.gov.pay.ledger.event.dao.EventArchiveDao;
+import uk.gov.pay.ledger.event.model.EventArchiveBatch;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EventArchiverTest {
+
+    private static final ZonedDateTime EARLIEST_CREATED_DATE = ZonedDateTime.parse("2019-01-01T00:00:00.000Z");
+    private static final ZonedDateTime CREATED_BEFORE = ZonedDateTime.parse("2020-09-01T12:00:00.000Z");
+
+    @Mock
+    private EventArchiveDao eventArchiveDao;
+
+    @Mock
+    private EventArchiveConfig config;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Captor
+    private ArgumentCaptor<List<String>> statesCaptor;
+
+    private MetricRegistry metricRegistry;
+    private EventArchiver eventArchiver;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(config.getRefundWindowInDays()).thenReturn(90);
+        lenient().when(config.getBatchSize()).thenReturn(100);
+        metricRegistry = new MetricRegistry();
+        Clock clock = Clock.fixed(Instant.parse("2020-11-30T12:00:00Z"), ZoneOffset.UTC);
+        eventArchiver = new EventArchiver(eventArchiveDao, config, scheduledExecutorService, clock, metricRegistry);
+    }
+
+    @Test
+    public void shouldArchiveFinishedTransactionsFromCursorAndAdvanceIt() {
+        when(eventArchiveDao.findEarliestTransactionCreatedDate()).thenReturn(EARLIEST_CREATED_DATE);
+        ZonedDateTime lastCreatedDate = ZonedDateTime.parse("2019-01-02T00:00:00.000Z");
+        when(eventArchiveDao.archiveEventsForFinishedTransactions(eq(EARLIEST_CREATED_DATE), eq(0L), eq(CREATED_BEFORE),
+                anyList(), eq(100))).thenReturn(new EventArchiveBatch(100, lastCreatedDate, 42L, 3, 12));
+        when(eventArchiveDao.archiveEventsForFinishedTransactions(eq(lastCreatedDate), eq(42L), eq(CREATED_BEFORE),
+                anyList(), eq(100))).thenReturn(new EventArchiveBatch(0, null, null, 0, 0));
+
+        eventArchiver.archiveNextBatch();
+        eventArchiver.archiveNextBatch();
+
+        verify(eventArchiveDao).findEarliestTransactionCreatedDate();
+        assertThat(metricRegistry.counter("event-archive.archived-resources").getCount(), is(3L));
+        assertThat(metricRegistry.counter("event-archive.archived-events").getCount(), is(12L));
+    }
+
+    @Test
+    public void shouldStartWalkingAgainFromEarliestTransactionOnceWalkIsComplete() {
+        ZonedDateTime laterCreatedDate = ZonedDateTime.parse("2019-06-01T00:00:00.000Z");
+        when(eventArchiveDao.findEarliestTransactionCreatedDate()).thenReturn(EARLIEST_CREATED_DATE, laterCreatedDate);
+        when(eventArchiveDao.archiveEventsForFinishedTransactions(any(), anyLong(), any(), anyList(), anyInt()))
+                .thenReturn(new EventArchiveBatch(0, null, null, 0, 0));
+
+        eventArchiver.archiveNextBatch();
+        eventArchiver.archiveNextBatch();
+
+        verify(eventArchiveDao).archiveEventsForFinishedTransactions(eq(EARLIEST_CREATED_DATE), eq(0L),
+                eq(CREATED_BEFORE), anyList(), eq(100));
+        verify(eventArchiveDao).archiveEventsForFinishedTransactions(eq(laterCreatedDate), eq(0L),
+                eq(CREATED_BEFORE), anyList(), eq(100));
+    }
+
+    @Test
+    public void shouldOnlyArchiveEventsOfTransactionsInFinishedStates() {
+        when(eventArchiveDao.findEarliestTransactionCreatedDate()).thenReturn(EARLIEST_CREATED_DATE);
+        when(eventArchiveDao.archiveEventsForFinishedTransactions(any(), anyLong(), any(), anyList(), anyInt()))
+                .thenReturn(new EventArchiveBatch(0, null, null, 0, 0));
+
+        eventArchiver.archiveNextBatch();
+
+        verify(eventArchiveDao).archiveEventsForFinishedTransactions(any(), anyLong(), any(), statesCaptor.capture(), anyInt());
+        assertThat(statesCaptor.getValue(), containsInAnyOrder("SUCCESS", "FAILED_REJECTED", "FAILED_EXPIRED",
+                "FAILED_CANCELLED", "CANCELLED", "ERROR", "ERROR_GATEWAY"));
+    }
+
+    @Test
+    public void shouldDoNothingWhenThereAreNoTransactions() {
+        eventArchiver.archiveNextBatch();
+
+        verify(eventArchiveDao).findEarliestTransactionCreatedDate();
+        verifyNoMoreInteractions(eventArchiveDao);
+    }
+}
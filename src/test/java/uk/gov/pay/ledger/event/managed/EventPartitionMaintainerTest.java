@@ -0,0 +1,64 @@
+package uk.gov.pay.ledger.event.managed;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.EventPartitionConfig;
+import uk.gov.pay.ledger.event.dao.EventPartitionDao;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EventPartitionMaintainerTest {
+
+    @Mock
+    private EventPartitionDao eventPartitionDao;
+
+    @Mock
+    private EventPartitionConfig config;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private EventPartitionMaintainer eventPartitionMaintainer;
+
+    @BeforeEach
+    public void setUp() {
+        when(config.getMonthsCreatedAhead()).thenReturn(3);
+        Clock clock = Clock.fixed(Instant.parse("2020-11-30T23:30:00Z"), ZoneOffset.UTC);
+        eventPartitionMaintainer = new EventPartitionMaintainer(eventPartitionDao, config, scheduledExecutorService, clock);
+    }
+
+    @Test
+    public void shouldCreatePartitionsForFollowingMonths() {
+        eventPartitionMaintainer.createFuturePartitions();
+
+        verify(eventPartitionDao).createMonthlyPartition(LocalDate.parse("2020-12-01"));
+        verify(eventPartitionDao).createMonthlyPartition(LocalDate.parse("2021-01-01"));
+        verify(eventPartitionDao).createMonthlyPartition(LocalDate.parse("2021-02-01"));
+        verifyNoMoreInteractions(eventPartitionDao);
+    }
+
+    @Test
+    public void shouldCarryOnCreatingPartitionsWhenOneFails() {
+        when(eventPartitionDao.createMonthlyPartition(any(LocalDate.class))).thenReturn(true);
+        when(eventPartitionDao.createMonthlyPartition(LocalDate.parse("2020-12-01")))
+                .thenThrow(new RuntimeException("canceling statement due to lock timeout"));
+
+        eventPartitionMaintainer.createFuturePartitions();
+
+        verify(eventPartitionDao).createMonthlyPartition(LocalDate.parse("2021-01-01"));
+        verify(eventPartitionDao).createMonthlyPartition(LocalDate.parse("2021-02-01"));
+    }
+}
@@ -8,9 +8,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.event.dao.EventDao;
 import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventTicker;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.event.service.EventTickerService;
+import uk.gov.pay.ledger.exception.BadRequestExceptionMapper;
 import uk.gov.pay.ledger.util.fixture.EventFixture;
 
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.Response;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -22,6 +30,7 @@ import static org.mockito.Mockito.when;
 @ExtendWith(DropwizardExtensionsSupport.class)
 public class EventResourceTest {
     private static final EventDao dao = mock(EventDao.class);
+    private static final EventTickerService eventTickerService = mock(EventTickerService.class);
     private static final Long eventId = 1L;
     private static final String nonExistentId = "I'm not really here";
     private final Event event = EventFixture.anEventFixture()
@@ -29,7 +38,8 @@ public class EventResourceTest {
             .toEntity();
 
     public static final ResourceExtension resources = ResourceExtension.builder()
-            .addResource(new EventResource(dao))
+            .addResource(new EventResource(dao, eventTickerService))
+            .addProvider(BadRequestExceptionMapper.class)
             .build();
 
     @BeforeEach
@@ -54,4 +64,28 @@ public class EventResourceTest {
         Response response = resources.target("/v1/event/ticker").request().get();
         assertThat(response.getStatus(), is(400));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnEventTickerRowsAfterSinceId() {
+        EventTicker eventTicker = new EventTicker(11L, ResourceType.PAYMENT, "external-id", ZonedDateTime.parse("2019-09-30T08:30:00.000Z"),
+                "PAYMENT_CREATED", "visa", "PAYMENT", "sandbox", "1", 1000L);
+        when(eventTickerService.getEventsTickerSince(10L, 500)).thenReturn(List.of(eventTicker));
+
+        Map<String, Object> response = resources.target("/v1/event/ticker/tail")
+                .queryParam("since_id", 10)
+                .request()
+                .get(new GenericType<>() {});
+
+        assertThat(response.get("last_event_id"), is(11));
+        assertThat(((List<?>) response.get("results")).size(), is(1));
+    }
+
+    @Test
+    public void shouldReturn400IfTickerTailLimitIsTooLarge() {
+        Response response = resources.target("/v1/event/ticker/tail")
+                .queryParam("limit", 5001)
+                .request()
+                .get();
+        assertThat(response.getStatus(), is(400));
+    }
+}
@@ -0,0 +1,186 @@
+package uk.gov.pay.ledger.event.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.EventTickerConfig;
+import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.EventTicker;
+import uk.gov.pay.ledger.event.model.ResourceType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EventTickerServiceTest {
+
+    private static final Instant NOW = Instant.parse("2019-09-30T09:00:00.000Z");
+    private static final ZonedDateTime OLDEST_EVENT_DATE = ZonedDateTime.parse("2019-09-30T08:00:00.000Z");
+
+    @Mock
+    private EventDao eventDao;
+
+    @Mock
+    private EventTickerConfig config;
+
+    @Mock
+    private QueueMessageReceiverConfig queueMessageReceiverConfig;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private Clock clock;
+
+    private MetricRegistry metricRegistry;
+    private EventTickerService eventTickerService;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(config.getBufferSize()).thenReturn(3);
+        lenient().when(config.getLateCommitWindowInMilliseconds()).thenReturn(60000);
+        lenient().when(clock.instant()).thenReturn(NOW);
+        metricRegistry = new MetricRegistry();
+        eventTickerService = new EventTickerService(eventDao, config, Duration.ofMinutes(60), scheduledExecutorService,
+                clock, metricRegistry);
+    }
+
+    @Test
+    public void shouldReadFromDatabaseBeforeBufferIsLoaded() {
+        when(eventDao.findEventsTickerSinceId(5L, OLDEST_EVENT_DATE, 10)).thenReturn(List.of(aTickerRow(6L)));
+
+        List<EventTicker> rows = eventTickerService.getEventsTickerSince(5L, 10);
+
+        assertThat(ids(rows), contains(6L));
+        assertThat(metricRegistry.counter("event-ticker.database-reads").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldServeCommittedRowsAfterSinceIdFromBuffer() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(61));
+        when(eventDao.findLatestEventsTicker(any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(3L), aTickerRow(2L)));
+        when(eventDao.findEventsTickerSinceId(eq(3L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of());
+        eventTickerService.refresh();
+        eventTickerService.refresh();
+
+        assertThat(ids(eventTickerService.getEventsTickerSince(2L, 10)), contains(3L));
+        assertThat(ids(eventTickerService.getEventsTickerSince(null, 10)), contains(2L, 3L));
+        assertThat(eventTickerService.getEventsTickerSince(3L, 10), is(empty()));
+        assertThat(metricRegistry.counter("event-ticker.buffer-reads").getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldNotServeRowsAfterCommittedId() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(61));
+        when(eventDao.findLatestEventsTicker(any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(1L)));
+        when(eventDao.findEventsTickerSinceId(eq(1L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(2L)));
+        eventTickerService.refresh();
+        eventTickerService.refresh();
+
+        assertThat(eventTickerService.getEventsTickerSince(1L, 10), is(empty()));
+        assertThat(ids(eventTickerService.getEventsTickerSince(null, 10)), contains(1L));
+    }
+
+    @Test
+    public void shouldEvictOldestRowsAndFallBackToDatabaseForOlderIds() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(61), NOW.plusSeconds(122));
+        when(eventDao.findLatestEventsTicker(any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(2L), aTickerRow(1L)));
+        when(eventDao.findEventsTickerSinceId(eq(2L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(3L)));
+        when(eventDao.findEventsTickerSinceId(eq(3L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(4L)));
+        when(eventDao.findEventsTickerSinceId(eq(0L), any(ZonedDateTime.class), eq(10)))
+                .thenReturn(List.of(aTickerRow(1L), aTickerRow(2L), aTickerRow(3L), aTickerRow(4L)));
+        eventTickerService.refresh();
+        eventTickerService.refresh();
+        eventTickerService.refresh();
+
+        assertThat(ids(eventTickerService.getEventsTickerSince(1L, 10)), contains(2L, 3L));
+        assertThat(ids(eventTickerService.getEventsTickerSince(0L, 10)), contains(1L, 2L, 3L));
+        assertThat(metricRegistry.counter("event-ticker.database-reads").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotifyListenersOfCommittedRowsOnce() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(61), NOW.plusSeconds(122), NOW.plusSeconds(183));
+        when(eventDao.findLatestEventsTicker(any(ZonedDateTime.class), eq(3))).thenReturn(List.of());
+        when(eventDao.findEventsTickerSinceId(eq(0L), any(ZonedDateTime.class), eq(3)))
+                .thenReturn(List.of(aTickerRow(1L), aTickerRow(2L)));
+        when(eventDao.findEventsTickerSinceId(eq(2L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of());
+        List<Long> notified = new ArrayList<>();
+        eventTickerService.addListener(row -> notified.add(row.getId()));
+
+        for (int i = 0; i < 4; i++) {
+            eventTickerService.refresh();
+        }
+
+        assertThat(notified, contains(1L, 2L));
+    }
+
+    @Test
+    public void shouldServeRowsThatCommitAfterHigherIdsWereReadInIdOrder() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(1), NOW.plusSeconds(61), NOW.plusSeconds(62),
+                NOW.plusSeconds(122));
+        when(eventDao.findLatestEventsTicker(any(ZonedDateTime.class), eq(3))).thenReturn(List.of(aTickerRow(1L)));
+        when(eventDao.findEventsTickerSinceId(eq(0L), any(ZonedDateTime.class), eq(3)))
+                .thenReturn(List.of(aTickerRow(1L), aTickerRow(3L)));
+        // the event with id 4 commits after the event with id 5 has been read
+        when(eventDao.findEventsTickerSinceId(eq(3L), any(ZonedDateTime.class), eq(3)))
+                .thenReturn(List.of(aTickerRow(5L)), List.of(aTickerRow(4L), aTickerRow(5L)));
+        when(eventDao.findEventsTickerSinceId(eq(5L), any(ZonedDateTime.class), eq(3))).thenReturn(List.of());
+        List<Long> notified = new ArrayList<>();
+        eventTickerService.addListener(row -> notified.add(row.getId()));
+
+        for (int i = 0; i < 5; i++) {
+            eventTickerService.refresh();
+        }
+
+        assertThat(notified, contains(3L, 4L, 5L));
+        assertThat(ids(eventTickerService.getEventsTickerSince(3L, 10)), contains(4L, 5L));
+    }
+
+    @Test
+    public void shouldWidenMaxEventAgeToCoverMessageRetries() {
+        when(config.getMaxEventAgeInMinutes()).thenReturn(60);
+        when(queueMessageReceiverConfig.getMessageRetryDelayInSeconds()).thenReturn(900);
+        when(queueMessageReceiverConfig.getQuarantineAfterReceiveCount()).thenReturn(5);
+
+        assertThat(EventTickerService.maxEventAge(config, queueMessageReceiverConfig), is(Duration.ofMinutes(75)));
+    }
+
+    @Test
+    public void shouldCoalesceRefreshesRequestedByIngestPath() {
+        eventTickerService.onEventIngested();
+        eventTickerService.onEventIngested();
+
+        verify(scheduledExecutorService, times(1)).execute(any(Runnable.class));
+    }
+
+    private static List<Long> ids(List<EventTicker> rows) {
+        return rows.stream().map(EventTicker::getId).collect(Collectors.toList());
+    }
+
+    private static EventTicker aTickerRow(Long id) {
+        return new EventTicker(id, ResourceType.PAYMENT, "external-id-" + id, ZonedDateTime.parse("2019-09-30T08:30:00.000Z"),
+                "PAYMENT_CREATED", "visa", "PAYMENT", "sandbox", "1", 1000L);
+    }
+}
@@ -0,0 +1,196 @@
+package uk.gov.pay.ledger.loadtest;
+
+import com.amazonaws.services.sqs.model.PurgeQueueRequest;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.RateLimiter;
+import io.dropwizard.jackson.Jackson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.rule.SqsTestDocker;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.dropwizard.testing.ConfigOverride.config;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+
+/**
+ * Measures ingestion throughput through the real pipeline: synthesised payment lifecycles are sent to the local SQS
+ * stand-in at a fixed rate and read by the app's own QueueMessageReceiver into Postgres.
+ *
+ * Reports the sustained throughput, the ingest lag (from the event being sent to it being processed) and the time
+ * spent in each stage of handling a message. Results are logged and written to target/loadtest/ingestion.json.
+ *
+ * Not run with the unit tests, run it with
+ *
+ *   mvn -DrunLoadTests test
+ *
+ * and tune it with -Dloadtest.eventsPerSecond, -Dloadtest.durationInSeconds, -Dloadtest.senderThreads,
+ * -Dloadtest.receiverThreads, -Dloadtest.maxReceiverThreads, -Dloadtest.concurrentLifecycles, -Dloadtest.accounts, -Dloadtest.accountSkew,
+ * -Dloadtest.refundRate and -Dloadtest.payoutRate.
+ */
+public class IngestionLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestionLoadTest.class);
+
+    private static final int EVENTS_PER_SECOND = Integer.getInteger("loadtest.eventsPerSecond", 200);
+    private static final int DURATION_IN_SECONDS = Integer.getInteger("loadtest.durationInSeconds", 60);
+    private static final int SENDER_THREADS = Integer.getInteger("loadtest.senderThreads", 4);
+    private static final int RECEIVER_THREADS = Integer.getInteger("loadtest.receiverThreads", 1);
+    private static final int MAX_RECEIVER_THREADS = Integer.getInteger("loadtest.maxReceiverThreads", 4);
+    private static final int CONCURRENT_LIFECYCLES = Integer.getInteger("loadtest.concurrentLifecycles", 200);
+    private static final int ACCOUNTS = Integer.getInteger("loadtest.accounts", 100);
+    private static final double ACCOUNT_SKEW = Double.parseDouble(System.getProperty("loadtest.accountSkew", "1.0"));
+    private static final double REFUND_RATE = Double.parseDouble(System.getProperty("loadtest.refundRate", "0.2"));
+    private static final double PAYOUT_RATE = Double.parseDouble(System.getProperty("loadtest.payoutRate", "0.1"));
+    private static final int WARM_UP_SECONDS = 5;
+    private static final int DRAIN_TIMEOUT_IN_SECONDS = 300;
+    private static final Path RESULTS = Path.of("target", "loadtest", "ingestion.json");
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension(
+            config("queueMessageReceiverConfig.backgroundProcessingEnabled", "true"),
+            config("queueMessageReceiverConfig.numberOfThreads", String.valueOf(RECEIVER_THREADS)),
+            config("queueMessageReceiverConfig.maxNumberOfThreads", String.valueOf(MAX_RECEIVER_THREADS))
+    );
+
+    private DatabaseTestHelper databaseTestHelper = aDatabaseTestHelper(rule.getJdbi());
+
+    @BeforeEach
+    public void setUp() {
+        rule.getSqsClient().purgeQueue(new PurgeQueueRequest(SqsTestDocker.getQueueUrl("event-queue")));
+        databaseTestHelper.truncateAllData();
+        databaseTestHelper.truncateAllPayoutData();
+    }
+
+    @Test
+    public void measureIngestionThroughput() throws Exception {
+        PaymentLifecycleGenerator generator = new PaymentLifecycleGenerator(CONCURRENT_LIFECYCLES, ACCOUNTS,
+                ACCOUNT_SKEW, REFUND_RATE, PAYOUT_RATE, new Random(42));
+        long eventsToSend = (long) EVENTS_PER_SECOND * DURATION_IN_SECONDS;
+        AtomicLong eventsSent = new AtomicLong();
+        RateLimiter rateLimiter = RateLimiter.create(EVENTS_PER_SECOND);
+
+        long startNanos = System.nanoTime();
+        ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS);
+        for (int i = 0; i < SENDER_THREADS; i++) {
+            senders.execute(() -> {
+                while (eventsSent.incrementAndGet() <= eventsToSend) {
+                    rateLimiter.acquire();
+                    generator.next(ZonedDateTime.now(ZoneOffset.UTC)).insert(rule.getSqsClient());
+                }
+            });
+        }
+
+        List<Long> ingestedPerSecond = new ArrayList<>();
+        long ingested = 0;
+        long lastIngestedNanos = startNanos;
+        while (ingested < eventsToSend && secondsSince(startNanos) < DURATION_IN_SECONDS + DRAIN_TIMEOUT_IN_SECONDS) {
+            Thread.sleep(1000);
+            long count = countEvents();
+            ingestedPerSecond.add(count - ingested);
+            if (count > ingested) {
+                lastIngestedNanos = System.nanoTime();
+            }
+            ingested = count;
+        }
+        senders.shutdownNow();
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+
+        Map<String, Object> results = results(generator, eventsToSend, ingested,
+                (lastIngestedNanos - startNanos) / 1e9, ingestedPerSecond);
+        Files.createDirectories(RESULTS.getParent());
+        Jackson.newObjectMapper().writerWithDefaultPrettyPrinter().writeValue(RESULTS.toFile(), results);
+        LOGGER.info("Ingestion load test results {}", results);
+
+        assertThat(ingested, is(eventsToSend));
+    }
+
+    private Map<String, Object> results(PaymentLifecycleGenerator generator, long eventsSent, long eventsIngested,
+                                        double elapsedSeconds, List<Long> ingestedPerSecond) {
+        MetricRegistry metrics = rule.getAppRule().getEnvironment().metrics();
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("target_events_per_second", EVENTS_PER_SECOND);
+        results.put("receiver_threads", RECEIVER_THREADS);
+        results.put("max_receiver_threads", MAX_RECEIVER_THREADS);
+        results.put("receiver_concurrency_at_end",
+                metrics.getGauges().get("queue-message-receiver.concurrency").getValue());
+        results.put("payments", generator.getPaymentsStarted());
+        results.put("events_sent", eventsSent);
+        results.put("events_ingested", eventsIngested);
+        results.put("elapsed_seconds", round(elapsedSeconds));
+        results.put("overall_events_per_second", round(eventsIngested / elapsedSeconds));
+        results.put("sustained_events_per_second", round(sustainedRate(ingestedPerSecond)));
+
+        Histogram ingestLag = metrics.histogram("event-message-handler.ingest-lag-microseconds");
+        Snapshot ingestLagSnapshot = ingestLag.getSnapshot();
+        results.put("ingest_lag_p50_ms", round(ingestLagSnapshot.getMedian() / 1000));
+        results.put("ingest_lag_p99_ms", round(ingestLagSnapshot.get99thPercentile() / 1000));
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        metrics.getTimers(MetricFilter.startsWith("event-message-handler.")).forEach((name, timer) ->
+                stages.put(name.substring("event-message-handler.".length()), stageTimings(timer)));
+        results.put("stages", stages);
+        return results;
+    }
+
+    private static Map<String, Object> stageTimings(Timer timer) {
+        Snapshot snapshot = timer.getSnapshot();
+        Map<String, Object> timings = new LinkedHashMap<>();
+        timings.put("count", timer.getCount());
+        timings.put("mean_ms", round(snapshot.getMean() / 1e6));
+        timings.put("p50_ms", round(snapshot.getMedian() / 1e6));
+        timings.put("p99_ms", round(snapshot.get99thPercentile() / 1e6));
+        return timings;
+    }
+
+    /**
+     * The mean rate over the seconds events were being ingested, leaving out the warm up.
+     */
+    private static double sustainedRate(List<Long> ingestedPerSecond) {
+        return ingestedPerSecond.stream()
+                .skip(WARM_UP_SECONDS)
+                .filter(count -> count > 0)
+                .mapToLong(Long::longValue)
+                .average()
+                .orElse(0);
+    }
+
+    private long countEvents() {
+        return rule.getJdbi().withHandle(handle -> handle
+                .createQuery("SELECT count(*) FROM event")
+                .mapTo(Long.class)
+                .one());
+    }
+
+    private static long secondsSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
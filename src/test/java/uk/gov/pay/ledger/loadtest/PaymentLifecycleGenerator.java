@@ -0,0 +1,134 @@
+package uk.gov.pay.ledger.loadtest;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.util.fixture.QueueFixture;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+import static uk.gov.pay.ledger.util.fixture.QueuePayoutEventFixture.aQueuePayoutEventFixture;
+import static uk.gov.pay.ledger.util.fixture.QueueRefundEventFixture.aQueueRefundEventFixture;
+
+/**
+ * Synthesises queue events for realistic payment lifecycles: a payment is created, authorised and captured, then may
+ * be refunded and paid out. Many lifecycles are in progress at once and the next event is taken from a random one, so
+ * events for different resources are interleaved the way they arrive from connector.
+ *
+ * Payments are spread over gateway accounts with a Zipf distribution, so with a skew above 0 a few accounts receive
+ * most of the traffic.
+ */
+class PaymentLifecycleGenerator {
+
+    private static final List<String> PAYMENT_EVENT_TYPES = List.of(
+            "PAYMENT_CREATED",
+            "PAYMENT_DETAILS_ENTERED",
+            "AUTHORISATION_SUCCEEDED",
+            "USER_APPROVED_FOR_CAPTURE",
+            "CAPTURE_SUBMITTED",
+            "CAPTURE_CONFIRMED"
+    );
+    private static final List<String> REFUND_EVENT_TYPES = List.of(
+            "REFUND_CREATED_BY_USER",
+            "REFUND_SUBMITTED",
+            "REFUND_SUCCEEDED"
+    );
+    private static final List<String> PAYOUT_EVENT_TYPES = List.of(
+            "PAYOUT_CREATED",
+            "PAYOUT_PAID"
+    );
+
+    private final double refundRate;
+    private final double payoutRate;
+    private final Random random;
+    private final double[] cumulativeAccountWeights;
+    private final List<Deque<Function<ZonedDateTime, QueueFixture<?, Event>>>> lifecycles = new ArrayList<>();
+    private long paymentsStarted;
+
+    PaymentLifecycleGenerator(int concurrentLifecycles, int accounts, double accountSkew, double refundRate,
+                              double payoutRate, Random random) {
+        this.refundRate = refundRate;
+        this.payoutRate = payoutRate;
+        this.random = random;
+        this.cumulativeAccountWeights = cumulativeZipfWeights(accounts, accountSkew);
+        for (int i = 0; i < concurrentLifecycles; i++) {
+            lifecycles.add(aLifecycle());
+        }
+    }
+
+    /**
+     * @param eventDate the date to give the event, usually the time it is sent so ingest lag can be measured from it
+     * @return the next event of a random in-progress lifecycle, ready to be inserted into the queue
+     */
+    synchronized QueueFixture<?, Event> next(ZonedDateTime eventDate) {
+        int index = random.nextInt(lifecycles.size());
+        Deque<Function<ZonedDateTime, QueueFixture<?, Event>>> lifecycle = lifecycles.get(index);
+        QueueFixture<?, Event> event = lifecycle.poll().apply(eventDate);
+        if (lifecycle.isEmpty()) {
+            lifecycles.set(index, aLifecycle());
+        }
+        return event;
+    }
+
+    synchronized long getPaymentsStarted() {
+        return paymentsStarted;
+    }
+
+    private Deque<Function<ZonedDateTime, QueueFixture<?, Event>>> aLifecycle() {
+        paymentsStarted++;
+        String paymentExternalId = RandomStringUtils.randomAlphanumeric(26);
+        String gatewayAccountId = String.valueOf(aGatewayAccountId());
+
+        Deque<Function<ZonedDateTime, QueueFixture<?, Event>>> steps = new ArrayDeque<>();
+        PAYMENT_EVENT_TYPES.forEach(eventType -> steps.add(eventDate -> aQueuePaymentEventFixture()
+                .withResourceExternalId(paymentExternalId)
+                .withGatewayAccountId(gatewayAccountId)
+                .withEventDate(eventDate)
+                .withEventType(eventType)
+                .withDefaultEventDataForEventType(eventType)));
+
+        if (random.nextDouble() < refundRate) {
+            String refundExternalId = RandomStringUtils.randomAlphanumeric(26);
+            REFUND_EVENT_TYPES.forEach(eventType -> steps.add(eventDate -> aQueueRefundEventFixture()
+                    .withResourceExternalId(refundExternalId)
+                    .withParentResourceExternalId(paymentExternalId)
+                    .withGatewayTransactionId(RandomStringUtils.randomAlphanumeric(20))
+                    .withEventDate(eventDate)
+                    .withEventType(eventType)
+                    .withDefaultEventDataForEventType(eventType)));
+        }
+
+        if (random.nextDouble() < payoutRate) {
+            String payoutExternalId = "po_" + RandomStringUtils.randomAlphanumeric(20);
+            PAYOUT_EVENT_TYPES.forEach(eventType -> steps.add(eventDate -> aQueuePayoutEventFixture()
+                    .withResourceExternalId(payoutExternalId)
+                    .withEventDate(eventDate)
+                    .withEventType(eventType)
+                    .withDefaultEventDataForEventType(eventType)));
+        }
+        return steps;
+    }
+
+    private int aGatewayAccountId() {
+        double target = random.nextDouble() * cumulativeAccountWeights[cumulativeAccountWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeAccountWeights, target);
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+
+    private static double[] cumulativeZipfWeights(int accounts, double skew) {
+        double[] weights = new double[accounts];
+        double total = 0;
+        for (int rank = 1; rank <= accounts; rank++) {
+            total += 1 / Math.pow(rank, skew);
+            weights[rank - 1] = total;
+        }
+        return weights;
+    }
+}
@@ -5,6 +5,7 @@ import au.com.dius.pact.consumer.MessagePactProviderRule;
 import au.com.dius.pact.consumer.Pact;
 import au.com.dius.pact.consumer.PactVerification;
 import au.com.dius.pact.model.v3.messaging.MessagePact;
+import com.codahale.metrics.MetricRegistry;
 import com.google.gson.Gson;
 import org.junit.Rule;
 import org.junit.Test;
@@ -66,7 +67,8 @@ public class CancelledByUserEventQueueContractTest {
     public void test() {
         appRule.getSqsClient().sendMessage(SqsTestDocker.getQueueUrl("event-queue"), new String(currentMessage));
 
-        TransactionDao transactionDao = new TransactionDao(appRule.getJdbi());
+        TransactionDao transactionDao = new TransactionDao(appRule.getJdbi(), appRule.getJdbi(),
+                appRule.getJdbi(), appRule.getJdbi(), new MetricRegistry());
 
         await().atMost(1, TimeUnit.SECONDS).until(
                 () -> transactionDao.findTransactionByExternalId(externalId).isPresent()
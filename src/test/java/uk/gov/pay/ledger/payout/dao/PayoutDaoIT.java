@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.payout.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,7 +26,7 @@ public class PayoutDaoIT {
     @RegisterExtension
     public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
 
-    private PayoutDao payoutDao = new PayoutDao(rule.getJdbi());
+    private PayoutDao payoutDao = new PayoutDao(rule.getJdbi(), rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
     private String gatewayPayoutId;
 
     @BeforeEach
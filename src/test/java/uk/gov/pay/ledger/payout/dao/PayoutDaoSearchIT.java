@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.payout.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -32,7 +33,7 @@ public class PayoutDaoSearchIT {
     @BeforeEach
     public void setUp() {
         databaseTestHelper.truncateAllPayoutData();
-        payoutDao = new PayoutDao(rule.getJdbi());
+        payoutDao = new PayoutDao(rule.getJdbi(), rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
         searchParams = new PayoutSearchParams();
     }
 
@@ -0,0 +1,156 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.UnitOfWork;
+import uk.gov.pay.ledger.app.config.ProjectionCoalescingConfig;
+import uk.gov.pay.ledger.event.model.Event;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class CoalescingProjectorTest {
+
+    @Mock
+    private ProjectionCoalescingConfig config;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private EventDigestHandler eventDigestHandler;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private Handle handle;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private CoalescingProjector coalescingProjector;
+
+    @BeforeEach
+    public void setUp() {
+        when(config.getDebounceWindowInMilliseconds()).thenReturn(200);
+        when(config.getMaxPendingResources()).thenReturn(2);
+
+        coalescingProjector = new CoalescingProjector(config, scheduledExecutorService, eventDigestHandler,
+                unitOfWork, metricRegistry);
+    }
+
+    @Test
+    public void shouldProjectResourceOnceForEventsMarkedWithinTheWindow() {
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<HandleCallback<?, ?>>getArgument(0).withHandle(handle));
+        Event event = anEventFor("resource-1");
+        Event anotherEvent = anEventFor("resource-1");
+
+        CompletableFuture<Void> projected = coalescingProjector.markDirty(event);
+        CompletableFuture<Void> anotherProjected = coalescingProjector.markDirty(anotherEvent);
+
+        ArgumentCaptor<Runnable> projection = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduledExecutorService).schedule(projection.capture(), eq(200L), eq(MILLISECONDS));
+        assertThat(coalescingProjector.getPendingResources(), is(1));
+        assertThat(projected.isDone(), is(false));
+
+        projection.getValue().run();
+
+        verify(eventDigestHandler).processEventsByResource(List.of(event, anotherEvent));
+        assertThat(projected.isDone(), is(true));
+        assertThat(anotherProjected.isDone(), is(true));
+        assertThat(coalescingProjector.getPendingResources(), is(0));
+        assertThat(metricRegistry.histogram("coalescing-projector.events-per-projection").getSnapshot().getMax(), is(2L));
+    }
+
+    @Test
+    public void shouldCompleteFuturesExceptionally_WhenProjectionFails() {
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<HandleCallback<?, ?>>getArgument(0).withHandle(handle));
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEventsByResource(any());
+
+        CompletableFuture<Void> projected = coalescingProjector.markDirty(anEventFor("resource-1"));
+        coalescingProjector.project("resource-1");
+
+        assertThat(projected.isCompletedExceptionally(), is(true));
+        assertThat(coalescingProjector.getPendingResources(), is(0));
+    }
+
+    @Test
+    public void shouldProjectWithoutWaiting_WhenTooManyResourcesArePending() {
+        coalescingProjector.markDirty(anEventFor("resource-1"));
+        coalescingProjector.markDirty(anEventFor("resource-2"));
+        coalescingProjector.markDirty(anEventFor("resource-3"));
+
+        verify(scheduledExecutorService, times(2)).schedule(any(Runnable.class), eq(200L), eq(MILLISECONDS));
+        verify(scheduledExecutorService).schedule(any(Runnable.class), eq(0L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldProjectInline_WhenExecutorRejectsTheProjection() {
+        when(scheduledExecutorService.schedule(any(Runnable.class), anyLong(), any()))
+                .thenThrow(new RejectedExecutionException());
+        Event event = anEventFor("resource-1");
+
+        CompletableFuture<Void> projected = coalescingProjector.markDirty(event);
+
+        verify(unitOfWork).inTransaction(any());
+        assertThat(projected.isDone(), is(true));
+    }
+
+    @Test
+    public void shouldProjectPendingResourcesOnStop() {
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<HandleCallback<?, ?>>getArgument(0).withHandle(handle));
+        Event event = anEventFor("resource-1");
+        CompletableFuture<Void> projected = coalescingProjector.markDirty(event);
+
+        coalescingProjector.stop();
+
+        verify(eventDigestHandler).processEventsByResource(List.of(event));
+        verify(scheduledExecutorService).shutdown();
+        assertThat(projected.isDone(), is(true));
+
+        coalescingProjector.project("resource-1");
+        verify(unitOfWork, times(1)).inTransaction(any());
+        verify(eventDigestHandler, never()).processEvent(any());
+    }
+
+    @Test
+    public void shouldStopWithoutAnExecutor_WhenCoalescingIsDisabled() {
+        CoalescingProjector disabledProjector = new CoalescingProjector(config, null, eventDigestHandler,
+                unitOfWork, new MetricRegistry());
+
+        disabledProjector.stop();
+
+        assertThat(disabledProjector.isEnabled(), is(false));
+        verify(unitOfWork, never()).inTransaction(any());
+    }
+
+    private Event anEventFor(String resourceExternalId) {
+        return aQueuePaymentEventFixture().withResourceExternalId(resourceExternalId).toEntity();
+    }
+}
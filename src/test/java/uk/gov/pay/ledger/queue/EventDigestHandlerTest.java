@@ -4,20 +4,24 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.LoggerFactory;
+import uk.gov.pay.ledger.app.LedgerConfig;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
 import uk.gov.pay.ledger.payout.service.PayoutService;
+import uk.gov.pay.ledger.queue.shadow.ShadowProjectionService;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
@@ -52,6 +56,10 @@ public class EventDigestHandlerTest {
     private TransactionMetadataService transactionMetadataService;
     @Mock
     private PayoutService payoutService;
+    @Mock
+    private ShadowProjectionService shadowProjectionService;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private LedgerConfig ledgerConfig;
     private TransactionEntityFactory transactionEntityFactory;
     @Captor
     private ArgumentCaptor<LoggingEvent> loggingEventArgumentCaptor;
@@ -65,7 +73,8 @@ public class EventDigestHandlerTest {
     public void setUp() {
         transactionEntityFactory = new TransactionEntityFactory(new ObjectMapper());
         eventDigestHandler =  new EventDigestHandler(eventService, transactionService,
-                transactionMetadataService, payoutService, transactionEntityFactory);
+                transactionMetadataService, payoutService, transactionEntityFactory, shadowProjectionService,
+                new IngestionProfiler(new MetricRegistry()), ledgerConfig);
         eventDigest = EventDigest.fromEventList(List.of(anEventFixture().toEntity()));
         lenient().when(eventService.getEventDigestForResource(any(Event.class)))
                 .thenReturn(eventDigest);
@@ -82,6 +91,24 @@ public class EventDigestHandlerTest {
         verify(transactionMetadataService).upsertMetadataFor(event);
     }
 
+    @Test
+    public void shouldProjectEachResourceOnceForEventsProcessedTogether() {
+        Event paymentCreated = anEventFixture().withResourceType(PAYMENT).withResourceExternalId("payment-id").toEntity();
+        Event paymentDetailsEntered = anEventFixture().withResourceType(PAYMENT).withResourceExternalId("payment-id")
+                .withEventType("PAYMENT_DETAILS_ENTERED").toEntity();
+        Event refundCreated = anEventFixture().withResourceType(REFUND).withResourceExternalId("refund-id").toEntity();
+        when(eventService.getEventsForResource("payment-id")).thenReturn(List.of(paymentDetailsEntered, paymentCreated));
+
+        eventDigestHandler.processEventsByResource(List.of(paymentCreated, refundCreated, paymentDetailsEntered));
+
+        verify(eventService, times(1)).getEventsForResource("payment-id");
+        verify(transactionService, times(2)).upsertTransactionFor(any(EventDigest.class));
+        verify(transactionMetadataService).upsertMetadataFor(paymentCreated);
+        verify(transactionMetadataService).upsertMetadataFor(paymentDetailsEntered);
+        verify(eventService).getEventDigestForResource(refundCreated);
+        verify(transactionService).upsertTransactionFor(eventDigest);
+    }
+
     @Test
     public void shouldUpsertTransactionIfResourceTypeIsRefund() {
         Event event = anEventFixture().withResourceType(REFUND).toEntity();
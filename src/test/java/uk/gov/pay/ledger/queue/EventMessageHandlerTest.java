@@ -1,18 +1,34 @@
 package uk.gov.pay.ledger.queue;
 
+import com.codahale.metrics.MetricRegistry;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.LedgerConfig;
+import uk.gov.pay.ledger.app.UnitOfWork;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.event.service.EventTickerService;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.service.MessageQuarantine;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
@@ -29,13 +45,41 @@ public class EventMessageHandlerTest {
     @Mock
     private EventDigestHandler eventDigestHandler;
 
+    @Mock
+    private EventTickerService eventTickerService;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private Handle handle;
+
+    @Mock
+    private CoalescingProjector coalescingProjector;
+
+    @Mock
+    private IngestionProfiler ingestionProfiler;
+
+    @Mock
+    private MessageQuarantine messageQuarantine;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private LedgerConfig ledgerConfig;
+
+    @Spy
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
     @Mock
     private CreateEventResponse createEventResponse;
 
     @Mock
     private EventMessage eventMessage;
 
+    @Mock
+    private EventMessage anotherEventMessage;
+
     private Event event = aQueuePaymentEventFixture().toEntity();
+    private Event anotherEvent = aQueuePaymentEventFixture().toEntity();
 
     @InjectMocks
     private EventMessageHandler eventMessageHandler;
@@ -45,6 +89,8 @@ public class EventMessageHandlerTest {
         when(eventQueue.retrieveEvents()).thenReturn(List.of(eventMessage));
         when(eventService.createIfDoesNotExist(any())).thenReturn(createEventResponse);
         when(eventMessage.getEvent()).thenReturn(event);
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<HandleCallback<?, ?>>getArgument(0).withHandle(handle));
     }
 
     @Test
@@ -56,6 +102,16 @@ public class EventMessageHandlerTest {
         verify(eventQueue).markMessageAsProcessed(any(EventMessage.class));
     }
 
+    @Test
+    public void shouldRefreshEventTicker_WhenNewEventIsProcessed() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        when(createEventResponse.getState()).thenReturn(CreateEventResponse.CreateEventState.INSERTED);
+
+        eventMessageHandler.handle();
+
+        verify(eventTickerService).onEventIngested();
+    }
+
     @Test
     public void shouldScheduleMessageForRetry_WhenEventIsNotProcessedSuccessfully() throws QueueException {
         when(createEventResponse.isSuccessful()).thenReturn(false);
@@ -64,4 +120,131 @@ public class EventMessageHandlerTest {
 
         verify(eventQueue).scheduleMessageForRetry(any());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldStoreAndProjectEventInOneUnitOfWork() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+
+        eventMessageHandler.handle();
+
+        verify(unitOfWork).inTransaction(any());
+        verify(eventDigestHandler).processEvent(event);
+        verify(handle, never()).rollback();
+    }
+
+    @Test
+    public void shouldRollBackUnitOfWorkAndNotProject_WhenEventIsNotStored() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(false);
+
+        eventMessageHandler.handle();
+
+        verify(handle).rollback();
+        verify(eventDigestHandler, never()).processEvent(any());
+    }
+
+    @Test
+    public void shouldStoreProjectAndAcknowledgeBatchTogether_WhenGroupCommitIsEnabled() throws QueueException {
+        EventMessageHandler groupCommitEventMessageHandler = aGroupCommitEventMessageHandler();
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        when(createEventResponse.getState()).thenReturn(CreateEventResponse.CreateEventState.INSERTED);
+
+        groupCommitEventMessageHandler.handle();
+
+        verify(unitOfWork).inTransaction(any());
+        verify(eventDigestHandler).processEventsByResource(List.of(event, anotherEvent));
+        verify(eventDigestHandler, never()).processEvent(any());
+        verify(eventQueue).markMessagesAsProcessed(List.of(eventMessage, anotherEventMessage));
+        verify(eventQueue, never()).markMessageAsProcessed(any());
+        verify(eventTickerService).onEventIngested();
+    }
+
+    @Test
+    public void shouldProcessMessagesOneAtATime_WhenGroupCommitOfBatchFails() throws QueueException {
+        EventMessageHandler groupCommitEventMessageHandler = aGroupCommitEventMessageHandler();
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEventsByResource(any());
+
+        groupCommitEventMessageHandler.handle();
+
+        verify(unitOfWork, times(3)).inTransaction(any());
+        verify(eventDigestHandler).processEvent(event);
+        verify(eventDigestHandler).processEvent(anotherEvent);
+        verify(eventQueue, times(2)).markMessageAsProcessed(any());
+        verify(eventQueue, never()).markMessagesAsProcessed(any());
+        assertThat(metricRegistry.meter("event-message-handler.group-commit-fallbacks").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldQuarantineAndDeleteMessage_WhenEventCannotBeStoredAfterTooManyReceives() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(false);
+        when(createEventResponse.getErrorMessage()).thenReturn("insert failed");
+        when(messageQuarantine.shouldQuarantine(eventMessage)).thenReturn(true);
+
+        eventMessageHandler.handle();
+
+        verify(messageQuarantine).quarantine(eventMessage, QuarantineStage.INSERT, "insert failed");
+        verify(eventQueue).markMessageAsProcessed(eventMessage);
+        verify(eventQueue, never()).scheduleMessageForRetry(any());
+    }
+
+    @Test
+    public void shouldQuarantineAndDeleteMessage_WhenProjectionFailsAfterTooManyReceives() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEvent(event);
+        when(messageQuarantine.shouldQuarantine(eventMessage)).thenReturn(true);
+
+        eventMessageHandler.handle();
+
+        verify(messageQuarantine).quarantine(eventMessage, QuarantineStage.PROJECTION, "projection failed");
+        verify(eventQueue).markMessageAsProcessed(eventMessage);
+    }
+
+    @Test
+    public void shouldNotQuarantineMessage_WhenProjectionFailsBeforeTooManyReceives() throws QueueException {
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+        doThrow(new RuntimeException("projection failed")).when(eventDigestHandler).processEvent(event);
+
+        eventMessageHandler.handle();
+
+        verify(messageQuarantine, never()).quarantine(any(), any(), any());
+        verify(eventQueue, never()).markMessageAsProcessed(any());
+    }
+
+    @Test
+    public void shouldStoreEventAndAcknowledgeAfterCoalescedProjection_WhenCoalescingIsEnabled() throws QueueException {
+        CompletableFuture<Void> projected = new CompletableFuture<>();
+        when(coalescingProjector.isEnabled()).thenReturn(true);
+        when(coalescingProjector.markDirty(event)).thenReturn(projected);
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+
+        eventMessageHandler.handle();
+
+        verify(eventDigestHandler, never()).processEvent(any());
+        verify(eventQueue, never()).markMessageAsProcessed(any());
+
+        projected.complete(null);
+
+        verify(eventQueue).markMessageAsProcessed(eventMessage);
+    }
+
+    @Test
+    public void shouldScheduleMessageForRetry_WhenCoalescedProjectionFails() throws QueueException {
+        when(coalescingProjector.isEnabled()).thenReturn(true);
+        when(coalescingProjector.markDirty(event))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("projection failed")));
+        when(createEventResponse.isSuccessful()).thenReturn(true);
+
+        eventMessageHandler.handle();
+
+        verify(eventQueue).scheduleMessageForRetry(eventMessage);
+        verify(eventQueue, never()).markMessageAsProcessed(any());
+    }
+
+    private EventMessageHandler aGroupCommitEventMessageHandler() throws QueueException {
+        when(ledgerConfig.getQueueMessageReceiverConfig().isGroupCommitEnabled()).thenReturn(true);
+        when(eventQueue.retrieveEvents()).thenReturn(List.of(eventMessage, anotherEventMessage));
+        when(anotherEventMessage.getEvent()).thenReturn(anotherEvent);
+        return new EventMessageHandler(eventQueue, eventService, eventDigestHandler, eventTickerService, unitOfWork,
+                coalescingProjector, ingestionProfiler, messageQuarantine, ledgerConfig, metricRegistry);
+    }
+}
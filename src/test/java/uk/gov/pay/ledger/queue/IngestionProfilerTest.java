@@ -0,0 +1,133 @@
+package uk.gov.pay.ledger.queue;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.EventDigest;
+import uk.gov.pay.ledger.event.model.ResourceType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.DESERIALISE;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.INSERT;
+import static uk.gov.pay.ledger.queue.IngestionProfiler.Stage.UPSERT;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class IngestionProfilerTest {
+
+    private static final long ONE_MILLISECOND_IN_NANOS = 1_000_000L;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private IngestionProfiler ingestionProfiler;
+
+    private Event event = anEventFixture()
+            .withResourceExternalId("payment-1")
+            .withEventType("PAYMENT_CREATED")
+            .toEntity();
+
+    @BeforeEach
+    public void setUp() {
+        ingestionProfiler = new IngestionProfiler(metricRegistry);
+    }
+
+    @Test
+    public void shouldRecordStageTimersTaggedByResourceAndEventType() {
+        ingestionProfiler.record(INSERT, event, ONE_MILLISECOND_IN_NANOS);
+        try (IngestionProfiler.StageTimer ignored = ingestionProfiler.time(UPSERT, event)) {
+            // upsert
+        }
+
+        assertThat(metricRegistry.timer("ingestion.stage.insert.payment.payment_created").getCount(), is(1L));
+        assertThat(metricRegistry.timer("ingestion.stage.upsert.payment.payment_created").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRecordEventTypesThatAreNotSalientAsOther() {
+        Event unknownEvent = anEventFixture()
+                .withResourceType(ResourceType.PAYMENT)
+                .withEventType("SOMETHING_NEW_" + System.nanoTime())
+                .toEntity();
+
+        ingestionProfiler.record(INSERT, unknownEvent, ONE_MILLISECOND_IN_NANOS);
+        ingestionProfiler.record(INSERT, unknownEvent, ONE_MILLISECOND_IN_NANOS);
+
+        assertThat(metricRegistry.timer("ingestion.stage.insert.payment.other").getCount(), is(2L));
+        assertThat(metricRegistry.getTimers().keySet(), contains("ingestion.stage.insert.payment.other"));
+    }
+
+    @Test
+    public void shouldRecordEventsPerResourceAndDigestSize() {
+        EventDigest eventDigest = EventDigest.fromEventList(List.of(event,
+                anEventFixture().withResourceExternalId("payment-1").toEntity()));
+
+        ingestionProfiler.recordDigest(eventDigest);
+
+        assertThat(metricRegistry.histogram("ingestion.events-per-resource.payment").getSnapshot().getMax(), is(2L));
+        assertThat(metricRegistry.histogram("ingestion.digest-size.payment").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldKeepStageBreakdownOfProfiledEvents() {
+        ingestionProfiler.begin(aMessageFor(event, 2 * ONE_MILLISECOND_IN_NANOS), 3 * ONE_MILLISECOND_IN_NANOS);
+        ingestionProfiler.record(INSERT, event, 4 * ONE_MILLISECOND_IN_NANOS);
+        ingestionProfiler.end();
+
+        List<EventIngestionProfile> slowestEvents = ingestionProfiler.getSlowestRecentEvents(10);
+        assertThat(slowestEvents, hasSize(1));
+        EventIngestionProfile profile = slowestEvents.get(0);
+        assertThat(profile.getResourceExternalId(), is("payment-1"));
+        assertThat(profile.getStageMilliseconds().get("receive"), is(3.0));
+        assertThat(profile.getStageMilliseconds().get(DESERIALISE.getName()), is(2.0));
+        assertThat(profile.getStageMilliseconds().get("insert"), is(4.0));
+        assertThat(metricRegistry.timer("ingestion.stage.deserialise.payment.payment_created").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldReturnSlowestRecentEventsFirst() {
+        Event fastEvent = anEventFixture().withResourceExternalId("fast").toEntity();
+        Event slowEvent = anEventFixture().withResourceExternalId("slow").toEntity();
+
+        profile(fastEvent, ONE_MILLISECOND_IN_NANOS);
+        profile(slowEvent, 100 * ONE_MILLISECOND_IN_NANOS);
+        ingestionProfiler.record(INSERT, event, ONE_MILLISECOND_IN_NANOS);
+
+        List<EventIngestionProfile> slowestEvents = ingestionProfiler.getSlowestRecentEvents(10);
+        assertThat(slowestEvents.stream().map(EventIngestionProfile::getResourceExternalId)
+                .collect(Collectors.toList()), contains("slow", "fast"));
+        assertThat(ingestionProfiler.getSlowestRecentEvents(1), hasSize(1));
+    }
+
+    @Test
+    public void shouldOnlyKeepTheMostRecentProfiles() {
+        for (int i = 0; i <= IngestionProfiler.RECENT_EVENTS; i++) {
+            profile(event, ONE_MILLISECOND_IN_NANOS);
+        }
+
+        assertThat(ingestionProfiler.getSlowestRecentEvents(IngestionProfiler.RECENT_EVENTS + 1),
+                hasSize(IngestionProfiler.RECENT_EVENTS));
+    }
+
+    private void profile(Event event, long receiveNanos) {
+        ingestionProfiler.begin(aMessageFor(event, 0), receiveNanos);
+        ingestionProfiler.end();
+    }
+
+    private EventMessage aMessageFor(Event event, long deserialisationNanos) {
+        EventMessage eventMessage = mock(EventMessage.class);
+        when(eventMessage.getEvent()).thenReturn(event);
+        when(eventMessage.getDeserialisationNanos()).thenReturn(deserialisationNanos);
+        return eventMessage;
+    }
+}
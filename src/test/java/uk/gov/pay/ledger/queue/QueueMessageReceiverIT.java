@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.queue;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,7 +33,8 @@ public class QueueMessageReceiverIT {
             config("queueMessageReceiverConfig.backgroundProcessingEnabled", "true")
     );
 
-    TransactionDao transactionDao = new TransactionDao(rule.getJdbi());
+    TransactionDao transactionDao = new TransactionDao(rule.getJdbi(), rule.getJdbi(),
+            rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
 
     private static final ZonedDateTime CREATED_AT = ZonedDateTime.parse("2019-06-07T08:46:01.123456Z");
 
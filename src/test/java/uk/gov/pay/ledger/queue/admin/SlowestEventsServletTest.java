@@ -0,0 +1,61 @@
+package uk.gov.pay.ledger.queue.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SlowestEventsServletTest {
+
+    @Mock
+    private IngestionProfiler ingestionProfiler;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+
+    private SlowestEventsServlet servlet;
+
+    @BeforeEach
+    public void setUp() {
+        servlet = new SlowestEventsServlet(ingestionProfiler, new ObjectMapper());
+    }
+
+    @Test
+    public void shouldReturnSlowestRecentEvents() throws Exception {
+        when(request.getParameter("limit")).thenReturn("5");
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+        when(ingestionProfiler.getSlowestRecentEvents(5)).thenReturn(List.of());
+
+        servlet.doGet(request, response);
+
+        verify(response).setContentType("application/json");
+        verify(ingestionProfiler).getSlowestRecentEvents(5);
+    }
+
+    @Test
+    public void shouldReturn400IfLimitIsOutOfRange() throws Exception {
+        when(request.getParameter("limit")).thenReturn("0");
+
+        servlet.doGet(request, response);
+
+        verify(response).sendError(eq(400), anyString());
+        verifyNoInteractions(ingestionProfiler);
+    }
+}
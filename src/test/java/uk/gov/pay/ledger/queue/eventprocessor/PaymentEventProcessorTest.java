@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,6 +9,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+import uk.gov.pay.ledger.queue.shadow.ShadowProjectionService;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionMetadataService;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
@@ -34,16 +37,42 @@ class PaymentEventProcessorTest {
     private TransactionMetadataService transactionMetadataService;
     @Mock
     private RefundEventProcessor refundEventProcessor;
+    @Mock
+    private ShadowProjectionService shadowProjectionService;
 
     private PaymentEventProcessor paymentEventProcessor;
 
     @BeforeEach
     void setUp() {
-        paymentEventProcessor = new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor);
+        paymentEventProcessor = aPaymentEventProcessor(true);
+    }
+
+    @Test
+    void shouldUpdateRefundTransactionsWithPaymentDetailsWhenPaymentHasRefunds() {
+        String paymentExternalId = "payment-external-id";
+        Event event = anEventFixture().withResourceType(PAYMENT)
+                .withResourceExternalId(paymentExternalId)
+                .withEventType("ADMIN_MANUALLY_DID_AN_UPDATE")
+                .withEventData("{\"reference\": \"payment-ref\"}")
+                .toEntity();
+
+        Event previousEvent = anEventFixture().withResourceType(PAYMENT)
+                .withEventType("USER_APPROVED_FOR_CAPTURE")
+                .toEntity();
+
+        when(eventService.getEventsForResource(event.getResourceExternalId())).thenReturn(List.of(previousEvent, event));
+
+        paymentEventProcessor.process(event);
+
+        verify(transactionService).upsertTransactionFor(any(EventDigest.class));
+        verify(refundEventProcessor).updateRefundsWithPaymentDetails(any(EventDigest.class));
+        verify(transactionService, never()).getChildTransactions(any());
+        verify(refundEventProcessor, never()).reprojectRefundTransaction(any(), any());
     }
 
     @Test
-    void shouldReprojectRefundTransactionsWhenPaymentHasRefunds() {
+    void shouldReprojectRefundTransactionsWhenPaymentHasRefunds_WhenSetBasedUpdateIsDisabled() {
+        paymentEventProcessor = aPaymentEventProcessor(false);
         String paymentExternalId = "payment-external-id";
         Event event = anEventFixture().withResourceType(PAYMENT)
                 .withResourceExternalId(paymentExternalId)
@@ -65,8 +94,10 @@ class PaymentEventProcessorTest {
 
         verify(transactionService).upsertTransactionFor(any(EventDigest.class));
         verify(transactionMetadataService).upsertMetadataFor(event);
+        verify(shadowProjectionService).compare(List.of(previousEvent, event));
         verify(refundEventProcessor).reprojectRefundTransaction(eq(refundTransaction1.getExternalId()), any(EventDigest.class));
         verify(refundEventProcessor).reprojectRefundTransaction(eq(refundTransaction2.getExternalId()), any(EventDigest.class));
+        verify(refundEventProcessor, never()).updateRefundsWithPaymentDetails(any());
     }
 
     @Test
@@ -89,6 +120,7 @@ class PaymentEventProcessorTest {
         verify(transactionMetadataService).upsertMetadataFor(event);
         verify(transactionService, never()).getChildTransactions(any());
         verify(refundEventProcessor, never()).reprojectRefundTransaction(any(), any());
+        verify(refundEventProcessor, never()).updateRefundsWithPaymentDetails(any());
     }
 
     @Test
@@ -111,5 +143,11 @@ class PaymentEventProcessorTest {
         verify(transactionMetadataService).upsertMetadataFor(event);
         verify(transactionService, never()).getChildTransactions(any());
         verify(refundEventProcessor, never()).reprojectRefundTransaction(any(), any());
+        verify(refundEventProcessor, never()).updateRefundsWithPaymentDetails(any());
+    }
+
+    private PaymentEventProcessor aPaymentEventProcessor(boolean setBasedRefundUpdateEnabled) {
+        return new PaymentEventProcessor(eventService, transactionService, transactionMetadataService, refundEventProcessor,
+                shadowProjectionService, new IngestionProfiler(new MetricRegistry()), setBasedRefundUpdateEnabled);
     }
-}
\ No newline at end of file
+}
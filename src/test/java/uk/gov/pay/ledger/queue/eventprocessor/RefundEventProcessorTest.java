@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.queue.eventprocessor;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.GsonBuilder;
@@ -16,10 +17,12 @@ import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.EventDigest;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
 import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.service.TransactionService;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -37,6 +40,8 @@ class RefundEventProcessorTest {
     private TransactionService transactionService;
     @Captor
     private ArgumentCaptor<TransactionEntity> transactionEntityArgumentCaptor;
+    @Captor
+    private ArgumentCaptor<Map<String, Object>> paymentDetailsArgumentCaptor;
 
     private TransactionEntityFactory transactionEntityFactory;
     private RefundEventProcessor refundEventProcessor;
@@ -44,7 +49,8 @@ class RefundEventProcessorTest {
     @BeforeEach
     void setUp() {
         transactionEntityFactory = new TransactionEntityFactory(new ObjectMapper());
-        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory);
+        refundEventProcessor = new RefundEventProcessor(eventService, transactionService, transactionEntityFactory,
+                new IngestionProfiler(new MetricRegistry()));
     }
 
     @Test
@@ -83,4 +89,25 @@ class RefundEventProcessorTest {
         assertThat(transactionDetails.get("payment_details").getAsJsonObject(), is(notNullValue()));
         assertThat(transactionDetails.get("payment_details").getAsJsonObject().get("card_type").getAsString(), is("visa"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldUpdateRefundTransactionsWithPaymentInformation() {
+        String paymentEventData = new GsonBuilder().create()
+                .toJson(ImmutableMap.builder()
+                        .put("amount", 100)
+                        .put("reference", "payment-ref")
+                        .put("card_type", "visa")
+                        .build());
+        Event paymentEvent = anEventFixture().withEventData(paymentEventData).toEntity();
+        EventDigest paymentEventDigest = EventDigest.fromEventList(List.of(paymentEvent));
+
+        refundEventProcessor.updateRefundsWithPaymentDetails(paymentEventDigest);
+
+        verify(transactionService).updateRefundsWithPaymentDetails(transactionEntityArgumentCaptor.capture(),
+                paymentDetailsArgumentCaptor.capture());
+        TransactionEntity paymentTransactionEntity = transactionEntityArgumentCaptor.getValue();
+        assertThat(paymentTransactionEntity.getExternalId(), is(paymentEvent.getResourceExternalId()));
+        assertThat(paymentTransactionEntity.getReference(), is("payment-ref"));
+        assertThat(paymentDetailsArgumentCaptor.getValue(), is(Map.of("card_type", "visa")));
+    }
+}
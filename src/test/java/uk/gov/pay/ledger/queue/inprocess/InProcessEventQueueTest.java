@@ -0,0 +1,90 @@
+package uk.gov.pay.ledger.queue.inprocess;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.QueueException;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InProcessEventQueueTest {
+
+    private InProcessEventQueue eventQueue;
+
+    @BeforeEach
+    public void setUp() {
+        EventQueueConfig config = mock(EventQueueConfig.class);
+        when(config.getBatchSize()).thenReturn(2);
+        when(config.getPollTimeoutInMilliseconds()).thenReturn(10);
+        when(config.getInProcessCapacity()).thenReturn(3);
+
+        eventQueue = new InProcessEventQueue(config, new EventMessageParser(new ObjectMapper()));
+    }
+
+    @Test
+    public void shouldRetrievePublishedMessagesInBatches() throws Exception {
+        eventQueue.publish(aMessage("payment-1"));
+        eventQueue.publish(aMessage("payment-2"));
+        eventQueue.publish(aMessage("payment-3"));
+
+        List<EventMessage> firstBatch = eventQueue.retrieveEvents();
+        List<EventMessage> secondBatch = eventQueue.retrieveEvents();
+
+        assertThat(firstBatch, hasSize(2));
+        assertThat(firstBatch.get(0).getEvent().getResourceExternalId(), is("payment-1"));
+        assertThat(firstBatch.get(0).getQueueMessageId(), is("in-process-1"));
+        assertThat(firstBatch.get(1).getEvent().getResourceExternalId(), is("payment-2"));
+        assertThat(secondBatch, hasSize(1));
+        assertThat(secondBatch.get(0).getEvent().getResourceExternalId(), is("payment-3"));
+        assertThat(eventQueue.size(), is(0));
+    }
+
+    @Test
+    public void shouldReturnEmptyListWhenNoMessagesArePublished() throws QueueException {
+        assertThat(eventQueue.retrieveEvents(), hasSize(0));
+    }
+
+    @Test
+    public void shouldReturnMessageScheduledForRetryToTheQueue() throws Exception {
+        eventQueue.publish(aMessage("payment-1"));
+        EventMessage message = eventQueue.retrieveEvents().get(0);
+
+        eventQueue.scheduleMessageForRetry(message);
+
+        List<EventMessage> retried = eventQueue.retrieveEvents();
+        assertThat(retried, hasSize(1));
+        assertThat(retried.get(0).getQueueMessageId(), is("in-process-1"));
+        assertThat(retried.get(0).getQueueMessage().getReceiveCount(), is(2));
+    }
+
+    @Test
+    public void shouldThrowWhenRetryingIntoAFullQueue() throws Exception {
+        eventQueue.publish(aMessage("payment-1"));
+        EventMessage message = eventQueue.retrieveEvents().get(0);
+        eventQueue.publish(aMessage("payment-2"));
+        eventQueue.publish(aMessage("payment-3"));
+        eventQueue.publish(aMessage("payment-4"));
+
+        assertThrows(QueueException.class, () -> eventQueue.scheduleMessageForRetry(message));
+    }
+
+    static String aMessage(String resourceExternalId) {
+        return "{" +
+                "\"timestamp\": \"2018-03-12T16:25:01.123456Z\"," +
+                "\"resource_external_id\": \"" + resourceExternalId + "\"," +
+                "\"event_type\":\"PAYMENT_CREATED\"," +
+                "\"resource_type\": \"payment\"," +
+                "\"event_details\": {}" +
+                "}";
+    }
+}
@@ -0,0 +1,78 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.queue.managed.ConsumerConcurrency.EMPTY_RECEIVES_BEFORE_SCALING_DOWN;
+
+public class ConsumerConcurrencyTest {
+
+    private ConsumerConcurrency concurrency = new ConsumerConcurrency(1, 3, 10, 5000);
+
+    @Test
+    public void shouldStartWithMinimumConsumers() {
+        assertThat(concurrency.getActiveConsumers(), is(1));
+    }
+
+    @Test
+    public void shouldAddConsumersUpToMaximumWhileBatchesAreFull() {
+        concurrency.onReceive(10, 0);
+        assertThat(concurrency.getActiveConsumers(), is(2));
+
+        concurrency.onReceive(10, 0);
+        concurrency.onReceive(10, 0);
+        assertThat(concurrency.getActiveConsumers(), is(3));
+    }
+
+    @Test
+    public void shouldAddConsumerWhenIngestLagIsAboveTarget() {
+        concurrency.onReceive(1, 5001);
+
+        assertThat(concurrency.getActiveConsumers(), is(2));
+    }
+
+    @Test
+    public void shouldKeepConsumersForPartialBatchesWithinTargetLag() {
+        concurrency.onReceive(10, 0);
+        concurrency.onReceive(3, 100);
+
+        assertThat(concurrency.getActiveConsumers(), is(2));
+    }
+
+    @Test
+    public void shouldRemoveConsumerAfterConsecutiveEmptyReceives() {
+        concurrency.onReceive(10, 0);
+        concurrency.onReceive(10, 0);
+
+        for (int i = 0; i < EMPTY_RECEIVES_BEFORE_SCALING_DOWN - 1; i++) {
+            concurrency.onReceive(0, 0);
+        }
+        assertThat(concurrency.getActiveConsumers(), is(3));
+
+        concurrency.onReceive(0, 0);
+        assertThat(concurrency.getActiveConsumers(), is(2));
+    }
+
+    @Test
+    public void shouldNotRemoveConsumerWhenEmptyReceivesAreNotConsecutive() {
+        concurrency.onReceive(10, 0);
+
+        for (int i = 0; i < EMPTY_RECEIVES_BEFORE_SCALING_DOWN - 1; i++) {
+            concurrency.onReceive(0, 0);
+        }
+        concurrency.onReceive(1, 0);
+        concurrency.onReceive(0, 0);
+
+        assertThat(concurrency.getActiveConsumers(), is(2));
+    }
+
+    @Test
+    public void shouldNotRemoveConsumersBelowMinimum() {
+        for (int i = 0; i < EMPTY_RECEIVES_BEFORE_SCALING_DOWN * 2; i++) {
+            concurrency.onReceive(0, 0);
+        }
+
+        assertThat(concurrency.getActiveConsumers(), is(1));
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.pay.ledger.queue.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageHandler;
+import uk.gov.pay.ledger.queue.QueueException;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.util.fixture.QueuePaymentEventFixture.aQueuePaymentEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class QueueMessageReceiverTest {
+
+    @Mock
+    private QueueMessageReceiverConfig config;
+
+    @Mock
+    private EventMessageHandler eventMessageHandler;
+
+    @Mock
+    private ExecutorService executorService;
+
+    @Mock
+    private EventMessage eventMessage;
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
+    private QueueMessageReceiver queueMessageReceiver;
+
+    @BeforeEach
+    public void setUp() {
+        when(config.getNumberOfThreads()).thenReturn(1);
+        when(config.getMaxNumberOfThreads()).thenReturn(2);
+        when(config.getTargetIngestLagInMilliseconds()).thenReturn(5000);
+
+        queueMessageReceiver = new QueueMessageReceiver(config, 1, eventMessageHandler, executorService, metricRegistry);
+    }
+
+    @Test
+    public void shouldRecordPollsAndBatchSizesAndScaleUpOnFullBatch() throws QueueException {
+        when(eventMessage.getEvent()).thenReturn(aQueuePaymentEventFixture()
+                .withEventDate(ZonedDateTime.now())
+                .toEntity());
+        when(eventMessageHandler.handle()).thenReturn(List.of(eventMessage));
+
+        int received = queueMessageReceiver.receive();
+
+        assertThat(received, is(1));
+        assertThat(metricRegistry.meter("queue-message-receiver.polls").getCount(), is(1L));
+        assertThat(metricRegistry.meter("queue-message-receiver.empty-receives").getCount(), is(0L));
+        assertThat(metricRegistry.histogram("queue-message-receiver.batch-size").getSnapshot().getMax(), is(1L));
+        assertThat(metricRegistry.getGauges().get("queue-message-receiver.concurrency").getValue(), is(2));
+    }
+
+    @Test
+    public void shouldTreatFailedReceiveAsEmpty() throws QueueException {
+        when(eventMessageHandler.handle()).thenThrow(new QueueException("Failed to receive messages"));
+
+        int received = queueMessageReceiver.receive();
+
+        assertThat(received, is(0));
+        assertThat(metricRegistry.meter("queue-message-receiver.empty-receives").getCount(), is(1L));
+        assertThat(queueMessageReceiver.getConcurrency(), is(1));
+    }
+}
@@ -0,0 +1,82 @@
+package uk.gov.pay.ledger.queue.quarantine.dao;
+
+import org.jdbi.v3.core.Handle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class QuarantinedMessageDaoIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private QuarantinedMessageDao quarantinedMessageDao;
+
+    @BeforeEach
+    public void setUp() {
+        quarantinedMessageDao = rule.getJdbi().onDemand(QuarantinedMessageDao.class);
+        rule.getJdbi().withHandle(handle -> handle.execute("TRUNCATE TABLE quarantined_message"));
+    }
+
+    @Test
+    public void shouldInsertQuarantinedMessageOnceForEachQueueMessage() {
+        quarantinedMessageDao.insert("queue-message-1", "payment-1", "PAYMENT_CREATED", "{}", 5,
+                QuarantineStage.INSERT, "insert failed");
+        quarantinedMessageDao.insert("queue-message-1", "payment-1", "PAYMENT_CREATED", "{}", 6,
+                QuarantineStage.PROJECTION, "projection failed");
+
+        List<QuarantinedMessage> quarantinedMessages = quarantinedMessageDao.findLeastReplayed(10);
+
+        assertThat(quarantinedMessages.size(), is(1));
+        QuarantinedMessage quarantinedMessage = quarantinedMessages.get(0);
+        assertThat(quarantinedMessage.getQueueMessageId(), is("queue-message-1"));
+        assertThat(quarantinedMessage.getResourceExternalId(), is("payment-1"));
+        assertThat(quarantinedMessage.getMessageBody(), is("{}"));
+        assertThat(quarantinedMessage.getReceiveCount(), is(5));
+        assertThat(quarantinedMessage.getStage(), is(QuarantineStage.INSERT));
+        assertThat(quarantinedMessage.getErrorMessage(), is("insert failed"));
+        assertThat(quarantinedMessage.getReplayAttempts(), is(0));
+    }
+
+    @Test
+    public void shouldFindMessagesReplayedFewestTimesFirstAndDeleteThem() {
+        quarantinedMessageDao.insert("queue-message-1", "payment-1", "PAYMENT_CREATED", "{}", 5,
+                QuarantineStage.INSERT, "insert failed");
+        quarantinedMessageDao.insert("queue-message-2", "payment-2", "PAYMENT_CREATED", "{}", 5,
+                QuarantineStage.PROJECTION, "projection failed");
+        long firstId = quarantinedMessageDao.findLeastReplayed(1).get(0).getId();
+
+        quarantinedMessageDao.recordFailedReplay(firstId, "still failing");
+
+        List<QuarantinedMessage> quarantinedMessages = quarantinedMessageDao.findLeastReplayed(10);
+        assertThat(quarantinedMessages.get(0).getQueueMessageId(), is("queue-message-2"));
+        assertThat(quarantinedMessages.get(1).getReplayAttempts(), is(1));
+        assertThat(quarantinedMessages.get(1).getErrorMessage(), is("still failing"));
+
+        quarantinedMessageDao.delete(firstId);
+        assertThat(quarantinedMessageDao.count(), is(1L));
+    }
+
+    @Test
+    public void shouldOnlyLetOneConnectionHoldTheReplayLock() {
+        try (Handle handle = rule.getJdbi().open(); Handle otherHandle = rule.getJdbi().open()) {
+            QuarantinedMessageDao dao = handle.attach(QuarantinedMessageDao.class);
+            QuarantinedMessageDao otherDao = otherHandle.attach(QuarantinedMessageDao.class);
+
+            assertThat(dao.tryLockReplay(), is(true));
+            assertThat(otherDao.tryLockReplay(), is(false));
+
+            assertThat(dao.unlockReplay(), is(true));
+            assertThat(otherDao.tryLockReplay(), is(true));
+            assertThat(otherDao.unlockReplay(), is(true));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.pay.ledger.queue.quarantine.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.UnitOfWork;
+import uk.gov.pay.ledger.event.model.response.CreateEventResponse;
+import uk.gov.pay.ledger.queue.EventMessageHandler;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.quarantine.dao.QuarantinedMessageDao;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineReplayResult;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineStage;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantinedMessage;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class QuarantineReplayerTest {
+
+    @Mock
+    private QuarantinedMessageDao quarantinedMessageDao;
+
+    @Mock
+    private EventMessageHandler eventMessageHandler;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private Handle handle;
+
+    private QuarantineReplayer quarantineReplayer;
+
+    @BeforeEach
+    public void setUp() {
+        quarantineReplayer = new QuarantineReplayer(quarantinedMessageDao,
+                new EventMessageParser(new ObjectMapper()), eventMessageHandler, unitOfWork);
+        when(unitOfWork.withHandle(any())).thenAnswer(invocation ->
+                invocation.<HandleCallback<?, ?>>getArgument(0).withHandle(handle));
+    }
+
+    @Test
+    public void shouldRemoveMessagesThatReplaySuccessfullyFromQuarantine() {
+        String messageBody = aMessageBody("payment-1");
+        when(quarantinedMessageDao.findLeastReplayed(10)).thenReturn(List.of(aQuarantinedMessage(1L, messageBody)));
+        when(eventMessageHandler.processReplayedMessage(any())).thenReturn(new CreateEventResponse(Optional.of(1L)));
+        when(quarantinedMessageDao.tryLockReplay()).thenReturn(true);
+
+        QuarantineReplayResult result = quarantineReplayer.replay(10).get();
+
+        verify(quarantinedMessageDao).delete(1L);
+        verify(quarantinedMessageDao).unlockReplay();
+        assertThat(result.getReplayed(), is(1));
+        assertThat(result.getFailed(), is(0));
+    }
+
+    @Test
+    public void shouldKeepMessagesThatFailAgainInQuarantineWithTheNewError() {
+        String messageBody = aMessageBody("payment-1");
+        when(quarantinedMessageDao.findLeastReplayed(10)).thenReturn(List.of(
+                aQuarantinedMessage(1L, messageBody),
+                aQuarantinedMessage(2L, "not json")));
+        when(eventMessageHandler.processReplayedMessage(any())).thenThrow(new RuntimeException("projection failed"));
+        when(quarantinedMessageDao.count()).thenReturn(2L);
+        when(quarantinedMessageDao.tryLockReplay()).thenReturn(true);
+
+        QuarantineReplayResult result = quarantineReplayer.replay(10).get();
+
+        verify(quarantinedMessageDao).recordFailedReplay(1L, "projection failed");
+        verify(quarantinedMessageDao).recordFailedReplay(2L, "The message could not be parsed");
+        verify(quarantinedMessageDao, never()).delete(any(Long.class));
+        assertThat(result.getFailed(), is(2));
+        assertThat(result.getRemaining(), is(2L));
+    }
+
+    @Test
+    public void shouldNotReplayMessages_WhenAnotherReplayIsRunning() {
+        when(quarantinedMessageDao.tryLockReplay()).thenReturn(false);
+
+        Optional<QuarantineReplayResult> result = quarantineReplayer.replay(10);
+
+        assertThat(result.isPresent(), is(false));
+        verify(quarantinedMessageDao, never()).findLeastReplayed(any(Integer.class));
+        verify(quarantinedMessageDao, never()).unlockReplay();
+        verify(eventMessageHandler, never()).processReplayedMessage(any());
+    }
+
+    private static String aMessageBody(String resourceExternalId) {
+        return "{" +
+                "\"timestamp\": \"2018-03-12T16:25:01.123456Z\"," +
+                "\"resource_external_id\": \"" + resourceExternalId + "\"," +
+                "\"event_type\":\"PAYMENT_CREATED\"," +
+                "\"resource_type\": \"payment\"," +
+                "\"event_details\": {}" +
+                "}";
+    }
+
+    private QuarantinedMessage aQuarantinedMessage(long id, String messageBody) {
+        return new QuarantinedMessage(id, "queue-message-" + id, "payment-1", "PAYMENT_CREATED", messageBody, 5,
+                QuarantineStage.PROJECTION, "projection failed", 0, ZonedDateTime.now());
+    }
+}
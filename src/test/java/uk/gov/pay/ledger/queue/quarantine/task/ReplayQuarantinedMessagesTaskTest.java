@@ -0,0 +1,63 @@
+package uk.gov.pay.ledger.queue.quarantine.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.queue.quarantine.model.QuarantineReplayResult;
+import uk.gov.pay.ledger.queue.quarantine.service.QuarantineReplayer;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplayQuarantinedMessagesTaskTest {
+
+    @Mock
+    private QuarantineReplayer quarantineReplayer;
+
+    private ReplayQuarantinedMessagesTask task;
+    private StringWriter output;
+
+    @BeforeEach
+    public void setUp() {
+        task = new ReplayQuarantinedMessagesTask(quarantineReplayer, new ObjectMapper());
+        output = new StringWriter();
+    }
+
+    @Test
+    public void shouldReplayUpToLimitAndPrintOutcome() throws Exception {
+        when(quarantineReplayer.replay(10)).thenReturn(Optional.of(new QuarantineReplayResult(8, 2, 5)));
+
+        task.execute(Map.of("limit", List.of("10")), new PrintWriter(output));
+
+        assertThat(output.toString().trim(), is("{\"replayed\":8,\"failed\":2,\"remaining\":5}"));
+    }
+
+    @Test
+    public void shouldReportWhenAnotherReplayIsRunning() throws Exception {
+        when(quarantineReplayer.replay(100)).thenReturn(Optional.empty());
+
+        task.execute(Map.of(), new PrintWriter(output));
+
+        assertThat(output.toString().trim(), is("Not replaying quarantined messages as another replay is running"));
+    }
+
+    @Test
+    public void shouldRejectLimitOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> task.execute(Map.of("limit", List.of("1001")), new PrintWriter(output)));
+        verifyNoInteractions(quarantineReplayer);
+    }
+}
@@ -0,0 +1,112 @@
+package uk.gov.pay.ledger.queue.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.pay.ledger.app.config.EventQueueConfig;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NdjsonFileEventQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldReplayEveryLineOfTheFileInBatchesAcrossMappingWindows() throws Exception {
+        Path file = aReplayFile(aMessage("payment-1"), "", aMessage("payment-2"), "   ", aMessage("payment-3"));
+        NdjsonFileEventQueue eventQueue = anEventQueue(file, 2, 256);
+
+        List<EventMessage> firstBatch = eventQueue.retrieveEvents();
+        List<EventMessage> secondBatch = eventQueue.retrieveEvents();
+
+        assertThat(resourceExternalIds(firstBatch), contains("payment-1", "payment-2"));
+        assertThat(firstBatch.get(0).getQueueMessageId(), is("events.ndjson:1"));
+        assertThat(firstBatch.get(1).getQueueMessageId(), is("events.ndjson:3"));
+        assertThat(resourceExternalIds(secondBatch), contains("payment-3"));
+        assertThat(eventQueue.retrieveEvents(), hasSize(0));
+    }
+
+    @Test
+    public void shouldReplayMessagesScheduledForRetryAfterTheRestOfTheFileUpToMaxAttempts() throws Exception {
+        Path file = aReplayFile(aMessage("payment-1"), aMessage("payment-2"));
+        NdjsonFileEventQueue eventQueue = anEventQueue(file, 1, 1024);
+
+        EventMessage message = eventQueue.retrieveEvents().get(0);
+        eventQueue.scheduleMessageForRetry(message);
+
+        assertThat(resourceExternalIds(eventQueue.retrieveEvents()), contains("payment-2"));
+
+        List<String> replayed = new ArrayList<>();
+        List<EventMessage> batch;
+        while (!(batch = eventQueue.retrieveEvents()).isEmpty()) {
+            replayed.addAll(resourceExternalIds(batch));
+            eventQueue.scheduleMessageForRetry(batch.get(0));
+        }
+        assertThat(replayed, hasSize(NdjsonFileEventQueue.MAX_ATTEMPTS - 1));
+    }
+
+    @Test
+    public void shouldNotReplayMessageMarkedAsProcessed() throws Exception {
+        Path file = aReplayFile(aMessage("payment-1"));
+        NdjsonFileEventQueue eventQueue = anEventQueue(file, 10, 1024);
+
+        EventMessage message = eventQueue.retrieveEvents().get(0);
+        eventQueue.markMessageAsProcessed(message);
+
+        assertThat(eventQueue.retrieveEvents(), hasSize(0));
+    }
+
+    @Test
+    public void shouldRejectConfigWithoutReplayFile() {
+        EventQueueConfig config = mock(EventQueueConfig.class);
+        when(config.getReplayFile()).thenReturn("");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new NdjsonFileEventQueue(config, new EventMessageParser(new ObjectMapper()), 1024));
+    }
+
+    private Path aReplayFile(String... lines) throws Exception {
+        Path file = tempDir.resolve("events.ndjson");
+        Files.write(file, List.of(lines));
+        return file;
+    }
+
+    private static NdjsonFileEventQueue anEventQueue(Path file, int batchSize, long mappingSize) {
+        EventQueueConfig config = mock(EventQueueConfig.class);
+        when(config.getReplayFile()).thenReturn(file.toString());
+        when(config.getBatchSize()).thenReturn(batchSize);
+        when(config.getPollTimeoutInMilliseconds()).thenReturn(1);
+        return new NdjsonFileEventQueue(config, new EventMessageParser(new ObjectMapper()), mappingSize);
+    }
+
+    private static List<String> resourceExternalIds(List<EventMessage> messages) {
+        return messages.stream()
+                .map(message -> message.getEvent().getResourceExternalId())
+                .collect(Collectors.toList());
+    }
+
+    private static String aMessage(String resourceExternalId) {
+        return "{" +
+                "\"timestamp\": \"2018-03-12T16:25:01.123456Z\"," +
+                "\"resource_external_id\": \"" + resourceExternalId + "\"," +
+                "\"event_type\":\"PAYMENT_CREATED\"," +
+                "\"resource_type\": \"payment\"," +
+                "\"event_details\": {}" +
+                "}";
+    }
+}
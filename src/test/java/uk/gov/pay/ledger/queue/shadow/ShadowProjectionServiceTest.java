@@ -0,0 +1,113 @@
+package uk.gov.pay.ledger.queue.shadow;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.util.fixture.TransactionFixture;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
+
+public class ShadowProjectionServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Event> events = List.of(anEventFixture().withResourceExternalId("external-id").toEntity());
+    private final TransactionProjector currentProjector = events -> aTransaction().withAmount(1000L).toEntity();
+    private MetricRegistry metricRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void shouldCountMatchingProjectionsAndTimeBothVersions() {
+        ShadowProjectionService service = shadowProjectionService(true, currentProjector);
+
+        service.compare(events);
+
+        assertThat(metricRegistry.counter("shadow-projection.compared").getCount(), is(1L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatches").getCount(), is(0L));
+        assertThat(metricRegistry.timer("shadow-projection.current.projection-time").getCount(), is(1L));
+        assertThat(metricRegistry.timer("shadow-projection.candidate.projection-time").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCountMismatchedFields() {
+        ShadowProjectionService service = shadowProjectionService(true,
+                events -> aTransaction().withAmount(2000L).withTransactionDetails("{\"language\": \"cy\"}").toEntity());
+
+        service.compare(events);
+        service.compare(events);
+
+        assertThat(metricRegistry.counter("shadow-projection.compared").getCount(), is(2L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatches").getCount(), is(2L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatched-fields.amount").getCount(), is(2L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatched-fields.transaction_details").getCount(), is(2L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatched-fields.reference").getCount(), is(0L));
+        assertThat(metricRegistry.getGauges().get("shadow-projection.mismatch-rate").getValue(), is(1.0));
+    }
+
+    @Test
+    public void shouldCountCandidateErrorsAsMismatches() {
+        ShadowProjectionService service = shadowProjectionService(true, events -> {
+            throw new IllegalStateException("candidate failed");
+        });
+
+        service.compare(events);
+
+        assertThat(metricRegistry.counter("shadow-projection.compared").getCount(), is(1L));
+        assertThat(metricRegistry.counter("shadow-projection.mismatches").getCount(), is(1L));
+        assertThat(metricRegistry.counter("shadow-projection.candidate-errors").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCompareWhenDisabled() {
+        ShadowProjectionService service = shadowProjectionService(false, currentProjector);
+
+        service.compare(events);
+
+        assertThat(metricRegistry.counter("shadow-projection.compared").getCount(), is(0L));
+    }
+
+    @Test
+    public void shouldDropComparisonsWhenQueueIsFull() {
+        ExecutorService executorService = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(executorService).execute(any(Runnable.class));
+        ShadowProjectionService service = new ShadowProjectionService(true, currentProjector, currentProjector,
+                executorService, objectMapper, metricRegistry);
+
+        service.compare(events);
+
+        assertThat(metricRegistry.counter("shadow-projection.dropped").getCount(), is(1L));
+        assertThat(metricRegistry.counter("shadow-projection.compared").getCount(), is(0L));
+    }
+
+    private ShadowProjectionService shadowProjectionService(boolean enabled, TransactionProjector candidateProjector) {
+        return new ShadowProjectionService(enabled, currentProjector, candidateProjector,
+                MoreExecutors.newDirectExecutorService(), objectMapper, metricRegistry);
+    }
+
+    private static TransactionFixture aTransaction() {
+        return aTransactionFixture()
+                .withGatewayAccountId("1")
+                .withExternalId("external-id")
+                .withReference("reference")
+                .withDescription("description")
+                .withCreatedDate(ZonedDateTime.parse("2019-09-30T08:30:00.000Z"))
+                .withTransactionDetails("{\"language\": \"en\"}");
+    }
+}
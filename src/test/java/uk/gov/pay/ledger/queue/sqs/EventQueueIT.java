@@ -15,6 +15,7 @@ import uk.gov.pay.ledger.app.config.SqsConfig;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
 import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
 import uk.gov.pay.ledger.queue.EventQueue;
 import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
@@ -75,7 +76,7 @@ public class EventQueueIT {
         when(mockConfig.getQueueMessageReceiverConfig()).thenReturn(queueReceiverConfig);
 
         SqsQueueService sqsQueueService = new SqsQueueService(client, mockConfig);
-        EventQueue eventQueue = new EventQueue(sqsQueueService, mockConfig, new ObjectMapper());
+        EventQueue eventQueue = new SqsEventQueue(sqsQueueService, mockConfig, new EventMessageParser(new ObjectMapper()));
 
         List<EventMessage> result = eventQueue.retrieveEvents();
         assertFalse(result.isEmpty());
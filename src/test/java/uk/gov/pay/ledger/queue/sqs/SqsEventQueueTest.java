@@ -1,4 +1,4 @@
-package uk.gov.pay.ledger.queue;
+package uk.gov.pay.ledger.queue.sqs;
 
 import com.amazonaws.services.sqs.model.SendMessageResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -11,7 +11,10 @@ import uk.gov.pay.ledger.app.LedgerConfig;
 import uk.gov.pay.ledger.app.config.QueueMessageReceiverConfig;
 import uk.gov.pay.ledger.app.config.SqsConfig;
 import uk.gov.pay.ledger.event.model.ResourceType;
-import uk.gov.pay.ledger.queue.sqs.SqsQueueService;
+import uk.gov.pay.ledger.queue.EventMessage;
+import uk.gov.pay.ledger.queue.EventMessageParser;
+import uk.gov.pay.ledger.queue.QueueException;
+import uk.gov.pay.ledger.queue.QueueMessage;
 
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -24,7 +27,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
-public class EventQueueTest {
+public class SqsEventQueueTest {
 
     @Mock
     private LedgerConfig ledgerConfig;
@@ -32,7 +35,7 @@ public class EventQueueTest {
     @Mock
     private SqsQueueService sqsQueueService;
 
-    private EventQueue eventQueue;
+    private SqsEventQueue eventQueue;
 
     @BeforeEach
     public void setUp() throws QueueException {
@@ -59,7 +62,7 @@ public class EventQueueTest {
         when(ledgerConfig.getQueueMessageReceiverConfig()).thenReturn(queueMessageReceiverConfig);
         when(sqsQueueService.receiveMessages(anyString(), anyString())).thenReturn(messages);
 
-        eventQueue = new EventQueue(sqsQueueService, ledgerConfig, new ObjectMapper());
+        eventQueue = new SqsEventQueue(sqsQueueService, ledgerConfig, new EventMessageParser(new ObjectMapper()));
     }
 
     @Test
@@ -2,12 +2,16 @@ package uk.gov.pay.ledger.queue.sqs;
 
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.AmazonSQSException;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.app.LedgerConfig;
@@ -16,6 +20,8 @@ import uk.gov.pay.ledger.queue.QueueException;
 import uk.gov.pay.ledger.queue.QueueMessage;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -23,6 +29,8 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -70,6 +78,24 @@ public class SqsQueueServiceTest {
         assertThat(queueMessages.get(1).getReceiptHandle(), is("mock-message-receipt-handle-2"));
     }
 
+    @Test
+    public void receiveMessagesShouldRequestAndReturnReceiveCount() throws QueueException {
+        ReceiveMessageResult receiveMessageResult = new ReceiveMessageResult();
+        receiveMessageResult.getMessages().add(new Message()
+                .withMessageId("mock-message-id-1")
+                .withReceiptHandle("mock-message-receipt-handle-1")
+                .withBody("mock-message-body-1")
+                .addAttributesEntry("ApproximateReceiveCount", "4"));
+        when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(receiveMessageResult);
+
+        List<QueueMessage> queueMessages = sqsQueueService.receiveMessages("some-queue-url", "some-attribute-name");
+
+        ArgumentCaptor<ReceiveMessageRequest> request = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(sqsClient).receiveMessage(request.capture());
+        assertThat(request.getValue().getAttributeNames(), is(List.of("ApproximateReceiveCount")));
+        assertThat(queueMessages.get(0).getReceiveCount(), is(4));
+    }
+
     @Test
     public void receiveMessagesShouldReturnEmptyListWhenNoMessagesAvailable() throws QueueException {
         ReceiveMessageResult receiveMessageResult = new ReceiveMessageResult();
@@ -84,4 +110,30 @@ public class SqsQueueServiceTest {
         when(sqsClient.receiveMessage(any(ReceiveMessageRequest.class))).thenThrow(AmazonSQSException.class);
         assertThrows(QueueException.class, () -> sqsQueueService.receiveMessages("some-queue-url", "some-attribute-name"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteMessagesShouldDeleteInBatchesOfTen() throws QueueException {
+        List<String> receiptHandles = IntStream.range(0, 12)
+                .mapToObj(i -> "mock-message-receipt-handle-" + i)
+                .collect(Collectors.toList());
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(new DeleteMessageBatchResult());
+
+        sqsQueueService.deleteMessages("some-queue-url", receiptHandles);
+
+        ArgumentCaptor<DeleteMessageBatchRequest> requests = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(sqsClient, times(2)).deleteMessageBatch(requests.capture());
+        assertThat(requests.getAllValues().get(0).getEntries().size(), is(10));
+        assertThat(requests.getAllValues().get(1).getEntries().size(), is(2));
+        assertThat(requests.getAllValues().get(1).getEntries().get(1).getReceiptHandle(), is("mock-message-receipt-handle-11"));
+    }
+
+    @Test
+    public void deleteMessagesShouldThrowQueueExceptionIfAnyMessageIsNotDeleted() {
+        DeleteMessageBatchResult result = new DeleteMessageBatchResult()
+                .withFailed(new BatchResultErrorEntry().withId("1").withCode("ReceiptHandleIsInvalid"));
+        when(sqsClient.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(result);
+
+        assertThrows(QueueException.class,
+                () -> sqsQueueService.deleteMessages("some-queue-url", List.of("handle-1", "handle-2")));
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.pay.ledger.replay.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.replay.model.ProjectionReplayCheckpoint;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+
+public class ProjectionReplayDaoIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private ProjectionReplayDao projectionReplayDao;
+
+    @BeforeEach
+    public void setUp() {
+        projectionReplayDao = rule.getJdbi().onDemand(ProjectionReplayDao.class);
+        DatabaseTestHelper dbHelper = aDatabaseTestHelper(rule.getJdbi());
+        dbHelper.truncateAllData();
+        projectionReplayDao.deleteCheckpoints("test-replay");
+    }
+
+    @Test
+    public void shouldReturnEachResourceOnceAcrossPartitions() {
+        List<String> resourceExternalIds = List.of("resource-a", "resource-b", "resource-c", "resource-d", "resource-e");
+        resourceExternalIds.forEach(resourceExternalId -> {
+            anEventFixture().withResourceExternalId(resourceExternalId).withEventType("PAYMENT_CREATED").insert(rule.getJdbi());
+            anEventFixture().withResourceExternalId(resourceExternalId).withEventType("PAYMENT_STARTED").insert(rule.getJdbi());
+        });
+
+        List<String> replayed = new ArrayList<>();
+        for (int partition = 0; partition < 3; partition++) {
+            String after = null;
+            List<String> batch;
+            do {
+                batch = projectionReplayDao.findResourceExternalIdsInPartition(after, partition, 3, 2);
+                replayed.addAll(batch);
+                after = batch.isEmpty() ? after : batch.get(batch.size() - 1);
+            } while (!batch.isEmpty());
+        }
+
+        assertThat(replayed.size(), is(5));
+        assertThat(replayed, containsInAnyOrder(resourceExternalIds.toArray()));
+    }
+
+    @Test
+    public void shouldSaveAndUpdateCheckpoints() {
+        projectionReplayDao.saveCheckpoint(ProjectionReplayCheckpoint.start("test-replay", 0, 2));
+        projectionReplayDao.saveCheckpoint(ProjectionReplayCheckpoint.start("test-replay", 1, 2)
+                .advanceTo("resource-b", 2));
+        projectionReplayDao.saveCheckpoint(ProjectionReplayCheckpoint.start("test-replay", 0, 2)
+                .advanceTo("resource-a", 1).complete());
+
+        List<ProjectionReplayCheckpoint> checkpoints = projectionReplayDao.findCheckpoints("test-replay");
+
+        assertThat(checkpoints.size(), is(2));
+        assertThat(checkpoints.get(0).getLastResourceExternalId(), is("resource-a"));
+        assertThat(checkpoints.get(0).isCompleted(), is(true));
+        assertThat(checkpoints.get(1).getLastResourceExternalId(), is("resource-b"));
+        assertThat(checkpoints.get(1).getResourcesReplayed(), is(2L));
+    }
+}
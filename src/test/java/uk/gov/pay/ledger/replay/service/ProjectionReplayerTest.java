@@ -0,0 +1,168 @@
+package uk.gov.pay.ledger.replay.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.event.model.Event;
+import uk.gov.pay.ledger.event.model.ResourceType;
+import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.event.service.EventService;
+import uk.gov.pay.ledger.payout.dao.PayoutDao;
+import uk.gov.pay.ledger.payout.entity.PayoutEntity;
+import uk.gov.pay.ledger.payout.model.PayoutEntityFactory;
+import uk.gov.pay.ledger.queue.IngestionProfiler;
+import uk.gov.pay.ledger.queue.eventprocessor.RefundEventProcessor;
+import uk.gov.pay.ledger.replay.dao.ProjectionReplayDao;
+import uk.gov.pay.ledger.replay.model.ProjectionReplayCheckpoint;
+import uk.gov.pay.ledger.report.service.ReportResultCache;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+import uk.gov.pay.ledger.transaction.service.TransactionService;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
+
+@ExtendWith(MockitoExtension.class)
+public class ProjectionReplayerTest {
+
+    @Mock
+    private EventDao eventDao;
+    @Mock
+    private ProjectionReplayDao projectionReplayDao;
+    @Mock
+    private TransactionDao transactionDao;
+    @Mock
+    private PayoutDao payoutDao;
+    @Mock
+    private EventService eventService;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private ReportResultCache reportResultCache;
+    @Captor
+    private ArgumentCaptor<List<TransactionEntity>> transactionsCaptor;
+    @Captor
+    private ArgumentCaptor<List<PayoutEntity>> payoutsCaptor;
+    @Captor
+    private ArgumentCaptor<ProjectionReplayCheckpoint> checkpointCaptor;
+
+    private ProjectionReplayer projectionReplayer;
+
+    @BeforeEach
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        TransactionEntityFactory transactionEntityFactory = new TransactionEntityFactory(objectMapper);
+        RefundEventProcessor refundEventProcessor = new RefundEventProcessor(eventService, transactionService,
+                transactionEntityFactory, new IngestionProfiler(new MetricRegistry()));
+        projectionReplayer = new ProjectionReplayer(eventDao, projectionReplayDao, transactionDao, payoutDao,
+                transactionEntityFactory, new PayoutEntityFactory(objectMapper), refundEventProcessor,
+                reportResultCache);
+    }
+
+    @Test
+    public void shouldRebuildPaymentsRefundsAndPayoutsWithOneUpsertPerTable() {
+        List<Event> events = List.of(
+                anEvent(ResourceType.PAYMENT, "payment-id", null, "2020-01-01T10:00:00Z", "PAYMENT_CREATED",
+                        "{\"reference\": \"payment-reference\", \"amount\": 1000}"),
+                anEvent(ResourceType.PAYMENT, "payment-id", null, "2020-01-01T10:01:00Z", "CAPTURE_CONFIRMED", "{}"),
+                anEvent(ResourceType.REFUND, "refund-id", "payment-id", "2020-01-02T10:00:00Z", "REFUND_CREATED_BY_USER",
+                        "{\"amount\": 100}"),
+                anEvent(ResourceType.PAYOUT, "payout-id", null, "2020-01-03T10:00:00Z", "PAYOUT_CREATED", "{}"));
+
+        projectionReplayer.replayBatch(events);
+
+        verify(transactionDao).upsertBatch(transactionsCaptor.capture());
+        List<TransactionEntity> transactions = transactionsCaptor.getValue();
+        assertThat(transactions.size(), is(2));
+        assertThat(transactions.get(0).getExternalId(), is("payment-id"));
+        assertThat(transactions.get(0).getEventCount(), is(2));
+        assertThat(transactions.get(1).getExternalId(), is("refund-id"));
+        assertThat(transactions.get(1).getReference(), is("payment-reference"));
+        verify(payoutDao).upsertBatch(payoutsCaptor.capture());
+        assertThat(payoutsCaptor.getValue().get(0).getGatewayPayoutId(), is("payout-id"));
+        verifyNoInteractions(eventDao);
+    }
+
+    @Test
+    public void shouldInvalidateCachedReportsForReplayedTransactions() {
+        projectionReplayer.replayBatch(List.of(
+                anEvent(ResourceType.PAYMENT, "payment-id", null, "2020-01-01T10:00:00Z", "PAYMENT_CREATED",
+                        "{\"gateway_account_id\": \"account-1\", \"amount\": 1000}")));
+
+        verify(reportResultCache).invalidate("account-1", ZonedDateTime.parse("2020-01-01T10:00:00Z"));
+    }
+
+    @Test
+    public void shouldReadEventsForParentPaymentsOutsideTheBatch() {
+        when(eventDao.findEventsForExternalIds(Set.of("payment-id"))).thenReturn(List.of(
+                anEvent(ResourceType.PAYMENT, "payment-id", null, "2020-01-01T10:00:00Z", "PAYMENT_CREATED",
+                        "{\"reference\": \"payment-reference\"}")));
+
+        projectionReplayer.replayBatch(List.of(
+                anEvent(ResourceType.REFUND, "refund-id", "payment-id", "2020-01-02T10:00:00Z", "REFUND_CREATED_BY_USER",
+                        "{\"amount\": 100}")));
+
+        verify(transactionDao).upsertBatch(transactionsCaptor.capture());
+        assertThat(transactionsCaptor.getValue().size(), is(1));
+        assertThat(transactionsCaptor.getValue().get(0).getReference(), is("payment-reference"));
+    }
+
+    @Test
+    public void shouldResumeFromCheckpointAndSaveProgressAfterEachBatch() throws Exception {
+        when(projectionReplayDao.findCheckpoints("rebuild"))
+                .thenReturn(List.of(new ProjectionReplayCheckpoint("rebuild", 0, 1, "payment-a", 5, false)));
+        when(projectionReplayDao.findResourceExternalIdsInPartition("payment-a", 0, 1, 10))
+                .thenReturn(List.of("payment-b"));
+        when(projectionReplayDao.findResourceExternalIdsInPartition("payment-b", 0, 1, 10))
+                .thenReturn(List.of());
+        when(eventDao.findEventsForExternalIds(Set.of("payment-b"))).thenReturn(List.of(
+                anEvent(ResourceType.PAYMENT, "payment-b", null, "2020-01-01T10:00:00Z", "PAYMENT_CREATED", "{}")));
+
+        projectionReplayer.replay("rebuild", 1, 10, 1000, false);
+
+        verify(projectionReplayDao, times(2)).saveCheckpoint(checkpointCaptor.capture());
+        ProjectionReplayCheckpoint afterBatch = checkpointCaptor.getAllValues().get(0);
+        assertThat(afterBatch.getLastResourceExternalId(), is("payment-b"));
+        assertThat(afterBatch.getResourcesReplayed(), is(6L));
+        assertThat(afterBatch.isCompleted(), is(false));
+        assertThat(checkpointCaptor.getAllValues().get(1).isCompleted(), is(true));
+        assertThat(projectionReplayer.getResourcesReplayed(), is(1L));
+    }
+
+    @Test
+    public void shouldNotResumeWithDifferentNumberOfWorkers() {
+        when(projectionReplayDao.findCheckpoints("rebuild"))
+                .thenReturn(List.of(new ProjectionReplayCheckpoint("rebuild", 0, 2, "payment-a", 5, false)));
+
+        assertThrows(IllegalArgumentException.class, () -> projectionReplayer.replay("rebuild", 4, 10, 1000, false));
+    }
+
+    private static Event anEvent(ResourceType resourceType, String resourceExternalId, String parentResourceExternalId,
+                                 String eventDate, String eventType, String eventData) {
+        return anEventFixture()
+                .withResourceType(resourceType)
+                .withResourceExternalId(resourceExternalId)
+                .withParentResourceExternalId(parentResourceExternalId)
+                .withEventDate(ZonedDateTime.parse(eventDate))
+                .withEventType(eventType)
+                .withEventData(eventData)
+                .toEntity();
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.pay.ledger.report.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +11,7 @@ import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
 import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
 import uk.gov.pay.ledger.report.entity.PaymentCountByStateResult;
 import uk.gov.pay.ledger.report.entity.TimeseriesReportSlice;
+import uk.gov.pay.ledger.report.entity.TransactionSummaryResult;
 import uk.gov.pay.ledger.report.entity.TransactionsStatisticsResult;
 import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
@@ -37,7 +39,7 @@ public class ReportDaoIT {
     @BeforeEach
     public void setUp() {
         databaseTestHelper.truncateAllData();
-        reportDao = new ReportDao(rule.getJdbi());
+        reportDao = new ReportDao(rule.getJdbi(), new MetricRegistry());
     }
 
     @Test
@@ -187,7 +189,7 @@ public class ReportDaoIT {
 
         var query = new TransactionStatisticQuery();
 
-        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query, TransactionType.PAYMENT);
+        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query).getPayments();
 
         assertThat(paymentsStatistics.getCount(), is(2L));
         assertThat(paymentsStatistics.getGrossAmount(), is(3000L));
@@ -217,7 +219,7 @@ public class ReportDaoIT {
         var query = new TransactionStatisticQuery()
                 .withAccountId(gatewayAccountId1);
 
-        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query, TransactionType.PAYMENT);
+        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query).getPayments();
 
         assertThat(paymentsStatistics.getCount(), is(2L));
         assertThat(paymentsStatistics.getGrossAmount(), is(3000L));
@@ -251,7 +253,7 @@ public class ReportDaoIT {
                 .withFromDate("2019-09-29T23:59:59.000Z")
                 .withToDate("2019-10-01T00:00:00.000Z");
 
-        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query, TransactionType.PAYMENT);
+        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query).getPayments();
 
         assertThat(paymentsStatistics.getCount(), is(2L));
         assertThat(paymentsStatistics.getGrossAmount(), is(5000L));
@@ -325,26 +327,25 @@ public class ReportDaoIT {
                 .withState(TransactionState.SUCCESS)
                 .insert(rule.getJdbi());
 
-        var queryWithoutMoto = new TransactionStatisticQuery()
+        var query = new TransactionStatisticQuery()
                 .withAccountId(gatewayAccountId)
                 .withFromDate("2019-09-29T23:59:59.000Z");
 
-        var queryWithMoto = new TransactionStatisticQuery()
-                .withAccountId(gatewayAccountId)
-                .withMoto(true)
-                .withFromDate("2019-09-29T23:59:59.000Z");
+        TransactionSummaryResult summary = reportDao.getTransactionSummaryStatistics(query);
 
-        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(queryWithoutMoto, TransactionType.PAYMENT);
+        TransactionsStatisticsResult paymentsStatistics = summary.getPayments();
         assertThat(paymentsStatistics.getCount(), is(2L));
         assertThat(paymentsStatistics.getGrossAmount(), is(5000L));
 
-        TransactionsStatisticsResult refundsStatistics = reportDao.getTransactionSummaryStatistics(queryWithoutMoto, TransactionType.REFUND);
+        TransactionsStatisticsResult refundsStatistics = summary.getRefunds();
         assertThat(refundsStatistics.getCount(), is(1L));
         assertThat(refundsStatistics.getGrossAmount(), is(1000L));
 
-        TransactionsStatisticsResult motoPaymentsStatistics = reportDao.getTransactionSummaryStatistics(queryWithMoto, TransactionType.PAYMENT);
+        TransactionsStatisticsResult motoPaymentsStatistics = summary.getMotoPayments();
         assertThat(motoPaymentsStatistics.getCount(), is(1L));
         assertThat(motoPaymentsStatistics.getGrossAmount(), is(1000L));
+
+        assertThat(summary.getNetIncome(), is(4000L));
     }
 
     @Test
@@ -392,11 +393,11 @@ public class ReportDaoIT {
                 .withAccountId(gatewayAccountId)
                 .withFromDate("2019-09-29T23:59:59.000Z");
 
-        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query, TransactionType.PAYMENT);
+        TransactionsStatisticsResult paymentsStatistics = reportDao.getTransactionSummaryStatistics(query).getPayments();
         assertThat(paymentsStatistics.getCount(), is(4L));
         assertThat(paymentsStatistics.getGrossAmount(), is(4400L));
 
-        TransactionsStatisticsResult refundsStatistics = reportDao.getTransactionSummaryStatistics(query, TransactionType.REFUND);
+        TransactionsStatisticsResult refundsStatistics = reportDao.getTransactionSummaryStatistics(query).getRefunds();
         assertThat(refundsStatistics.getCount(), is(1L));
         assertThat(refundsStatistics.getGrossAmount(), is(1000L));
     }
@@ -0,0 +1,290 @@
+package uk.gov.pay.ledger.report.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
+import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
+import uk.gov.pay.ledger.report.entity.PaymentCountByStateResult;
+import uk.gov.pay.ledger.report.entity.PerformanceReportEntity;
+import uk.gov.pay.ledger.report.entity.TimeseriesReportSlice;
+import uk.gov.pay.ledger.report.entity.TransactionSummaryResult;
+import uk.gov.pay.ledger.report.entity.TransactionsStatisticsResult;
+import uk.gov.pay.ledger.report.params.PerformanceReportParams.PerformanceReportParamsBuilder;
+import uk.gov.pay.ledger.transaction.dao.TransactionDao;
+import uk.gov.pay.ledger.transaction.model.TransactionType;
+import uk.gov.pay.ledger.transaction.state.TransactionState;
+import uk.gov.pay.ledger.util.DatabaseTestHelper;
+import uk.gov.pay.ledger.util.fixture.TransactionFixture;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static java.math.BigDecimal.ZERO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.number.BigDecimalCloseTo.closeTo;
+import static uk.gov.pay.ledger.util.DatabaseTestHelper.aDatabaseTestHelper;
+import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
+
+public class TransactionHourlyRollupIT {
+
+    @RegisterExtension
+    public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
+
+    private DatabaseTestHelper databaseTestHelper = aDatabaseTestHelper(rule.getJdbi());
+    private TransactionHourlyRollupDao transactionHourlyRollupDao = rule.getJdbi().onDemand(TransactionHourlyRollupDao.class);
+
+    @BeforeEach
+    public void setUp() {
+        databaseTestHelper.truncateAllData();
+    }
+
+    @Test
+    public void shouldMoveTransactionBetweenRollupsWhenStateChanges() {
+        TransactionFixture transaction = aPayment("2019-09-30T08:40:00.000Z", 1000L, TransactionState.SUBMITTED);
+        aPayment("2019-09-30T08:50:00.000Z", 2000L, TransactionState.SUCCESS);
+
+        updateState(transaction.getExternalId(), TransactionState.SUCCESS);
+
+        List<Map<String, Object>> rollups = getRollups();
+        assertThat(rollups.size(), is(1));
+        assertThat(rollups.get(0).get("state"), is("SUCCESS"));
+        assertThat(rollups.get(0).get("count"), is(2L));
+        assertThat(rollups.get(0).get("amount"), is(3000L));
+        assertThat(rollups.get(0).get("min_amount"), is(1000L));
+        assertThat(rollups.get(0).get("max_amount"), is(2000L));
+    }
+
+    @Test
+    public void shouldRecalculateMaximumAmountWhenLargestTransactionLeavesRollup() {
+        aPayment("2019-09-30T08:40:00.000Z", 1000L, TransactionState.SUCCESS);
+        TransactionFixture largest = aPayment("2019-09-30T08:50:00.000Z", 5000L, TransactionState.SUCCESS);
+
+        updateState(largest.getExternalId(), TransactionState.ERROR);
+        transactionHourlyRollupDao.foldDeltas(100);
+
+        List<Map<String, Object>> rollups = getRollups();
+        assertThat(rollups.size(), is(2));
+        assertThat(rollups.get(0).get("state"), is("ERROR"));
+        assertThat(rollups.get(1).get("state"), is("SUCCESS"));
+        assertThat(rollups.get(1).get("count"), is(1L));
+        assertThat(rollups.get(1).get("max_amount"), is(1000L));
+    }
+
+    @Test
+    public void shouldFoldDeltasIntoRollups() {
+        aPayment("2019-09-30T08:40:00.000Z", 1000L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T08:50:00.000Z", 2000L, TransactionState.SUCCESS);
+
+        assertThat(transactionHourlyRollupDao.foldDeltas(100), is(2));
+
+        List<Map<String, Object>> foldedRollups = rule.getJdbi().withHandle(handle -> handle
+                .createQuery("SELECT * FROM transaction_hourly_rollup")
+                .mapToMap()
+                .list());
+        assertThat(foldedRollups.size(), is(1));
+        assertThat(foldedRollups.get(0).get("count"), is(2L));
+        assertThat(foldedRollups.get(0).get("amount"), is(3000L));
+        assertThat(transactionHourlyRollupDao.foldDeltas(100), is(0));
+        assertThat(getRollups().get(0).get("count"), is(2L));
+    }
+
+    @Test
+    public void shouldCountTransactionOnceItHasAGatewayAccount() {
+        TransactionDao transactionDao = new TransactionDao(rule.getJdbi(), rule.getJdbi(),
+                rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
+        TransactionFixture transaction = aTransactionFixture()
+                .withGatewayAccountId(null)
+                .withAmount(null)
+                .withTransactionType(TransactionType.PAYMENT.name())
+                .withCreatedDate(ZonedDateTime.parse("2019-09-30T08:40:00.000Z"))
+                .withState(TransactionState.CREATED);
+
+        transactionDao.upsert(transaction.toEntity());
+
+        assertThat(getRollups().size(), is(0));
+
+        transactionDao.upsert(transaction.withGatewayAccountId("100").toEntity());
+        transactionHourlyRollupDao.foldDeltas(100);
+
+        List<Map<String, Object>> rollups = getRollups();
+        assertThat(rollups.size(), is(1));
+        assertThat(rollups.get(0).get("count"), is(1L));
+        assertThat(rollups.get(0).get("amount"), is(0L));
+        assertThat(rollups.get(0).get("min_amount"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRecountRollupsFromTransactions() {
+        aPayment("2019-09-30T08:40:00.000Z", 1000L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T09:10:00.000Z", 2000L, TransactionState.SUCCESS);
+        rule.getJdbi().useHandle(handle -> handle.execute(
+                "TRUNCATE TABLE transaction_hourly_rollup, transaction_hourly_rollup_delta"));
+
+        rule.getJdbi().useHandle(handle -> handle
+                .createQuery("SELECT recount_transaction_hourly_rollup(:fromHour, :toHour)")
+                .bind("fromHour", ZonedDateTime.parse("2019-09-01T00:00:00.000Z"))
+                .bind("toHour", ZonedDateTime.parse("2019-10-01T00:00:00.000Z"))
+                .mapToMap()
+                .one());
+
+        List<Map<String, Object>> rollups = getRollups();
+        assertThat(rollups.size(), is(2));
+        assertThat(rollups.get(0).get("amount"), is(1000L));
+        assertThat(rollups.get(1).get("amount"), is(2000L));
+    }
+
+    @Test
+    public void shouldReadPartialHoursAtEdgesOfDateRangeFromTransactions() {
+        aPayment("2019-09-30T08:10:00.000Z", 100L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T08:40:00.000Z", 200L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T09:30:00.000Z", 400L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T10:05:00.000Z", 800L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T10:45:00.000Z", 1600L, TransactionState.SUCCESS);
+
+        ZonedDateTime fromDate = ZonedDateTime.parse("2019-09-30T08:30:00.000Z");
+        ZonedDateTime toDate = ZonedDateTime.parse("2019-09-30T10:30:00.000Z");
+
+        PerformanceReportEntity performanceReport = new PerformanceReportDao(rule.getJdbi())
+                .performanceReportForPaymentTransactions(PerformanceReportParamsBuilder.builder()
+                        .withFromDate(fromDate)
+                        .withToDate(toDate)
+                        .build());
+
+        assertThat(performanceReport.getTotalVolume(), is(3L));
+        assertThat(performanceReport.getTotalAmount(), is(closeTo(new BigDecimal(1400L), ZERO)));
+
+        List<TimeseriesReportSlice> slices = new ReportDao(rule.getJdbi(), new MetricRegistry())
+                .getTransactionsVolumeByTimeseries(fromDate, toDate);
+
+        assertThat(slices.size(), is(3));
+        assertThat(slices.get(0).getAmount(), is(200));
+        assertThat(slices.get(1).getAmount(), is(400));
+        assertThat(slices.get(2).getAmount(), is(800));
+    }
+
+    @Test
+    public void shouldCombineRollupsAndTransactionsForTransactionSummaryAndPaymentCounts() {
+        aPayment("2019-09-30T08:00:00.000Z", 100L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T08:20:00.000Z", 200L, TransactionState.SUCCESS);
+        aTransactionFixture()
+                .withGatewayAccountId("100")
+                .withTransactionType(TransactionType.PAYMENT.name())
+                .withCreatedDate(ZonedDateTime.parse("2019-09-30T09:30:00.000Z"))
+                .withAmount(400L)
+                .withTotalAmount(450L)
+                .withState(TransactionState.SUCCESS)
+                .withMoto(true)
+                .insert(rule.getJdbi());
+        aPayment("2019-09-30T10:15:00.000Z", 800L, TransactionState.CREATED);
+        aTransactionFixture()
+                .withGatewayAccountId("100")
+                .withTransactionType(TransactionType.REFUND.name())
+                .withCreatedDate(ZonedDateTime.parse("2019-09-30T09:45:00.000Z"))
+                .withAmount(50L)
+                .withState(TransactionState.SUCCESS)
+                .insert(rule.getJdbi());
+        aPayment("2019-09-30T10:30:00.000Z", 1600L, TransactionState.SUCCESS);
+
+        var query = new TransactionStatisticQuery()
+                .withAccountId("100")
+                .withFromDate("2019-09-30T08:00:00.000Z")
+                .withToDate("2019-09-30T10:30:00.000Z");
+        ReportDao reportDao = new ReportDao(rule.getJdbi(), new MetricRegistry());
+
+        TransactionSummaryResult summary = reportDao.getTransactionSummaryStatistics(query);
+
+        assertThat(summary.getPayments(), is(new TransactionsStatisticsResult(2L, 650L)));
+        assertThat(summary.getMotoPayments(), is(new TransactionsStatisticsResult(1L, 450L)));
+        assertThat(summary.getRefunds(), is(new TransactionsStatisticsResult(1L, 50L)));
+        assertThat(summary.getNetIncome(), is(600L));
+
+        List<PaymentCountByStateResult> paymentCountsByState = reportDao.getPaymentCountsByState(query);
+
+        assertThat(paymentCountsByState, containsInAnyOrder(
+                new PaymentCountByStateResult("SUCCESS", 2L),
+                new PaymentCountByStateResult("CREATED", 1L)));
+    }
+
+    @Test
+    public void shouldOnlyCountTransactionsWithAnAmountInPerformanceReportVolume() {
+        aPayment("2019-09-30T08:10:00.000Z", 100L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T09:10:00.000Z", 300L, TransactionState.SUCCESS);
+        aTransactionFixture()
+                .withGatewayAccountId("100")
+                .withTransactionType(TransactionType.PAYMENT.name())
+                .withCreatedDate(ZonedDateTime.parse("2019-09-30T09:20:00.000Z"))
+                .withAmount(null)
+                .withState(TransactionState.SUCCESS)
+                .withLive(true)
+                .insert(rule.getJdbi());
+
+        PerformanceReportEntity performanceReport = new PerformanceReportDao(rule.getJdbi())
+                .performanceReportForPaymentTransactions(PerformanceReportParamsBuilder.builder()
+                        .withFromDate(ZonedDateTime.parse("2019-09-30T08:30:00.000Z"))
+                        .withToDate(ZonedDateTime.parse("2019-09-30T10:00:00.000Z"))
+                        .build());
+
+        assertThat(performanceReport.getTotalVolume(), is(1L));
+        assertThat(performanceReport.getAverageAmount(), is(closeTo(new BigDecimal(300L), ZERO)));
+    }
+
+    @Test
+    public void shouldBackfillHoursBeforeCoveredHourAndReadThemFromTransactionsUntilThen() {
+        aPayment("2019-09-30T08:40:00.000Z", 100L, TransactionState.SUCCESS);
+        aPayment("2019-09-30T10:10:00.000Z", 200L, TransactionState.SUCCESS);
+        // as if the 08:40 payment was written before the rollup trigger existed
+        rule.getJdbi().useHandle(handle -> {
+            handle.execute("DELETE FROM transaction_hourly_rollup_delta WHERE hour < '2019-09-30T10:00:00Z'");
+            handle.execute("UPDATE transaction_hourly_rollup_coverage SET covered_from = '2019-09-30T10:00:00Z'");
+        });
+        PerformanceReportDao performanceReportDao = new PerformanceReportDao(rule.getJdbi());
+        var params = PerformanceReportParamsBuilder.builder()
+                .withFromDate(ZonedDateTime.parse("2019-09-30T08:00:00.000Z"))
+                .withToDate(ZonedDateTime.parse("2019-09-30T11:00:00.000Z"))
+                .build();
+
+        assertThat(performanceReportDao.performanceReportForPaymentTransactions(params).getTotalVolume(), is(2L));
+
+        assertThat(transactionHourlyRollupDao.backfillNextBatch(1), is(true));
+        assertThat(transactionHourlyRollupDao.backfillNextBatch(1), is(false));
+
+        assertThat(transactionHourlyRollupDao.findCoveredFrom(), is(nullValue()));
+        List<Map<String, Object>> rollups = getRollups();
+        assertThat(rollups.size(), is(2));
+        assertThat(rollups.get(0).get("amount"), is(100L));
+        assertThat(performanceReportDao.performanceReportForPaymentTransactions(params).getTotalVolume(), is(2L));
+    }
+
+    private TransactionFixture aPayment(String createdDate, long amount, TransactionState state) {
+        return aTransactionFixture()
+                .withGatewayAccountId("100")
+                .withTransactionType(TransactionType.PAYMENT.name())
+                .withCreatedDate(ZonedDateTime.parse(createdDate))
+                .withAmount(amount)
+                .withState(state)
+                .withLive(true)
+                .insert(rule.getJdbi());
+    }
+
+    private void updateState(String externalId, TransactionState state) {
+        rule.getJdbi().withHandle(handle -> handle
+                .createUpdate("UPDATE transaction SET state = :state WHERE external_id = :externalId")
+                .bind("state", state.name())
+                .bind("externalId", externalId)
+                .execute());
+    }
+
+    private List<Map<String, Object>> getRollups() {
+        return rule.getJdbi().withHandle(handle -> handle
+                .createQuery("SELECT * FROM current_transaction_hourly_rollup ORDER BY hour, state")
+                .mapToMap()
+                .list());
+    }
+}
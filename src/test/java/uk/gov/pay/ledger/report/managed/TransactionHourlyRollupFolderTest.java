@@ -0,0 +1,88 @@
+package uk.gov.pay.ledger.report.managed;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.pay.ledger.app.config.ReportingConfig;
+import uk.gov.pay.ledger.report.dao.TransactionHourlyRollupDao;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionHourlyRollupFolderTest {
+
+    @Mock
+    private TransactionHourlyRollupDao transactionHourlyRollupDao;
+
+    @Mock
+    private ReportingConfig config;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private MetricRegistry metricRegistry;
+    private TransactionHourlyRollupFolder transactionHourlyRollupFolder;
+
+    @BeforeEach
+    public void setUp() {
+        when(config.getRollupFoldBatchSize()).thenReturn(100);
+        lenient().when(config.getRollupBackfillBatchSizeInHours()).thenReturn(24);
+        metricRegistry = new MetricRegistry();
+        transactionHourlyRollupFolder = new TransactionHourlyRollupFolder(transactionHourlyRollupDao, config,
+                scheduledExecutorService, metricRegistry);
+    }
+
+    @Test
+    public void shouldKeepFoldingWhileBatchesAreFull() {
+        when(transactionHourlyRollupDao.foldDeltas(100)).thenReturn(100, 100, 30);
+
+        transactionHourlyRollupFolder.maintainRollups();
+
+        verify(transactionHourlyRollupDao, times(3)).foldDeltas(100);
+        assertThat(metricRegistry.counter("transaction-hourly-rollup.folded-deltas").getCount(), is(230L));
+    }
+
+    @Test
+    public void shouldStopFolding_WhenFoldingFails() {
+        when(transactionHourlyRollupDao.foldDeltas(100)).thenThrow(new RuntimeException("connection refused"));
+
+        transactionHourlyRollupFolder.maintainRollups();
+
+        verify(transactionHourlyRollupDao).foldDeltas(100);
+    }
+
+    @Test
+    public void shouldBackfillOneBatchPerRunUntilEveryHourIsCovered() {
+        when(transactionHourlyRollupDao.backfillNextBatch(24)).thenReturn(true, false);
+
+        transactionHourlyRollupFolder.maintainRollups();
+        transactionHourlyRollupFolder.maintainRollups();
+        transactionHourlyRollupFolder.maintainRollups();
+
+        verify(transactionHourlyRollupDao, times(2)).backfillNextBatch(24);
+        verify(transactionHourlyRollupDao, times(3)).foldDeltas(100);
+        assertThat(metricRegistry.counter("transaction-hourly-rollup.backfilled-batches").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldRetryBackfill_WhenBackfillFails() {
+        when(transactionHourlyRollupDao.backfillNextBatch(24))
+                .thenThrow(new RuntimeException("canceling statement due to statement timeout"))
+                .thenReturn(false);
+
+        transactionHourlyRollupFolder.maintainRollups();
+        transactionHourlyRollupFolder.maintainRollups();
+
+        verify(transactionHourlyRollupDao, times(2)).backfillNextBatch(24);
+    }
+}
@@ -0,0 +1,224 @@
+package uk.gov.pay.ledger.report.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.gov.pay.ledger.app.ReadOnlyQueryLag;
+import uk.gov.pay.ledger.report.dao.builder.TransactionStatisticQuery;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ReportResultCacheTest {
+
+    private MetricRegistry metricRegistry;
+    private ReportResultCache reportResultCache;
+    private AtomicInteger reportRuns;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        reportResultCache = new ReportResultCache(Duration.ofMinutes(5), 100, metricRegistry);
+        reportRuns = new AtomicInteger();
+    }
+
+    @Test
+    public void shouldServeEquivalentQueriesFromCache() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withToDate("2019-10-01T11:00:00.000Z");
+        var equivalentQuery = new TransactionStatisticQuery()
+                .withToDate("2019-10-01T12:00:00.000+01:00")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withAccountId("1");
+
+        assertThat(runReport(query), is(1));
+        assertThat(runReport(equivalentQuery), is(1));
+
+        assertThat(metricRegistry.counter("report-result-cache.hits").getCount(), is(1L));
+        assertThat(metricRegistry.counter("report-result-cache.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldInvalidateResultWhenTransactionInsideDateRangeChanges() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withToDate("2019-10-01T11:00:00.000Z");
+        runReport(query);
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+
+        assertThat(runReport(query), is(2));
+        assertThat(metricRegistry.counter("report-result-cache.invalidations").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldKeepResultWhenChangedTransactionIsOutsideDateRangeOrForAnotherAccount() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withToDate("2019-10-01T11:00:00.000Z");
+        runReport(query);
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T11:00:00.000Z"));
+        reportResultCache.invalidate("2", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+
+        assertThat(runReport(query), is(1));
+    }
+
+    @Test
+    public void shouldInvalidateResultForAllAccountsWhenAnyAccountChanges() {
+        var query = new TransactionStatisticQuery()
+                .withFromDate("2019-10-01T10:00:00.000Z");
+        runReport(query);
+
+        reportResultCache.invalidate("2", ZonedDateTime.parse("2019-10-02T10:30:00.000Z"));
+
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheResultWhenTransactionChangesWhileReportIsRunning() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z");
+
+        reportResultCache.get("report", query, () -> {
+            reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+            return reportRuns.incrementAndGet();
+        });
+
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheWhenExpiryIsZero() {
+        reportResultCache = new ReportResultCache(Duration.ZERO, 100, new MetricRegistry());
+        var query = new TransactionStatisticQuery().withAccountId("1");
+
+        runReport(query);
+
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldNotCacheReplicaResultWhenReplicationLagIsAboveMaximum() {
+        reportResultCache = new ReportResultCache(Duration.ofMinutes(5), 100, replicaLagging(10.0),
+                Duration.ofSeconds(5), metricRegistry);
+        var query = new TransactionStatisticQuery().withAccountId("1");
+
+        runReport(query);
+
+        assertThat(runReport(query), is(2));
+        assertThat(metricRegistry.counter("report-result-cache.replica-lag-skips").getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldCacheReplicaResultWhenReplicationLagIsBelowMaximum() {
+        reportResultCache = new ReportResultCache(Duration.ofMinutes(5), 100, replicaLagging(1.0),
+                Duration.ofSeconds(5), metricRegistry);
+        var query = new TransactionStatisticQuery().withAccountId("1");
+
+        runReport(query);
+
+        assertThat(runReport(query), is(1));
+    }
+
+    @Test
+    public void shouldNotCacheReplicaResultWhenAccountChangedWithinMaximumLag() {
+        reportResultCache = new ReportResultCache(Duration.ofMinutes(5), 100, replicaLagging(1.0),
+                Duration.ofSeconds(5), metricRegistry);
+        var query = new TransactionStatisticQuery().withAccountId("1");
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+
+        runReport(query);
+
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldInvalidateResultWhenTransactionOnAnyDayOfItsRangeChanges() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withToDate("2019-10-04T10:00:00.000Z");
+        runReport(query);
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-05T10:30:00.000Z"));
+        assertThat(runReport(query), is(1));
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-03T10:30:00.000Z"));
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldInvalidateResultWithRangeLongerThanIsIndexedByDay() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-01-01T00:00:00.000Z")
+                .withToDate("2020-01-01T00:00:00.000Z");
+        runReport(query);
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-06-01T10:30:00.000Z"));
+
+        assertThat(runReport(query), is(2));
+    }
+
+    @Test
+    public void shouldDropAccountOnceItsEntriesAreInvalidated() {
+        var query = new TransactionStatisticQuery()
+                .withAccountId("1")
+                .withFromDate("2019-10-01T10:00:00.000Z")
+                .withToDate("2019-10-01T11:00:00.000Z");
+        runReport(query);
+        assertThat(accountsKept(), is(1));
+
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+        reportResultCache.invalidate("2", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+
+        assertThat(accountsKept(), is(0));
+    }
+
+    @Test
+    public void shouldDropAccountOnceMaximumLagHasPassedSinceItWasInvalidated() throws InterruptedException {
+        metricRegistry = new MetricRegistry();
+        reportResultCache = new ReportResultCache(Duration.ofMinutes(5), 100, replicaLagging(1.0),
+                Duration.ofMillis(10), metricRegistry);
+        reportResultCache.invalidate("1", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+        assertThat(accountsKept(), is(2));
+
+        Thread.sleep(20);
+        reportResultCache.invalidate("2", ZonedDateTime.parse("2019-10-01T10:30:00.000Z"));
+
+        // account 1 was dropped, account 2 and all accounts were invalidated within the maximum lag
+        assertThat(accountsKept(), is(2));
+    }
+
+    private static ReadOnlyQueryLag replicaLagging(double replicationLagInSeconds) {
+        return new ReadOnlyQueryLag() {
+            @Override
+            public boolean isServingFromReplica() {
+                return true;
+            }
+
+            @Override
+            public double getReplicationLagInSeconds() {
+                return replicationLagInSeconds;
+            }
+        };
+    }
+
+    private Integer accountsKept() {
+        return (Integer) metricRegistry.getGauges().get("report-result-cache.accounts").getValue();
+    }
+
+    private Integer runReport(TransactionStatisticQuery query) {
+        return reportResultCache.get("report", query, reportRuns::incrementAndGet);
+    }
+}
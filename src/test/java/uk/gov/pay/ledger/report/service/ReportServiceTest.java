@@ -1,10 +1,11 @@
 package uk.gov.pay.ledger.report.service;
 
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.pay.ledger.report.dao.ReportDao;
@@ -13,8 +14,8 @@ import uk.gov.pay.ledger.report.entity.PaymentCountByStateResult;
 import uk.gov.pay.ledger.report.entity.TransactionSummaryResult;
 import uk.gov.pay.ledger.report.entity.TransactionsStatisticsResult;
 import uk.gov.pay.ledger.report.params.TransactionSummaryParams;
-import uk.gov.pay.ledger.transaction.model.TransactionType;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +26,10 @@ import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.ledger.transaction.state.TransactionState.CREATED;
 import static uk.gov.pay.ledger.transaction.state.TransactionState.ERROR;
@@ -40,9 +44,13 @@ public class ReportServiceTest {
     @Captor
     private ArgumentCaptor<TransactionStatisticQuery> transactionStatisticQueryArgumentCaptor;
 
-    @InjectMocks
     private ReportService reportService;
 
+    @BeforeEach
+    public void setUp() {
+        reportService = new ReportService(mockReportDao, new ReportResultCache(Duration.ZERO, 0, new MetricRegistry()));
+    }
+
     @Test
     public void shouldReturnPaymentCountsByState_whenGatewayAccountIdProvided() {
         String gatewayAccountId = "1";
@@ -116,27 +124,17 @@ public class ReportServiceTest {
                 10000L
         );
 
-        var transactionStatisticQueryWithoutMoto = new TransactionStatisticQuery()
+        var transactionStatisticQuery = new TransactionStatisticQuery()
                 .withAccountId(params.getAccountId())
                 .withFromDate(params.getFromDate())
                 .withToDate(params.getToDate());
 
-        var transactionStatisticQueryWithMoto = new TransactionStatisticQuery()
-                .withAccountId(params.getAccountId())
-                .withFromDate(params.getFromDate())
-                .withToDate(params.getToDate())
-                .withMoto(params.isIncludeMotoStatistics());
-
-        when(mockReportDao.getTransactionSummaryStatistics(eq(transactionStatisticQueryWithoutMoto), eq(TransactionType.PAYMENT)))
-                .thenReturn(result.getPayments());
-        when(mockReportDao.getTransactionSummaryStatistics(eq(transactionStatisticQueryWithoutMoto), eq(TransactionType.REFUND)))
-                .thenReturn(result.getRefunds());
-        when(mockReportDao.getTransactionSummaryStatistics(eq(transactionStatisticQueryWithMoto), eq(TransactionType.PAYMENT)))
-                .thenReturn(result.getMotoPayments());
+        when(mockReportDao.getTransactionSummaryStatistics(eq(transactionStatisticQuery))).thenReturn(result);
 
         var transactionStatistics = reportService.getTransactionsSummary(params);
 
         assertThat(transactionStatistics, is(result));
+        verify(mockReportDao, times(1)).getTransactionSummaryStatistics(any(TransactionStatisticQuery.class));
     }
 
     @Test
@@ -149,11 +147,12 @@ public class ReportServiceTest {
         params.setToDate(toDate);
         params.setAccountId(gatewayAccountId);
 
-        var result = new TransactionSummaryResult(new TransactionsStatisticsResult(5L, 10000L), new TransactionsStatisticsResult(0L, 0L), new TransactionsStatisticsResult(0L, 0L), 10000L);
-        when(mockReportDao.getTransactionSummaryStatistics(transactionStatisticQueryArgumentCaptor.capture(), eq(TransactionType.PAYMENT)))
-                .thenReturn(result.getPayments());
-        when(mockReportDao.getTransactionSummaryStatistics(transactionStatisticQueryArgumentCaptor.capture(), eq(TransactionType.REFUND)))
-                .thenReturn(result.getRefunds());
+        when(mockReportDao.getTransactionSummaryStatistics(transactionStatisticQueryArgumentCaptor.capture()))
+                .thenReturn(new TransactionSummaryResult(
+                        new TransactionsStatisticsResult(5L, 10000L),
+                        new TransactionsStatisticsResult(1L, 1000L),
+                        new TransactionsStatisticsResult(0L, 0L),
+                        10000L));
 
         var transactionStatistics = reportService.getTransactionsSummary(params);
 
@@ -161,6 +160,7 @@ public class ReportServiceTest {
         assertThat(transactionStatisticQueryArgumentCaptor.getValue().getQueryMap().get("from_date"), is(ZonedDateTime.parse(fromDate)));
         assertThat(transactionStatisticQueryArgumentCaptor.getValue().getQueryMap().get("to_date"), is(ZonedDateTime.parse(toDate)));
 
+        var result = new TransactionSummaryResult(new TransactionsStatisticsResult(5L, 10000L), new TransactionsStatisticsResult(0L, 0L), new TransactionsStatisticsResult(0L, 0L), 10000L);
         assertThat(transactionStatistics, is(result));
     }
-}
\ No newline at end of file
+}
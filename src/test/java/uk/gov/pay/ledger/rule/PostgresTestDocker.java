@@ -23,16 +23,7 @@ public class PostgresTestDocker {
             if (container == null) {
                 logger.info("Creating Postgres Container");
 
-                container = new GenericContainer("postgres:11.1");
-                container.addExposedPort(5432);
-
-                container.addEnv("POSTGRES_USER", DB_USERNAME);
-                container.addEnv("POSTGRES_PASSWORD", DB_PASSWORD);
-
-                container.start();
-
-                //todo: add DB health check
-                Thread.sleep(5000);
+                container = startContainer();
                 createDatabase(DB_NAME);
             }
         } catch (Exception e) {
@@ -40,7 +31,38 @@ public class PostgresTestDocker {
         }
     }
 
+    /**
+     * Starts a Postgres container of its own, for tests that need a second database server such as a read replica.
+     * The caller stops it.
+     */
+    public static GenericContainer createStandaloneContainer() {
+        try {
+            logger.info("Creating standalone Postgres Container");
+            return startContainer();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static GenericContainer startContainer() throws InterruptedException {
+        GenericContainer newContainer = new GenericContainer("postgres:11.1");
+        newContainer.addExposedPort(5432);
+
+        newContainer.addEnv("POSTGRES_USER", DB_USERNAME);
+        newContainer.addEnv("POSTGRES_PASSWORD", DB_PASSWORD);
+
+        newContainer.start();
+
+        //todo: add DB health check
+        Thread.sleep(5000);
+        return newContainer;
+    }
+
     public static String getConnectionUrl() {
+        return getConnectionUrl(container);
+    }
+
+    public static String getConnectionUrl(GenericContainer container) {
         return "jdbc:postgresql://localhost:" + container.getMappedPort(5432) + "/";
     }
 
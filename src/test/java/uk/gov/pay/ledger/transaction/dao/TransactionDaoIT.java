@@ -1,11 +1,14 @@
 package uk.gov.pay.ledger.transaction.dao;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import uk.gov.pay.commons.model.Source;
+import uk.gov.pay.ledger.event.model.ResourceType;
 import uk.gov.pay.ledger.extension.AppWithPostgresAndSqsExtension;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
+import uk.gov.pay.ledger.transaction.model.TransactionEvent;
 import uk.gov.pay.ledger.transaction.model.TransactionType;
 import uk.gov.pay.ledger.transaction.state.TransactionState;
 import uk.gov.pay.ledger.util.fixture.TransactionFixture;
@@ -13,6 +16,7 @@ import uk.gov.pay.ledger.util.fixture.TransactionFixture;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
@@ -21,6 +25,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static uk.gov.pay.ledger.util.fixture.EventFixture.anEventFixture;
 import static uk.gov.pay.ledger.util.fixture.PayoutFixture.PayoutFixtureBuilder.aPayoutFixture;
 import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
 
@@ -29,7 +34,8 @@ public class TransactionDaoIT {
     @RegisterExtension
     public static AppWithPostgresAndSqsExtension rule = new AppWithPostgresAndSqsExtension();
 
-    private TransactionDao transactionDao = new TransactionDao(rule.getJdbi());
+    private TransactionDao transactionDao = new TransactionDao(rule.getJdbi(), rule.getJdbi(),
+            rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
 
     @Test
     public void shouldInsertTransaction() {
@@ -247,6 +253,55 @@ public class TransactionDaoIT {
         assertThat(retrievedTransaction.getState(), is(modifiedTransaction.getState()));
     }
 
+    @Test
+    public void shouldUpdateAllRefundsOfPaymentWithPaymentDetails() {
+        TransactionEntity payment = aTransactionFixture()
+                .withTransactionType(TransactionType.PAYMENT.name())
+                .withReference("new-reference")
+                .withDescription("new description")
+                .withEmail("new@example.org")
+                .withCardholderName("New Name")
+                .withCardBrand("mastercard")
+                .withFirstDigitsCardNumber("555555")
+                .withLastDigitsCardNumber("4444")
+                .toEntity();
+        TransactionEntity refund = aTransactionFixture()
+                .withTransactionType(TransactionType.REFUND.name())
+                .withParentExternalId(payment.getExternalId())
+                .withReference("old-reference")
+                .withEventCount(3)
+                .withTransactionDetails("{\"refunded_by\": \"a-user\"}")
+                .insert(rule.getJdbi())
+                .toEntity();
+        aTransactionFixture()
+                .withTransactionType(TransactionType.REFUND.name())
+                .withParentExternalId(payment.getExternalId())
+                .insert(rule.getJdbi());
+        TransactionEntity otherRefund = aTransactionFixture()
+                .withTransactionType(TransactionType.REFUND.name())
+                .withParentExternalId("another-payment-external-id")
+                .withReference("old-reference")
+                .insert(rule.getJdbi())
+                .toEntity();
+
+        int updated = transactionDao.updateRefundsWithPaymentDetails(payment, "{\"card_type\": \"debit\"}");
+
+        assertThat(updated, is(2));
+        TransactionEntity retrievedRefund = transactionDao.findTransactionByExternalId(refund.getExternalId()).get();
+        assertThat(retrievedRefund.getReference(), is("new-reference"));
+        assertThat(retrievedRefund.getDescription(), is("new description"));
+        assertThat(retrievedRefund.getEmail(), is("new@example.org"));
+        assertThat(retrievedRefund.getCardholderName(), is("New Name"));
+        assertThat(retrievedRefund.getCardBrand(), is("mastercard"));
+        assertThat(retrievedRefund.getFirstDigitsCardNumber(), is("555555"));
+        assertThat(retrievedRefund.getLastDigitsCardNumber(), is("4444"));
+        assertThat(retrievedRefund.getEventCount(), is(3));
+        assertThat(retrievedRefund.getTransactionDetails(), containsString("\"refunded_by\": \"a-user\""));
+        assertThat(retrievedRefund.getTransactionDetails(), containsString("\"payment_details\": {\"card_type\": \"debit\"}"));
+        assertThat(transactionDao.findTransactionByExternalId(otherRefund.getExternalId()).get().getReference(),
+                is("old-reference"));
+    }
+
     @Test
     public void shouldNotOverwriteTransactionIfItConsistsOfFewerEvents() {
         TransactionEntity transaction = aTransactionFixture()
@@ -390,6 +445,70 @@ public class TransactionDaoIT {
         assertThat(transactionEntity.getPayoutEntity().get().getPaidOutDate(), is(paidOutDate));
     }
 
+    @Test
+    public void findTransactionEvents_shouldReturnEventsForTransactionAndChildTransactionsOrderedByEventDate() {
+        TransactionEntity payment = aTransactionFixture()
+                .withTransactionType("PAYMENT")
+                .withAmount(1000L)
+                .insert(rule.getJdbi())
+                .toEntity();
+        TransactionEntity refund = aTransactionFixture()
+                .withTransactionType("REFUND")
+                .withAmount(100L)
+                .withGatewayAccountId(payment.getGatewayAccountId())
+                .withParentExternalId(payment.getExternalId())
+                .insert(rule.getJdbi())
+                .toEntity();
+
+        anEventFixture()
+                .withResourceExternalId(payment.getExternalId())
+                .withEventType("PAYMENT_CREATED")
+                .withEventDate(ZonedDateTime.parse("2019-07-31T09:52:43.451Z"))
+                .withEventData("{\"reference\": \"a-reference\"}")
+                .insert(rule.getJdbi());
+        anEventFixture()
+                .withResourceExternalId(refund.getExternalId())
+                .withResourceType(ResourceType.REFUND)
+                .withEventType("REFUND_CREATED_BY_USER")
+                .withEventDate(ZonedDateTime.parse("2019-07-31T10:52:43.451Z"))
+                .insert(rule.getJdbi());
+
+        List<TransactionEvent> transactionEvents = transactionDao
+                .findTransactionEventsByExternalOrParentIdAndGatewayAccountId(payment.getExternalId(), payment.getGatewayAccountId(), 2)
+                .get();
+
+        assertThat(transactionEvents.size(), is(2));
+        assertThat(transactionEvents.get(0).getExternalId(), is(payment.getExternalId()));
+        assertThat(transactionEvents.get(0).getAmount(), is(1000L));
+        assertThat(transactionEvents.get(0).getEventType(), is("PAYMENT_CREATED"));
+        assertThat(transactionEvents.get(0).getState().getStatus(), is("created"));
+        assertThat(transactionEvents.get(0).getData(), is("{\"reference\": \"a-reference\"}"));
+        assertThat(transactionEvents.get(1).getExternalId(), is(refund.getExternalId()));
+        assertThat(transactionEvents.get(1).getResourceType(), is("REFUND"));
+    }
+
+    @Test
+    public void findTransactionEvents_shouldReturnEmptyListForTransactionWithoutEvents() {
+        TransactionEntity payment = aTransactionFixture()
+                .withTransactionType("PAYMENT")
+                .insert(rule.getJdbi())
+                .toEntity();
+
+        Optional<List<TransactionEvent>> transactionEvents = transactionDao
+                .findTransactionEventsByExternalOrParentIdAndGatewayAccountId(payment.getExternalId(), payment.getGatewayAccountId(), 2);
+
+        assertThat(transactionEvents.isPresent(), is(true));
+        assertThat(transactionEvents.get().isEmpty(), is(true));
+    }
+
+    @Test
+    public void findTransactionEvents_shouldReturnEmptyOptionalIfTransactionNotFound() {
+        Optional<List<TransactionEvent>> transactionEvents = transactionDao
+                .findTransactionEventsByExternalOrParentIdAndGatewayAccountId("not-a-transaction", "1", 2);
+
+        assertThat(transactionEvents.isPresent(), is(false));
+    }
+
     @Test
     public void sourceTypeInDatabase_shouldMatchValuesInEnum() {
         var sourceArray = Arrays.stream(Source.values()).map(Enum::toString).collect(Collectors.toList());
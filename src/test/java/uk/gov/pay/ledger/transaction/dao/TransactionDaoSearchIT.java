@@ -1,6 +1,7 @@
 package uk.gov.pay.ledger.transaction.dao;
 
 
+import com.codahale.metrics.MetricRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,7 +44,8 @@ public class TransactionDaoSearchIT {
     @BeforeEach
     public void setUp() {
         databaseTestHelper.truncateAllData();
-        transactionDao = new TransactionDao(rule.getJdbi());
+        transactionDao = new TransactionDao(rule.getJdbi(), rule.getJdbi(),
+                rule.getJdbi(), rule.getJdbi(), new MetricRegistry());
         searchParams = new TransactionSearchParams();
     }
 
@@ -173,7 +175,7 @@ public class TransactionDaoSearchIT {
         TransactionSearchParams searchParams = new TransactionSearchParams();
         searchParams.setAccountIds(List.of(gatewayAccountId));
         searchParams.setExactReferenceMatch(false);
-        searchParams.setReference("1");
+        searchParams.setReference("e 1");
 
         List<TransactionEntity> transactionList = transactionDao.searchTransactions(searchParams);
 
@@ -649,6 +651,38 @@ public class TransactionDaoSearchIT {
         assertThat(transactionList.stream().filter(x -> doNotIncludeList.contains(x.getExternalId())).count(), is(0L));
     }
 
+    @Test
+    public void searchTransactionsByMultipleGatewayAccounts_shouldMergePagesAcrossAccounts() {
+        ZonedDateTime createdDate = now(ZoneOffset.UTC).minusDays(1);
+        for (int i = 1; i <= 6; i++) {
+            aTransactionFixture()
+                    .withGatewayAccountId(i % 2 == 0 ? "1" : "2")
+                    .withReference("reference" + i)
+                    .withCreatedDate(createdDate.plusMinutes(i))
+                    .insert(rule.getJdbi());
+        }
+
+        searchParams.setAccountIds(List.of("1", "2"));
+        searchParams.setDisplaySize(2L);
+        searchParams.setPageNumber(2L);
+
+        List<TransactionEntity> transactionList = transactionDao.searchTransactions(searchParams);
+
+        assertThat(transactionList.size(), is(2));
+        assertThat(transactionList.get(0).getReference(), is("reference4"));
+        assertThat(transactionList.get(1).getReference(), is("reference3"));
+
+        List<TransactionEntity> firstCursorPage = transactionDao.cursorTransactionSearch(searchParams, null, null);
+        TransactionEntity lastEntity = firstCursorPage.get(firstCursorPage.size() - 1);
+        List<TransactionEntity> secondCursorPage = transactionDao.cursorTransactionSearch(searchParams, lastEntity.getCreatedDate(), lastEntity.getId());
+
+        assertThat(firstCursorPage.get(0).getReference(), is("reference6"));
+        assertThat(lastEntity.getReference(), is("reference5"));
+        assertThat(secondCursorPage.size(), is(2));
+        assertThat(secondCursorPage.get(0).getReference(), is("reference4"));
+        assertThat(secondCursorPage.get(1).getReference(), is("reference3"));
+    }
+
     @Test
     public void searchTransactionsByCursor_shouldSplitCursorPages() {
         transactionFixture = aTransactionFixture()
@@ -0,0 +1,61 @@
+package uk.gov.pay.ledger.transaction.search.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.pay.ledger.transaction.search.common.FreeTextSearchFilter.MatchType.EXACT;
+import static uk.gov.pay.ledger.transaction.search.common.FreeTextSearchFilter.MatchType.PREFIX;
+import static uk.gov.pay.ledger.transaction.search.common.FreeTextSearchFilter.MatchType.SUBSTRING;
+
+public class FreeTextSearchFilterTest {
+
+    @Test
+    public void shouldUseSubstringMatchForSearchTermsOfThreeOrMoreCharacters() {
+        FreeTextSearchFilter filter = FreeTextSearchFilter.of("t.email", "email", "example.org");
+
+        assertThat(filter.getMatchType(), is(SUBSTRING));
+        assertThat(filter.getFilterTemplate(), is(" lower(t.email) LIKE lower(:email)"));
+        assertThat(filter.getBindValue(), is("%example.org%"));
+    }
+
+    @Test
+    public void shouldUsePrefixMatchForTwoCharacterSearchTerms() {
+        FreeTextSearchFilter filter = FreeTextSearchFilter.of("t.cardholder_name", "cardholder_name", "Jo");
+
+        assertThat(filter.getMatchType(), is(PREFIX));
+        assertThat(filter.getFilterTemplate(), is(" lower(t.cardholder_name) LIKE lower(:cardholder_name)"));
+        assertThat(filter.getBindValue(), is("Jo%"));
+    }
+
+    @Test
+    public void shouldUseExactMatchForSingleCharacterSearchTerms() {
+        FreeTextSearchFilter filter = FreeTextSearchFilter.of("t.reference", "reference", "1");
+
+        assertThat(filter.getMatchType(), is(EXACT));
+        assertThat(filter.getFilterTemplate(), is(" lower(t.reference) = lower(:reference)"));
+        assertThat(filter.getBindValue(), is("1"));
+    }
+
+    @Test
+    public void shouldUseExactMatchWhenRequested() {
+        FreeTextSearchFilter filter = FreeTextSearchFilter.of("t.reference", "reference", "a-reference", true);
+
+        assertThat(filter.getMatchType(), is(EXACT));
+        assertThat(filter.getBindValue(), is("a-reference"));
+    }
+
+    @Test
+    public void shouldEscapeWildcardsInSearchTerm() {
+        FreeTextSearchFilter filter = FreeTextSearchFilter.of("t.reference", "reference", "100%_ref");
+
+        assertThat(filter.getBindValue(), is("%100\\%\\_ref%"));
+    }
+
+    @Test
+    public void shouldDetectSearchTermsContainingOnlyWildcards() {
+        assertThat(FreeTextSearchFilter.containsOnlyWildcards("%"), is(true));
+        assertThat(FreeTextSearchFilter.containsOnlyWildcards("_%*"), is(true));
+        assertThat(FreeTextSearchFilter.containsOnlyWildcards("a%"), is(false));
+    }
+}
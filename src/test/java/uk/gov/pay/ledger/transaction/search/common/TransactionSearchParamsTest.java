@@ -34,6 +34,13 @@ public class TransactionSearchParamsTest {
         assertThat(transactionSearchParams.getQueryMap().get("reference"), is("%test-reference%"));
     }
 
+    @Test
+    public void getsSingleArrayFilterForAnyNumberOfAccountIds() {
+        transactionSearchParams.setAccountIds(List.of("1", "2", "3"));
+        assertThat(transactionSearchParams.getFilterTemplates().get(0), is(" t.gateway_account_id = ANY(:account_id)"));
+        assertThat(transactionSearchParams.getQueryMap().get("account_id"), is(List.of("1", "2", "3")));
+    }
+
     @Test
     public void getsFilterAndQueryMapWhenNotEmptyReferenceAndExactMatch() {
         transactionSearchParams.setReference("test-reference");
@@ -53,6 +53,21 @@ public class TransactionSearchParamsValidatorTest {
         assertThat(unparsableDateException.getMessage(), is("Input to_settled_date (wrong-date) is wrong format"));
     }
 
+    @Test
+    public void shouldThrowException_whenSearchTermContainsOnlyWildcards() {
+        searchParams.setEmail("%");
+        ValidationException validationException = assertThrows(ValidationException.class,
+                () -> TransactionSearchParamsValidator.validateSearchParams(searchParams, null));
+        assertThat(validationException.getMessage(), is("Search term for [email] must contain at least one character that is not a wildcard"));
+    }
+
+    @Test
+    public void shouldNotThrowException_whenSearchTermContainsWildcardAndOtherCharacters() {
+        searchParams.setReference("ref_1");
+        searchParams.setCardHolderName("J");
+        TransactionSearchParamsValidator.validateSearchParams(searchParams, null);
+    }
+
     @Test
     public void shouldNotThrowException_whenValidDateFormats() {
         searchParams.setFromDate("2019-05-01T10:15:30Z");
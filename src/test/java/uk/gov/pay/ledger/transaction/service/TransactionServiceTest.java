@@ -5,13 +5,15 @@ import io.dropwizard.jackson.Jackson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import uk.gov.pay.ledger.event.dao.EventDao;
+import uk.gov.pay.ledger.app.UnitOfWork;
 import uk.gov.pay.ledger.event.model.Event;
 import uk.gov.pay.ledger.event.model.ResourceType;
 import uk.gov.pay.ledger.event.model.SalientEventType;
 import uk.gov.pay.ledger.event.model.TransactionEntityFactory;
+import uk.gov.pay.ledger.report.service.ReportResultCache;
 import uk.gov.pay.ledger.transaction.dao.TransactionDao;
 import uk.gov.pay.ledger.transaction.entity.TransactionEntity;
 import uk.gov.pay.ledger.transaction.model.CsvTransactionFactory;
@@ -32,10 +34,10 @@ import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -43,8 +45,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.pay.ledger.util.fixture.TransactionFixture.aTransactionFixture;
@@ -55,9 +59,11 @@ public class TransactionServiceTest {
     @Mock
     private TransactionDao mockTransactionDao;
     @Mock
-    private EventDao mockEventDao;
-    @Mock
     private UriInfo mockUriInfo;
+    @Mock
+    private ReportResultCache mockReportResultCache;
+    @Mock
+    private UnitOfWork mockUnitOfWork;
     private TransactionService transactionService;
     private String gatewayAccountId = "gateway_account_id";
     private TransactionSearchParams searchParams;
@@ -69,8 +75,8 @@ public class TransactionServiceTest {
         TransactionEntityFactory transactionEntityFactory = new TransactionEntityFactory(objectMapper);
         TransactionFactory transactionFactory = new TransactionFactory(objectMapper);
         CsvTransactionFactory csvTransactionFactory = new CsvTransactionFactory(objectMapper);
-        transactionService = new TransactionService(mockTransactionDao, mockEventDao, transactionEntityFactory,
-                transactionFactory, csvTransactionFactory, objectMapper);
+        transactionService = new TransactionService(mockTransactionDao, transactionEntityFactory,
+                transactionFactory, csvTransactionFactory, mockReportResultCache, mockUnitOfWork);
         searchParams = new TransactionSearchParams();
         searchParams.setAccountIds(List.of(gatewayAccountId));
 
@@ -78,10 +84,26 @@ public class TransactionServiceTest {
         lenient().when(mockUriInfo.getPath()).thenReturn("/v1/transaction");
     }
 
+    @Test
+    public void shouldInvalidateCachedReportsOnlyOnceTheUpsertIsCommitted() {
+        TransactionEntity transaction = aTransactionFixture().toEntity();
+        ArgumentCaptor<Runnable> afterCommit = ArgumentCaptor.forClass(Runnable.class);
+
+        transactionService.upsertTransaction(transaction);
+
+        verify(mockTransactionDao).upsert(transaction);
+        verify(mockUnitOfWork).afterCommit(afterCommit.capture());
+        verify(mockReportResultCache, never()).invalidate(any(), any());
+
+        afterCommit.getValue().run();
+
+        verify(mockReportResultCache).invalidate(transaction.getGatewayAccountId(), transaction.getCreatedDate());
+    }
+
     @Test
     public void shouldReturnTransactionWithNewStatusForStatusVersion2() {
         TransactionEntity transaction = aTransactionFixture().withState(TransactionState.FAILED_REJECTED).toEntity();
-        when(mockTransactionDao.findTransactionByExternalId("external_id")).thenReturn(Optional.of(transaction));
+        when(mockTransactionDao.findTransactionByExternalIdAndGatewayAccountId("external_id", null)).thenReturn(Optional.of(transaction));
 
         Optional<TransactionView> transactionView = transactionService.getTransaction("external_id", 2);
 
@@ -92,7 +114,7 @@ public class TransactionServiceTest {
     @Test
     public void shouldReturnTransactionWithOldStatusForStatusVersion1() {
         TransactionEntity transaction = aTransactionFixture().withState(TransactionState.FAILED_REJECTED).toEntity();
-        when(mockTransactionDao.findTransactionByExternalId("external_id")).thenReturn(Optional.of(transaction));
+        when(mockTransactionDao.findTransactionByExternalIdAndGatewayAccountId("external_id", null)).thenReturn(Optional.of(transaction));
 
         Optional<TransactionView> transactionView = transactionService.getTransaction("external_id", 1);
 
@@ -201,13 +223,11 @@ public class TransactionServiceTest {
     @Test
     public void findTransactionEvents_shouldReturnTransactionEventsCorrectlyForStatusVersion1() {
         List<TransactionEntity> transactionEntityList = TransactionFixture.aTransactionList(gatewayAccountId, 1);
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(transactionEntityList);
-
         Event event = EventFixture.anEventFixture().withEventType(SalientEventType.AUTHORISATION_CANCELLED.toString())
                 .withResourceExternalId(transactionEntityList.get(0).getExternalId()).toEntity();
         List<Event> eventList = List.of(event);
-        when(mockEventDao.findEventsForExternalIds(any())).thenReturn(eventList);
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId("external-id", gatewayAccountId, 1))
+                .thenReturn(Optional.of(toTransactionEvents(transactionEntityList, eventList, 1)));
 
         TransactionEventResponse transactionEventResponse
                 = transactionService.findTransactionEvents("external-id", gatewayAccountId, false, 1);
@@ -222,13 +242,11 @@ public class TransactionServiceTest {
     @Test
     public void findTransactionEvents_shouldReturnTransactionEventsCorrectlyForStatusVersion2() {
         List<TransactionEntity> transactionEntityList = TransactionFixture.aTransactionList(gatewayAccountId, 1);
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(transactionEntityList);
-
         Event event = EventFixture.anEventFixture().withEventType(SalientEventType.AUTHORISATION_CANCELLED.toString())
                 .withResourceExternalId(transactionEntityList.get(0).getExternalId()).toEntity();
         List<Event> eventList = List.of(event);
-        when(mockEventDao.findEventsForExternalIds(any())).thenReturn(eventList);
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId("external-id", gatewayAccountId, 2))
+                .thenReturn(Optional.of(toTransactionEvents(transactionEntityList, eventList, 2)));
 
         TransactionEventResponse transactionEventResponse
                 = transactionService.findTransactionEvents("external-id", gatewayAccountId, false, 2);
@@ -243,16 +261,14 @@ public class TransactionServiceTest {
     @Test
     public void findTransactionEvents_shouldFilterEventWithoutAMappingToTransactionState() {
         List<TransactionEntity> transactionEntityList = TransactionFixture.aTransactionList(gatewayAccountId, 2);
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(transactionEntityList);
-
         Event event = EventFixture.anEventFixture().withResourceExternalId(transactionEntityList.get(0).getExternalId()).toEntity();
         Event eventWithoutStateMapping = EventFixture.anEventFixture()
                 .withEventType("EVENT_WITHOUT_ANY_STATE_MAPPING")
                 .withResourceExternalId(transactionEntityList.get(1).getExternalId()).toEntity();
         List<Event> eventList = List.of(event, eventWithoutStateMapping);
 
-        when(mockEventDao.findEventsForExternalIds(any())).thenReturn(eventList);
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId("external-id", gatewayAccountId, 1))
+                .thenReturn(Optional.of(toTransactionEvents(transactionEntityList, eventList, 1)));
 
         TransactionEventResponse transactionEventResponse
                 = transactionService.findTransactionEvents("external-id", gatewayAccountId, false, 1);
@@ -267,8 +283,8 @@ public class TransactionServiceTest {
 
     @Test
     public void findTransactionEvents_shouldThrowWebApplicationExceptionRequestExceptionIfNotRecordsFound() {
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(new ArrayList<>());
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId(anyString(), anyString(), anyInt()))
+                .thenReturn(Optional.empty());
 
         WebApplicationException webApplicationException = assertThrows(WebApplicationException.class,
                 () -> transactionService.findTransactionEvents("external-id", gatewayAccountId, false, 1));
@@ -279,9 +295,6 @@ public class TransactionServiceTest {
     @Test
     public void findTransactionEvents_shouldRemoveDuplicateEventsByExternalIdResourceTypeAndState() {
         List<TransactionEntity> transactionEntityList = TransactionFixture.aTransactionList(gatewayAccountId, 1);
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(transactionEntityList);
-
         Event event1ForStateSubmitted = EventFixture.anEventFixture()
                 .withEventType("PAYMENT_STARTED")
                 .withEventDate(ZonedDateTime.now())
@@ -297,7 +310,8 @@ public class TransactionServiceTest {
                 .withResourceExternalId(transactionEntityList.get(0).getExternalId()).toEntity();
 
         List<Event> eventList = List.of(event1ForStateSubmitted, event2ForStateSubmitted, event1ForStateError);
-        when(mockEventDao.findEventsForExternalIds(any())).thenReturn(eventList);
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId("external-id", gatewayAccountId, 2))
+                .thenReturn(Optional.of(toTransactionEvents(transactionEntityList, eventList, 2)));
 
         TransactionEventResponse transactionEventResponse
                 = transactionService.findTransactionEvents("external-id", gatewayAccountId, false, 2);
@@ -314,9 +328,6 @@ public class TransactionServiceTest {
     @Test
     public void findTransactionEvents_shouldReturnAllEventsIfIncludeAllEventsIsTrue() {
         List<TransactionEntity> transactionEntityList = TransactionFixture.aTransactionList(gatewayAccountId, 1);
-        when(mockTransactionDao.findTransactionByExternalOrParentIdAndGatewayAccountId(anyString(), anyString()))
-                .thenReturn(transactionEntityList);
-
         Event event1ForStateSubmitted = EventFixture.anEventFixture()
                 .withEventType("AUTHORISATION_SUCCEEDED")
                 .withEventDate(ZonedDateTime.now())
@@ -331,7 +342,8 @@ public class TransactionServiceTest {
                 .withResourceExternalId(transactionEntityList.get(0).getExternalId()).toEntity();
 
         List<Event> eventList = List.of(event1ForStateSubmitted, event2ForStateSubmitted, eventForUnknownType);
-        when(mockEventDao.findEventsForExternalIds(any())).thenReturn(eventList);
+        when(mockTransactionDao.findTransactionEventsByExternalOrParentIdAndGatewayAccountId("external-id", gatewayAccountId, 1))
+                .thenReturn(Optional.of(toTransactionEvents(transactionEntityList, eventList, 1)));
 
         TransactionEventResponse transactionEventResponse
                 = transactionService.findTransactionEvents("external-id", gatewayAccountId, true, 1);
@@ -370,11 +382,25 @@ public class TransactionServiceTest {
         assertThat(mayBeTransactionView.get().getPaymentProvider(), is("sandbox"));
     }
 
+    private List<TransactionEvent> toTransactionEvents(List<TransactionEntity> transactionEntityList, List<Event> eventList, int statusVersion) {
+        Map<String, Long> amountsByExternalId = transactionEntityList.stream()
+                .collect(Collectors.toMap(TransactionEntity::getExternalId, TransactionEntity::getAmount));
+        return eventList.stream()
+                .map(event -> TransactionEvent.from(event.getResourceExternalId(),
+                        amountsByExternalId.get(event.getResourceExternalId()),
+                        event.getResourceType(),
+                        event.getEventType(),
+                        event.getEventDate(),
+                        event.getEventData(),
+                        statusVersion))
+                .collect(Collectors.toList());
+    }
+
     private void assertTransactionEvent(Event event, TransactionEvent transactionEvent, Long amount, String state) {
         try {
             assertThat(transactionEvent.getState() == null ? null : transactionEvent.getState().getStatus(), is(state));
             assertThat(transactionEvent.getAmount(), is(amount));
-            assertThat(transactionEvent.getData(), is(objectMapper.readValue(event.getEventData(), Map.class)));
+            assertThat(objectMapper.readValue(transactionEvent.getData(), Map.class), is(objectMapper.readValue(event.getEventData(), Map.class)));
             assertThat(transactionEvent.getEventType(), is(event.getEventType()));
             assertThat(transactionEvent.getResourceType(), is(event.getResourceType().toString().toUpperCase()));
             assertThat(transactionEvent.getTimestamp(), is(event.getEventDate()));
@@ -34,7 +34,10 @@ public class DatabaseTestHelper {
     public void truncateAllData() {
         jdbi.withHandle(h -> h.createScript(
                 "TRUNCATE TABLE event CASCADE; " +
-                        "TRUNCATE TABLE transaction CASCADE"
+                        "TRUNCATE TABLE event_archive; " +
+                        "TRUNCATE TABLE transaction CASCADE; " +
+                        "TRUNCATE TABLE transaction_hourly_rollup, transaction_hourly_rollup_delta; " +
+                        "UPDATE transaction_hourly_rollup_coverage SET covered_from = NULL"
         ).execute());
     }
 
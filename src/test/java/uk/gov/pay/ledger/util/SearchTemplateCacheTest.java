@@ -0,0 +1,50 @@
+package uk.gov.pay.ledger.util;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class SearchTemplateCacheTest {
+
+    private MetricRegistry metricRegistry;
+    private SearchTemplateCache searchTemplateCache;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        searchTemplateCache = new SearchTemplateCache("test-search", metricRegistry);
+    }
+
+    @Test
+    public void shouldBuildTemplateOnceForTheSameFilters() {
+        AtomicInteger builds = new AtomicInteger();
+
+        String first = searchTemplateCache.get(List.of("query", List.of(" t.state = ANY(:state)")),
+                () -> "query-" + builds.incrementAndGet());
+        String second = searchTemplateCache.get(List.of("query", List.of(" t.state = ANY(:state)")),
+                () -> "query-" + builds.incrementAndGet());
+
+        assertThat(first, is("query-1"));
+        assertThat(second, is("query-1"));
+        assertThat(builds.get(), is(1));
+        assertThat(metricRegistry.counter("test-search.template-cache.hits").getCount(), is(1L));
+        assertThat(metricRegistry.counter("test-search.template-cache.misses").getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldBuildSeparateTemplatesForDifferentFilters() {
+        String withState = searchTemplateCache.get(List.of("query", List.of(" t.state = ANY(:state)")), () -> "with-state");
+        String withoutState = searchTemplateCache.get(List.of("query", List.of()), () -> "without-state");
+
+        assertThat(withState, is("with-state"));
+        assertThat(withoutState, is("without-state"));
+        assertThat(metricRegistry.counter("test-search.template-cache.misses").getCount(), is(2L));
+        assertThat(metricRegistry.getGauges().get("test-search.template-cache.size").getValue(), is(2));
+    }
+}
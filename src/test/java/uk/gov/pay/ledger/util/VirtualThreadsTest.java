@@ -0,0 +1,36 @@
+package uk.gov.pay.ledger.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    private static final int FIRST_JAVA_VERSION_WITH_VIRTUAL_THREADS = 21;
+
+    @Test
+    public void shouldOnlyBeSupportedOnJdkWithVirtualThreads() {
+        boolean expected = Runtime.version().feature() >= FIRST_JAVA_VERSION_WITH_VIRTUAL_THREADS;
+
+        assertThat(VirtualThreads.isSupported(), is(expected));
+        assertThat(VirtualThreads.newThreadPerTaskExecutor("test-").isPresent(), is(expected));
+    }
+
+    @Test
+    public void shouldRunTasksOnNamedThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        Optional<ExecutorService> executorService = VirtualThreads.newThreadPerTaskExecutor("test-");
+
+        String threadName = executorService.get().submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+        executorService.get().shutdown();
+
+        assertThat(threadName, startsWith("test-"));
+    }
+}